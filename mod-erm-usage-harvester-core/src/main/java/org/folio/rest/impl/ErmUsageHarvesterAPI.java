@@ -6,8 +6,7 @@ import static org.folio.okapi.common.XOkapiHeaders.TENANT;
 import static org.olf.erm.usage.harvester.Constants.DEFAULT_DAYS_TO_KEEP_LOGS;
 import static org.olf.erm.usage.harvester.Constants.SETTINGS_KEY_DAYS_TO_KEEP_LOGS;
 import static org.olf.erm.usage.harvester.Constants.SETTINGS_SCOPE_HARVESTER;
-import static org.olf.erm.usage.harvester.periodic.JobInfoUtil.upsertJobInfo;
-import static org.olf.erm.usage.harvester.periodic.SchedulingUtil.PERIODIC_JOB_KEY;
+import static org.olf.erm.usage.harvester.periodic.JobInfoQuery.AUTO_EXACT_COUNT_LIMIT;
 
 import com.google.common.base.Strings;
 import io.vertx.core.AsyncResult;
@@ -16,32 +15,46 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.Tuple;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.ws.rs.core.Response;
 import org.folio.cql2pgjson.CQL2PgJSON;
 import org.folio.cql2pgjson.exception.FieldException;
+import org.folio.cql2pgjson.exception.QueryValidationException;
 import org.folio.rest.jaxrs.model.JobInfo;
-import org.folio.rest.jaxrs.model.JobInfo.Result;
 import org.folio.rest.jaxrs.model.JobInfos;
+import org.folio.rest.jaxrs.model.ProviderJobStatistics;
+import org.folio.rest.jaxrs.model.ProviderJobStatisticsCollection;
 import org.folio.rest.jaxrs.model.ServiceImplementation;
 import org.folio.rest.jaxrs.model.ServiceImplementations;
 import org.folio.rest.jaxrs.resource.ErmUsageHarvester;
-import org.folio.rest.persist.Criteria.Criteria;
-import org.folio.rest.persist.Criteria.Criterion;
 import org.folio.rest.persist.PgUtil;
-import org.folio.rest.persist.cql.CQLWrapper;
+import org.folio.rest.persist.PostgresClient;
 import org.olf.erm.usage.harvester.ClockProvider;
+import org.olf.erm.usage.harvester.MonthCoverageCache;
+import org.olf.erm.usage.harvester.PgReportFingerprintStore;
 import org.olf.erm.usage.harvester.WebClientProvider;
+import org.olf.erm.usage.harvester.client.ExtCounterReportsClient;
+import org.olf.erm.usage.harvester.client.ExtCounterReportsClientImpl;
+import org.olf.erm.usage.harvester.client.SettingsCache;
 import org.olf.erm.usage.harvester.client.SettingsClient;
 import org.olf.erm.usage.harvester.client.SettingsClientImpl;
 import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
 import org.olf.erm.usage.harvester.endpoints.ServiceEndpointProvider;
+import org.olf.erm.usage.harvester.periodic.HarvestProviderJob;
+import org.olf.erm.usage.harvester.periodic.JobCleanup;
+import org.olf.erm.usage.harvester.periodic.JobInfoQuery;
+import org.olf.erm.usage.harvester.periodic.JobInfoQuery.Cursor;
+import org.olf.erm.usage.harvester.periodic.JobInfoQuery.TotalRecords;
 import org.olf.erm.usage.harvester.periodic.SchedulingUtil;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
@@ -54,14 +67,55 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
   public static final String TABLE_NAME_JOBS = "jobs";
   public static final String STALE_JOB_ERROR_MSG = "Stale job";
 
-  private static final Criteria finishedCriteria =
-      new Criteria().addField("'finishedAt'").setJSONB(true).setOperation("IS NOT NULL");
-  private static final Criteria notFinishedCritera =
-      new Criteria().addField("'finishedAt'").setJSONB(true).setOperation("IS NULL");
-  private static final Criteria notPeriodicJobTypeCriteria =
-      new Criteria().setJSONB(true).addField("'type'").setOperation("!=").setVal(PERIODIC_JOB_KEY);
+  /** Columns of {@link #PROVIDER_STATISTICS_SQL} by value of the orderBy parameter. */
+  private static final Map<String, String> STATISTICS_ORDER_BY_COLUMNS =
+      Map.of(
+          "duration", "avg_duration",
+          "maxDuration", "max_duration",
+          "failedJobs", "failed_jobs",
+          "requests", "requests",
+          "tooManyRequests", "too_many_requests",
+          "reportsUploaded", "reports_uploaded",
+          "failedMonths", "failed_months",
+          "bytesDownloaded", "bytes_downloaded",
+          "fetchTime", "fetch_time",
+          "uploadTime", "upload_time");
+
+  private static final String PROVIDER_STATISTICS_SQL =
+      """
+      SELECT provider_id,
+        count(*)::int AS jobs,
+        (count(*) FILTER (WHERE jsonb->>'result' = 'failure'))::int AS failed_jobs,
+        round(avg(duration))::bigint AS avg_duration,
+        max(duration) AS max_duration,
+        sum((jsonb->'statistics'->>'requests')::bigint)::bigint AS requests,
+        sum((jsonb->'statistics'->>'tooManyRequests')::bigint)::bigint AS too_many_requests,
+        sum((jsonb->'statistics'->>'reportsUploaded')::bigint)::bigint AS reports_uploaded,
+        sum((jsonb->'statistics'->>'failedMonths')::bigint)::bigint AS failed_months,
+        sum((jsonb->'statistics'->>'bytesDownloaded')::bigint)::bigint AS bytes_downloaded,
+        sum((jsonb->'statistics'->>'fetchTimeMillis')::bigint)::bigint AS fetch_time,
+        sum((jsonb->'statistics'->>'uploadTimeMillis')::bigint)::bigint AS upload_time,
+        max((jsonb->'statistics'->>'peakConcurrency')::int) AS peak_concurrency
+      FROM (
+        SELECT jsonb, jsonb->>'providerId' AS provider_id,
+          (extract(EPOCH FROM (jsonb->>'finishedAt')::timestamptz
+            - (jsonb->>'startedAt')::timestamptz) * 1000)::bigint AS duration
+        FROM %s
+        WHERE jsonb->>'type' = 'provider'
+          AND jsonb->>'startedAt' IS NOT NULL
+          AND jsonb->>'finishedAt' IS NOT NULL
+          AND (jsonb->>'timestamp')::bigint >= $1
+      ) AS finished_jobs
+      GROUP BY provider_id
+      ORDER BY %s DESC NULLS LAST, provider_id
+      LIMIT $2
+      """;
 
   private static final Logger log = LoggerFactory.getLogger(ErmUsageHarvesterAPI.class);
+  // fingerprints are checked over several cleanups, continuing where the last cleanup stopped
+  private static final int FINGERPRINT_CLEANUP_BATCHES = 10;
+  private static final Map<String, UUID> FINGERPRINT_CLEANUP_POSITIONS = new ConcurrentHashMap<>();
+  private static CQL2PgJSON cql2PgJson;
 
   private String createResponseEntity(Map<String, String> okapiHeaders) {
     return this.createResponseEntity(okapiHeaders, null);
@@ -100,6 +154,8 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
       Context vertxContext) {
     try {
       Scheduler scheduler = StdSchedulerFactory.getDefaultScheduler();
+      // a manually started harvest uses the current settings
+      SettingsCache.get(vertxContext.owner()).invalidate(okapiHeaders.get(TENANT));
       SchedulingUtil.scheduleProviderJob(scheduler, okapiHeaders.get(TENANT), id);
       asyncResultHandler.handle(
           succeededFuture(
@@ -161,32 +217,22 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
     return impl;
   }
 
-  private Criteria createTimestampCriteria(Number timestamp) {
-    if (timestamp == null) {
-      return new Criteria();
+  private static synchronized CQL2PgJSON getCql2PgJson() throws FieldException {
+    if (cql2PgJson == null) {
+      cql2PgJson = new CQL2PgJSON(TABLE_NAME_JOBS + ".jsonb");
     }
-    return new Criteria()
-        .addField("'timestamp'")
-        .setJSONB(true)
-        .setOperation("<=")
-        .setVal(String.valueOf(timestamp.longValue()));
+    return cql2PgJson;
   }
 
-  private Criteria createProviderIdCriteria(String providerId) {
-    if (Strings.isNullOrEmpty(providerId)) {
-      return new Criteria();
-    }
-    return new Criteria()
-        .addField("'providerId'")
-        .setJSONB(true)
-        .setOperation("=")
-        .setVal(providerId);
+  private static String getJobsTable(Map<String, String> okapiHeaders) {
+    return PostgresClient.convertToPsqlStandard(okapiHeaders.get(TENANT)) + "." + TABLE_NAME_JOBS;
   }
 
   @Override
   public void getErmUsageHarvesterJobs(
       Number timestamp,
       String providerId,
+      String cursor,
       String query,
       String totalRecords,
       int offset,
@@ -195,30 +241,92 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
       Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) {
 
-    CQL2PgJSON cql2PgJSON;
+    TotalRecords totalRecordsMode;
+    JobInfoQuery jobInfoQuery;
     try {
-      cql2PgJSON = new CQL2PgJSON(TABLE_NAME_JOBS + ".jsonb");
+      totalRecordsMode = TotalRecords.of(totalRecords);
+      jobInfoQuery =
+          new JobInfoQuery(getJobsTable(okapiHeaders))
+              .withCql(getCql2PgJson(), query)
+              .withMaxTimestamp(timestamp)
+              .withProviderId(providerId);
+      if (cursor != null) {
+        jobInfoQuery.withKeyset(Cursor.parse(cursor));
+      }
     } catch (FieldException e) {
       asyncResultHandler.handle(
           succeededFuture(GetErmUsageHarvesterJobsResponse.respond500WithTextPlain(e)));
       return;
+    } catch (QueryValidationException | IllegalArgumentException e) {
+      asyncResultHandler.handle(
+          succeededFuture(
+              GetErmUsageHarvesterJobsResponse.respond400WithTextPlain(e.getMessage())));
+      return;
     }
-    CQLWrapper cql =
-        new CQLWrapper(cql2PgJSON, query, limit, offset)
-            .addWrapper(new CQLWrapper(new Criterion(createTimestampCriteria(timestamp))))
-            .addWrapper(new CQLWrapper(new Criterion(createProviderIdCriteria(providerId))));
-    PgUtil.postgresClient(vertxContext, okapiHeaders)
-        .get(TABLE_NAME_JOBS, JobInfo.class, cql, true)
+
+    PostgresClient pgClient = PgUtil.postgresClient(vertxContext, okapiHeaders);
+    Future<List<JobInfo>> jobInfos =
+        pgClient
+            .select(
+                jobInfoQuery.toSelectSql(offset, limit),
+                Tuple.from(jobInfoQuery.getSelectParameters()))
+            .map(
+                rows -> {
+                  List<JobInfo> list = new ArrayList<>();
+                  rows.forEach(row -> list.add(row.getJsonObject("jsonb").mapTo(JobInfo.class)));
+                  return list;
+                });
+    Future<Long> count = countJobs(pgClient, jobInfoQuery, totalRecordsMode);
+    Future.all(jobInfos, count)
         .map(
-            res ->
-                new JobInfos()
-                    .withJobInfos(res.getResults())
-                    .withTotalRecords(res.getResultInfo().getTotalRecords()))
+            v -> {
+              JobInfos result =
+                  new JobInfos()
+                      .withJobInfos(jobInfos.result())
+                      .withTotalRecords((int) Math.min(count.result(), Integer.MAX_VALUE));
+              if (jobInfoQuery.isKeyset()
+                  && !result.getJobInfos().isEmpty()
+                  && result.getJobInfos().size() == limit) {
+                Cursor next = Cursor.of(result.getJobInfos().getLast());
+                result.setNextCursor(next == null ? null : next.toString());
+              }
+              return result;
+            })
         .<Response>map(GetErmUsageHarvesterJobsResponse::respond200WithApplicationJson)
         .otherwise(GetErmUsageHarvesterJobsResponse::respond500WithTextPlain)
         .onComplete(asyncResultHandler);
   }
 
+  private static Future<Long> countJobs(
+      PostgresClient pgClient, JobInfoQuery jobInfoQuery, TotalRecords totalRecords) {
+    return switch (totalRecords) {
+      case NONE -> succeededFuture(-1L);
+      case EXACT -> selectLong(pgClient, jobInfoQuery, jobInfoQuery.toCountSql());
+      case ESTIMATED -> estimateCount(pgClient, jobInfoQuery);
+      case AUTO ->
+          selectLong(pgClient, jobInfoQuery, jobInfoQuery.toLimitedCountSql())
+              .compose(
+                  exact ->
+                      exact < AUTO_EXACT_COUNT_LIMIT
+                          ? succeededFuture(exact)
+                          : estimateCount(pgClient, jobInfoQuery)
+                              .map(estimate -> Math.max(estimate, AUTO_EXACT_COUNT_LIMIT)));
+    };
+  }
+
+  private static Future<Long> selectLong(
+      PostgresClient pgClient, JobInfoQuery jobInfoQuery, String sql) {
+    return pgClient
+        .select(sql, Tuple.from(jobInfoQuery.getParameters()))
+        .map(rows -> rows.iterator().next().getLong(0));
+  }
+
+  private static Future<Long> estimateCount(PostgresClient pgClient, JobInfoQuery jobInfoQuery) {
+    return pgClient
+        .select(jobInfoQuery.toExplainSql(), Tuple.from(jobInfoQuery.getParameters()))
+        .map(rows -> JobInfoQuery.parseEstimate(rows.iterator().next().getValue(0)));
+  }
+
   @Override
   public void postErmUsageHarvesterJobsPurgefinished(
       Number timestamp,
@@ -242,44 +350,115 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
         .onComplete(asyncResultHandler);
   }
 
-  private Future<Void> purgeStaleJobs(Context vertxContext, Map<String, String> okapiHeaders) {
-    String tenantId = okapiHeaders.get(TENANT);
-    long minus60Minutes = getCurrentTimestampMinus(60, ChronoUnit.MINUTES);
-    return PgUtil.postgresClient(vertxContext, okapiHeaders)
-        .get(
-            TABLE_NAME_JOBS,
-            JobInfo.class,
-            new Criterion()
-                .addCriterion(createTimestampCriteria(minus60Minutes))
-                .addCriterion(notPeriodicJobTypeCriteria)
-                .addCriterion(notFinishedCritera))
-        .flatMap(
-            res -> {
-              List<Future<String>> upserts =
-                  res.getResults().stream()
-                      .map(
-                          ji ->
-                              upsertJobInfo(
-                                  ji.withFinishedAt(
-                                          Date.from(Instant.now(ClockProvider.getClock())))
-                                      .withResult(Result.FAILURE)
-                                      .withErrorMessage(STALE_JOB_ERROR_MSG),
-                                  tenantId))
-                      .toList();
-              return Future.join(upserts);
+  @Override
+  public void getErmUsageHarvesterJobsStatistics(
+      int days,
+      String orderBy,
+      int limit,
+      Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler,
+      Context vertxContext) {
+    String orderByColumn = STATISTICS_ORDER_BY_COLUMNS.get(orderBy);
+    if (orderByColumn == null) {
+      asyncResultHandler.handle(
+          succeededFuture(
+              GetErmUsageHarvesterJobsStatisticsResponse.respond400WithTextPlain(
+                  "Invalid value for orderBy: " + orderBy)));
+      return;
+    }
+    String sql = String.format(PROVIDER_STATISTICS_SQL, getJobsTable(okapiHeaders), orderByColumn);
+    PgUtil.postgresClient(vertxContext, okapiHeaders)
+        .select(sql, Tuple.of(getCurrentTimestampMinus(days, ChronoUnit.DAYS), limit))
+        .map(
+            rows -> {
+              List<ProviderJobStatistics> statistics = new ArrayList<>();
+              rows.forEach(row -> statistics.add(toProviderJobStatistics(row)));
+              return new ProviderJobStatisticsCollection()
+                  .withProviderJobStatistics(statistics)
+                  .withTotalRecords(statistics.size());
             })
+        .<Response>map(GetErmUsageHarvesterJobsStatisticsResponse::respond200WithApplicationJson)
+        .otherwise(GetErmUsageHarvesterJobsStatisticsResponse::respond500WithTextPlain)
+        .onComplete(asyncResultHandler);
+  }
+
+  private static ProviderJobStatistics toProviderJobStatistics(Row row) {
+    return new ProviderJobStatistics()
+        .withProviderId(row.getString("provider_id"))
+        .withJobs(row.getInteger("jobs"))
+        .withFailedJobs(row.getInteger("failed_jobs"))
+        .withAvgDurationMillis(row.getLong("avg_duration"))
+        .withMaxDurationMillis(row.getLong("max_duration"))
+        .withRequests(row.getLong("requests"))
+        .withTooManyRequests(row.getLong("too_many_requests"))
+        .withReportsUploaded(row.getLong("reports_uploaded"))
+        .withFailedMonths(row.getLong("failed_months"))
+        .withBytesDownloaded(row.getLong("bytes_downloaded"))
+        .withFetchTimeMillis(row.getLong("fetch_time"))
+        .withUploadTimeMillis(row.getLong("upload_time"))
+        .withPeakConcurrency(row.getInteger("peak_concurrency"));
+  }
+
+  /**
+   * Removes provider jobs and marks jobs that have not finished within the timeout of provider
+   * harvests. Jobs may wait in the {@link org.olf.erm.usage.harvester.HarvestExecutor} before they
+   * run, so a job is only stale once its harvest would have timed out.
+   */
+  private Future<Void> purgeStaleJobs(Context vertxContext, Map<String, String> okapiHeaders) {
+    Instant now = Instant.now(ClockProvider.getClock());
+    long timestamp = now.minus(HarvestProviderJob.getTimeout()).toEpochMilli();
+    return deleteStaleProviderJobs(vertxContext, okapiHeaders.get(TENANT), timestamp)
+        .compose(
+            count ->
+                createJobCleanup(vertxContext, okapiHeaders)
+                    .markStaleJobs(timestamp, now, STALE_JOB_ERROR_MSG))
         .mapEmpty();
   }
 
+  private Future<Integer> deleteStaleProviderJobs(
+      Context vertxContext, String tenantId, long timestamp) {
+    return vertxContext
+        .owner()
+        .executeBlocking(
+            () ->
+                SchedulingUtil.deleteStaleProviderJobs(
+                    StdSchedulerFactory.getDefaultScheduler(), tenantId, timestamp),
+            false)
+        .onFailure(t -> log.error("Error removing stale provider jobs: {}", t.getMessage()))
+        .otherwise(0);
+  }
+
   private Future<Void> purgeFinishedJobs(
       Context vertxContext, Map<String, String> okapiHeaders, Number timestamp) {
-    return PgUtil.postgresClient(vertxContext, okapiHeaders)
-        .delete(
-            TABLE_NAME_JOBS,
-            new Criterion(createTimestampCriteria(timestamp)).addCriterion(finishedCriteria))
+    return createJobCleanup(vertxContext, okapiHeaders)
+        .purgeFinishedJobs(timestamp == null ? null : timestamp.longValue())
+        .mapEmpty();
+  }
+
+  private Future<Void> deleteOrphanedFingerprints(
+      Context vertxContext, String tenantId, ExtCounterReportsClient counterReportsClient) {
+    return new PgReportFingerprintStore(vertxContext.owner(), tenantId)
+        .deleteOrphanedFingerprints(
+            counterReportsClient,
+            FINGERPRINT_CLEANUP_POSITIONS.get(tenantId),
+            FINGERPRINT_CLEANUP_BATCHES)
+        .onSuccess(
+            position -> {
+              if (position == null) {
+                FINGERPRINT_CLEANUP_POSITIONS.remove(tenantId);
+              } else {
+                FINGERPRINT_CLEANUP_POSITIONS.put(tenantId, position);
+              }
+            })
         .mapEmpty();
   }
 
+  private static JobCleanup createJobCleanup(
+      Context vertxContext, Map<String, String> okapiHeaders) {
+    return new JobCleanup(
+        PgUtil.postgresClient(vertxContext, okapiHeaders), getJobsTable(okapiHeaders));
+  }
+
   private long getCurrentTimestampMinus(long amountToSubstract, TemporalUnit unit) {
     return Instant.now(ClockProvider.getClock()).minus(amountToSubstract, unit).toEpochMilli();
   }
@@ -311,7 +490,10 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
     String okapiUrl = vertxContext.config().getString("okapiUrl");
     String tenantId = okapiHeaders.get(TENANT);
     WebClient webClient = WebClientProvider.get(vertxContext.owner());
-    SettingsClient settingsClient = new SettingsClientImpl(okapiUrl, tenantId, webClient);
+    SettingsClient settingsClient =
+        SettingsCache.get(vertxContext.owner())
+            .wrap(tenantId, new SettingsClientImpl(okapiUrl, tenantId, webClient));
+    MonthCoverageCache.get(vertxContext.owner()).evictExpired();
 
     purgeStaleJobs(vertxContext, okapiHeaders)
         .onFailure(t -> log.error("Error during cleanup: {}", t.toString()))
@@ -319,6 +501,14 @@ public class ErmUsageHarvesterAPI implements ErmUsageHarvester {
         .compose(v -> calculatePurgeTimestampFromSettings(settingsClient))
         .compose(timestamp -> purgeFinishedJobs(vertxContext, okapiHeaders, timestamp))
         .onFailure(t -> log.error("Error during cleanup: {}", t.toString()))
+        .recover(t -> succeededFuture())
+        .compose(
+            v ->
+                deleteOrphanedFingerprints(
+                    vertxContext,
+                    tenantId,
+                    new ExtCounterReportsClientImpl(okapiUrl, tenantId, webClient)))
+        .onFailure(t -> log.error("Error during cleanup: {}", t.toString()))
         .onComplete(
             v ->
                 asyncResultHandler.handle(
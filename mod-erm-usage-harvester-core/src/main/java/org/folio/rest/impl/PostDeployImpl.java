@@ -5,13 +5,18 @@ import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import java.time.Instant;
 import java.util.List;
 import org.folio.rest.jaxrs.model.PeriodicConfig;
 import org.folio.rest.resource.interfaces.PostDeployVerticle;
+import org.olf.erm.usage.harvester.ClockProvider;
 import org.olf.erm.usage.harvester.WebClientProvider;
 import org.olf.erm.usage.harvester.client.OkapiClientImpl;
+import org.olf.erm.usage.harvester.metrics.MetricsServer;
+import org.olf.erm.usage.harvester.periodic.HarvestProviderJob;
 import org.olf.erm.usage.harvester.periodic.HarvestProviderJobListener;
 import org.olf.erm.usage.harvester.periodic.JobInfoJobListener;
+import org.olf.erm.usage.harvester.periodic.JobInfoRecorder;
 import org.olf.erm.usage.harvester.periodic.JobInfoSchedulerListener;
 import org.olf.erm.usage.harvester.periodic.PeriodicConfigPgUtil;
 import org.olf.erm.usage.harvester.periodic.SchedulingUtil;
@@ -51,12 +56,24 @@ public class PostDeployImpl implements PostDeployVerticle {
       return;
     }
 
+    MetricsServer.start(vertx);
+
     try {
       Scheduler scheduler = StdSchedulerFactory.getDefaultScheduler();
-      scheduler.getListenerManager().addJobListener(new JobInfoJobListener());
+      JobInfoRecorder jobInfoRecorder = JobInfoRecorder.get(vertx);
+      scheduler.getListenerManager().addJobListener(new JobInfoJobListener(jobInfoRecorder));
       scheduler.getListenerManager().addJobListener(new HarvestProviderJobListener());
-      scheduler.getListenerManager().addSchedulerListener(new JobInfoSchedulerListener());
+      scheduler
+          .getListenerManager()
+          .addSchedulerListener(new JobInfoSchedulerListener(vertx, jobInfoRecorder));
       scheduler.getContext().put("vertxContext", context);
+      // remove provider jobs of harvests that were running on nodes that stopped
+      SchedulingUtil.deleteStaleProviderJobs(
+          scheduler,
+          null,
+          Instant.now(ClockProvider.getClock())
+              .minus(HarvestProviderJob.getTimeout())
+              .toEpochMilli());
       scheduler.start();
     } catch (SchedulerException e) {
       log.error("Error setting up quartz scheduler: {}", e.getMessage(), e);
@@ -0,0 +1,23 @@
+package org.folio.rest.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.folio.rest.resource.interfaces.ShutdownAPI;
+import org.olf.erm.usage.harvester.periodic.JobInfoRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ShutdownImpl implements ShutdownAPI {
+
+  private static final Logger log = LoggerFactory.getLogger(ShutdownImpl.class);
+
+  @Override
+  public void shutdown(Vertx vertx, Context context, Handler<AsyncResult<Void>> handler) {
+    JobInfoRecorder.get(vertx)
+        .close()
+        .onFailure(t -> log.error("Error saving pending JobInfos on shutdown", t))
+        .onComplete(handler);
+  }
+}
@@ -0,0 +1,152 @@
+package org.olf.erm.usage.harvester;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Controls the number of concurrent requests made to a single provider using additive increase and
+ * multiplicative decrease (AIMD).
+ *
+ * <p>Each successful request increases the limit by {@code 1 / limit}, i.e. by about one per window
+ * of {@code limit} requests, up to the maximum limit. The limit is halved if the provider signals
+ * that too many requests are made, and is decreased moderately if a request takes considerably
+ * longer than the recent average. Decreases are only applied for requests that were started after
+ * the last decrease, so that a burst of failures of concurrently running requests only counts once.
+ *
+ * <p>Additionally this class calculates retry delays using exponential backoff with jitter, and
+ * keeps track of pauses requested by the provider (e.g. by a {@code Retry-After} header).
+ */
+public class AdaptiveConcurrencyController {
+
+  static final double THROTTLED_DECREASE_FACTOR = 0.5;
+  static final double LATENCY_DECREASE_FACTOR = 0.8;
+  static final double LATENCY_TOLERANCE = 2.0;
+  static final double LATENCY_SMOOTHING = 0.2;
+  static final Duration BASE_BACKOFF = Duration.ofSeconds(1);
+  static final Duration MAX_BACKOFF = Duration.ofMinutes(2);
+  private static final int MIN_LIMIT = 1;
+
+  private final int maxLimit;
+  private final LongSupplier nanoClock;
+  private final DoubleSupplier random;
+  private double limit;
+  private double avgLatencyNanos = -1;
+  private long lastDecreaseNanos;
+  private long pausedUntilNanos;
+
+  /**
+   * Creates a controller that starts with and does not exceed {@code maxLimit} concurrent requests.
+   *
+   * @param maxLimit the initial and maximum number of concurrent requests
+   */
+  public AdaptiveConcurrencyController(int maxLimit) {
+    this(maxLimit, System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+  }
+
+  AdaptiveConcurrencyController(int maxLimit, LongSupplier nanoClock, DoubleSupplier random) {
+    this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+    this.limit = this.maxLimit;
+    this.nanoClock = nanoClock;
+    this.random = random;
+    this.lastDecreaseNanos = nanoClock.getAsLong();
+    this.pausedUntilNanos = lastDecreaseNanos;
+  }
+
+  /**
+   * Returns the current number of allowed concurrent requests.
+   *
+   * @return the current limit
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Marks the start of a request.
+   *
+   * @return a token that needs to be passed to {@link #onSuccess(long)} or {@link
+   *     #onThrottled(long, Duration)}
+   */
+  public long start() {
+    return nanoClock.getAsLong();
+  }
+
+  /**
+   * Records a successfully completed request.
+   *
+   * @param startToken the token returned by {@link #start()}
+   */
+  public synchronized void onSuccess(long startToken) {
+    long latency = nanoClock.getAsLong() - startToken;
+    if (avgLatencyNanos < 0) {
+      avgLatencyNanos = latency;
+    }
+    if (latency > avgLatencyNanos * LATENCY_TOLERANCE && startToken > lastDecreaseNanos) {
+      decrease(LATENCY_DECREASE_FACTOR);
+    } else {
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+    avgLatencyNanos += LATENCY_SMOOTHING * (latency - avgLatencyNanos);
+  }
+
+  /**
+   * Records a request that was rejected by the provider because too many requests were made.
+   *
+   * @param startToken the token returned by {@link #start()}
+   * @param retryAfter the delay requested by the provider, or {@code null} if not known
+   */
+  public synchronized void onThrottled(long startToken, Duration retryAfter) {
+    if (startToken > lastDecreaseNanos) {
+      decrease(THROTTLED_DECREASE_FACTOR);
+    }
+    if (retryAfter != null) {
+      long until = nanoClock.getAsLong() + capped(retryAfter).toNanos();
+      pausedUntilNanos = Math.max(pausedUntilNanos, until);
+    }
+  }
+
+  /**
+   * Returns the remaining time of a pause requested by the provider. No new requests should be
+   * started during that time.
+   *
+   * @return the remaining pause, or {@link Duration#ZERO} if not paused
+   */
+  public synchronized Duration getRemainingPause() {
+    long remaining = pausedUntilNanos - nanoClock.getAsLong();
+    return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+  }
+
+  /**
+   * Calculates the delay before a throttled request is retried.
+   *
+   * <p>If the provider requested a delay, that delay is used. Otherwise the delay grows
+   * exponentially with the number of retries, starting at {@link #BASE_BACKOFF}. A random jitter is
+   * added in both cases, so that retries are spread out. The delay does not exceed {@link
+   * #MAX_BACKOFF}.
+   *
+   * @param retryCount the number of retries already made
+   * @param retryAfter the delay requested by the provider, or {@code null} if not known
+   * @return the delay before the next retry
+   */
+  public Duration getBackoff(int retryCount, Duration retryAfter) {
+    double jitter = random.getAsDouble();
+    if (retryAfter != null) {
+      return capped(retryAfter.plus(Duration.ofMillis((long) (BASE_BACKOFF.toMillis() * jitter))));
+    }
+    long exponential = BASE_BACKOFF.toMillis() << Math.min(Math.max(retryCount, 0), 16);
+    long capped = Math.min(exponential, MAX_BACKOFF.toMillis());
+    // "equal jitter": half of the delay is fixed, the other half is random
+    return Duration.ofMillis(capped / 2 + (long) (capped / 2 * jitter));
+  }
+
+  private void decrease(double factor) {
+    limit = Math.max(MIN_LIMIT, limit * factor);
+    lastDecreaseNanos = nanoClock.getAsLong();
+  }
+
+  private static Duration capped(Duration duration) {
+    return duration.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : duration;
+  }
+}
@@ -0,0 +1,349 @@
+package org.olf.erm.usage.harvester;
+
+import static org.olf.erm.usage.harvester.TenantShare.PROP_MAX_CONCURRENT_REQUESTS;
+import static org.olf.erm.usage.harvester.TenantShare.PROP_TENANTS;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs asynchronous harvesting tasks with a bounded concurrency.
+ *
+ * <p>Tasks are queued per tenant. Tasks that are submitted while the maximum number of tasks is
+ * running are started once a running task completes, in submission order within a tenant. Among the
+ * tenants with queued tasks, the next task is taken from the tenant with the fewest running tasks
+ * relative to its {@link TenantShare#getWeight() weight}. Of tenants on a par, the one served least
+ * recently goes first. Thus a tenant with many providers cannot hold back the harvests of other
+ * tenants. Tenants that have reached their cap of concurrent tasks are skipped. Tasks are started
+ * on the Vert.x context of the submitting thread, so the submitting thread is never blocked.
+ *
+ * <p>The concurrency of the shared instance is configured through the system property {@value
+ * #PROP_MAX_CONCURRENT_PROVIDERS}, the shares of the tenants through the system properties {@value
+ * TenantShare#PROP_MAX_CONCURRENT_PROVIDERS}, {@value TenantShare#PROP_MAX_CONCURRENT_REQUESTS} and
+ * {@value TenantShare#PROP_TENANTS}. Its meters are registered with the global {@link Metrics}
+ * registry.
+ */
+public class HarvestExecutor implements MeterBinder {
+
+  public static final String PROP_MAX_CONCURRENT_PROVIDERS = "harvester.maxConcurrentProviders";
+  public static final int DEFAULT_MAX_CONCURRENT_PROVIDERS = 100;
+  private static final String NO_TENANT = "";
+  private static final Logger log = LoggerFactory.getLogger(HarvestExecutor.class);
+  private static final Map<Vertx, HarvestExecutor> EXECUTORS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Vertx vertx;
+  private final int maxConcurrency;
+  private final TenantShare defaultShare;
+  private final Map<String, TenantShare> tenantShares;
+  private final Map<String, TenantQueue> queues = new LinkedHashMap<>();
+  private final Map<String, HarvestExecutor> requestExecutors = new HashMap<>();
+  private int running = 0;
+  private int queued = 0;
+  private long served = 0;
+
+  public HarvestExecutor(Vertx vertx, int maxConcurrency) {
+    this(vertx, maxConcurrency, TenantShare.DEFAULT, Collections.emptyMap());
+  }
+
+  /**
+   * Creates an executor that shares its concurrency between tenants.
+   *
+   * @param vertx the Vertx instance tasks run on
+   * @param maxConcurrency the maximum number of concurrent tasks of all tenants
+   * @param defaultShare share of tenants not in {@code tenantShares}
+   * @param tenantShares shares of specific tenants
+   */
+  public HarvestExecutor(
+      Vertx vertx,
+      int maxConcurrency,
+      TenantShare defaultShare,
+      Map<String, TenantShare> tenantShares) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be greater than 0");
+    }
+    this.vertx = Objects.requireNonNull(vertx, "vertx must not be null");
+    this.maxConcurrency = maxConcurrency;
+    this.defaultShare = Objects.requireNonNull(defaultShare, "defaultShare must not be null");
+    this.tenantShares = Map.copyOf(tenantShares);
+  }
+
+  /**
+   * Returns the shared executor for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the executor
+   * @return the shared executor for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static HarvestExecutor get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return EXECUTORS.computeIfAbsent(vertx, HarvestExecutor::createFromSystemProperties);
+  }
+
+  private static HarvestExecutor createFromSystemProperties(Vertx vertx) {
+    int maxConcurrency =
+        Integer.getInteger(PROP_MAX_CONCURRENT_PROVIDERS, DEFAULT_MAX_CONCURRENT_PROVIDERS);
+    if (maxConcurrency < 1) {
+      log.error(
+          "Invalid value for {}: {}, using default", PROP_MAX_CONCURRENT_PROVIDERS, maxConcurrency);
+      maxConcurrency = DEFAULT_MAX_CONCURRENT_PROVIDERS;
+    }
+    TenantShare defaultShare = TenantShare.DEFAULT;
+    Map<String, TenantShare> tenantShares = Collections.emptyMap();
+    try {
+      defaultShare =
+          new TenantShare(
+              TenantShare.DEFAULT.getWeight(),
+              Integer.getInteger(
+                  TenantShare.PROP_MAX_CONCURRENT_PROVIDERS,
+                  TenantShare.DEFAULT.getMaxConcurrentProviders()),
+              Integer.getInteger(
+                  PROP_MAX_CONCURRENT_REQUESTS, TenantShare.DEFAULT.getMaxConcurrentRequests()));
+      tenantShares = TenantShare.parseTenants(System.getProperty(PROP_TENANTS), defaultShare);
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid tenant share configuration, using defaults: {}", e.getMessage());
+    }
+    log.info(
+        "Harvesting up to {} providers concurrently, using tenant shares {} (default), {}"
+            + " (tenants)",
+        maxConcurrency,
+        defaultShare,
+        tenantShares);
+    HarvestExecutor executor =
+        new HarvestExecutor(vertx, maxConcurrency, defaultShare, tenantShares);
+    executor.bindTo(Metrics.globalRegistry);
+    return executor;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("harvester.providers.running", this, HarvestExecutor::getRunning)
+        .description("Provider harvests that are currently running")
+        .register(registry);
+    Gauge.builder("harvester.providers.queued", this, HarvestExecutor::getQueued)
+        .description("Provider harvests that wait for a free slot")
+        .register(registry);
+    Gauge.builder("harvester.providers.max", this, HarvestExecutor::getMaxConcurrency)
+        .description("Maximum number of concurrent provider harvests")
+        .register(registry);
+  }
+
+  public TenantShare getShare(String tenantId) {
+    return tenantShares.getOrDefault(tenantId, defaultShare);
+  }
+
+  /**
+   * Submits a task that does not belong to a tenant for execution.
+   *
+   * @param task supplies the Future of the task, invoked once the task is started
+   * @return Future that completes with the result of the task
+   */
+  public <T> Future<T> submit(Supplier<Future<T>> task) {
+    return submit(NO_TENANT, task);
+  }
+
+  /**
+   * Submits a task of a tenant for execution.
+   *
+   * @param tenantId the tenant the task belongs to
+   * @param task supplies the Future of the task, invoked once the task is started
+   * @return Future that completes with the result of the task, or fails if {@code task} throws or
+   *     returns null
+   */
+  public <T> Future<T> submit(String tenantId, Supplier<Future<T>> task) {
+    Objects.requireNonNull(tenantId, "tenantId must not be null");
+    Promise<T> promise = Promise.promise();
+    Context context = vertx.getOrCreateContext();
+    synchronized (this) {
+      queues
+          .computeIfAbsent(tenantId, t -> new TenantQueue(getShare(t)))
+          .tasks
+          .add(() -> context.runOnContext(v -> run(tenantId, task, promise)));
+      queued++;
+    }
+    startNext();
+    return promise.future();
+  }
+
+  /**
+   * Limits the concurrent requests of a tenant's harvest to the cap of the tenant. All endpoints
+   * wrapped for a tenant share the cap.
+   *
+   * @param tenantId the tenant of the harvest
+   * @param serviceEndpoint the endpoint of the harvest
+   * @return the limited endpoint, or {@code serviceEndpoint} if the tenant has no cap
+   */
+  public ServiceEndpoint limitRequests(String tenantId, ServiceEndpoint serviceEndpoint) {
+    if (getShare(tenantId).getMaxConcurrentRequests() <= 0) {
+      return serviceEndpoint;
+    }
+    return new RequestLimitedServiceEndpoint(serviceEndpoint, this, tenantId);
+  }
+
+  /**
+   * Submits a request of a tenant's harvest to the request executor of the tenant. The executor is
+   * created with the current cap of the tenant, replaced when the cap changes and removed once it
+   * is idle.
+   *
+   * @param tenantId the tenant of the harvest
+   * @param request supplies the Future of the request, invoked once the request is started
+   * @return Future that completes with the result of the request
+   */
+  <T> Future<T> submitRequest(String tenantId, Supplier<Future<T>> request) {
+    int maxConcurrentRequests = getShare(tenantId).getMaxConcurrentRequests();
+    if (maxConcurrentRequests <= 0) {
+      return Future.<Void>succeededFuture().compose(v -> request.get());
+    }
+    HarvestExecutor requestExecutor;
+    Future<T> future;
+    synchronized (requestExecutors) {
+      requestExecutor =
+          requestExecutors.compute(
+              tenantId,
+              (t, executor) ->
+                  executor != null && executor.getMaxConcurrency() == maxConcurrentRequests
+                      ? executor
+                      : new HarvestExecutor(vertx, maxConcurrentRequests));
+      future = requestExecutor.submit(request);
+    }
+    return future.onComplete(
+        ar -> {
+          synchronized (requestExecutors) {
+            if (requestExecutor.getRunning() == 0 && requestExecutor.getQueued() == 0) {
+              requestExecutors.remove(tenantId, requestExecutor);
+            }
+          }
+        });
+  }
+
+  int getRequestExecutorCount() {
+    synchronized (requestExecutors) {
+      return requestExecutors.size();
+    }
+  }
+
+  private void startNext() {
+    while (true) {
+      Runnable next;
+      synchronized (this) {
+        if (running >= maxConcurrency) {
+          return;
+        }
+        TenantQueue tenantQueue = pollTenant();
+        if (tenantQueue == null) {
+          return;
+        }
+        next = tenantQueue.tasks.poll();
+        tenantQueue.running++;
+        queued--;
+        running++;
+      }
+      next.run();
+    }
+  }
+
+  /**
+   * Returns the queue of the tenant whose next task is to be started, or null if no task can be
+   * started.
+   */
+  private TenantQueue pollTenant() {
+    TenantQueue selected = null;
+    for (TenantQueue tenantQueue : queues.values()) {
+      if (tenantQueue.tasks.isEmpty() || tenantQueue.isAtCap()) {
+        continue;
+      }
+      if (selected == null
+          || tenantQueue.getLoad() < selected.getLoad()
+          || (tenantQueue.getLoad() == selected.getLoad()
+              && tenantQueue.lastServed < selected.lastServed)) {
+        selected = tenantQueue;
+      }
+    }
+    if (selected != null) {
+      selected.lastServed = ++served;
+    }
+    return selected;
+  }
+
+  private <T> void run(String tenantId, Supplier<Future<T>> task, Promise<T> promise) {
+    Future<T> future;
+    try {
+      future = Objects.requireNonNull(task.get(), "task returned null");
+    } catch (Throwable t) {
+      // the slot must be released whatever the task does
+      future = Future.failedFuture(t);
+    }
+    future.onComplete(
+        ar -> {
+          synchronized (this) {
+            running--;
+            TenantQueue tenantQueue = queues.get(tenantId);
+            tenantQueue.running--;
+            if (tenantQueue.running == 0 && tenantQueue.tasks.isEmpty()) {
+              queues.remove(tenantId);
+            }
+          }
+          startNext();
+          promise.handle(ar);
+        });
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public synchronized int getRunning() {
+    return running;
+  }
+
+  public synchronized int getQueued() {
+    return queued;
+  }
+
+  synchronized int getRunning(String tenantId) {
+    TenantQueue tenantQueue = queues.get(tenantId);
+    return tenantQueue == null ? 0 : tenantQueue.running;
+  }
+
+  synchronized int getQueued(String tenantId) {
+    TenantQueue tenantQueue = queues.get(tenantId);
+    return tenantQueue == null ? 0 : tenantQueue.tasks.size();
+  }
+
+  private static class TenantQueue {
+    private final TenantShare share;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private int running = 0;
+    private long lastServed = 0;
+
+    TenantQueue(TenantShare share) {
+      this.share = share;
+    }
+
+    boolean isAtCap() {
+      return share.getMaxConcurrentProviders() > 0 && running >= share.getMaxConcurrentProviders();
+    }
+
+    double getLoad() {
+      return running / share.getWeight();
+    }
+  }
+}
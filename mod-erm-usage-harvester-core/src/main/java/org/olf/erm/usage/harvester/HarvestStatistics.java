@@ -0,0 +1,77 @@
+package org.olf.erm.usage.harvester;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.folio.rest.jaxrs.model.JobStatistics;
+
+/**
+ * Collects the statistics of a provider harvest, see {@link JobStatistics}.
+ *
+ * <p>Times are summed over concurrent requests, so they can exceed the duration of the harvest.
+ */
+public class HarvestStatistics {
+
+  private final LongSupplier receivedBytes;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger tooManyRequests = new AtomicInteger();
+  private final AtomicInteger reportsUploaded = new AtomicInteger();
+  private final AtomicInteger reportsUnchanged = new AtomicInteger();
+  private final AtomicInteger failedMonths = new AtomicInteger();
+  private final AtomicLong fetchTimeNanos = new AtomicLong();
+  private final AtomicLong uploadTimeNanos = new AtomicLong();
+  private final AtomicInteger peakConcurrency = new AtomicInteger();
+
+  /**
+   * Creates a HarvestStatistics.
+   *
+   * @param receivedBytes supplies the number of bytes received from the provider, or -1 if unknown
+   */
+  public HarvestStatistics(LongSupplier receivedBytes) {
+    this.receivedBytes = receivedBytes;
+  }
+
+  public void recordFetch(Duration duration) {
+    requests.incrementAndGet();
+    fetchTimeNanos.addAndGet(duration.toNanos());
+  }
+
+  public void recordTooManyRequests() {
+    tooManyRequests.incrementAndGet();
+  }
+
+  public void recordFailedMonths(int count) {
+    failedMonths.addAndGet(count);
+  }
+
+  public void recordUpload(Duration duration, boolean success) {
+    uploadTimeNanos.addAndGet(duration.toNanos());
+    if (success) {
+      reportsUploaded.incrementAndGet();
+    }
+  }
+
+  public void recordUploadSkipped() {
+    reportsUnchanged.incrementAndGet();
+  }
+
+  public void recordConcurrency(int concurrency) {
+    peakConcurrency.accumulateAndGet(concurrency, Math::max);
+  }
+
+  /** Returns a snapshot of the collected statistics. */
+  public JobStatistics toJobStatistics() {
+    long bytes = receivedBytes.getAsLong();
+    return new JobStatistics()
+        .withRequests(requests.get())
+        .withTooManyRequests(tooManyRequests.get())
+        .withReportsUploaded(reportsUploaded.get())
+        .withReportsUnchanged(reportsUnchanged.get())
+        .withFailedMonths(failedMonths.get())
+        .withBytesDownloaded(bytes < 0 ? null : bytes)
+        .withFetchTimeMillis(Duration.ofNanos(fetchTimeNanos.get()).toMillis())
+        .withUploadTimeMillis(Duration.ofNanos(uploadTimeNanos.get()).toMillis())
+        .withPeakConcurrency(peakConcurrency.get());
+  }
+}
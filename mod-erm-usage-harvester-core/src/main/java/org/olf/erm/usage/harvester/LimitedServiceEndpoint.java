@@ -0,0 +1,49 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Future;
+import java.util.List;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+/**
+ * {@link ServiceEndpoint} that may hold back a request before passing it on, e.g. to wait for a
+ * rate limit permit or a free request slot. It signals when the request is actually sent, so that
+ * callers can tell the waiting time apart from the time the provider takes to respond.
+ */
+public interface LimitedServiceEndpoint extends ServiceEndpoint {
+
+  /**
+   * Fetches a report, see {@link ServiceEndpoint#fetchReport(String, String, String)}.
+   *
+   * @param onStart invoked when the request is passed on to the provider, after all waiting
+   */
+  Future<List<CounterReport>> fetchReport(
+      String report, String beginDate, String endDate, Runnable onStart);
+
+  @Override
+  default Future<List<CounterReport>> fetchReport(String report, String beginDate, String endDate) {
+    return fetchReport(report, beginDate, endDate, () -> {});
+  }
+
+  /**
+   * Fetches a report from {@code serviceEndpoint}, invoking {@code onStart} when the request is
+   * passed on to the provider. For endpoints that do not hold back requests, {@code onStart} is
+   * invoked right away.
+   *
+   * @param serviceEndpoint the endpoint to fetch the report from
+   * @param onStart invoked when the request is passed on to the provider
+   * @return Future with the fetched reports
+   */
+  static Future<List<CounterReport>> fetchReport(
+      ServiceEndpoint serviceEndpoint,
+      String report,
+      String beginDate,
+      String endDate,
+      Runnable onStart) {
+    if (serviceEndpoint instanceof LimitedServiceEndpoint limited) {
+      return limited.fetchReport(report, beginDate, endDate, onStart);
+    }
+    onStart.run();
+    return serviceEndpoint.fetchReport(report, beginDate, endDate);
+  }
+}
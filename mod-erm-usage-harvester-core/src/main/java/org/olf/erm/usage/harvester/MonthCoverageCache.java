@@ -0,0 +1,233 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Vertx;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the months of stored reports that don't need to be fetched again.
+ *
+ * <p>Months are kept as bitsets per tenant, provider, report and release, where bit {@code i}
+ * represents the {@code i}-th month after the first month of the cached range. Missing months of a
+ * range are thus calculated with a single bit operation.
+ *
+ * <p>Cached entries are updated when a report is uploaded and are reloaded from storage once they
+ * are older than the time to live, configured through the system property {@value
+ * #PROP_TTL_MINUTES}. A value of {@code 0} disables the cache. Users of the cache cross-check
+ * cached entries with the number of stored reports before relying on them, so that reports deleted
+ * or replaced through other nodes or modules are noticed before the entries expire.
+ *
+ * <p>Expired entries are removed when they are requested, and by {@link #evictExpired()}.
+ */
+public class MonthCoverageCache {
+
+  public static final String PROP_TTL_MINUTES = "harvester.coverage.ttlMinutes";
+  public static final long DEFAULT_TTL_MINUTES = 60;
+  private static final Map<Vertx, MonthCoverageCache> CACHES =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Clock clock;
+  private final Duration ttl;
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  MonthCoverageCache(Clock clock, Duration ttl) {
+    this.clock = clock;
+    this.ttl = ttl;
+  }
+
+  public MonthCoverageCache(Duration ttl) {
+    this(Clock.systemUTC(), ttl);
+  }
+
+  /**
+   * Returns the shared cache for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the cache
+   * @return the shared cache for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static MonthCoverageCache get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return CACHES.computeIfAbsent(
+        vertx,
+        v ->
+            new MonthCoverageCache(
+                Duration.ofMinutes(Long.getLong(PROP_TTL_MINUTES, DEFAULT_TTL_MINUTES))));
+  }
+
+  /**
+   * Returns the index of a month in a bitset starting at {@code first}.
+   *
+   * @param first first month of the bitset
+   * @param month the month
+   * @return the index of {@code month}
+   */
+  public static int index(YearMonth first, YearMonth month) {
+    return (int) ChronoUnit.MONTHS.between(first, month);
+  }
+
+  /**
+   * Returns the months of a range that are not set in a bitset.
+   *
+   * @param covered bitset of covered months, starting at {@code start}
+   * @param start first month of the range
+   * @param end last month of the range
+   * @return the months that are not covered, in ascending order
+   */
+  public static List<YearMonth> getMissingMonths(BitSet covered, YearMonth start, YearMonth end) {
+    List<YearMonth> result = new ArrayList<>();
+    if (start.isAfter(end)) {
+      return result;
+    }
+    BitSet missing = new BitSet();
+    missing.set(0, index(start, end) + 1);
+    missing.andNot(covered);
+    missing.stream().forEach(i -> result.add(start.plusMonths(i)));
+    return result;
+  }
+
+  public boolean isEnabled() {
+    return ttl.isPositive();
+  }
+
+  /**
+   * Returns the cached months for a range, if the cached entry covers the range, was loaded with
+   * the same number of max failed attempts and is not expired.
+   *
+   * @return copy of the cached months, starting at {@code start}
+   */
+  public Optional<BitSet> get(Key key, int maxFailedAttempts, YearMonth start, YearMonth end) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return Optional.empty();
+    }
+    if (entry.isExpired()) {
+      entries.remove(key, entry);
+      return Optional.empty();
+    }
+    return entry.get(maxFailedAttempts, start, end);
+  }
+
+  /**
+   * Caches the months of a range as loaded from storage.
+   *
+   * @param covered bitset of months that don't need fetching, starting at {@code start}
+   */
+  public void put(Key key, int maxFailedAttempts, YearMonth start, YearMonth end, BitSet covered) {
+    if (isEnabled() && !start.isAfter(end)) {
+      entries.put(key, new Entry(maxFailedAttempts, start, end, covered));
+    }
+  }
+
+  /**
+   * Updates a cached entry after a report was stored successfully.
+   *
+   * @param failedAttempts failed attempts of the stored report, null if it is not a failed report
+   */
+  public void update(Key key, YearMonth month, Integer failedAttempts) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      entry.update(month, failedAttempts);
+    }
+  }
+
+  /** Removes all expired entries. */
+  public void evictExpired() {
+    entries.values().removeIf(Entry::isExpired);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private class Entry {
+
+    private final int maxFailedAttempts;
+    private final YearMonth start;
+    private final YearMonth end;
+    private final BitSet covered;
+    private final long loadedAt;
+
+    Entry(int maxFailedAttempts, YearMonth start, YearMonth end, BitSet covered) {
+      this.maxFailedAttempts = maxFailedAttempts;
+      this.start = start;
+      this.end = end;
+      this.covered = (BitSet) covered.clone();
+      this.loadedAt = clock.millis();
+    }
+
+    boolean isExpired() {
+      return clock.millis() - loadedAt >= ttl.toMillis();
+    }
+
+    synchronized Optional<BitSet> get(int maxFailedAttempts, YearMonth from, YearMonth to) {
+      if (this.maxFailedAttempts != maxFailedAttempts || from.isBefore(start) || to.isAfter(end)) {
+        return Optional.empty();
+      }
+      int offset = index(start, from);
+      return Optional.of(covered.get(offset, index(start, to) + 1));
+    }
+
+    synchronized void update(YearMonth month, Integer failedAttempts) {
+      if (month.isBefore(start) || month.isAfter(end)) {
+        return;
+      }
+      if (failedAttempts == null || failedAttempts >= maxFailedAttempts) {
+        covered.set(index(start, month));
+      } else {
+        covered.clear(index(start, month));
+      }
+    }
+  }
+
+  /** Identifies the reports of a provider, report name and release of a tenant. */
+  public static final class Key {
+
+    private final String tenantId;
+    private final String providerId;
+    private final String reportName;
+    private final String release;
+
+    public Key(String tenantId, String providerId, String reportName, String release) {
+      this.tenantId = Objects.requireNonNull(tenantId);
+      this.providerId = providerId;
+      this.reportName = reportName;
+      this.release = release;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key key)) {
+        return false;
+      }
+      return tenantId.equals(key.tenantId)
+          && Objects.equals(providerId, key.providerId)
+          && Objects.equals(reportName, key.reportName)
+          && Objects.equals(release, key.release);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tenantId, providerId, reportName, release);
+    }
+
+    @Override
+    public String toString() {
+      return tenantId + "/" + providerId + "/" + reportName + "/" + release;
+    }
+  }
+}
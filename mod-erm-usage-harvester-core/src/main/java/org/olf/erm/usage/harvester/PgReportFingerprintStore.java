@@ -0,0 +1,172 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.folio.rest.jaxrs.model.Metadata;
+import org.folio.rest.persist.PostgresClient;
+import org.olf.erm.usage.harvester.client.ExtCounterReportsClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Stores report fingerprints in the {@value #TABLE} table of a tenant. */
+public class PgReportFingerprintStore implements ReportFingerprintStore {
+
+  public static final String TABLE = "report_fingerprints";
+  static final int CLEANUP_BATCH_SIZE = 100;
+  private static final String FINGERPRINT = "fingerprint";
+  private static final String UPDATED_DATE = "updatedDate";
+  private static final UUID MIN_UUID = new UUID(0, 0);
+  private static final String SELECT_IDS_SQL =
+      "SELECT id FROM %s WHERE id > $1 ORDER BY id LIMIT $2";
+  private static final String DELETE_SQL = "DELETE FROM %s WHERE id = ANY($1)";
+  private static final Logger log = LoggerFactory.getLogger(PgReportFingerprintStore.class);
+
+  private final Vertx vertx;
+  private final String tenantId;
+
+  public PgReportFingerprintStore(Vertx vertx, String tenantId) {
+    this.vertx = vertx;
+    this.tenantId = tenantId;
+  }
+
+  private static Long getUpdatedDate(CounterReport report) {
+    return Optional.ofNullable(report.getMetadata())
+        .map(Metadata::getUpdatedDate)
+        .map(Date::getTime)
+        .orElse(null);
+  }
+
+  private static Map<String, Long> getUpdatedDates(Collection<CounterReport> reports) {
+    return reports.stream()
+        .filter(cr -> cr.getId() != null && getUpdatedDate(cr) != null)
+        .collect(
+            Collectors.toMap(
+                CounterReport::getId, PgReportFingerprintStore::getUpdatedDate, (a, b) -> a));
+  }
+
+  @Override
+  public Future<Map<String, String>> getFingerprints(Collection<CounterReport> reports) {
+    Map<String, Long> updatedDates = getUpdatedDates(reports);
+    if (updatedDates.isEmpty()) {
+      return Future.succeededFuture(Map.of());
+    }
+    return PostgresClient.getInstance(vertx, tenantId)
+        .getById(TABLE, new JsonArray(List.copyOf(updatedDates.keySet())))
+        .map(
+            rows ->
+                rows.entrySet().stream()
+                    .filter(e -> e.getValue().getString(FINGERPRINT) != null)
+                    .filter(
+                        e ->
+                            Objects.equals(
+                                updatedDates.get(e.getKey()), e.getValue().getLong(UPDATED_DATE)))
+                    .collect(
+                        Collectors.toMap(
+                            Map.Entry::getKey, e -> e.getValue().getString(FINGERPRINT))));
+  }
+
+  @Override
+  public Future<Void> putFingerprints(
+      Collection<CounterReport> reports, Map<String, String> fingerprints) {
+    List<JsonObject> rows =
+        getUpdatedDates(reports).entrySet().stream()
+            .filter(e -> fingerprints.get(e.getKey()) != null)
+            .map(
+                e ->
+                    new JsonObject()
+                        .put("id", e.getKey())
+                        .put(FINGERPRINT, fingerprints.get(e.getKey()))
+                        .put(UPDATED_DATE, e.getValue()))
+            .toList();
+    if (rows.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    return PostgresClient.getInstance(vertx, tenantId).upsertBatch(TABLE, rows).mapEmpty();
+  }
+
+  /**
+   * Deletes the fingerprints of reports that no longer exist.
+   *
+   * <p>Fingerprints are checked in the order of their ids, in batches of {@value
+   * #CLEANUP_BATCH_SIZE} with a single lookup of the reports each, so that a large table can be
+   * checked over several calls.
+   *
+   * @param counterReportsClient client used to look up the reports
+   * @param after only check fingerprints with an id greater than this, or null to start with the
+   *     first fingerprint
+   * @param maxBatches maximum number of batches to check
+   * @return Future with the id of the last checked fingerprint, or null if the last fingerprint was
+   *     checked
+   */
+  public Future<UUID> deleteOrphanedFingerprints(
+      ExtCounterReportsClient counterReportsClient, UUID after, int maxBatches) {
+    String table = PostgresClient.convertToPsqlStandard(tenantId) + "." + TABLE;
+    AtomicLong deleted = new AtomicLong();
+    return deleteOrphanedFingerprints(
+            counterReportsClient, table, after == null ? MIN_UUID : after, maxBatches, deleted)
+        .onSuccess(
+            last -> log.info("Deleted {} fingerprints of deleted reports from {}", deleted, table));
+  }
+
+  private Future<UUID> deleteOrphanedFingerprints(
+      ExtCounterReportsClient counterReportsClient,
+      String table,
+      UUID after,
+      int maxBatches,
+      AtomicLong deleted) {
+    PostgresClient pgClient = PostgresClient.getInstance(vertx, tenantId);
+    return pgClient
+        .select(SELECT_IDS_SQL.formatted(table), Tuple.of(after, CLEANUP_BATCH_SIZE))
+        .compose(
+            rows -> {
+              List<UUID> ids = new ArrayList<>();
+              rows.forEach(row -> ids.add(row.getUUID(0)));
+              if (ids.isEmpty()) {
+                return Future.succeededFuture(null);
+              }
+              UUID last = ids.get(ids.size() - 1);
+              return counterReportsClient
+                  .getReportIds(ids.stream().map(UUID::toString).toList())
+                  .compose(existing -> deleteIds(pgClient, table, ids, existing))
+                  .compose(
+                      count -> {
+                        deleted.addAndGet(count);
+                        if (ids.size() < CLEANUP_BATCH_SIZE) {
+                          return Future.succeededFuture(null);
+                        }
+                        return maxBatches <= 1
+                            ? Future.succeededFuture(last)
+                            : deleteOrphanedFingerprints(
+                                counterReportsClient, table, last, maxBatches - 1, deleted);
+                      });
+            });
+  }
+
+  private static Future<Integer> deleteIds(
+      PostgresClient pgClient, String table, List<UUID> ids, Set<String> existing) {
+    UUID[] orphaned =
+        ids.stream().filter(id -> !existing.contains(id.toString())).toArray(UUID[]::new);
+    if (orphaned.length == 0) {
+      return Future.succeededFuture(0);
+    }
+    return pgClient
+        .execute(DELETE_SQL.formatted(table), Tuple.tuple().addArrayOfUUID(orphaned))
+        .map(RowSet::rowCount);
+  }
+}
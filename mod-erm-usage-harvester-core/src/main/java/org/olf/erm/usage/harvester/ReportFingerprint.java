@@ -0,0 +1,105 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.folio.rest.jaxrs.model.Report;
+
+/**
+ * Computes fingerprints of report contents, used to detect reports that did not change since their
+ * last upload.
+ *
+ * <p>A fingerprint is the SHA-256 hash of the report, computed with object keys in sorted order, so
+ * that it does not depend on the order in which a provider serializes fields. The creation date of
+ * a report is ignored, as providers set it to the time of the request.
+ */
+public final class ReportFingerprint {
+
+  static final String REPORT_HEADER = "Report_Header";
+  static final Set<String> IGNORED_KEYS = Set.of("Created", "created");
+
+  private ReportFingerprint() {}
+
+  /**
+   * Computes the fingerprint of a report.
+   *
+   * @param report the report
+   * @return the fingerprint as lowercase hex string
+   */
+  public static String of(Report report) {
+    MessageDigest digest = createDigest();
+    updateObject(digest, report.getAdditionalProperties(), true);
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void updateObject(MessageDigest digest, Map<?, ?> map, boolean topLevel) {
+    Map<String, Object> sorted = new TreeMap<>();
+    map.forEach((k, v) -> sorted.put(String.valueOf(k), v));
+    digest.update((byte) '{');
+    sorted.forEach(
+        (key, value) -> {
+          if (topLevel && IGNORED_KEYS.contains(key)) {
+            return;
+          }
+          updateString(digest, key);
+          if (topLevel && REPORT_HEADER.equals(key) && value instanceof Map<?, ?> header) {
+            updateObject(digest, header, true);
+          } else {
+            update(digest, value);
+          }
+        });
+    digest.update((byte) '}');
+  }
+
+  private static void update(MessageDigest digest, Object value) {
+    if (value == null) {
+      digest.update((byte) 'z');
+    } else if (value instanceof Map<?, ?> map) {
+      updateObject(digest, map, false);
+    } else if (value instanceof JsonObject jsonObject) {
+      updateObject(digest, jsonObject.getMap(), false);
+    } else if (value instanceof List<?> list) {
+      updateArray(digest, list);
+    } else if (value instanceof JsonArray jsonArray) {
+      updateArray(digest, jsonArray.getList());
+    } else if (value instanceof String s) {
+      digest.update((byte) 's');
+      updateString(digest, s);
+    } else if (value instanceof Number || value instanceof Boolean) {
+      digest.update((byte) 'n');
+      updateString(digest, value.toString());
+    } else {
+      digest.update((byte) 'o');
+      updateString(digest, Json.encode(value));
+    }
+  }
+
+  private static void updateArray(MessageDigest digest, List<?> list) {
+    digest.update((byte) '[');
+    list.forEach(item -> update(digest, item));
+    digest.update((byte) ']');
+  }
+
+  private static void updateString(MessageDigest digest, String s) {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+}
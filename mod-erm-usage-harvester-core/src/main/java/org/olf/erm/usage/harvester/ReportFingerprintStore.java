@@ -0,0 +1,34 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Future;
+import java.util.Collection;
+import java.util.Map;
+import org.folio.rest.jaxrs.model.CounterReport;
+
+/**
+ * Stores the {@link ReportFingerprint fingerprints} of uploaded reports, keyed by the id of their
+ * {@link CounterReport}.
+ *
+ * <p>A fingerprint is stored together with the update date of the stored report. It only applies as
+ * long as the report has not been updated since, e.g. by a manual upload.
+ */
+public interface ReportFingerprintStore {
+
+  /**
+   * Looks up the fingerprints of stored reports.
+   *
+   * @param reports the stored reports, including their metadata
+   * @return Future with the fingerprints keyed by report id, reports without a fingerprint or
+   *     updated since their fingerprint was stored are omitted
+   */
+  Future<Map<String, String>> getFingerprints(Collection<CounterReport> reports);
+
+  /**
+   * Stores fingerprints together with the update dates of the reports, replacing existing ones.
+   *
+   * @param reports the stored reports, including their metadata
+   * @param fingerprints fingerprints keyed by report id
+   * @return Future that completes once the fingerprints are stored
+   */
+  Future<Void> putFingerprints(Collection<CounterReport> reports, Map<String, String> fingerprints);
+}
@@ -0,0 +1,46 @@
+package org.olf.erm.usage.harvester;
+
+import io.vertx.core.Future;
+import java.util.List;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+/**
+ * {@link ServiceEndpoint} that runs its requests through the request executor of a tenant of a
+ * {@link HarvestExecutor}.
+ */
+class RequestLimitedServiceEndpoint implements LimitedServiceEndpoint {
+
+  private final ServiceEndpoint delegate;
+  private final HarvestExecutor harvestExecutor;
+  private final String tenantId;
+
+  RequestLimitedServiceEndpoint(
+      ServiceEndpoint delegate, HarvestExecutor harvestExecutor, String tenantId) {
+    this.delegate = delegate;
+    this.harvestExecutor = harvestExecutor;
+    this.tenantId = tenantId;
+  }
+
+  ServiceEndpoint getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public Future<List<CounterReport>> fetchReport(
+      String report, String beginDate, String endDate, Runnable onStart) {
+    return harvestExecutor.submitRequest(
+        tenantId,
+        () -> LimitedServiceEndpoint.fetchReport(delegate, report, beginDate, endDate, onStart));
+  }
+
+  @Override
+  public Future<Void> close() {
+    return delegate.close();
+  }
+
+  @Override
+  public long getReceivedBytes() {
+    return delegate.getReceivedBytes();
+  }
+}
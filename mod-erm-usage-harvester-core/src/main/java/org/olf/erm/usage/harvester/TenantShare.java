@@ -0,0 +1,125 @@
+package org.olf.erm.usage.harvester;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Share of a tenant in the harvesting capacity. The weight decides how many of the concurrent
+ * provider harvests a tenant gets while other tenants are waiting. The caps limit the concurrent
+ * provider harvests and requests of the tenant; a cap {@code <= 0} disables it.
+ */
+public class TenantShare {
+
+  public static final String PROP_MAX_CONCURRENT_PROVIDERS =
+      "harvester.tenants.maxConcurrentProviders";
+  public static final String PROP_MAX_CONCURRENT_REQUESTS =
+      "harvester.tenants.maxConcurrentRequests";
+  public static final String PROP_TENANTS = "harvester.tenants";
+  public static final TenantShare DEFAULT = new TenantShare(1, 0, 0);
+
+  private final double weight;
+  private final int maxConcurrentProviders;
+  private final int maxConcurrentRequests;
+
+  public TenantShare(double weight, int maxConcurrentProviders, int maxConcurrentRequests) {
+    if (!(weight > 0)) {
+      throw new IllegalArgumentException("weight must be greater than 0");
+    }
+    this.weight = weight;
+    this.maxConcurrentProviders = Math.max(0, maxConcurrentProviders);
+    this.maxConcurrentRequests = Math.max(0, maxConcurrentRequests);
+  }
+
+  public double getWeight() {
+    return weight;
+  }
+
+  public int getMaxConcurrentProviders() {
+    return maxConcurrentProviders;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  /**
+   * Parses a share in the format {@code
+   * <weight>[:<maxConcurrentProviders>[:<maxConcurrentRequests>]]}.
+   *
+   * @param str the string to parse, e.g. {@code "2:20:40"}
+   * @param defaultShare share that provides the caps {@code str} does not specify
+   * @return the parsed share
+   * @throws IllegalArgumentException if {@code str} cannot be parsed
+   */
+  public static TenantShare parse(String str, TenantShare defaultShare) {
+    String[] parts = str.trim().split(":", 3);
+    double weight = Double.parseDouble(parts[0].trim());
+    int maxConcurrentProviders =
+        parts.length > 1
+            ? Integer.parseInt(parts[1].trim())
+            : defaultShare.getMaxConcurrentProviders();
+    int maxConcurrentRequests =
+        parts.length > 2
+            ? Integer.parseInt(parts[2].trim())
+            : defaultShare.getMaxConcurrentRequests();
+    return new TenantShare(weight, maxConcurrentProviders, maxConcurrentRequests);
+  }
+
+  /**
+   * Parses per tenant shares in the format {@code <tenant>=<share>,...}, see {@link #parse(String,
+   * TenantShare)}.
+   *
+   * @param str the string to parse, e.g. {@code "diku=2:20:40,small=1:5"}
+   * @param defaultShare share that provides the caps a share does not specify
+   * @return a map with tenant ids as keys
+   * @throws IllegalArgumentException if {@code str} cannot be parsed
+   */
+  public static Map<String, TenantShare> parseTenants(String str, TenantShare defaultShare) {
+    Map<String, TenantShare> result = new HashMap<>();
+    if (str == null || str.isBlank()) {
+      return result;
+    }
+    for (String entry : str.split(",")) {
+      if (entry.isBlank()) {
+        continue;
+      }
+      String[] parts = entry.split("=", 2);
+      if (parts.length != 2 || parts[0].isBlank()) {
+        throw new IllegalArgumentException("Invalid share for tenant: " + entry);
+      }
+      result.put(parts[0].trim(), parse(parts[1], defaultShare));
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    TenantShare that = (TenantShare) o;
+    return Double.compare(weight, that.weight) == 0
+        && maxConcurrentProviders == that.maxConcurrentProviders
+        && maxConcurrentRequests == that.maxConcurrentRequests;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(weight, maxConcurrentProviders, maxConcurrentRequests);
+  }
+
+  @Override
+  public String toString() {
+    return "TenantShare [weight="
+        + weight
+        + ", maxConcurrentProviders="
+        + maxConcurrentProviders
+        + ", maxConcurrentRequests="
+        + maxConcurrentRequests
+        + "]";
+  }
+}
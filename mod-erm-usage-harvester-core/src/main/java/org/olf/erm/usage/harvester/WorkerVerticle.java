@@ -12,16 +12,26 @@ import static org.olf.erm.usage.harvester.Messages.createMsgStatus;
 import static org.olf.erm.usage.harvester.WorkerVerticle.QueueItem.createQueueItemList;
 import static org.olf.erm.usage.harvester.endpoints.ServiceEndpoint.createCounterReport;
 
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.client.HttpResponse;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.folio.rest.jaxrs.model.CounterReport;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.olf.erm.usage.harvester.client.ExtCounterReportsClient;
@@ -31,6 +41,7 @@ import org.olf.erm.usage.harvester.client.SettingsClientImpl;
 import org.olf.erm.usage.harvester.endpoints.InvalidReportException;
 import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
 import org.olf.erm.usage.harvester.endpoints.TooManyRequestsException;
+import org.olf.erm.usage.harvester.metrics.HarvestMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,17 +50,23 @@ public class WorkerVerticle extends AbstractVerticle {
   private static final Logger log = LoggerFactory.getLogger(WorkerVerticle.class);
   private static final int RETRY_COUNT_TOO_MANY_REQUESTS = 2;
   private static final int MAX_FAILED_UPLOAD_COUNT = 5;
+  private static final int MAX_PARALLEL_UPLOADS = 4;
   private final SettingsClient settingsClient;
   private final ExtCounterReportsClient counterReportsClient;
   private final ExtUsageDataProvidersClient usageDataProvidersClient;
   private final UsageDataProvider usageDataProvider;
   private final ServiceEndpoint serviceEndpoint;
+  private final ReportFingerprintStore fingerprintStore;
   private final Promise<Void> finished = Promise.promise();
   private final AtomicInteger currentTasks = new AtomicInteger(0);
+  private final AtomicInteger scheduledRetries = new AtomicInteger(0);
   private final AtomicInteger failedUploadCount = new AtomicInteger(0);
   private final String tenantId;
   private final LinkedBlockingQueue<QueueItem> queue = new LinkedBlockingQueue<>();
-  private int maxConcurrency;
+  private final AdaptiveConcurrencyController concurrencyController;
+  private final HarvestMetrics metrics;
+  private final HarvestStatistics statistics;
+  private boolean resumeScheduled;
 
   public WorkerVerticle(
       SettingsClient settingsClient,
@@ -59,13 +76,47 @@ public class WorkerVerticle extends AbstractVerticle {
       UsageDataProvider usageDataProvider,
       ServiceEndpoint serviceEndpoint,
       int initialConcurrency) {
+    this(
+        settingsClient,
+        counterReportsClient,
+        usageDataProvidersClient,
+        tenantId,
+        usageDataProvider,
+        serviceEndpoint,
+        initialConcurrency,
+        null);
+  }
+
+  /**
+   * Creates a WorkerVerticle.
+   *
+   * @param fingerprintStore store of report fingerprints used to skip uploads of unchanged reports,
+   *     or null to always upload
+   */
+  public WorkerVerticle(
+      SettingsClient settingsClient,
+      ExtCounterReportsClient counterReportsClient,
+      ExtUsageDataProvidersClient usageDataProvidersClient,
+      String tenantId,
+      UsageDataProvider usageDataProvider,
+      ServiceEndpoint serviceEndpoint,
+      int initialConcurrency,
+      ReportFingerprintStore fingerprintStore) {
     this.settingsClient = settingsClient;
     this.counterReportsClient = counterReportsClient;
     this.usageDataProvidersClient = usageDataProvidersClient;
     this.tenantId = tenantId;
     this.usageDataProvider = usageDataProvider;
     this.serviceEndpoint = serviceEndpoint;
-    this.maxConcurrency = initialConcurrency;
+    this.concurrencyController = new AdaptiveConcurrencyController(initialConcurrency);
+    this.fingerprintStore = fingerprintStore;
+    this.metrics = new HarvestMetrics(Metrics.globalRegistry, tenantId, usageDataProvider);
+    this.statistics = new HarvestStatistics(serviceEndpoint::getReceivedBytes);
+  }
+
+  /** Returns the statistics of this harvest, which are complete once it has finished. */
+  public HarvestStatistics getStatistics() {
+    return statistics;
   }
 
   public Future<Void> getFinished() {
@@ -78,6 +129,7 @@ public class WorkerVerticle extends AbstractVerticle {
   @Override
   public void start() {
     logInfo("Deploying WorkerVerticle");
+    metrics.bindWorker(queue, currentTasks, concurrencyController::getLimit);
     updateUDPLastHarvestingDate();
 
     getMaxFailedAttempts()
@@ -89,17 +141,7 @@ public class WorkerVerticle extends AbstractVerticle {
                 return;
               }
               queue.addAll(createQueueItemList(items, 0));
-              for (int i = 1; i <= maxConcurrency; i++) {
-                startNext();
-              }
-              vertx.setPeriodic(
-                  5000,
-                  id -> {
-                    if (queue.isEmpty() && currentTasks.get() == 0) {
-                      vertx.cancelTimer(id);
-                      undeploy();
-                    }
-                  });
+              startNext();
             })
         .onFailure(
             t -> {
@@ -108,6 +150,16 @@ public class WorkerVerticle extends AbstractVerticle {
             });
   }
 
+  @Override
+  public void stop(Promise<Void> stopPromise) {
+    metrics.close();
+    serviceEndpoint
+        .close()
+        .onFailure(
+            t -> log.error(createMsg("Error closing ServiceEndpoint: {}", t.getMessage()), t))
+        .onComplete(ar -> stopPromise.complete());
+  }
+
   private void undeploy() {
     finished.tryComplete();
     queue.clear();
@@ -120,38 +172,94 @@ public class WorkerVerticle extends AbstractVerticle {
     }
   }
 
+  /**
+   * Starts processing queued items until the concurrency limit is reached or the queue is empty.
+   *
+   * <p>Items that are re-queued while processing a task (e.g. after an {@link
+   * InvalidReportException}) are added to the queue before the task completes. Retries after a
+   * {@link TooManyRequestsException} are tracked until they are added to the queue. Thus processing
+   * is finished once the last running task completes, no retries are scheduled and the queue is
+   * empty.
+   */
   private void startNext() {
-    if (currentTasks.get() < maxConcurrency) {
+    long pause = concurrencyController.getRemainingPause().toMillis();
+    if (pause > 0) {
+      if (!resumeScheduled) {
+        resumeScheduled = true;
+        vertx.setTimer(
+            pause,
+            id -> {
+              resumeScheduled = false;
+              startNext();
+            });
+      }
+      return;
+    }
+    while (currentTasks.get() < concurrencyController.getLimit()) {
       QueueItem queueItem = queue.poll();
-      if (queueItem != null) {
-        currentTasks.incrementAndGet();
-        fetchReport(queueItem)
-            .compose(this::uploadReports)
-            .onComplete(
-                ar -> {
-                  currentTasks.decrementAndGet();
-                  startNext();
-                });
+      if (queueItem == null) {
+        break;
       }
+      statistics.recordConcurrency(currentTasks.incrementAndGet());
+      fetchReport(queueItem)
+          .compose(this::uploadReports)
+          .onComplete(
+              ar -> {
+                currentTasks.decrementAndGet();
+                startNext();
+                undeployIfDone();
+              });
+    }
+  }
+
+  private void undeployIfDone() {
+    if (!finished.future().isComplete()
+        && queue.isEmpty()
+        && currentTasks.get() == 0
+        && scheduledRetries.get() == 0) {
+      undeploy();
     }
   }
 
   private Future<List<CounterReport>> fetchReport(QueueItem queueItem) {
     FetchItem item = queueItem.item;
     logInfo("processing {}", item);
-    return serviceEndpoint
-        .fetchReport(item.getReportType(), item.getBegin(), item.getEnd())
-        .otherwise(t -> handleFailedReport(queueItem, t));
+    // the latency is measured from when the request is sent, not including waits for limiters
+    AtomicLong startToken = new AtomicLong(concurrencyController.start());
+    Timer.Sample sample = metrics.start();
+    long start = System.nanoTime();
+    return LimitedServiceEndpoint.fetchReport(
+            serviceEndpoint,
+            item.getReportType(),
+            item.getBegin(),
+            item.getEnd(),
+            () -> startToken.set(concurrencyController.start()))
+        .onComplete(
+            ar -> {
+              metrics.recordFetch(sample, item.getReportType(), ar.cause());
+              statistics.recordFetch(Duration.ofNanos(System.nanoTime() - start));
+            })
+        .onSuccess(reports -> concurrencyController.onSuccess(startToken.get()))
+        .otherwise(t -> handleFailedReport(queueItem, startToken.get(), t));
   }
 
-  private List<CounterReport> handleFailedReport(QueueItem queueItem, Throwable t) {
+  private List<CounterReport> handleFailedReport(
+      QueueItem queueItem, long startToken, Throwable t) {
     FetchItem item = queueItem.item;
     logInfo("{} Received {}", item, getMessageOrToString(t));
-    if (t instanceof TooManyRequestsException) {
-      maxConcurrency = 1;
+    if (t instanceof TooManyRequestsException tooManyRequestsException) {
+      statistics.recordTooManyRequests();
+      Duration retryAfter = tooManyRequestsException.getRetryAfter().orElse(null);
+      concurrencyController.onThrottled(startToken, retryAfter);
       if (queueItem.retryCount < RETRY_COUNT_TOO_MANY_REQUESTS) {
-        logInfo("Too many requests.. adding {} back to queue", item);
-        queue.add(new QueueItem(item, queueItem.retryCount + 1));
+        Duration delay = concurrencyController.getBackoff(queueItem.retryCount, retryAfter);
+        logInfo(
+            "Too many requests.. adding {} back to queue in {} ms, concurrency limit is {}",
+            item,
+            delay.toMillis(),
+            concurrencyController.getLimit());
+        metrics.recordRetry(item.getReportType());
+        scheduleRetry(new QueueItem(item, queueItem.retryCount + 1), delay);
         return Collections.emptyList();
       } else {
         logInfo(
@@ -170,6 +278,7 @@ public class WorkerVerticle extends AbstractVerticle {
       } else {
         // handle failed multiple months
         logInfo("Expanded {} into {} FetchItems", item, expand.size());
+        metrics.recordExpansion(item.getReportType());
         queue.addAll(createQueueItemList(expand, 0));
         return Collections.emptyList();
       }
@@ -178,63 +287,231 @@ public class WorkerVerticle extends AbstractVerticle {
     return createFailedReports(item, t);
   }
 
+  private void scheduleRetry(QueueItem queueItem, Duration delay) {
+    scheduledRetries.incrementAndGet();
+    vertx.setTimer(
+        Math.max(1, delay.toMillis()),
+        id -> {
+          scheduledRetries.decrementAndGet();
+          if (!finished.future().isComplete()) {
+            queue.add(queueItem);
+            startNext();
+          }
+        });
+  }
+
   /**
-   * Chain and execute asynchronous methods on a list of CounterReport objects sequentially.
+   * Chain and execute asynchronous methods on a list of items sequentially.
    *
-   * <p>This method takes a list of CounterReport objects and a method that processes each
-   * CounterReport asynchronously. It then sequentially executes the provided method on each item in
-   * the list, waiting for the completion of one before starting the next.
+   * <p>This method takes a list of items and a method that processes each item asynchronously. It
+   * then sequentially executes the provided method on each item in the list, waiting for the
+   * completion of one before starting the next.
    *
-   * @param list The list of CounterReport objects to process sequentially.
-   * @param method A function that takes a CounterReport object and returns a Future<Void>
-   *     representing an asynchronous operation on that object.
+   * @param list The list of items to process sequentially.
+   * @param method A function that takes an item and returns a Future<Void> representing an
+   *     asynchronous operation on that item.
    * @return A Future<Void> representing the completion of all asynchronous operations in the list,
    *     executed sequentially.
    */
-  private Future<Void> chainCall(
-      List<CounterReport> list, Function<CounterReport, Future<Void>> method) {
+  private <T> Future<Void> chainCall(List<T> list, Function<T, Future<Void>> method) {
     return list.stream()
         .reduce(
             succeededFuture(), (acc, item) -> acc.compose(v -> method.apply(item)), (a, b) -> a);
   }
 
+  /**
+   * Uploads a list of CounterReport objects.
+   *
+   * <p>Existing reports are looked up with a single request, then the reports are written in
+   * batches of {@code MAX_PARALLEL_UPLOADS} concurrent requests. If the lookup fails, each report
+   * is looked up individually during its upload.
+   *
+   * <p>Uploads of successfully harvested reports are skipped if the existing report has been
+   * harvested successfully, its stored {@link ReportFingerprint} matches and it has not been
+   * updated since the fingerprint was stored. The fingerprints of the uploaded reports are stored
+   * once all batches have completed.
+   *
+   * <p>Once {@code MAX_FAILED_UPLOAD_COUNT} uploads of the harvest have failed in a row, uploads
+   * that have not been started yet are skipped, including those of other reports.
+   *
+   * @param crs The list of CounterReport objects to upload.
+   * @return A Future<Void> that fails if {@code MAX_FAILED_UPLOAD_COUNT} uploads failed in a row.
+   */
   private Future<Void> uploadReports(List<CounterReport> crs) {
-    return chainCall(
-        crs,
-        cr ->
-            counterReportsClient
-                .upsertReport(cr)
-                .onSuccess(
-                    resp -> {
-                      if (resp.statusCode() / 100 != 2) {
-                        failedUploadCount.incrementAndGet();
-                      } else {
-                        failedUploadCount.set(0);
-                      }
-                      logInfo(
-                          "Upload of {} {}",
-                          counterReportToString(cr),
-                          createMsgStatus(resp.statusCode(), resp.statusMessage()));
-                    })
-                .onFailure(
-                    t -> {
-                      failedUploadCount.incrementAndGet();
-                      log.error(createMsg("{} {}", counterReportToString(cr), t.getMessage()));
-                    })
-                .transform(
-                    ar -> {
-                      if (failedUploadCount.get() >= MAX_FAILED_UPLOAD_COUNT) {
-                        String msg =
-                            "Stopping after "
-                                + MAX_FAILED_UPLOAD_COUNT
-                                + " failed uploads in a row";
-                        finished.tryFail(msg);
-                        undeploy();
-                        return failedFuture(msg);
-                      } else {
-                        return succeededFuture();
-                      }
-                    }));
+    if (crs.isEmpty()) {
+      return succeededFuture();
+    }
+    Map<String, String> uploadedFingerprints = new ConcurrentHashMap<>();
+    return getExistingReports(crs)
+        .compose(
+            existingReports ->
+                getFingerprints(existingReports)
+                    .compose(
+                        fingerprints ->
+                            chainCall(
+                                Lists.partition(crs, MAX_PARALLEL_UPLOADS),
+                                batch ->
+                                    uploadBatch(
+                                        batch,
+                                        existingReports,
+                                        fingerprints,
+                                        uploadedFingerprints))))
+        .eventually(() -> storeFingerprints(crs, uploadedFingerprints))
+        .onFailure(
+            t -> {
+              finished.tryFail(t);
+              undeploy();
+            });
+  }
+
+  private Future<Map<String, CounterReport>> getExistingReports(List<CounterReport> crs) {
+    return metrics
+        .timeRequest("getExistingReports", () -> counterReportsClient.getExistingReports(crs))
+        .map(
+            list ->
+                list.stream()
+                    .collect(
+                        Collectors.toMap(
+                            this::counterReportToString, Function.identity(), (a, b) -> a)))
+        .onFailure(
+            t ->
+                log.warn(
+                    createMsg(
+                        "Failed looking up existing reports, falling back to single lookups: {}",
+                        getMessageOrToString(t))))
+        .otherwiseEmpty();
+  }
+
+  private Future<Map<String, String>> getFingerprints(Map<String, CounterReport> existingReports) {
+    if (fingerprintStore == null || existingReports == null) {
+      return succeededFuture(Map.of());
+    }
+    List<CounterReport> harvested =
+        existingReports.values().stream().filter(cr -> cr.getFailedAttempts() == null).toList();
+    return fingerprintStore
+        .getFingerprints(harvested)
+        .onFailure(
+            t ->
+                log.warn(
+                    createMsg(
+                        "Failed looking up report fingerprints, uploading all reports: {}",
+                        getMessageOrToString(t))))
+        .otherwise(Map.of());
+  }
+
+  private Future<Void> uploadBatch(
+      List<CounterReport> batch,
+      Map<String, CounterReport> existingReports,
+      Map<String, String> fingerprints,
+      Map<String, String> uploadedFingerprints) {
+    List<Future<Void>> uploads =
+        batch.stream()
+            .map(cr -> uploadReport(cr, existingReports, fingerprints, uploadedFingerprints))
+            .toList();
+    return Future.join(uploads)
+        .transform(
+            ar ->
+                failedUploadCount.get() >= MAX_FAILED_UPLOAD_COUNT
+                    ? failedFuture(
+                        "Stopping after " + MAX_FAILED_UPLOAD_COUNT + " failed uploads in a row")
+                    : succeededFuture());
+  }
+
+  /**
+   * Stores the fingerprints of uploaded reports. The reports are looked up again with a single
+   * lookup, as their update dates are set by mod-erm-usage.
+   *
+   * @param crs the reports passed to {@link #uploadReports(List)}
+   * @param uploadedFingerprints fingerprints of the uploaded reports, keyed by {@link
+   *     #counterReportToString(CounterReport)}
+   */
+  private Future<Void> storeFingerprints(
+      List<CounterReport> crs, Map<String, String> uploadedFingerprints) {
+    if (fingerprintStore == null || uploadedFingerprints.isEmpty()) {
+      return succeededFuture();
+    }
+    List<CounterReport> uploaded =
+        crs.stream()
+            .filter(cr -> uploadedFingerprints.containsKey(counterReportToString(cr)))
+            .toList();
+    return counterReportsClient
+        .getExistingReports(uploaded)
+        .compose(
+            stored ->
+                fingerprintStore.putFingerprints(
+                    stored,
+                    stored.stream()
+                        .filter(cr -> cr.getId() != null)
+                        .filter(cr -> uploadedFingerprints.containsKey(counterReportToString(cr)))
+                        .collect(
+                            Collectors.toMap(
+                                CounterReport::getId,
+                                cr -> uploadedFingerprints.get(counterReportToString(cr)),
+                                (a, b) -> a))))
+        .onFailure(
+            t ->
+                log.warn(
+                    createMsg("Failed storing report fingerprints: {}", getMessageOrToString(t))))
+        .otherwiseEmpty();
+  }
+
+  private Future<Void> uploadReport(
+      CounterReport cr,
+      Map<String, CounterReport> existingReports,
+      Map<String, String> fingerprints,
+      Map<String, String> uploadedFingerprints) {
+    if (failedUploadCount.get() >= MAX_FAILED_UPLOAD_COUNT) {
+      // the harvest is stopped by uploadBatch
+      return succeededFuture();
+    }
+    CounterReport existing =
+        (existingReports == null) ? null : existingReports.get(counterReportToString(cr));
+    String fingerprint =
+        (fingerprintStore == null || cr.getReport() == null)
+            ? null
+            : ReportFingerprint.of(cr.getReport());
+    if (fingerprint != null
+        && existing != null
+        && existing.getFailedAttempts() == null
+        && fingerprint.equals(fingerprints.get(existing.getId()))) {
+      logInfo("Skipping upload of {}, report is unchanged", counterReportToString(cr));
+      metrics.recordUploadSkipped(cr.getReportName());
+      statistics.recordUploadSkipped();
+      return succeededFuture();
+    }
+    Timer.Sample sample = metrics.start();
+    long start = System.nanoTime();
+    Future<HttpResponse<Buffer>> upsert =
+        (existingReports == null)
+            ? counterReportsClient.upsertReport(cr)
+            : counterReportsClient.upsertReport(cr, existing);
+    return upsert
+        .onSuccess(
+            resp -> {
+              boolean success = resp.statusCode() / 100 == 2;
+              metrics.recordUpload(sample, cr.getReportName(), success);
+              statistics.recordUpload(Duration.ofNanos(System.nanoTime() - start), success);
+              if (!success) {
+                failedUploadCount.incrementAndGet();
+              } else {
+                failedUploadCount.set(0);
+                if (fingerprint != null) {
+                  uploadedFingerprints.put(counterReportToString(cr), fingerprint);
+                }
+              }
+              logInfo(
+                  "Upload of {} {}",
+                  counterReportToString(cr),
+                  createMsgStatus(resp.statusCode(), resp.statusMessage()));
+            })
+        .onFailure(
+            t -> {
+              metrics.recordUpload(sample, cr.getReportName(), false);
+              statistics.recordUpload(Duration.ofNanos(System.nanoTime() - start), false);
+              failedUploadCount.incrementAndGet();
+              log.error(createMsg("{} {}", counterReportToString(cr), t.getMessage()));
+            })
+        .mapEmpty();
   }
 
   private Future<Integer> getMaxFailedAttempts() {
@@ -256,8 +533,10 @@ public class WorkerVerticle extends AbstractVerticle {
   }
 
   private Future<List<FetchItem>> getFetchList(int maxFailedAttempts) {
-    return counterReportsClient
-        .getFetchList(usageDataProvider, maxFailedAttempts)
+    return metrics
+        .timeRequest(
+            "getFetchList",
+            () -> counterReportsClient.getFetchList(usageDataProvider, maxFailedAttempts))
         .map(
             list -> {
               if (list.isEmpty()) {
@@ -270,8 +549,12 @@ public class WorkerVerticle extends AbstractVerticle {
   }
 
   private void updateUDPLastHarvestingDate() {
-    usageDataProvidersClient
-        .updateUDPLastHarvestingDate(usageDataProvider, Date.from(Instant.now()))
+    metrics
+        .timeRequest(
+            "updateUDPLastHarvestingDate",
+            () ->
+                usageDataProvidersClient.updateUDPLastHarvestingDate(
+                    usageDataProvider, Date.from(Instant.now())))
         .onSuccess(v -> logInfo("Updated harvestingDate"))
         .onFailure(t -> log.error(createMsg("{}", t.getMessage())));
   }
@@ -281,6 +564,7 @@ public class WorkerVerticle extends AbstractVerticle {
   }
 
   private List<CounterReport> createFailedReports(List<FetchItem> items, Throwable t) {
+    statistics.recordFailedMonths(items.size());
     return items.stream()
         .map(
             i ->
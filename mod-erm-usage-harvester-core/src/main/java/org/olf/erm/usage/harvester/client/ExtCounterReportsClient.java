@@ -4,7 +4,9 @@ import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.ext.web.client.HttpResponse;
 import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import org.folio.rest.jaxrs.model.CounterReport;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.olf.erm.usage.harvester.FetchItem;
@@ -16,9 +18,40 @@ public interface ExtCounterReportsClient {
 
   Future<HttpResponse<Buffer>> upsertReport(CounterReport report);
 
+  /**
+   * Inserts or updates a report without looking up an existing report first.
+   *
+   * @param report report to upload
+   * @param existing the stored report as returned by {@link #getExistingReports(List)}, or null if
+   *     no report is stored yet
+   */
+  Future<HttpResponse<Buffer>> upsertReport(CounterReport report, CounterReport existing);
+
+  /**
+   * Looks up already stored reports for a list of reports. One request is made for each distinct
+   * combination of provider, release and report name, covering the range of months of the given
+   * reports.
+   *
+   * <p>Completes with the found reports or an empty list if none are found, fails otherwise.
+   *
+   * @param reports reports to look up, typically all months of a single fetch result
+   */
+  Future<List<CounterReport>> getExistingReports(List<CounterReport> reports);
+
+  /**
+   * Looks up which of the given reports exist, with a single request.
+   *
+   * @param ids ids of the reports
+   * @return Future with the ids of the existing reports
+   */
+  Future<Set<String>> getReportIds(Collection<String> ids);
+
   /**
    * Returns a List of FetchItems/Months that need fetching.
    *
+   * <p>The months already stored for all requested reports are retrieved with a single paged query
+   * that only reads report name and month of each stored report.
+   *
    * @param provider UsageDataProvider
    * @param maxFailedAttempts number of max failed attempts
    */
@@ -1,18 +1,36 @@
 package org.olf.erm.usage.harvester.client;
 
+import static io.vertx.core.Future.failedFuture;
 import static io.vertx.core.Future.succeededFuture;
 import static org.olf.erm.usage.harvester.DateUtil.getYearMonthFromString;
 import static org.olf.erm.usage.harvester.HttpResponseUtil.getResponseBodyIfStatus200;
+import static org.olf.erm.usage.harvester.Messages.MSG_RESPONSE_BODY_IS_NULL;
+import static org.olf.erm.usage.harvester.Messages.createMsgStatus;
+import static org.olf.erm.usage.harvester.MonthCoverageCache.getMissingMonths;
+import static org.olf.erm.usage.harvester.MonthCoverageCache.index;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import io.vertx.core.Future;
-import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.ext.web.client.WebClient;
+import java.io.IOException;
 import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 import org.folio.rest.client.CounterReportsClient;
 import org.folio.rest.jaxrs.model.CounterReport;
 import org.folio.rest.jaxrs.model.CounterReports;
@@ -20,17 +38,34 @@ import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestingStatus;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.olf.erm.usage.harvester.DateUtil;
 import org.olf.erm.usage.harvester.FetchItem;
+import org.olf.erm.usage.harvester.MonthCoverageCache;
 
 public class ExtCounterReportsClientImpl extends CounterReportsClient
     implements ExtCounterReportsClient {
 
   public static final String PATH = "/counter-reports";
-  private final String okapiUrl;
+  static final int PAGE_SIZE = 1000;
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final String tenantId;
+  private final MonthCoverageCache coverageCache;
 
   public ExtCounterReportsClientImpl(String okapiUrl, String tenantId, WebClient webClient) {
+    this(okapiUrl, tenantId, webClient, null);
+  }
+
+  /**
+   * Creates a client that uses a {@link MonthCoverageCache} for fetch list calculation.
+   *
+   * @param coverageCache cache of already harvested months, may be null
+   */
+  public ExtCounterReportsClientImpl(
+      String okapiUrl, String tenantId, WebClient webClient, MonthCoverageCache coverageCache) {
     // token is null: not required for module-to-module requests
     super(okapiUrl, tenantId, null, webClient);
-    this.okapiUrl = okapiUrl;
+    this.tenantId = tenantId;
+    this.coverageCache =
+        (coverageCache == null || !coverageCache.isEnabled()) ? null : coverageCache;
   }
 
   @Override
@@ -54,22 +89,96 @@ public class ExtCounterReportsClientImpl extends CounterReportsClient
 
   @Override
   public Future<HttpResponse<Buffer>> upsertReport(CounterReport report) {
-    AtomicReference<String> requestUrl = new AtomicReference<>(okapiUrl + PATH);
-    return this.getReport(report, true)
-        .flatMap(
-            existing -> {
-              if (existing == null) { // no report found
-                // POST the report
-                return this.postCounterReports(report);
-              } else {
-                requestUrl.updateAndGet(s -> s += "/" + existing.getId());
-                if (report.getFailedAttempts() != null) {
-                  report.setFailedAttempts(existing.getFailedAttempts() + 1);
-                }
-                report.setId(existing.getId());
-                return this.putCounterReportsById(report.getId(), report);
-              }
-            });
+    return this.getReport(report, true).flatMap(existing -> upsertReport(report, existing));
+  }
+
+  @Override
+  public Future<HttpResponse<Buffer>> upsertReport(CounterReport report, CounterReport existing) {
+    Future<HttpResponse<Buffer>> upsert;
+    if (existing == null) { // no report found
+      // POST the report
+      upsert = this.postCounterReports(report);
+    } else {
+      if (report.getFailedAttempts() != null) {
+        report.setFailedAttempts(existing.getFailedAttempts() + 1);
+      }
+      report.setId(existing.getId());
+      upsert = this.putCounterReportsById(report.getId(), report);
+    }
+    return upsert.onSuccess(
+        resp -> {
+          if (coverageCache != null && resp.statusCode() / 100 == 2) {
+            coverageCache.update(
+                createCoverageKey(
+                    report.getProviderId(), report.getReportName(), report.getRelease()),
+                YearMonth.parse(report.getYearMonth()),
+                report.getFailedAttempts());
+          }
+        });
+  }
+
+  @Override
+  public Future<List<CounterReport>> getExistingReports(List<CounterReport> reports) {
+    Map<List<String>, List<CounterReport>> groupedReports =
+        reports.stream()
+            .collect(
+                Collectors.groupingBy(
+                    r -> Arrays.asList(r.getProviderId(), r.getRelease(), r.getReportName()),
+                    LinkedHashMap::new,
+                    Collectors.toList()));
+
+    List<Future<List<CounterReport>>> futures =
+        groupedReports.values().stream().map(this::getExistingReportsForGroup).toList();
+
+    return Future.all(futures)
+        .map(
+            cf ->
+                futures.stream()
+                    .map(Future::result)
+                    .flatMap(Collection::stream)
+                    .collect(Collectors.toList()));
+  }
+
+  @Override
+  public Future<Set<String>> getReportIds(Collection<String> ids) {
+    if (ids.isEmpty()) {
+      return succeededFuture(Set.of());
+    }
+    String queryStr = "id==(" + String.join(" or ", ids) + ")";
+    return super.getCounterReports(true, queryStr, null, null, null, 0, ids.size())
+        .transform(ar -> getResponseBodyIfStatus200(ar, CounterReports.class))
+        .map(
+            collection ->
+                collection.getCounterReports().stream()
+                    .map(CounterReport::getId)
+                    .collect(Collectors.toSet()));
+  }
+
+  private Future<List<CounterReport>> getExistingReportsForGroup(List<CounterReport> group) {
+    CounterReport first = group.get(0);
+    List<YearMonth> months =
+        group.stream().map(r -> YearMonth.parse(r.getYearMonth())).sorted().toList();
+    YearMonth start = months.get(0);
+    YearMonth end = months.get(months.size() - 1);
+    Set<String> requestedMonths =
+        months.stream().map(YearMonth::toString).collect(Collectors.toSet());
+
+    String queryStr =
+        String.format(
+            """
+            (providerId=%s AND release=%s AND reportName==%s AND \
+            yearMonth>=%s AND yearMonth<=%s)
+            """,
+            first.getProviderId(), first.getRelease(), first.getReportName(), start, end);
+    int limit = DateUtil.getYearMonths(start, end).size();
+
+    return super.getCounterReports(true, queryStr, null, null, null, 0, limit)
+        .transform(ar -> getResponseBodyIfStatus200(ar, CounterReports.class))
+        .map(
+            collection ->
+                collection.getCounterReports().stream()
+                    .filter(r -> requestedMonths.contains(r.getYearMonth()))
+                    .toList());
   }
 
   @Override
@@ -79,57 +188,133 @@ public class ExtCounterReportsClientImpl extends CounterReportsClient
       return Future.failedFuture("HarvestingStatus not active");
     }
 
-    Promise<List<FetchItem>> promise = Promise.promise();
-
     YearMonth startMonth =
         getYearMonthFromString(provider.getHarvestingConfig().getHarvestingStart());
     YearMonth endMonth =
         DateUtil.getYearMonthFromStringWithLimit(
             provider.getHarvestingConfig().getHarvestingEnd(), YearMonth.now().minusMonths(1));
+    List<String> reportNames = provider.getHarvestingConfig().getRequestedReports();
+    if (reportNames == null || reportNames.isEmpty()) {
+      return succeededFuture(new ArrayList<>());
+    }
+
+    String providerId = provider.getId();
+    String release = provider.getHarvestingConfig().getReportRelease();
+    List<String> distinctReportNames = reportNames.stream().distinct().toList();
+    Map<String, BitSet> coverage = new HashMap<>();
+
+    return getCachedCoverage(
+            providerId, release, distinctReportNames, startMonth, endMonth, maxFailedAttempts)
+        .compose(
+            cached -> {
+              coverage.putAll(cached);
+              List<String> uncached =
+                  distinctReportNames.stream().filter(name -> !cached.containsKey(name)).toList();
+              return loadCoverage(
+                  providerId, release, uncached, startMonth, endMonth, maxFailedAttempts, coverage);
+            })
+        .map(
+            v -> {
+              List<FetchItem> fetchList = new ArrayList<>();
+              reportNames.forEach(
+                  reportName ->
+                      getMissingMonths(coverage.get(reportName), startMonth, endMonth)
+                          .forEach(
+                              month ->
+                                  fetchList.add(
+                                      new FetchItem(
+                                          reportName,
+                                          month.atDay(1).toString(),
+                                          month.atEndOfMonth().toString()))));
+              return fetchList;
+            });
+  }
 
-    List<FetchItem> fetchList = new ArrayList<>();
-
-    List<Future<Void>> futures = new ArrayList<>();
-    String reportRelease = provider.getHarvestingConfig().getReportRelease();
-    provider
-        .getHarvestingConfig()
-        .getRequestedReports()
-        .forEach(
-            reportName ->
-                futures.add(
-                    getValidMonths(
-                            provider.getId(),
-                            reportName,
-                            reportRelease,
-                            startMonth,
-                            endMonth,
-                            maxFailedAttempts)
-                        .compose(
-                            list -> {
-                              List<YearMonth> arrayList =
-                                  DateUtil.getYearMonths(startMonth, endMonth);
-                              arrayList.removeAll(list);
-                              arrayList.forEach(
-                                  li ->
-                                      fetchList.add(
-                                          new FetchItem(
-                                              reportName,
-                                              li.atDay(1).toString(),
-                                              li.atEndOfMonth().toString())));
-                              return Future.succeededFuture();
-                            })));
-
-    Future.all(futures)
-        .onComplete(
-            ar -> {
-              if (ar.succeeded()) {
-                promise.complete(fetchList);
-              } else {
-                promise.fail(ar.cause());
+  /**
+   * Returns the cached months that don't need fetching of the given reports, if they match the
+   * stored reports. The cached months of all reports are cross-checked at once, by comparing their
+   * number with the number of stored reports. If the numbers differ, none of the cached months are
+   * returned.
+   */
+  private Future<Map<String, BitSet>> getCachedCoverage(
+      String providerId,
+      String release,
+      List<String> reportNames,
+      YearMonth start,
+      YearMonth end,
+      int maxFailedAttempts) {
+    Map<String, BitSet> cached = new HashMap<>();
+    if (coverageCache != null) {
+      reportNames.forEach(
+          reportName ->
+              coverageCache
+                  .get(
+                      createCoverageKey(providerId, reportName, release),
+                      maxFailedAttempts,
+                      start,
+                      end)
+                  .ifPresent(covered -> cached.put(reportName, covered)));
+    }
+    if (cached.isEmpty()) {
+      return succeededFuture(cached);
+    }
+
+    int count = cached.values().stream().mapToInt(BitSet::cardinality).sum();
+    String queryStr =
+        createValidMonthsQuery(
+            providerId, release, List.copyOf(cached.keySet()), start, end, maxFailedAttempts);
+    return super.getCounterReports(true, queryStr, null, null, "exact", 0, 0)
+        .transform(ar -> getResponseBodyIfStatus200(ar, CounterReports.class))
+        .map(
+            collection ->
+                Integer.valueOf(count).equals(collection.getTotalRecords()) ? cached : Map.of());
+  }
+
+  /**
+   * Loads the months that don't need fetching of the given reports from storage, adds them to
+   * {@code coverage} and to the cache. The months of all reports are queried at once.
+   */
+  private Future<Void> loadCoverage(
+      String providerId,
+      String release,
+      List<String> reportNames,
+      YearMonth start,
+      YearMonth end,
+      int maxFailedAttempts,
+      Map<String, BitSet> coverage) {
+    if (reportNames.isEmpty()) {
+      return succeededFuture();
+    }
+    reportNames.forEach(reportName -> coverage.put(reportName, new BitSet()));
+    String queryStr =
+        createValidMonthsQuery(providerId, release, reportNames, start, end, maxFailedAttempts);
+    return getReportMonths(
+            queryStr,
+            0,
+            (reportName, month) -> {
+              BitSet covered = coverage.get(reportName);
+              if (covered != null && !month.isBefore(start) && !month.isAfter(end)) {
+                covered.set(index(start, month));
+              }
+            })
+        .onSuccess(
+            v -> {
+              if (coverageCache != null) {
+                reportNames.forEach(
+                    reportName ->
+                        coverageCache.put(
+                            createCoverageKey(providerId, reportName, release),
+                            maxFailedAttempts,
+                            start,
+                            end,
+                            coverage.get(reportName)));
               }
             });
+  }
 
-    return promise.future();
+  private MonthCoverageCache.Key createCoverageKey(
+      String providerId, String reportName, String release) {
+    return new MonthCoverageCache.Key(tenantId, providerId, reportName, release);
   }
 
   @Override
@@ -141,23 +326,99 @@ public class ExtCounterReportsClientImpl extends CounterReportsClient
       YearMonth end,
       int maxFailedAttempts) {
     String queryStr =
-        String.format(
-            """
-            (providerId=%s AND release=%s AND \
-            ((cql.allRecords=1 NOT failedAttempts="") OR (failedAttempts>=%s)) AND \
-            reportName==%s AND yearMonth>=%s AND yearMonth<=%s)
-            """,
-            providerId, release, maxFailedAttempts, reportName, start.toString(), end.toString());
+        createValidMonthsQuery(
+            providerId, release, List.of(reportName), start, end, maxFailedAttempts);
 
-    return super.getCounterReports(true, queryStr, null, null, null, 0, Integer.MAX_VALUE)
-        .transform(ar -> getResponseBodyIfStatus200(ar, CounterReports.class))
-        .flatMap(
-            result -> {
-              List<YearMonth> availableMonths = new ArrayList<>();
-              result
-                  .getCounterReports()
-                  .forEach(r -> availableMonths.add(YearMonth.parse(r.getYearMonth())));
-              return succeededFuture(availableMonths);
+    List<YearMonth> availableMonths = new ArrayList<>();
+    return getReportMonths(queryStr, 0, (name, month) -> availableMonths.add(month))
+        .map(v -> availableMonths);
+  }
+
+  private static String createValidMonthsQuery(
+      String providerId,
+      String release,
+      List<String> reportNames,
+      YearMonth start,
+      YearMonth end,
+      int maxFailedAttempts) {
+    String reportNamesStr =
+        reportNames.stream().map(name -> "\"" + name + "\"").collect(Collectors.joining(" or "));
+    return String.format(
+        """
+        (providerId=%s AND release=%s AND \
+        ((cql.allRecords=1 NOT failedAttempts="") OR (failedAttempts>=%s)) AND \
+        reportName==(%s) AND yearMonth>=%s AND yearMonth<=%s) sortBy id
+        """,
+        providerId, release, maxFailedAttempts, reportNamesStr, start, end);
+  }
+
+  /**
+   * Pages through the reports matching the query and passes report name and month of each report to
+   * the consumer. Only these two fields are read from the response, the reports themselves are not
+   * decoded.
+   */
+  private Future<Void> getReportMonths(
+      String queryStr, int offset, BiConsumer<String, YearMonth> consumer) {
+    return super.getCounterReports(true, queryStr, null, null, "none", offset, PAGE_SIZE)
+        .compose(
+            response -> {
+              if (response.statusCode() != 200) {
+                return failedFuture(
+                    createMsgStatus(response.statusCode(), response.statusMessage()));
+              }
+              int count;
+              try {
+                count = parseReportMonths(response.body(), consumer);
+              } catch (IOException | DateTimeParseException e) {
+                return failedFuture(e);
+              }
+              return count < PAGE_SIZE
+                  ? succeededFuture()
+                  : getReportMonths(queryStr, offset + PAGE_SIZE, consumer);
             });
   }
+
+  /**
+   * Reads {@code reportName} and {@code yearMonth} of all reports in a {@link CounterReports}
+   * response body.
+   *
+   * @return the number of reports in the body
+   */
+  static int parseReportMonths(Buffer body, BiConsumer<String, YearMonth> consumer)
+      throws IOException {
+    if (body == null) {
+      throw new IOException(MSG_RESPONSE_BODY_IS_NULL);
+    }
+    int count = 0;
+    try (JsonParser parser = JSON_FACTORY.createParser(body.getBytes())) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.currentName();
+        if (parser.nextToken() == JsonToken.START_ARRAY && "counterReports".equals(fieldName)) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String reportName = null;
+            String yearMonth = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+              String name = parser.currentName();
+              parser.nextToken();
+              switch (name) {
+                case "reportName" -> reportName = parser.getValueAsString();
+                case "yearMonth" -> yearMonth = parser.getValueAsString();
+                default -> parser.skipChildren();
+              }
+            }
+            count++;
+            if (yearMonth != null) {
+              consumer.accept(reportName, YearMonth.parse(yearMonth));
+            }
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+    return count;
+  }
 }
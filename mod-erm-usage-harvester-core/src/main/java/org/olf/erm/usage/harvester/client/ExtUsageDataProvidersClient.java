@@ -2,6 +2,8 @@ package org.olf.erm.usage.harvester.client;
 
 import io.vertx.core.Future;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.folio.rest.jaxrs.model.UsageDataProviders;
 
@@ -11,5 +13,17 @@ public interface ExtUsageDataProvidersClient {
 
   Future<UsageDataProviders> getActiveProviders();
 
+  /**
+   * Requests the active providers page by page, ordered by id, and passes each page to {@code
+   * pageHandler}. The next page is requested once the Future returned by the handler completes.
+   *
+   * @param pageSize the maximum number of providers per page
+   * @param pageHandler handler for each page of providers
+   * @return Future that completes once the last page is handled, or fails with the first failed
+   *     request or handler
+   */
+  Future<Void> getActiveProviders(
+      int pageSize, Function<List<UsageDataProvider>, Future<Void>> pageHandler);
+
   Future<UsageDataProvider> getActiveProviderById(String providerId);
 }
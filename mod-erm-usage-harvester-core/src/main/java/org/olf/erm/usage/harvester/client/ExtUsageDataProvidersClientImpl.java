@@ -9,6 +9,8 @@ import static org.olf.erm.usage.harvester.Messages.createProviderMsg;
 import io.vertx.core.Future;
 import io.vertx.ext.web.client.WebClient;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
 import org.folio.rest.client.UsageDataProvidersClient;
 import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestingStatus;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
@@ -60,6 +62,43 @@ public class ExtUsageDataProvidersClientImpl extends UsageDataProvidersClient
         .transform(ar -> getResponseBodyIfStatus200(ar, UsageDataProviders.class));
   }
 
+  @Override
+  public Future<Void> getActiveProviders(
+      int pageSize, Function<List<UsageDataProvider>, Future<Void>> pageHandler) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be greater than 0");
+    }
+    return getActiveProvidersAfter(null, pageSize, pageHandler);
+  }
+
+  private Future<Void> getActiveProvidersAfter(
+      String lastId, int pageSize, Function<List<UsageDataProvider>, Future<Void>> pageHandler) {
+    // keyset paging, so providers added or removed meanwhile do not shift later pages
+    String queryStr =
+        String.format("(harvestingConfig.harvestingStatus=%s)", HarvestingStatus.ACTIVE)
+            + (lastId == null ? "" : String.format(" and id > \"%s\"", lastId))
+            + " sortBy id";
+
+    return super.getUsageDataProviders(
+            queryStr, null, UsageDataProvidersGetOrder.ASC, null, 0, pageSize)
+        .transform(ar -> getResponseBodyIfStatus200(ar, UsageDataProviders.class))
+        .compose(
+            udps -> {
+              List<UsageDataProvider> page = udps.getUsageDataProviders();
+              if (page.isEmpty()) {
+                return succeededFuture();
+              }
+              return pageHandler
+                  .apply(page)
+                  .compose(
+                      v ->
+                          page.size() < pageSize
+                              ? succeededFuture()
+                              : getActiveProvidersAfter(
+                                  page.getLast().getId(), pageSize, pageHandler));
+            });
+  }
+
   @Override
   public Future<UsageDataProvider> getActiveProviderById(String providerId) {
     return super.getUsageDataProvidersById(providerId)
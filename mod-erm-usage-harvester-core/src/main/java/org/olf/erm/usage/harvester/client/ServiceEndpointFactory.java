@@ -2,21 +2,66 @@ package org.olf.erm.usage.harvester.client;
 
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
 import org.folio.rest.jaxrs.model.Aggregator;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
 import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestVia;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+import org.olf.erm.usage.harvester.ratelimit.HostRateLimiter;
+import org.olf.erm.usage.harvester.ratelimit.RateLimitedServiceEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class ServiceEndpointFactory {
 
   private static final Logger log = LoggerFactory.getLogger(ServiceEndpointFactory.class);
+  private final Vertx vertx;
   private final ExtAggregatorSettingsClient aggregatorSettingsClient;
+  private final HostRateLimiter rateLimiter;
+  private final UnaryOperator<ServiceEndpoint> requestLimiter;
 
-  public ServiceEndpointFactory(ExtAggregatorSettingsClient aggregatorSettingsClient) {
+  public ServiceEndpointFactory(Vertx vertx, ExtAggregatorSettingsClient aggregatorSettingsClient) {
+    this(vertx, aggregatorSettingsClient, null);
+  }
+
+  /**
+   * Creates a factory for {@link ServiceEndpoint}s whose requests are rate limited per host of the
+   * service URL.
+   *
+   * @param vertx the Vertx instance the created endpoints run on
+   * @param aggregatorSettingsClient client for fetching aggregator settings
+   * @param rateLimiter rate limiter to use, or null to disable rate limiting
+   */
+  public ServiceEndpointFactory(
+      Vertx vertx,
+      ExtAggregatorSettingsClient aggregatorSettingsClient,
+      HostRateLimiter rateLimiter) {
+    this(vertx, aggregatorSettingsClient, rateLimiter, UnaryOperator.identity());
+  }
+
+  /**
+   * Creates a factory for {@link ServiceEndpoint}s whose requests are rate limited per host of the
+   * service URL and then limited by {@code requestLimiter}. A request thus only holds a slot of
+   * {@code requestLimiter} once it has got a permit of the rate limiter, and does not keep other
+   * requests waiting while it waits for the host.
+   *
+   * @param vertx the Vertx instance the created endpoints run on
+   * @param aggregatorSettingsClient client for fetching aggregator settings
+   * @param rateLimiter rate limiter to use, or null to disable rate limiting
+   * @param requestLimiter wraps the created endpoints before they are rate limited
+   */
+  public ServiceEndpointFactory(
+      Vertx vertx,
+      ExtAggregatorSettingsClient aggregatorSettingsClient,
+      HostRateLimiter rateLimiter,
+      UnaryOperator<ServiceEndpoint> requestLimiter) {
+    this.vertx = Objects.requireNonNull(vertx, "vertx must not be null");
     this.aggregatorSettingsClient = aggregatorSettingsClient;
+    this.rateLimiter = rateLimiter;
+    this.requestLimiter = Objects.requireNonNull(requestLimiter, "requestLimiter must not be null");
   }
 
   public Future<ServiceEndpoint> createServiceEndpoint(UsageDataProvider usageDataProvider) {
@@ -40,13 +85,33 @@ public class ServiceEndpointFactory {
         .future()
         .compose(
             as -> {
-              ServiceEndpoint sep = ServiceEndpoint.create(usageDataProvider, as);
+              ServiceEndpoint sep = ServiceEndpoint.create(vertx, usageDataProvider, as);
               if (sep != null) {
-                sepPromise.complete(sep);
+                sepPromise.complete(
+                    withRateLimit(requestLimiter.apply(sep), usageDataProvider, as));
               } else {
                 sepPromise.fail("No service implementation available");
               }
               return sepPromise.future();
             });
   }
+
+  private ServiceEndpoint withRateLimit(
+      ServiceEndpoint sep, UsageDataProvider usageDataProvider, AggregatorSetting as) {
+    if (rateLimiter == null) {
+      return sep;
+    }
+    String serviceUrl =
+        as != null
+            ? as.getServiceUrl()
+            : usageDataProvider.getHarvestingConfig().getSushiConfig() != null
+                ? usageDataProvider.getHarvestingConfig().getSushiConfig().getServiceUrl()
+                : null;
+    String host = HostRateLimiter.getHost(serviceUrl);
+    if (host == null) {
+      return sep;
+    }
+    log.info("Rate limiting requests to host {} with {}", host, rateLimiter.getBudget(host));
+    return new RateLimitedServiceEndpoint(sep, rateLimiter, host);
+  }
 }
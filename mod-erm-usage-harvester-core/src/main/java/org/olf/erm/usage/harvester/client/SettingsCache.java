@@ -0,0 +1,163 @@
+package org.olf.erm.usage.harvester.client;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches settings values per tenant, scope and key.
+ *
+ * <p>Concurrent lookups of a value that is not cached are merged into a single request. Values are
+ * cached for the time to live, configured through the system property {@value #PROP_TTL_SECONDS},
+ * or until they are invalidated. Failed lookups are not cached. A value of {@code 0} disables the
+ * cache.
+ */
+public class SettingsCache {
+
+  public static final String PROP_TTL_SECONDS = "harvester.settings.ttlSeconds";
+  public static final long DEFAULT_TTL_SECONDS = 300;
+  private static final Map<Vertx, SettingsCache> CACHES =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Clock clock;
+  private final Duration ttl;
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  SettingsCache(Clock clock, Duration ttl) {
+    this.clock = clock;
+    this.ttl = ttl;
+  }
+
+  public SettingsCache(Duration ttl) {
+    this(Clock.systemUTC(), ttl);
+  }
+
+  /**
+   * Returns the shared cache for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the cache
+   * @return the shared cache for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static SettingsCache get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return CACHES.computeIfAbsent(
+        vertx,
+        v ->
+            new SettingsCache(
+                Duration.ofSeconds(Long.getLong(PROP_TTL_SECONDS, DEFAULT_TTL_SECONDS))));
+  }
+
+  /**
+   * Returns a {@link SettingsClient} that looks up values of a tenant through this cache.
+   *
+   * @param tenantId the tenant of the client
+   * @param delegate the client that requests values not in the cache
+   * @return the caching client, or {@code delegate} if the cache is disabled
+   */
+  public SettingsClient wrap(String tenantId, SettingsClient delegate) {
+    if (ttl.isZero() || ttl.isNegative()) {
+      return delegate;
+    }
+    return (scope, key) -> getValue(tenantId, scope, key, delegate);
+  }
+
+  /**
+   * Returns a cached value, or requests it with {@code delegate}. Concurrent requests for the same
+   * value are merged.
+   */
+  public Future<Optional<Object>> getValue(
+      String tenantId, String scope, String key, SettingsClient delegate) {
+    Key k = new Key(tenantId, scope, key);
+    Instant now = clock.instant();
+    Entry[] created = new Entry[1];
+    Entry entry =
+        entries.compute(
+            k,
+            (kk, existing) -> {
+              if (existing != null && !existing.isExpired(now)) {
+                return existing;
+              }
+              created[0] = new Entry();
+              return created[0];
+            });
+    if (created[0] != null) {
+      delegate
+          .getValue(scope, key)
+          .onComplete(
+              ar -> {
+                if (ar.succeeded()) {
+                  entry.expiresAt = clock.instant().plus(ttl);
+                } else {
+                  entries.remove(k, entry);
+                }
+              })
+          .onComplete(entry.promise);
+    }
+    return entry.promise.future();
+  }
+
+  /** Removes all cached values of a tenant. */
+  public void invalidate(String tenantId) {
+    entries.keySet().removeIf(k -> k.tenantId.equals(tenantId));
+  }
+
+  /** Removes a cached value. */
+  public void invalidate(String tenantId, String scope, String key) {
+    entries.remove(new Key(tenantId, scope, key));
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private static final class Key {
+
+    private final String tenantId;
+    private final String scope;
+    private final String key;
+
+    Key(String tenantId, String scope, String key) {
+      this.tenantId = Objects.requireNonNull(tenantId);
+      this.scope = scope;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key other)) {
+        return false;
+      }
+      return tenantId.equals(other.tenantId)
+          && Objects.equals(scope, other.scope)
+          && Objects.equals(key, other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tenantId, scope, key);
+    }
+  }
+
+  private static class Entry {
+    private final Promise<Optional<Object>> promise = Promise.promise();
+    private volatile Instant expiresAt;
+
+    boolean isExpired(Instant now) {
+      Instant expires = expiresAt;
+      return expires != null && !now.isBefore(expires);
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package org.olf.erm.usage.harvester.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.Future;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestVia;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.olf.erm.usage.harvester.endpoints.InvalidReportException;
+import org.olf.erm.usage.harvester.endpoints.TooManyRequestsException;
+
+/**
+ * Meters of the harvest of a single provider.
+ *
+ * <p>All meters are tagged by tenant, service type and provider. Report requests and uploads are
+ * additionally tagged by report type and outcome.
+ */
+public class HarvestMetrics {
+
+  public static final String FETCH = "harvester.fetch";
+  public static final String FETCH_RETRIES = "harvester.fetch.retries";
+  public static final String FETCH_EXPANSIONS = "harvester.fetch.expansions";
+  public static final String UPLOAD = "harvester.upload";
+  public static final String UPLOAD_SKIPPED = "harvester.upload.skipped";
+  public static final String CLIENT_REQUESTS = "harvester.client.requests";
+  public static final String WORKER_QUEUED = "harvester.worker.queued";
+  public static final String WORKER_TASKS = "harvester.worker.tasks";
+  public static final String WORKER_CONCURRENCY = "harvester.worker.concurrency";
+  public static final String JOBS = "harvester.jobs";
+  public static final String TAG_TENANT = "tenant";
+  public static final String TAG_SERVICE_TYPE = "service_type";
+  public static final String TAG_PROVIDER = "provider";
+  public static final String TAG_REPORT = "report";
+  public static final String TAG_OPERATION = "operation";
+  public static final String TAG_TYPE = "type";
+  public static final String TAG_OUTCOME = "outcome";
+  public static final String OUTCOME_SUCCESS = "success";
+  public static final String OUTCOME_ERROR = "error";
+  public static final String OUTCOME_TOO_MANY_REQUESTS = "too_many_requests";
+  public static final String OUTCOME_INVALID_REPORT = "invalid_report";
+  static final String SERVICE_TYPE_AGGREGATOR = "aggregator";
+  static final String SERVICE_TYPE_UNKNOWN = "unknown";
+
+  private final MeterRegistry registry;
+  private final String tenantId;
+  private final Tags tags;
+  private final List<Meter> gauges = new CopyOnWriteArrayList<>();
+
+  public HarvestMetrics(MeterRegistry registry, String tenantId, UsageDataProvider provider) {
+    this.registry = registry;
+    this.tenantId = String.valueOf(tenantId);
+    this.tags =
+        Tags.of(
+            TAG_TENANT,
+            this.tenantId,
+            TAG_SERVICE_TYPE,
+            getServiceType(provider),
+            TAG_PROVIDER,
+            String.valueOf(provider.getId()));
+  }
+
+  static String getServiceType(UsageDataProvider provider) {
+    HarvestingConfig config = provider.getHarvestingConfig();
+    if (config == null) {
+      return SERVICE_TYPE_UNKNOWN;
+    }
+    if (HarvestVia.AGGREGATOR.equals(config.getHarvestVia())) {
+      return SERVICE_TYPE_AGGREGATOR;
+    }
+    if (config.getSushiConfig() == null || config.getSushiConfig().getServiceType() == null) {
+      return SERVICE_TYPE_UNKNOWN;
+    }
+    return config.getSushiConfig().getServiceType();
+  }
+
+  static String getOutcome(Throwable t) {
+    if (t == null) {
+      return OUTCOME_SUCCESS;
+    }
+    if (t instanceof TooManyRequestsException) {
+      return OUTCOME_TOO_MANY_REQUESTS;
+    }
+    if (t instanceof InvalidReportException) {
+      return OUTCOME_INVALID_REPORT;
+    }
+    return OUTCOME_ERROR;
+  }
+
+  /** Starts timing a report request or upload. */
+  public Timer.Sample start() {
+    return Timer.start(registry);
+  }
+
+  /**
+   * Records a report request to the provider.
+   *
+   * @param sample the sample started before the request
+   * @param report the report type
+   * @param t the failure of the request, or null if it succeeded
+   */
+  public void recordFetch(Timer.Sample sample, String report, Throwable t) {
+    sample.stop(
+        Timer.builder(FETCH)
+            .description("Report requests to providers")
+            .tags(tags)
+            .tag(TAG_REPORT, report)
+            .tag(TAG_OUTCOME, getOutcome(t))
+            .register(registry));
+  }
+
+  /**
+   * Records the upload of a report.
+   *
+   * @param sample the sample started before the upload
+   * @param report the report type
+   * @param success whether the report was stored
+   */
+  public void recordUpload(Timer.Sample sample, String report, boolean success) {
+    sample.stop(
+        Timer.builder(UPLOAD)
+            .description("Report uploads")
+            .tags(tags)
+            .tag(TAG_REPORT, report)
+            .tag(TAG_OUTCOME, success ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+            .register(registry));
+  }
+
+  /** Records an upload that was skipped because the report did not change. */
+  public void recordUploadSkipped(String report) {
+    counter(UPLOAD_SKIPPED, "Report uploads skipped because the report did not change", report)
+        .increment();
+  }
+
+  /** Records a report request that is retried after a {@link TooManyRequestsException}. */
+  public void recordRetry(String report) {
+    counter(FETCH_RETRIES, "Report requests retried after too many requests", report).increment();
+  }
+
+  /** Records a report request for multiple months that is split into single months. */
+  public void recordExpansion(String report) {
+    counter(FETCH_EXPANSIONS, "Report requests split into single months", report).increment();
+  }
+
+  private Counter counter(String name, String description, String report) {
+    return Counter.builder(name)
+        .description(description)
+        .tags(tags)
+        .tag(TAG_REPORT, report)
+        .register(registry);
+  }
+
+  /**
+   * Times a request to another module.
+   *
+   * @param operation the name of the operation
+   * @param request supplies the Future of the request
+   * @return the Future of the request
+   */
+  public <T> Future<T> timeRequest(String operation, Supplier<Future<T>> request) {
+    Timer.Sample sample = start();
+    return request
+        .get()
+        .onComplete(
+            ar ->
+                sample.stop(
+                    Timer.builder(CLIENT_REQUESTS)
+                        .description("Requests to other modules")
+                        .tag(TAG_TENANT, tenantId)
+                        .tag(TAG_OPERATION, operation)
+                        .tag(TAG_OUTCOME, ar.succeeded() ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+                        .register(registry)));
+  }
+
+  /**
+   * Registers gauges for the state of a worker, until {@link #close()} is called.
+   *
+   * @param queue the queued items
+   * @param tasks the number of running tasks
+   * @param concurrencyLimit the current concurrency limit
+   */
+  public void bindWorker(Collection<?> queue, AtomicInteger tasks, IntSupplier concurrencyLimit) {
+    gauges.add(
+        Gauge.builder(WORKER_QUEUED, queue, Collection::size)
+            .description("Report requests waiting to be processed")
+            .tags(tags)
+            .register(registry));
+    gauges.add(
+        Gauge.builder(WORKER_TASKS, tasks, AtomicInteger::get)
+            .description("Report requests that are currently processed")
+            .tags(tags)
+            .register(registry));
+    gauges.add(
+        Gauge.builder(WORKER_CONCURRENCY, concurrencyLimit, IntSupplier::getAsInt)
+            .description("Current limit of concurrent report requests")
+            .tags(tags)
+            .register(registry));
+  }
+
+  /** Removes the gauges registered by {@link #bindWorker}. */
+  public void close() {
+    gauges.forEach(registry::remove);
+    gauges.clear();
+  }
+
+  /**
+   * Records the duration of a harvesting job.
+   *
+   * @param registry the registry
+   * @param tenantId the tenant
+   * @param type the job type
+   * @param success whether the job succeeded
+   * @param duration the duration of the job
+   */
+  public static void recordJob(
+      MeterRegistry registry, String tenantId, String type, boolean success, Duration duration) {
+    Timer.builder(JOBS)
+        .description("Harvesting jobs")
+        .tag(TAG_TENANT, String.valueOf(tenantId))
+        .tag(TAG_TYPE, String.valueOf(type))
+        .tag(TAG_OUTCOME, success ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+        .register(registry)
+        .record(duration);
+  }
+}
@@ -0,0 +1,97 @@
+package org.olf.erm.usage.harvester.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the meters of the global {@link Metrics} registry in the Prometheus text format.
+ *
+ * <p>The endpoint is served at {@value #PATH} on a separate port, which is configured through the
+ * system property {@value #PROP_PORT}. If the property is not set, no meters are collected.
+ */
+public class MetricsServer {
+
+  public static final String PROP_PORT = "harvester.metrics.port";
+  public static final String PATH = "/metrics";
+  static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final Logger log = LoggerFactory.getLogger(MetricsServer.class);
+  private static PrometheusMeterRegistry globalPrometheusRegistry;
+
+  private MetricsServer() {}
+
+  /**
+   * Starts the server if {@value #PROP_PORT} is set.
+   *
+   * @param vertx the Vertx instance
+   * @return Future with the started server, or with null if the server is disabled
+   */
+  public static Future<HttpServer> start(Vertx vertx) {
+    Integer port = Integer.getInteger(PROP_PORT);
+    if (port == null) {
+      log.info("Metrics endpoint disabled, set {} to enable it", PROP_PORT);
+      return Future.succeededFuture();
+    }
+    if (port < 0 || port > 65535) {
+      log.error("Invalid value for {}: {}, metrics endpoint disabled", PROP_PORT, port);
+      return Future.succeededFuture();
+    }
+    return start(vertx, getGlobalPrometheusRegistry(), port);
+  }
+
+  /**
+   * Starts a server for the given registry.
+   *
+   * @param vertx the Vertx instance
+   * @param registry the registry to serve
+   * @param port the port, or 0 for a random port
+   * @return Future with the started server
+   */
+  public static Future<HttpServer> start(Vertx vertx, PrometheusMeterRegistry registry, int port) {
+    return vertx
+        .createHttpServer()
+        .requestHandler(req -> handle(vertx, registry, req))
+        .listen(port)
+        .onSuccess(
+            server -> log.info("Serving metrics at port {}, path {}", server.actualPort(), PATH))
+        .onFailure(t -> log.error("Error starting metrics endpoint: {}", t.getMessage(), t));
+  }
+
+  private static synchronized PrometheusMeterRegistry getGlobalPrometheusRegistry() {
+    if (globalPrometheusRegistry == null) {
+      globalPrometheusRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+      new JvmMemoryMetrics().bindTo(globalPrometheusRegistry);
+      new JvmGcMetrics().bindTo(globalPrometheusRegistry);
+      new JvmThreadMetrics().bindTo(globalPrometheusRegistry);
+      new ProcessorMetrics().bindTo(globalPrometheusRegistry);
+      Metrics.addRegistry(globalPrometheusRegistry);
+    }
+    return globalPrometheusRegistry;
+  }
+
+  private static void handle(Vertx vertx, PrometheusMeterRegistry registry, HttpServerRequest req) {
+    if (!HttpMethod.GET.equals(req.method()) || !PATH.equals(req.path())) {
+      req.response().setStatusCode(404).end();
+      return;
+    }
+    vertx
+        .executeBlocking(registry::scrape, false)
+        .onSuccess(body -> req.response().putHeader("Content-Type", CONTENT_TYPE).end(body))
+        .onFailure(
+            t -> {
+              log.error("Error scraping metrics: {}", t.getMessage(), t);
+              req.response().setStatusCode(500).end();
+            });
+  }
+}
@@ -8,6 +8,7 @@ public abstract class AbstractHarvestJob implements Job {
   public static final String DATAKEY_JOB_ID = "jobId";
   public static final String DATAKEY_PROVIDER_ID = "providerId";
   public static final String DATAKEY_TIMESTAMP = "timestamp";
+  public static final String DATAKEY_SNAPSHOT_ID = "snapshotId";
 
   private String tenantId;
   private String providerId;
@@ -1,13 +1,23 @@
 package org.olf.erm.usage.harvester.periodic;
 
-import static io.vertx.core.ThreadingModel.WORKER;
 import static java.util.Objects.requireNonNull;
 
 import io.vertx.core.Context;
-import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import io.vertx.ext.web.client.WebClient;
-import java.util.concurrent.CompletableFuture;
-import org.folio.rest.jaxrs.model.UsageDataProvider;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.olf.erm.usage.harvester.ClockProvider;
+import org.olf.erm.usage.harvester.HarvestExecutor;
+import org.olf.erm.usage.harvester.HarvestStatistics;
+import org.olf.erm.usage.harvester.MonthCoverageCache;
+import org.olf.erm.usage.harvester.PgReportFingerprintStore;
+import org.olf.erm.usage.harvester.ReportFingerprintStore;
 import org.olf.erm.usage.harvester.WebClientProvider;
 import org.olf.erm.usage.harvester.WorkerVerticle;
 import org.olf.erm.usage.harvester.client.ExtAggregatorSettingsClient;
@@ -17,15 +27,67 @@ import org.olf.erm.usage.harvester.client.ExtCounterReportsClientImpl;
 import org.olf.erm.usage.harvester.client.ExtUsageDataProvidersClient;
 import org.olf.erm.usage.harvester.client.ExtUsageDataProvidersClientImpl;
 import org.olf.erm.usage.harvester.client.ServiceEndpointFactory;
+import org.olf.erm.usage.harvester.client.SettingsCache;
 import org.olf.erm.usage.harvester.client.SettingsClient;
 import org.olf.erm.usage.harvester.client.SettingsClientImpl;
-import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+import org.olf.erm.usage.harvester.ratelimit.HostRateLimiter;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Harvests a single provider.
+ *
+ * <p>The harvest is handed to the {@link HarvestExecutor}, so the Quartz thread is released right
+ * away and harvests of other tenants are not held back. The {@link Future} of the harvest is set as
+ * the result of the {@link JobExecutionContext} and the job is completed by the {@link
+ * HarvestProviderJobListener} once it completes.
+ *
+ * <p>The {@link HarvestStatistics} of the harvest are put into the {@link JobExecutionContext} with
+ * key {@value #CONTEXT_KEY_STATISTICS}, once the provider has been looked up.
+ *
+ * <p>Jobs scheduled by a {@link HarvestTenantJob} get the provider and its aggregator setting
+ * through the {@link TenantHarvestSnapshot} of the tenant harvest, if it is still current on this
+ * node. Otherwise the provider is looked up when the harvest starts, so changes of its status or
+ * harvesting configuration since the job was scheduled are taken into account.
+ */
 public class HarvestProviderJob extends AbstractHarvestJob {
 
+  public static final String CONTEXT_KEY_STATISTICS = "statistics";
+  public static final String PROP_TIMEOUT_MINUTES = "harvester.providers.timeoutMinutes";
+  public static final int DEFAULT_TIMEOUT_MINUTES = 720;
+  private static final int INITIAL_CONCURRENCY = 4;
+  private static final Logger log = LoggerFactory.getLogger(HarvestProviderJob.class);
+
+  private String snapshotId;
+  private Long timestamp;
+
+  public void setSnapshotId(String snapshotId) {
+    this.snapshotId = snapshotId;
+  }
+
+  public void setTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Returns the time a provider harvest may take, configured through the system property {@value
+   * #PROP_TIMEOUT_MINUTES}. The time is counted from when the job is scheduled, so it includes the
+   * time spent waiting in the {@link HarvestExecutor}.
+   *
+   * @return the timeout of provider harvests
+   */
+  public static Duration getTimeout() {
+    int timeoutMinutes = Integer.getInteger(PROP_TIMEOUT_MINUTES, DEFAULT_TIMEOUT_MINUTES);
+    if (timeoutMinutes < 1) {
+      log.error("Invalid value for {}: {}, using default", PROP_TIMEOUT_MINUTES, timeoutMinutes);
+      timeoutMinutes = DEFAULT_TIMEOUT_MINUTES;
+    }
+    return Duration.ofMinutes(timeoutMinutes);
+  }
+
   @Override
   public void execute(JobExecutionContext context) throws JobExecutionException {
     String providerId;
@@ -43,53 +105,110 @@ public class HarvestProviderJob extends AbstractHarvestJob {
     }
 
     WebClient webClient = WebClientProvider.get(vertxContext.owner());
-    SettingsClient settingsClient = new SettingsClientImpl(okapiUrl, tenantId, webClient);
+    SettingsClient settingsClient =
+        SettingsCache.get(vertxContext.owner())
+            .wrap(tenantId, new SettingsClientImpl(okapiUrl, tenantId, webClient));
+    Optional<TenantHarvestSnapshot> snapshot =
+        TenantHarvestSnapshot.get(vertxContext.owner(), tenantId, snapshotId);
     ExtAggregatorSettingsClient aggregatorSettingsClient =
-        new ExtAggregatorSettingsClientImpl(okapiUrl, tenantId, webClient);
+        withSnapshot(snapshot, new ExtAggregatorSettingsClientImpl(okapiUrl, tenantId, webClient));
     ExtCounterReportsClient counterReportsClient =
-        new ExtCounterReportsClientImpl(okapiUrl, tenantId, webClient);
+        new ExtCounterReportsClientImpl(
+            okapiUrl, tenantId, webClient, MonthCoverageCache.get(vertxContext.owner()));
     ExtUsageDataProvidersClient usageDataProvidersClient =
         new ExtUsageDataProvidersClientImpl(okapiUrl, tenantId, webClient);
-    int initialConcurrency = 4;
-
-    try {
-      UsageDataProvider usageDataProvider =
-          usageDataProvidersClient
-              .getActiveProviderById(providerId)
-              .toCompletionStage()
-              .toCompletableFuture()
-              .get();
+    ReportFingerprintStore fingerprintStore =
+        new PgReportFingerprintStore(vertxContext.owner(), tenantId);
+    Vertx vertx = vertxContext.owner();
+    HarvestExecutor harvestExecutor = HarvestExecutor.get(vertx);
+    // requests take a slot of the tenant only once they got a permit for the host
+    ServiceEndpointFactory serviceEndpointFactory =
+        new ServiceEndpointFactory(
+            vertx,
+            aggregatorSettingsClient,
+            HostRateLimiter.get(vertx),
+            sep -> harvestExecutor.limitRequests(tenantId, sep));
 
-      ServiceEndpoint serviceEndpoint =
-          new ServiceEndpointFactory(aggregatorSettingsClient)
-              .createServiceEndpoint(usageDataProvider)
-              .toCompletionStage()
-              .toCompletableFuture()
-              .get();
+    Duration timeout = getTimeout();
+    long deadline =
+        (timestamp == null ? Instant.now(ClockProvider.getClock()).toEpochMilli() : timestamp)
+            + timeout.toMillis();
+    WorkerDeployment deployment = new WorkerDeployment(vertx);
+    Future<Void> harvest =
+        harvestExecutor.submit(
+            tenantId,
+            () ->
+                withTimeout(
+                    deadline,
+                    timeout,
+                    deployment,
+                    () ->
+                        snapshot
+                            .flatMap(s -> s.takeProvider(providerId))
+                            .map(Future::succeededFuture)
+                            .orElseGet(
+                                () -> usageDataProvidersClient.getActiveProviderById(providerId))
+                            .compose(
+                                usageDataProvider ->
+                                    serviceEndpointFactory
+                                        .createServiceEndpoint(usageDataProvider)
+                                        .map(
+                                            serviceEndpoint ->
+                                                new WorkerVerticle(
+                                                    settingsClient,
+                                                    counterReportsClient,
+                                                    usageDataProvidersClient,
+                                                    tenantId,
+                                                    usageDataProvider,
+                                                    serviceEndpoint,
+                                                    INITIAL_CONCURRENCY,
+                                                    fingerprintStore)))
+                            .onSuccess(
+                                workerVerticle ->
+                                    context.put(
+                                        CONTEXT_KEY_STATISTICS, workerVerticle.getStatistics()))
+                            .compose(deployment::deploy)));
+    context.setResult(harvest);
+  }
 
-      WorkerVerticle workerVerticle =
-          new WorkerVerticle(
-              settingsClient,
-              counterReportsClient,
-              usageDataProvidersClient,
-              tenantId,
-              usageDataProvider,
-              serviceEndpoint,
-              initialConcurrency);
-      CompletableFuture<String> cfDeploy =
-          vertxContext
-              .owner()
-              .deployVerticle(workerVerticle, new DeploymentOptions().setThreadingModel(WORKER))
-              .toCompletionStage()
-              .toCompletableFuture();
+  private static ExtAggregatorSettingsClient withSnapshot(
+      Optional<TenantHarvestSnapshot> snapshot, ExtAggregatorSettingsClient delegate) {
+    return snapshot
+        .<ExtAggregatorSettingsClient>map(
+            s ->
+                udp ->
+                    s.getAggregatorSetting(udp)
+                        .compose(
+                            aggregatorSetting ->
+                                aggregatorSetting == null
+                                    ? delegate.getAggregatorSetting(udp)
+                                    : Future.succeededFuture(aggregatorSetting)))
+        .orElse(delegate);
+  }
 
-      cfDeploy.get();
-      workerVerticle.getFinished().toCompletionStage().toCompletableFuture().get();
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-      throw new JobExecutionException(e);
-    } catch (Exception e) {
-      throw new JobExecutionException(e);
+  /**
+   * Fails the harvest if it does not complete until {@code deadline}, and cancels the deployment of
+   * its {@link WorkerVerticle}.
+   */
+  private static Future<Void> withTimeout(
+      long deadline,
+      Duration timeout,
+      WorkerDeployment deployment,
+      Supplier<Future<Void>> harvest) {
+    String message = "Harvest did not complete within " + timeout.toMinutes() + " minutes";
+    long remaining = deadline - Instant.now(ClockProvider.getClock()).toEpochMilli();
+    if (remaining <= 0) {
+      return Future.failedFuture(message);
     }
+    return harvest
+        .get()
+        .timeout(remaining, TimeUnit.MILLISECONDS)
+        .recover(
+            t -> {
+              if (!(t instanceof TimeoutException)) {
+                return Future.failedFuture(t);
+              }
+              return deployment.cancel().transform(ar -> Future.failedFuture(message));
+            });
   }
 }
@@ -1,11 +1,24 @@
 package org.olf.erm.usage.harvester.periodic;
 
+import io.vertx.core.Context;
+import io.vertx.core.Future;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
 import org.quartz.listeners.JobListenerSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Completes {@link HarvestProviderJob}s.
+ *
+ * <p>Provider jobs are stored durably, so that they are regarded as running while the asynchronous
+ * harvest is in progress. This listener removes the job once the harvest completes, or right away
+ * if the harvest could not be started. Jobs left over by nodes that stopped during a harvest are
+ * removed by {@link SchedulingUtil#deleteStaleProviderJobs(Scheduler, String, long)}.
+ */
 public class HarvestProviderJobListener extends JobListenerSupport {
   private static final Logger log = LoggerFactory.getLogger(HarvestProviderJobListener.class);
 
@@ -16,9 +29,49 @@ public class HarvestProviderJobListener extends JobListenerSupport {
 
   @Override
   public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
-    if (context.getJobDetail().getJobClass().equals(HarvestProviderJob.class)
-        && jobException != null) {
+    if (!context.getJobDetail().getJobClass().equals(HarvestProviderJob.class)) {
+      return;
+    }
+
+    Scheduler scheduler = context.getScheduler();
+    JobKey jobKey = context.getJobDetail().getKey();
+    if (jobException != null) {
       log.error(jobException.getMessage());
+      deleteJob(scheduler, jobKey);
+    } else if (context.getResult() instanceof Future<?> harvest) {
+      Context vertxContext;
+      try {
+        vertxContext = (Context) scheduler.getContext().get("vertxContext");
+      } catch (SchedulerException e) {
+        // without a Vert.x context the completion cannot be awaited, so the job is removed now
+        log.error(e.getMessage(), e);
+        deleteJob(scheduler, jobKey);
+        return;
+      }
+      harvest.onComplete(
+          ar -> {
+            if (ar.failed()) {
+              log.error(ar.cause().getMessage());
+            }
+            vertxContext
+                .owner()
+                .executeBlocking(
+                    () -> {
+                      deleteJob(scheduler, jobKey);
+                      return null;
+                    },
+                    false);
+          });
+    } else {
+      deleteJob(scheduler, jobKey);
+    }
+  }
+
+  private static void deleteJob(Scheduler scheduler, JobKey jobKey) {
+    try {
+      scheduler.deleteJob(jobKey);
+    } catch (SchedulerException e) {
+      log.error("Error removing job {}: {}", jobKey, e.getMessage(), e);
     }
   }
 }
@@ -1,20 +1,41 @@
 package org.olf.erm.usage.harvester.periodic;
 
 import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.ext.web.client.WebClient;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
-import org.folio.rest.jaxrs.model.UsageDataProviders;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.olf.erm.usage.harvester.WebClientProvider;
+import org.olf.erm.usage.harvester.client.ExtAggregatorSettingsClientImpl;
 import org.olf.erm.usage.harvester.client.ExtUsageDataProvidersClientImpl;
+import org.olf.erm.usage.harvester.client.SettingsCache;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Harvests all active providers of a tenant.
+ *
+ * <p>The providers are requested in pages of the size configured through the system property
+ * {@value #PROP_PAGE_SIZE}, and a {@link HarvestProviderJob} is scheduled for each provider of a
+ * page before the next page is requested. The ids of providers that could not be scheduled are set
+ * as the result of the {@link JobExecutionContext}.
+ *
+ * <p>The provider jobs get the providers and aggregator settings through a {@link
+ * TenantHarvestSnapshot}, which replaces the snapshot of the previous harvest of the tenant.
+ */
 public class HarvestTenantJob extends AbstractHarvestJob {
 
+  public static final String PROP_PAGE_SIZE = "harvester.providers.pageSize";
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  private static final Logger log = LoggerFactory.getLogger(HarvestTenantJob.class);
+
   @Override
   public void execute(JobExecutionContext context) throws JobExecutionException {
     Context vertxContext;
@@ -24,28 +45,26 @@ public class HarvestTenantJob extends AbstractHarvestJob {
       throw new JobExecutionException(e);
     }
 
+    // the provider harvests of this run share the settings looked up first
+    SettingsCache.get(vertxContext.owner()).invalidate(getTenantId());
+
+    String okapiUrl = vertxContext.config().getString("okapiUrl");
+    WebClient webClient = WebClientProvider.get(vertxContext.owner());
+    TenantHarvestSnapshot snapshot =
+        new TenantHarvestSnapshot(
+            getTenantId(), new ExtAggregatorSettingsClientImpl(okapiUrl, getTenantId(), webClient));
+    snapshot.register(vertxContext.owner());
+    List<String> failedProviderIds = new ArrayList<>();
     CompletableFuture<List<String>> complete =
-        new ExtUsageDataProvidersClientImpl(
-                vertxContext.config().getString("okapiUrl"),
-                getTenantId(),
-                WebClientProvider.get(vertxContext.owner()))
-            .getActiveProviders()
-            .map(UsageDataProviders::getUsageDataProviders)
-            .map(
-                udps ->
-                    udps.stream()
-                        .map(
-                            udp -> {
-                              try {
-                                SchedulingUtil.scheduleProviderJob(
-                                    context.getScheduler(), getTenantId(), udp.getId());
-                              } catch (SchedulerException e) {
-                                return udp.getId();
-                              }
-                              return null;
-                            })
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList()))
+        new ExtUsageDataProvidersClientImpl(okapiUrl, getTenantId(), webClient)
+            .getActiveProviders(
+                getPageSize(),
+                udps -> {
+                  failedProviderIds.addAll(
+                      scheduleProviderJobs(context.getScheduler(), snapshot, udps));
+                  return Future.succeededFuture();
+                })
+            .map(v -> failedProviderIds)
             .toCompletionStage()
             .toCompletableFuture();
     try {
@@ -57,4 +76,29 @@ public class HarvestTenantJob extends AbstractHarvestJob {
       throw new JobExecutionException(e);
     }
   }
+
+  private List<String> scheduleProviderJobs(
+      Scheduler scheduler, TenantHarvestSnapshot snapshot, List<UsageDataProvider> udps) {
+    // providers are added first, as their jobs may start right away
+    snapshot.addProviders(udps);
+    List<String> failed = new ArrayList<>();
+    for (UsageDataProvider udp : udps) {
+      try {
+        SchedulingUtil.scheduleProviderJob(scheduler, getTenantId(), udp.getId(), snapshot.getId());
+      } catch (SchedulerException e) {
+        snapshot.takeProvider(udp.getId());
+        failed.add(udp.getId());
+      }
+    }
+    return failed;
+  }
+
+  private static int getPageSize() {
+    int pageSize = Integer.getInteger(PROP_PAGE_SIZE, DEFAULT_PAGE_SIZE);
+    if (pageSize < 1) {
+      log.error("Invalid value for {}: {}, using default", PROP_PAGE_SIZE, pageSize);
+      return DEFAULT_PAGE_SIZE;
+    }
+    return pageSize;
+  }
 }
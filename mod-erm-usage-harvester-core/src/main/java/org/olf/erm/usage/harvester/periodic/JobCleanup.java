@@ -0,0 +1,134 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import static org.olf.erm.usage.harvester.periodic.SchedulingUtil.PERIODIC_JOB_KEY;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import org.folio.rest.jaxrs.model.JobInfo.Result;
+import org.folio.rest.persist.PostgresClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Set-based maintenance of the jobs table.
+ *
+ * <p>Stale jobs are marked as failed by a single UPDATE. Finished jobs are purged by repeated
+ * DELETEs of at most {@value #PROP_PURGE_BATCH_SIZE} jobs each, so no statement holds locks on a
+ * large part of the table. Both statements select jobs by the timestamp expression indexes, so
+ * their cost depends on the number of affected jobs rather than on the size of the table.
+ */
+public class JobCleanup {
+
+  public static final String PROP_PURGE_BATCH_SIZE = "harvester.jobs.purgeBatchSize";
+  public static final int DEFAULT_PURGE_BATCH_SIZE = 1000;
+  private static final Logger log = LoggerFactory.getLogger(JobCleanup.class);
+  private static final DateTimeFormatter DATE_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSxxx").withZone(ZoneOffset.UTC);
+
+  private static final String MARK_STALE_SQL =
+      """
+      UPDATE %s
+      SET jsonb = jsonb || jsonb_build_object('finishedAt', $2::text, 'result', $3::text,
+        'errorMessage', $4::text)
+      WHERE (jsonb->>'timestamp')::bigint <= $1
+        AND jsonb->>'finishedAt' IS NULL
+        AND jsonb->>'type' <> $5
+      """;
+
+  private static final String PURGE_BATCH_SQL =
+      """
+      DELETE FROM %s
+      WHERE id IN (
+        SELECT id FROM %s
+        WHERE jsonb->>'finishedAt' IS NOT NULL%s
+        LIMIT $1
+      )
+      """;
+
+  private final PostgresClient pgClient;
+  private final String table;
+  private final int batchSize;
+
+  /**
+   * Creates a JobCleanup with the batch size configured by {@value #PROP_PURGE_BATCH_SIZE}.
+   *
+   * @param pgClient the client of the tenant
+   * @param table the schema qualified name of the jobs table
+   */
+  public JobCleanup(PostgresClient pgClient, String table) {
+    this(pgClient, table, getBatchSizeFromSystemProperties());
+  }
+
+  public JobCleanup(PostgresClient pgClient, String table, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be greater than 0");
+    }
+    this.pgClient = pgClient;
+    this.table = table;
+    this.batchSize = batchSize;
+  }
+
+  private static int getBatchSizeFromSystemProperties() {
+    int batchSize = Integer.getInteger(PROP_PURGE_BATCH_SIZE, DEFAULT_PURGE_BATCH_SIZE);
+    if (batchSize < 1) {
+      log.error("Invalid value for {}: {}, using default", PROP_PURGE_BATCH_SIZE, batchSize);
+      return DEFAULT_PURGE_BATCH_SIZE;
+    }
+    return batchSize;
+  }
+
+  /**
+   * Marks unfinished jobs created at or before the given timestamp as failed.
+   *
+   * @param timestamp jobs with a timestamp less than or equal to this value are stale
+   * @param finishedAt the time set as finishedAt of the stale jobs
+   * @param errorMessage the error message set for the stale jobs
+   * @return Future with the number of jobs marked
+   */
+  public Future<Integer> markStaleJobs(long timestamp, Instant finishedAt, String errorMessage) {
+    return pgClient
+        .execute(
+            MARK_STALE_SQL.formatted(table),
+            Tuple.of(
+                timestamp,
+                DATE_FORMATTER.format(finishedAt),
+                Result.FAILURE.value(),
+                errorMessage,
+                PERIODIC_JOB_KEY))
+        .map(RowSet::rowCount)
+        .onSuccess(count -> log.info("Marked {} stale jobs in {}", count, table));
+  }
+
+  /**
+   * Deletes finished jobs in batches.
+   *
+   * @param timestamp only delete jobs with a timestamp less than or equal to this value, or null to
+   *     delete all finished jobs
+   * @return Future with the number of jobs deleted
+   */
+  public Future<Long> purgeFinishedJobs(Long timestamp) {
+    String sql =
+        timestamp == null
+            ? PURGE_BATCH_SQL.formatted(table, table, "")
+            : PURGE_BATCH_SQL.formatted(table, table, " AND (jsonb->>'timestamp')::bigint <= $2");
+    Tuple params = timestamp == null ? Tuple.of(batchSize) : Tuple.of(batchSize, timestamp);
+    return purgeBatches(sql, params, 0)
+        .onSuccess(count -> log.info("Purged {} finished jobs from {}", count, table));
+  }
+
+  private Future<Long> purgeBatches(String sql, Tuple params, long deleted) {
+    return pgClient
+        .execute(sql, params)
+        .compose(
+            rows -> {
+              long total = deleted + rows.rowCount();
+              return rows.rowCount() < batchSize
+                  ? Future.succeededFuture(total)
+                  : purgeBatches(sql, params, total);
+            });
+  }
+}
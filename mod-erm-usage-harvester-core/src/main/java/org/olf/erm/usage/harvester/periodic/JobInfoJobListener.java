@@ -6,23 +6,30 @@ import static org.folio.rest.jaxrs.model.JobInfo.Result.SUCCESS;
 import static org.folio.rest.jaxrs.model.JobInfo.Type.PERIODIC;
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_JOB_ID;
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_TIMESTAMP;
+import static org.olf.erm.usage.harvester.periodic.HarvestProviderJob.CONTEXT_KEY_STATISTICS;
 import static org.olf.erm.usage.harvester.periodic.JobInfoUtil.createJobInfo;
 
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.Future;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
 import org.folio.rest.jaxrs.model.JobInfo;
+import org.olf.erm.usage.harvester.HarvestStatistics;
+import org.olf.erm.usage.harvester.metrics.HarvestMetrics;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.listeners.JobListenerSupport;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class JobInfoJobListener extends JobListenerSupport {
 
-  private static final Logger log = LoggerFactory.getLogger(JobInfoJobListener.class);
+  private final JobInfoRecorder recorder;
+
+  public JobInfoJobListener(JobInfoRecorder recorder) {
+    this.recorder = recorder;
+  }
 
   @Override
   public String getName() {
@@ -34,18 +41,46 @@ public class JobInfoJobListener extends JobListenerSupport {
     JobDetail jobDetail = context.getJobDetail();
     String tenant = jobDetail.getKey().getGroup();
 
-    JobInfo jobInfo =
-        createJobInfo(jobDetail)
-            .withStartedAt(context.getFireTime())
-            .withFinishedAt(
-                Date.from(context.getFireTime().toInstant().plusMillis(context.getJobRunTime())));
+    JobInfo jobInfo = createJobInfo(jobDetail).withStartedAt(context.getFireTime());
+    if (jobException == null && context.getResult() instanceof Future<?> result) {
+      // the job continues asynchronously, save the result once it is completed
+      result.onComplete(
+          ar -> {
+            jobInfo.withFinishedAt(new Date());
+            if (ar.failed()) {
+              jobInfo.withResult(FAILURE);
+              jobInfo.withErrorMessage(getRootCauseMessage(ar.cause()));
+            } else {
+              jobInfo.withResult(SUCCESS);
+            }
+            if (context.get(CONTEXT_KEY_STATISTICS) instanceof HarvestStatistics statistics) {
+              jobInfo.withStatistics(statistics.toJobStatistics());
+            }
+            recordJob(jobInfo, tenant);
+            recorder.record(tenant, jobInfo);
+          });
+      return;
+    }
+
+    jobInfo.withFinishedAt(
+        Date.from(context.getFireTime().toInstant().plusMillis(context.getJobRunTime())));
     if (jobException != null) {
       jobInfo.withResult(FAILURE);
       jobInfo.withErrorMessage(getRootCauseMessage(jobException));
     } else {
       jobInfo.withResult(SUCCESS);
     }
-    upsertJobInfo(jobInfo, tenant);
+    recordJob(jobInfo, tenant);
+    recorder.record(tenant, jobInfo);
+  }
+
+  private static void recordJob(JobInfo jobInfo, String tenant) {
+    HarvestMetrics.recordJob(
+        Metrics.globalRegistry,
+        tenant,
+        jobInfo.getType() == null ? null : jobInfo.getType().value(),
+        SUCCESS.equals(jobInfo.getResult()),
+        Duration.between(jobInfo.getStartedAt().toInstant(), jobInfo.getFinishedAt().toInstant()));
   }
 
   @Override
@@ -58,23 +93,8 @@ public class JobInfoJobListener extends JobListenerSupport {
       jobDetail.getJobDataMap().put(DATAKEY_JOB_ID, UUID.randomUUID().toString());
       jobDetail.getJobDataMap().put(DATAKEY_TIMESTAMP, Instant.now().toEpochMilli());
       JobInfo newJobInfo = createJobInfo(jobDetail);
-      upsertJobInfo(newJobInfo.withStartedAt(context.getFireTime()).withNextStart(null), tenant);
-    }
-    upsertJobInfo(jobInfo.withStartedAt(null).withNextStart(context.getNextFireTime()), tenant);
-  }
-
-  private void upsertJobInfo(JobInfo jobInfo, String tenant) {
-    try {
-      JobInfoUtil.upsertJobInfo(jobInfo, tenant)
-          .onFailure(t -> log.warn("Error saving JobInfo", t))
-          .toCompletionStage()
-          .toCompletableFuture()
-          .get();
-    } catch (InterruptedException e) {
-      log.warn(e.getMessage(), e);
-      Thread.currentThread().interrupt();
-    } catch (ExecutionException e) {
-      log.warn(e.getMessage(), e);
+      recorder.record(tenant, newJobInfo.withStartedAt(context.getFireTime()).withNextStart(null));
     }
+    recorder.record(tenant, jobInfo.withStartedAt(null).withNextStart(context.getNextFireTime()));
   }
 }
@@ -0,0 +1,260 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import io.vertx.core.json.JsonArray;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import org.folio.cql2pgjson.CQL2PgJSON;
+import org.folio.cql2pgjson.exception.QueryValidationException;
+import org.folio.cql2pgjson.model.SqlSelect;
+import org.folio.rest.jaxrs.model.JobInfo;
+
+/**
+ * Builds the SQL statements for listing jobs.
+ *
+ * <p>Jobs are either paged by offset, ordered as specified by the CQL query, or by keyset, ordered
+ * by timestamp and id descending. Keyset paging continues after the job identified by a {@link
+ * Cursor}, so it can use the index on timestamp and id instead of skipping rows.
+ *
+ * <p>Values of the timestamp, provider and cursor are passed as parameters, see {@link
+ * #getParameters()} and {@link #getSelectParameters()}.
+ */
+public class JobInfoQuery {
+
+  /** Number of matching jobs up to which {@link TotalRecords#AUTO} counts exactly. */
+  public static final int AUTO_EXACT_COUNT_LIMIT = 1000;
+
+  private static final String TIMESTAMP = "(jsonb->>'timestamp')::bigint";
+
+  /** How to calculate the total number of matching jobs. */
+  public enum TotalRecords {
+    /** Count all matching jobs. */
+    EXACT,
+    /** Use the row estimate of the query planner. */
+    ESTIMATED,
+    /** Count exactly up to {@link #AUTO_EXACT_COUNT_LIMIT} jobs, estimate otherwise. */
+    AUTO,
+    /** Do not calculate the total number, it is returned as {@code -1}. */
+    NONE;
+
+    /**
+     * Returns the constant for a value of the totalRecords query parameter.
+     *
+     * @param value the parameter value, or null for {@link #AUTO}
+     * @throws IllegalArgumentException if the value is invalid
+     */
+    public static TotalRecords of(String value) {
+      if (value == null) {
+        return AUTO;
+      }
+      try {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid value for totalRecords: " + value, e);
+      }
+    }
+  }
+
+  private final String table;
+  private final List<String> conditions = new ArrayList<>();
+  private final List<Object> parameters = new ArrayList<>();
+  private String orderBy = "";
+  private boolean keyset;
+  private Cursor cursor;
+
+  /**
+   * Creates a query.
+   *
+   * @param table the schema qualified name of the jobs table
+   */
+  public JobInfoQuery(String table) {
+    this.table = table;
+  }
+
+  /**
+   * Adds the conditions and sort order of a CQL query.
+   *
+   * @param cql2PgJson the converter for the jobs table
+   * @param cql the CQL query, or null
+   * @throws QueryValidationException if the query is invalid
+   */
+  public JobInfoQuery withCql(CQL2PgJSON cql2PgJson, String cql) throws QueryValidationException {
+    if (cql == null || cql.isBlank()) {
+      return this;
+    }
+    SqlSelect select = cql2PgJson.toSql(cql);
+    if (!select.getWhere().isEmpty()) {
+      conditions.add("(" + select.getWhere() + ")");
+    }
+    orderBy = select.getOrderBy();
+    return this;
+  }
+
+  /** Only include jobs with a timestamp at or before the given one, if not null. */
+  public JobInfoQuery withMaxTimestamp(Number timestamp) {
+    if (timestamp != null) {
+      conditions.add(TIMESTAMP + " <= " + addParameter(timestamp.longValue()));
+    }
+    return this;
+  }
+
+  /** Only include jobs of the given provider, if not null or empty. */
+  public JobInfoQuery withProviderId(String providerId) {
+    if (providerId != null && !providerId.isEmpty()) {
+      conditions.add("jsonb->>'providerId' = " + addParameter(providerId));
+    }
+    return this;
+  }
+
+  /**
+   * Uses keyset paging, continuing after the given cursor.
+   *
+   * @param cursor the cursor of the last job of the previous page, or null for the first page
+   * @throws IllegalArgumentException if the CQL query specifies a sort order
+   */
+  public JobInfoQuery withKeyset(Cursor cursor) {
+    if (!orderBy.isEmpty()) {
+      throw new IllegalArgumentException("sortBy is not supported together with cursor");
+    }
+    this.keyset = true;
+    this.cursor = cursor;
+    return this;
+  }
+
+  public boolean isKeyset() {
+    return keyset;
+  }
+
+  /** Returns the parameters of the count and explain statements. */
+  public List<Object> getParameters() {
+    return List.copyOf(parameters);
+  }
+
+  /** Returns the parameters of the statement selecting a page of jobs. */
+  public List<Object> getSelectParameters() {
+    List<Object> all = new ArrayList<>(parameters);
+    if (cursor != null) {
+      all.add(cursor.timestamp);
+      all.add(UUID.fromString(cursor.id));
+    }
+    return all;
+  }
+
+  private String addParameter(Object value) {
+    parameters.add(value);
+    return "$" + parameters.size();
+  }
+
+  private String where(boolean afterCursor) {
+    List<String> all = new ArrayList<>(conditions);
+    if (keyset) {
+      all.add("jsonb->>'timestamp' IS NOT NULL");
+    }
+    if (afterCursor && cursor != null) {
+      // the cursor parameters follow those of the conditions
+      int next = parameters.size() + 1;
+      all.add("(" + TIMESTAMP + ", id) < ($" + next + ", $" + (next + 1) + ")");
+    }
+    return all.isEmpty() ? "" : " WHERE " + String.join(" AND ", all);
+  }
+
+  /**
+   * Returns the statement selecting a page of jobs.
+   *
+   * @param offset number of jobs to skip, ignored for keyset paging
+   * @param limit maximum number of jobs
+   */
+  public String toSelectSql(int offset, int limit) {
+    StringBuilder sql = new StringBuilder("SELECT jsonb FROM ").append(table).append(where(true));
+    if (keyset) {
+      sql.append(" ORDER BY ").append(TIMESTAMP).append(" DESC, id DESC");
+    } else {
+      if (!orderBy.isEmpty()) {
+        sql.append(" ORDER BY ").append(orderBy);
+      }
+      sql.append(" OFFSET ").append(offset);
+    }
+    return sql.append(" LIMIT ").append(limit).toString();
+  }
+
+  /** Returns the statement counting all matching jobs. */
+  public String toCountSql() {
+    return "SELECT count(*) FROM " + table + where(false);
+  }
+
+  /** Returns the statement counting matching jobs up to {@link #AUTO_EXACT_COUNT_LIMIT}. */
+  public String toLimitedCountSql() {
+    return "SELECT count(*) FROM (SELECT 1 FROM "
+        + table
+        + where(false)
+        + " LIMIT "
+        + AUTO_EXACT_COUNT_LIMIT
+        + ") AS limited";
+  }
+
+  /** Returns the statement whose plan contains the estimated number of matching jobs. */
+  public String toExplainSql() {
+    return "EXPLAIN (FORMAT JSON) SELECT jsonb FROM " + table + where(false);
+  }
+
+  /**
+   * Extracts the estimated number of rows from the output of {@link #toExplainSql()}.
+   *
+   * @param plan the query plan in JSON format
+   * @return the estimated number of rows
+   */
+  public static long parseEstimate(Object plan) {
+    JsonArray array = plan instanceof JsonArray a ? a : new JsonArray(plan.toString());
+    return array.getJsonObject(0).getJsonObject("Plan").getLong("Plan Rows");
+  }
+
+  /** Position of a job in the keyset order. */
+  public static final class Cursor {
+
+    private final long timestamp;
+    private final String id;
+
+    private Cursor(long timestamp, String id) {
+      this.timestamp = timestamp;
+      this.id = id;
+    }
+
+    /** Returns the cursor of the given job, or null if it has no timestamp. */
+    public static Cursor of(JobInfo jobInfo) {
+      if (jobInfo.getTimestamp() == null || jobInfo.getId() == null) {
+        return null;
+      }
+      return new Cursor(jobInfo.getTimestamp(), jobInfo.getId());
+    }
+
+    /**
+     * Parses a cursor as returned by {@link #toString()}.
+     *
+     * @param value the cursor value, or an empty string for the first page
+     * @return the cursor, or null for the first page
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static Cursor parse(String value) {
+      if (value.isEmpty()) {
+        return null;
+      }
+      int separator = value.indexOf(':');
+      try {
+        if (separator < 0) {
+          throw new IllegalArgumentException();
+        }
+        long timestamp = Long.parseLong(value.substring(0, separator));
+        String id = UUID.fromString(value.substring(separator + 1)).toString();
+        return new Cursor(timestamp, id);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + value, e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return timestamp + ":" + id;
+    }
+  }
+}
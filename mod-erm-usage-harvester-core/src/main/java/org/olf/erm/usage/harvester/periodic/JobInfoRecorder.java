@@ -0,0 +1,213 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import static org.folio.rest.impl.ErmUsageHarvesterAPI.TABLE_NAME_JOBS;
+
+import com.google.common.collect.Lists;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import org.folio.rest.jaxrs.model.JobInfo;
+import org.folio.rest.persist.PostgresClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind recorder for {@link JobInfo}s.
+ *
+ * <p>Recorded jobs are kept in memory per tenant and job id, so a later record of a job replaces an
+ * earlier one that has not been written yet. Pending jobs are upserted in batches once the flush
+ * interval has passed or the batch size is reached, without blocking the recording thread. Flushes
+ * run one after another, so records of the same job are written in order. Jobs that fail to be
+ * written are kept for the next flush unless they have been replaced in the meantime.
+ *
+ * <p>The flush interval and batch size of the shared instance are configured through the system
+ * properties {@value #PROP_FLUSH_INTERVAL_MILLIS} and {@value #PROP_BATCH_SIZE}. {@link #close()}
+ * writes all pending jobs and is called on shutdown.
+ */
+public class JobInfoRecorder {
+
+  public static final String PROP_FLUSH_INTERVAL_MILLIS = "harvester.jobs.flushIntervalMillis";
+  public static final String PROP_BATCH_SIZE = "harvester.jobs.flushBatchSize";
+  public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+  public static final int DEFAULT_BATCH_SIZE = 100;
+  private static final Logger log = LoggerFactory.getLogger(JobInfoRecorder.class);
+  private static final Map<Vertx, JobInfoRecorder> RECORDERS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /** Upserts the jobs of a tenant. */
+  @FunctionalInterface
+  public interface Writer {
+    Future<Void> write(String tenantId, List<JobInfo> jobInfos);
+  }
+
+  private final Vertx vertx;
+  private final Writer writer;
+  private final long flushIntervalMillis;
+  private final int batchSize;
+  private Map<String, Map<String, JobInfo>> pending = new HashMap<>();
+  private int pendingCount = 0;
+  private boolean flushScheduled = false;
+  private boolean closed = false;
+  private Future<Void> lastFlush = Future.succeededFuture();
+
+  public JobInfoRecorder(Vertx vertx, Writer writer, long flushIntervalMillis, int batchSize) {
+    if (flushIntervalMillis < 1) {
+      throw new IllegalArgumentException("flushIntervalMillis must be greater than 0");
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be greater than 0");
+    }
+    this.vertx = Objects.requireNonNull(vertx, "vertx must not be null");
+    this.writer = Objects.requireNonNull(writer, "writer must not be null");
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Returns the shared recorder for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the recorder
+   * @return the shared recorder for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static JobInfoRecorder get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return RECORDERS.computeIfAbsent(vertx, JobInfoRecorder::createFromSystemProperties);
+  }
+
+  private static JobInfoRecorder createFromSystemProperties(Vertx vertx) {
+    long flushIntervalMillis =
+        Long.getLong(PROP_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    if (flushIntervalMillis < 1) {
+      log.error(
+          "Invalid value for {}: {}, using default",
+          PROP_FLUSH_INTERVAL_MILLIS,
+          flushIntervalMillis);
+      flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    }
+    int batchSize = Integer.getInteger(PROP_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    if (batchSize < 1) {
+      log.error("Invalid value for {}: {}, using default", PROP_BATCH_SIZE, batchSize);
+      batchSize = DEFAULT_BATCH_SIZE;
+    }
+    return new JobInfoRecorder(
+        vertx,
+        (tenantId, jobInfos) ->
+            PostgresClient.getInstance(vertx, tenantId)
+                .upsertBatch(TABLE_NAME_JOBS, jobInfos)
+                .mapEmpty(),
+        flushIntervalMillis,
+        batchSize);
+  }
+
+  /**
+   * Records a job to be written with the next flush. The job must not be modified afterwards.
+   *
+   * @param tenantId the tenant of the job
+   * @param jobInfo the job, replacing a pending record with the same id
+   */
+  public void record(String tenantId, JobInfo jobInfo) {
+    boolean flushNow = false;
+    synchronized (this) {
+      Map<String, JobInfo> jobInfos = pending.computeIfAbsent(tenantId, t -> new LinkedHashMap<>());
+      if (jobInfos.put(jobInfo.getId(), jobInfo) == null) {
+        pendingCount++;
+      }
+      if (closed || pendingCount >= batchSize) {
+        flushNow = true;
+      } else if (!flushScheduled) {
+        flushScheduled = true;
+        vertx.setTimer(flushIntervalMillis, id -> flush());
+      }
+    }
+    if (flushNow) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes all jobs recorded so far.
+   *
+   * @return Future that completes once the jobs are written, or fails if any of them could not be
+   *     written
+   */
+  public Future<Void> flush() {
+    Promise<Void> promise = Promise.promise();
+    Future<Void> previous;
+    synchronized (this) {
+      flushScheduled = false;
+      previous = lastFlush;
+      lastFlush = promise.future();
+    }
+    previous.onComplete(ar -> write(takePending()).onComplete(promise));
+    return promise.future();
+  }
+
+  /**
+   * Writes all pending jobs. Jobs recorded afterwards are written immediately.
+   *
+   * @return Future that completes once the pending jobs are written
+   */
+  public Future<Void> close() {
+    synchronized (this) {
+      closed = true;
+    }
+    return flush();
+  }
+
+  public synchronized int getPendingCount() {
+    return pendingCount;
+  }
+
+  private synchronized Map<String, Map<String, JobInfo>> takePending() {
+    Map<String, Map<String, JobInfo>> taken = pending;
+    pending = new HashMap<>();
+    pendingCount = 0;
+    return taken;
+  }
+
+  private Future<Void> write(Map<String, Map<String, JobInfo>> jobInfosByTenant) {
+    List<Future<Void>> writes = new ArrayList<>();
+    jobInfosByTenant.forEach(
+        (tenantId, jobInfos) ->
+            Lists.partition(new ArrayList<>(jobInfos.values()), batchSize)
+                .forEach(batch -> writes.add(write(tenantId, batch))));
+    return Future.join(writes).mapEmpty();
+  }
+
+  private Future<Void> write(String tenantId, List<JobInfo> jobInfos) {
+    return writer
+        .write(tenantId, jobInfos)
+        .onFailure(
+            t -> {
+              log.warn("Tenant: {}, error saving {} JobInfos", tenantId, jobInfos.size(), t);
+              requeue(tenantId, jobInfos);
+            });
+  }
+
+  private void requeue(String tenantId, List<JobInfo> jobInfos) {
+    synchronized (this) {
+      Map<String, JobInfo> pendingJobInfos =
+          pending.computeIfAbsent(tenantId, t -> new LinkedHashMap<>());
+      jobInfos.forEach(
+          jobInfo -> {
+            if (pendingJobInfos.putIfAbsent(jobInfo.getId(), jobInfo) == null) {
+              pendingCount++;
+            }
+          });
+      if (closed || flushScheduled) {
+        return;
+      }
+      flushScheduled = true;
+    }
+    vertx.setTimer(flushIntervalMillis, id -> flush());
+  }
+}
@@ -3,8 +3,7 @@ package org.olf.erm.usage.harvester.periodic;
 import static org.folio.rest.jaxrs.model.JobInfo.Type.PERIODIC;
 
 import io.vertx.core.Future;
-import io.vertx.sqlclient.Row;
-import io.vertx.sqlclient.RowSet;
+import io.vertx.core.Vertx;
 import org.folio.rest.jaxrs.model.JobInfo;
 import org.quartz.JobDetail;
 import org.quartz.Scheduler;
@@ -20,6 +19,14 @@ public class JobInfoSchedulerListener extends SchedulerListenerSupport {
 
   private static final Logger log = LoggerFactory.getLogger(JobInfoSchedulerListener.class);
 
+  private final Vertx vertx;
+  private final JobInfoRecorder recorder;
+
+  public JobInfoSchedulerListener(Vertx vertx, JobInfoRecorder recorder) {
+    this.vertx = vertx;
+    this.recorder = recorder;
+  }
+
   @Override
   public void jobAdded(JobDetail jobDetail) {
     try {
@@ -46,37 +53,45 @@ public class JobInfoSchedulerListener extends SchedulerListenerSupport {
     String tenantId = trigger.getJobKey().getGroup();
 
     // if we are scheduling a new periodic, then an existing one needs to be removed from db
-    Future<RowSet<Row>> deleteFuture = Future.succeededFuture();
+    Future<Void> deleteFuture = Future.succeededFuture();
     if (PERIODIC.value().equals(name)) {
-      deleteFuture = JobInfoUtil.deletePeriodicJobInfo(tenantId);
+      deleteFuture = deletePeriodicJobInfo(tenantId);
     }
 
-    deleteFuture
-        .compose(
-            rs -> {
-              JobInfo jobInfo = JobInfoUtil.createJobInfo(jobDetail);
-              return JobInfoUtil.upsertJobInfo(
-                      jobInfo
-                          .withStartedAt(trigger.getPreviousFireTime())
-                          .withNextStart(trigger.getNextFireTime()),
-                      tenantId)
-                  .onFailure(t -> log.warn("Error updating JobInfo", t));
-            })
-        .onComplete(
-            ar -> {
-              try {
-                scheduler.resumeTrigger(trigger.getKey());
-              } catch (SchedulerException e) {
-                log.error(e.getMessage(), e);
-              }
-            });
+    deleteFuture.onComplete(
+        ar -> {
+          if (ar.succeeded()) {
+            JobInfo jobInfo = JobInfoUtil.createJobInfo(jobDetail);
+            recorder.record(
+                tenantId,
+                jobInfo
+                    .withStartedAt(trigger.getPreviousFireTime())
+                    .withNextStart(trigger.getNextFireTime()));
+          }
+          try {
+            scheduler.resumeTrigger(trigger.getKey());
+          } catch (SchedulerException e) {
+            log.error(e.getMessage(), e);
+          }
+        });
   }
 
   @Override
   public void jobUnscheduled(TriggerKey triggerKey) {
     if (PERIODIC.value().equals(triggerKey.getName())) {
-      JobInfoUtil.deletePeriodicJobInfo(triggerKey.getGroup())
-          .onFailure(t -> log.warn("Error deleting JobInfo", t));
+      deletePeriodicJobInfo(triggerKey.getGroup());
     }
   }
+
+  /**
+   * Deletes the periodic JobInfo after writing pending JobInfos, which could otherwise restore it.
+   */
+  private Future<Void> deletePeriodicJobInfo(String tenantId) {
+    return recorder
+        .flush()
+        .recover(t -> Future.succeededFuture())
+        .compose(v -> JobInfoUtil.deletePeriodicJobInfo(vertx, tenantId))
+        .onFailure(t -> log.warn("Error deleting JobInfo", t))
+        .mapEmpty();
+  }
 }
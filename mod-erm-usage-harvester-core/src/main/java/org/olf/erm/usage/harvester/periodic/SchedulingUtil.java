@@ -2,6 +2,7 @@ package org.olf.erm.usage.harvester.periodic;
 
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_JOB_ID;
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_PROVIDER_ID;
+import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_SNAPSHOT_ID;
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_TENANT;
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_TIMESTAMP;
 import static org.quartz.impl.matchers.GroupMatcher.jobGroupEquals;
@@ -24,6 +25,7 @@ import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
 import org.quartz.TriggerKey;
 import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.matchers.GroupMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,8 +37,14 @@ public class SchedulingUtil {
 
   private static JobDetail createJobDetail(
       Class<? extends Job> jobClass, JobKey jobKey, String providerId) {
+    return createJobDetail(jobClass, jobKey, providerId, false);
+  }
+
+  private static JobDetail createJobDetail(
+      Class<? extends Job> jobClass, JobKey jobKey, String providerId, boolean durable) {
     return JobBuilder.newJob(jobClass)
         .withIdentity(jobKey)
+        .storeDurably(durable)
         .usingJobData(DATAKEY_TENANT, jobKey.getGroup())
         .usingJobData(DATAKEY_PROVIDER_ID, providerId)
         .usingJobData(DATAKEY_TIMESTAMP, Instant.now().toEpochMilli())
@@ -46,16 +54,72 @@ public class SchedulingUtil {
 
   public static void scheduleProviderJob(Scheduler scheduler, String tenantId, String providerId)
       throws SchedulerException {
+    scheduleProviderJob(scheduler, tenantId, providerId, null);
+  }
+
+  /**
+   * Schedules a job harvesting a provider of a tenant harvest. The job gets the provider and its
+   * aggregator setting through the {@link TenantHarvestSnapshot} of the harvest. Only the id of the
+   * snapshot is passed through the job data, as job data is stored in the job store.
+   *
+   * @param scheduler the scheduler
+   * @param tenantId the tenant of the provider
+   * @param providerId the id of the provider to harvest
+   * @param snapshotId the id of the {@link TenantHarvestSnapshot}, or null to let the job look up
+   *     the provider and aggregator setting itself
+   * @throws SchedulerException if a job for the provider is already scheduled or running
+   */
+  public static void scheduleProviderJob(
+      Scheduler scheduler, String tenantId, String providerId, String snapshotId)
+      throws SchedulerException {
     JobKey jobKey = new JobKey(providerId, tenantId);
     if (scheduler.checkExists(jobKey)) {
       throw new SchedulerException(
           "A job for provider with id '" + providerId + "' is already scheduled/running");
     } else {
-      JobDetail jobDetail = createJobDetail(HarvestProviderJob.class, jobKey, providerId);
+      // keep the job until the asynchronous harvest completes, see HarvestProviderJobListener
+      JobDetail jobDetail = createJobDetail(HarvestProviderJob.class, jobKey, providerId, true);
+      if (snapshotId != null) {
+        jobDetail.getJobDataMap().put(DATAKEY_SNAPSHOT_ID, snapshotId);
+      }
       scheduler.scheduleJob(jobDetail, TriggerBuilder.newTrigger().startNow().build());
     }
   }
 
+  /**
+   * Deletes provider jobs that were scheduled at or before the given time. Provider jobs are kept
+   * until their harvest completes, see {@link HarvestProviderJobListener}. A job is left over if
+   * the node running its harvest stopped before, and would prevent further harvests of the
+   * provider.
+   *
+   * @param scheduler the scheduler
+   * @param tenantId the tenant whose jobs are deleted, or null to delete jobs of all tenants
+   * @param timestamp delete jobs scheduled at or before this time, in milliseconds since the epoch
+   * @return the number of deleted jobs
+   */
+  public static int deleteStaleProviderJobs(Scheduler scheduler, String tenantId, long timestamp) {
+    int count = 0;
+    try {
+      for (JobKey jobKey :
+          scheduler.getJobKeys(
+              tenantId == null ? GroupMatcher.anyJobGroup() : jobGroupEquals(tenantId))) {
+        JobDetail jobDetail = scheduler.getJobDetail(jobKey);
+        if (jobDetail != null
+            && HarvestProviderJob.class.equals(jobDetail.getJobClass())
+            && jobDetail.getJobDataMap().containsKey(DATAKEY_TIMESTAMP)
+            && jobDetail.getJobDataMap().getLong(DATAKEY_TIMESTAMP) <= timestamp
+            && scheduler.deleteJob(jobKey)) {
+          log.warn(
+              "Tenant: {}, removed stale job for provider {}", jobKey.getGroup(), jobKey.getName());
+          count++;
+        }
+      }
+    } catch (SchedulerException e) {
+      log.error("Error removing stale provider jobs: {}", e.getMessage(), e);
+    }
+    return count;
+  }
+
   public static void scheduleTenantJob(Scheduler scheduler, String tenantId)
       throws SchedulerException {
     boolean jobForTenantExists =
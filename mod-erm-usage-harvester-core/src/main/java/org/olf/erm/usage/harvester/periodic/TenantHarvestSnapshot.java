@@ -0,0 +1,148 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.folio.rest.jaxrs.model.Aggregator;
+import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestVia;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.olf.erm.usage.harvester.client.ExtAggregatorSettingsClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The providers and aggregator settings of a tenant harvest, so the provider harvests of the tenant
+ * do not need to look them up again.
+ *
+ * <p>The providers are those requested by the tenant harvest. Each provider is handed out once, to
+ * the harvest of the provider. Each aggregator setting is requested once, no matter how many
+ * providers harvest through it. Aggregator settings that cannot be looked up are left out of the
+ * snapshot, so the provider harvest requests them again and reports the error.
+ *
+ * <p>The snapshot of a tenant harvest is kept in memory only, as providers and aggregator settings
+ * contain credentials. Provider jobs refer to it by its {@link #getId() id}, and use it only while
+ * it is the {@link #register(Vertx) current snapshot} of their tenant on the node they run on.
+ */
+public class TenantHarvestSnapshot {
+
+  private static final Logger log = LoggerFactory.getLogger(TenantHarvestSnapshot.class);
+
+  private static final Map<Vertx, Map<String, TenantHarvestSnapshot>> SNAPSHOTS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final String id = UUID.randomUUID().toString();
+  private final String tenantId;
+  private final ExtAggregatorSettingsClient aggregatorSettingsClient;
+  private final Map<String, UsageDataProvider> providers = new ConcurrentHashMap<>();
+  private final Map<String, Future<AggregatorSetting>> aggregatorSettings =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates an empty snapshot.
+   *
+   * @param tenantId the tenant of the harvest
+   * @param aggregatorSettingsClient client for fetching aggregator settings
+   */
+  public TenantHarvestSnapshot(
+      String tenantId, ExtAggregatorSettingsClient aggregatorSettingsClient) {
+    this.tenantId = tenantId;
+    this.aggregatorSettingsClient = aggregatorSettingsClient;
+  }
+
+  /**
+   * Makes this snapshot the current snapshot of its tenant, replacing the snapshot of the previous
+   * harvest.
+   *
+   * @param vertx the Vertx instance the provider harvests run on
+   */
+  public void register(Vertx vertx) {
+    SNAPSHOTS.computeIfAbsent(vertx, v -> new ConcurrentHashMap<>()).put(tenantId, this);
+  }
+
+  /**
+   * Returns the current snapshot of a tenant, if it has the given id.
+   *
+   * @param vertx the Vertx instance the provider harvests run on
+   * @param tenantId the tenant of the harvest
+   * @param id the id of the snapshot, may be null
+   * @return the snapshot, or empty if it has been replaced or was registered on another node
+   */
+  public static Optional<TenantHarvestSnapshot> get(Vertx vertx, String tenantId, String id) {
+    return Optional.ofNullable(SNAPSHOTS.get(vertx))
+        .map(snapshots -> snapshots.get(tenantId))
+        .filter(snapshot -> snapshot.id.equals(id));
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Adds providers requested by the tenant harvest.
+   *
+   * @param udps the providers
+   */
+  public void addProviders(Collection<UsageDataProvider> udps) {
+    udps.forEach(udp -> providers.put(udp.getId(), udp));
+  }
+
+  /**
+   * Removes a provider from the snapshot and returns it.
+   *
+   * @param providerId the id of the provider
+   * @return the provider, or empty if it is not part of the snapshot or has already been taken
+   */
+  public Optional<UsageDataProvider> takeProvider(String providerId) {
+    return Optional.ofNullable(providers.remove(providerId));
+  }
+
+  /**
+   * Returns the id of the aggregator a provider harvests through.
+   *
+   * @param udp the provider
+   * @return the aggregator id, or null if the provider does not harvest through an aggregator
+   */
+  public static String getAggregatorId(UsageDataProvider udp) {
+    HarvestingConfig config = udp.getHarvestingConfig();
+    if (config == null || !HarvestVia.AGGREGATOR.equals(config.getHarvestVia())) {
+      return null;
+    }
+    Aggregator aggregator = config.getAggregator();
+    return aggregator == null ? null : aggregator.getId();
+  }
+
+  /**
+   * Returns the aggregator setting a provider harvests through, looking it up on first use.
+   *
+   * @param udp the provider
+   * @return Future that completes with the aggregator setting, or with null if the provider does
+   *     not harvest through an aggregator or the lookup failed
+   */
+  public Future<AggregatorSetting> getAggregatorSetting(UsageDataProvider udp) {
+    String aggregatorId = getAggregatorId(udp);
+    if (aggregatorId == null) {
+      return Future.succeededFuture();
+    }
+    return aggregatorSettings.computeIfAbsent(
+        aggregatorId,
+        id ->
+            aggregatorSettingsClient
+                .getAggregatorSetting(udp)
+                .onFailure(
+                    t ->
+                        log.warn(
+                            "Tenant: {}, no snapshot of AggregatorSetting {}: {}",
+                            tenantId,
+                            id,
+                            t.getMessage()))
+                .otherwiseEmpty());
+  }
+}
@@ -0,0 +1,78 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import static io.vertx.core.ThreadingModel.WORKER;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import java.util.function.Supplier;
+import org.olf.erm.usage.harvester.WorkerVerticle;
+
+/**
+ * Deployment of the {@link WorkerVerticle} of a provider harvest, which may be cancelled at any
+ * time. A verticle whose deployment completes after it was cancelled is undeployed right away, and
+ * no verticle is deployed once the deployment was cancelled.
+ */
+class WorkerDeployment {
+
+  private final Vertx vertx;
+  private boolean cancelled = false;
+  private String deploymentId;
+
+  WorkerDeployment(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  Future<Void> deploy(WorkerVerticle workerVerticle) {
+    return deploy(workerVerticle, workerVerticle::getFinished);
+  }
+
+  /**
+   * Deploys a verticle as worker.
+   *
+   * @param verticle the verticle to deploy
+   * @param finished supplies the Future that completes when the verticle has finished its work
+   * @return Future that completes with the Future of {@code finished}, or fails if the deployment
+   *     fails or was cancelled
+   */
+  Future<Void> deploy(Verticle verticle, Supplier<Future<Void>> finished) {
+    synchronized (this) {
+      if (cancelled) {
+        return Future.failedFuture("Deployment was cancelled");
+      }
+    }
+    return vertx
+        .deployVerticle(verticle, new DeploymentOptions().setThreadingModel(WORKER))
+        .compose(
+            id -> {
+              boolean undeploy;
+              synchronized (this) {
+                deploymentId = id;
+                undeploy = cancelled;
+              }
+              if (undeploy) {
+                return vertx
+                    .undeploy(id)
+                    .transform(ar -> Future.failedFuture("Deployment was cancelled"));
+              }
+              return finished.get();
+            });
+  }
+
+  /**
+   * Cancels the deployment, undeploying the verticle if it has been deployed.
+   *
+   * @return Future that completes when the verticle has been undeployed
+   */
+  Future<Void> cancel() {
+    String id;
+    synchronized (this) {
+      cancelled = true;
+      id = deploymentId;
+    }
+    return id != null && vertx.deploymentIDs().contains(id)
+        ? vertx.undeploy(id)
+        : Future.succeededFuture();
+  }
+}
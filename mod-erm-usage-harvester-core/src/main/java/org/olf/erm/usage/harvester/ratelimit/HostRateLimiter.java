@@ -0,0 +1,336 @@
+package org.olf.erm.usage.harvester.ratelimit;
+
+import static org.olf.erm.usage.harvester.ratelimit.RateLimitBudget.PROP_BURST;
+import static org.olf.erm.usage.harvester.ratelimit.RateLimitBudget.PROP_HOSTS;
+import static org.olf.erm.usage.harvester.ratelimit.RateLimitBudget.PROP_PERMITS_PER_SECOND;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.SharedData;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Token bucket rate limiter for outbound requests, keyed by host.
+ *
+ * <p>The state of the buckets is kept in {@link SharedData}, so that all nodes of a cluster share
+ * the same budget for a host. Each call to {@link #acquire(String)} reserves a token, possibly
+ * driving the bucket into debt, and waits until the reserved token becomes available. Thus requests
+ * are served in the order of their reservations.
+ *
+ * <p>If the shared state cannot be accessed (e.g. because of cluster issues), the budget is
+ * enforced by a token bucket local to this node, so requests are still spaced out even though the
+ * nodes of a cluster do not share the budget meanwhile.
+ *
+ * <p>Budgets are configured through system properties:
+ *
+ * <ul>
+ *   <li>{@value RateLimitBudget#PROP_PERMITS_PER_SECOND}: default requests per second per host
+ *   <li>{@value RateLimitBudget#PROP_BURST}: default number of requests that can be made at once
+ *   <li>{@value RateLimitBudget#PROP_HOSTS}: budgets for specific hosts, e.g. {@code
+ *       sushi.example.com=0.5:2,counter.example.org=5}
+ * </ul>
+ *
+ * <p>The wait time statistics of the shared instance are registered with the global {@link Metrics}
+ * registry, tagged by host.
+ */
+public class HostRateLimiter implements MeterBinder {
+
+  private static final Logger log = LoggerFactory.getLogger(HostRateLimiter.class);
+  private static final Map<Vertx, HostRateLimiter> LIMITERS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+  static final String MAP_NAME = "mod-erm-usage-harvester.ratelimit";
+  private static final String LOCK_PREFIX = MAP_NAME + ".";
+  private static final long LOCK_TIMEOUT_MILLIS = 10_000;
+  private static final long STATE_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final String TOKENS = "tokens";
+  private static final String UPDATED = "updated";
+
+  private final Vertx vertx;
+  private final Clock clock;
+  private final RateLimitBudget defaultBudget;
+  private final Map<String, RateLimitBudget> hostBudgets;
+  private final Map<String, WaitTimeStats> stats = new ConcurrentHashMap<>();
+  private final Map<String, TokenBucket> localBuckets = new ConcurrentHashMap<>();
+  private final List<MeterRegistry> registries = new CopyOnWriteArrayList<>();
+
+  HostRateLimiter(
+      Vertx vertx,
+      Clock clock,
+      RateLimitBudget defaultBudget,
+      Map<String, RateLimitBudget> hostBudgets) {
+    this.vertx = vertx;
+    this.clock = clock;
+    this.defaultBudget = defaultBudget;
+    this.hostBudgets = Map.copyOf(hostBudgets);
+  }
+
+  public HostRateLimiter(
+      Vertx vertx, RateLimitBudget defaultBudget, Map<String, RateLimitBudget> hostBudgets) {
+    this(vertx, Clock.systemUTC(), defaultBudget, hostBudgets);
+  }
+
+  /**
+   * Returns the shared rate limiter for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the rate limiter
+   * @return the shared rate limiter for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static HostRateLimiter get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return LIMITERS.computeIfAbsent(vertx, HostRateLimiter::createFromSystemProperties);
+  }
+
+  private static HostRateLimiter createFromSystemProperties(Vertx vertx) {
+    RateLimitBudget defaultBudget = RateLimitBudget.DEFAULT;
+    Map<String, RateLimitBudget> hostBudgets = Collections.emptyMap();
+    try {
+      int burst = Integer.getInteger(PROP_BURST, RateLimitBudget.DEFAULT.getBurst());
+      String permits = System.getProperty(PROP_PERMITS_PER_SECOND);
+      defaultBudget =
+          new RateLimitBudget(
+              permits == null
+                  ? RateLimitBudget.DEFAULT.getPermitsPerSecond()
+                  : Double.parseDouble(permits),
+              burst);
+      hostBudgets = RateLimitBudget.parseHosts(System.getProperty(PROP_HOSTS), burst);
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid rate limit configuration, using defaults: {}", e.getMessage());
+    }
+    log.info("Using rate limits {} (default), {} (hosts)", defaultBudget, hostBudgets);
+    HostRateLimiter limiter = new HostRateLimiter(vertx, defaultBudget, hostBudgets);
+    limiter.bindTo(Metrics.globalRegistry);
+    return limiter;
+  }
+
+  /**
+   * Registers the wait time statistics of all hosts, including hosts that are requested later, with
+   * the given registry.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    registries.add(registry);
+    stats.forEach((host, hostStats) -> hostStats.bindTo(registry, host));
+  }
+
+  /**
+   * Extracts the host from a URL.
+   *
+   * @param url the URL
+   * @return the lower case host, or null if {@code url} is null or has no host
+   */
+  public static String getHost(String url) {
+    if (url == null) {
+      return null;
+    }
+    try {
+      String host = URI.create(url.trim()).getHost();
+      return host == null ? null : host.toLowerCase(Locale.ROOT);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  public RateLimitBudget getBudget(String host) {
+    return hostBudgets.getOrDefault(host, defaultBudget);
+  }
+
+  /**
+   * Waits until a request to the given host can be made.
+   *
+   * @param host the lower case host, see {@link #getHost(String)}
+   * @return Future with the time spent waiting, completes once the request can be made
+   */
+  public Future<Duration> acquire(String host) {
+    RateLimitBudget budget = host == null ? RateLimitBudget.UNLIMITED : getBudget(host);
+    if (budget.isUnlimited()) {
+      return Future.succeededFuture(Duration.ZERO);
+    }
+
+    SharedData sharedData = vertx.sharedData();
+    return sharedData
+        .getLockWithTimeout(LOCK_PREFIX + host, LOCK_TIMEOUT_MILLIS)
+        .compose(
+            lock ->
+                sharedData
+                    .<String, JsonObject>getAsyncMap(MAP_NAME)
+                    .compose(map -> reserve(map, host, budget))
+                    .onComplete(ar -> lock.release()))
+        .recover(
+            t -> {
+              log.warn(
+                  "Shared rate limiting for host {} failed, using local budget: {}",
+                  host,
+                  t.getMessage());
+              return Future.succeededFuture(reserveLocally(host, budget));
+            })
+        .compose(
+            waitMillis -> {
+              getStats(host).record(waitMillis);
+              if (waitMillis <= 0) {
+                return Future.succeededFuture(Duration.ZERO);
+              }
+              log.debug("Waiting {} ms for rate limit of host {}", waitMillis, host);
+              return vertx
+                  .timer(waitMillis, TimeUnit.MILLISECONDS)
+                  .map(v -> Duration.ofMillis(waitMillis));
+            });
+  }
+
+  /**
+   * Takes a token from the bucket of the given host.
+   *
+   * @return Future with the time in milliseconds until the taken token is available
+   */
+  private Future<Long> reserve(
+      AsyncMap<String, JsonObject> map, String host, RateLimitBudget budget) {
+    return map.get(host)
+        .compose(
+            state -> {
+              long now = clock.millis();
+              TokenBucket bucket =
+                  state == null
+                      ? new TokenBucket(budget.getBurst(), now)
+                      : new TokenBucket(
+                          state.getDouble(TOKENS, (double) budget.getBurst()),
+                          state.getLong(UPDATED, now));
+              long waitMillis = bucket.take(budget, now);
+              JsonObject newState =
+                  new JsonObject().put(TOKENS, bucket.tokens).put(UPDATED, bucket.updated);
+              return map.put(host, newState, STATE_TTL_MILLIS).map(waitMillis);
+            });
+  }
+
+  /**
+   * Takes a token from the bucket of the given host that is local to this node.
+   *
+   * @return the time in milliseconds until the taken token is available
+   */
+  private long reserveLocally(String host, RateLimitBudget budget) {
+    long now = clock.millis();
+    TokenBucket bucket =
+        localBuckets.computeIfAbsent(host, k -> new TokenBucket(budget.getBurst(), now));
+    synchronized (bucket) {
+      return bucket.take(budget, now);
+    }
+  }
+
+  /** State of a token bucket, the number of tokens may be negative if requests are waiting. */
+  private static class TokenBucket {
+
+    private double tokens;
+    private long updated;
+
+    TokenBucket(double tokens, long updated) {
+      this.tokens = tokens;
+      this.updated = updated;
+    }
+
+    /**
+     * Refills the bucket up to {@code now} and takes a token.
+     *
+     * @return the time in milliseconds until the taken token is available
+     */
+    long take(RateLimitBudget budget, long now) {
+      long elapsed = Math.max(0, now - updated);
+      tokens = Math.min(budget.getBurst(), tokens + elapsed * budget.getPermitsPerSecond() / 1000);
+      updated = Math.max(updated, now);
+      tokens -= 1;
+      return tokens < 0 ? (long) Math.ceil(-tokens * 1000 / budget.getPermitsPerSecond()) : 0;
+    }
+  }
+
+  /**
+   * Returns the wait time statistics of this node for the given host.
+   *
+   * @param host the lower case host
+   * @return the wait time statistics
+   */
+  public WaitTimeStats getStats(String host) {
+    return stats.computeIfAbsent(
+        host,
+        k -> {
+          WaitTimeStats hostStats = new WaitTimeStats();
+          registries.forEach(registry -> hostStats.bindTo(registry, k));
+          return hostStats;
+        });
+  }
+
+  /** Wait time statistics of rate limited requests. */
+  public static class WaitTimeStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder delayedRequests = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final LongAccumulator maxWaitMillis = new LongAccumulator(Math::max, 0);
+
+    void record(long waitMillis) {
+      requests.increment();
+      if (waitMillis > 0) {
+        delayedRequests.increment();
+        totalWaitMillis.add(waitMillis);
+        maxWaitMillis.accumulate(waitMillis);
+      }
+    }
+
+    public long getRequests() {
+      return requests.sum();
+    }
+
+    public long getDelayedRequests() {
+      return delayedRequests.sum();
+    }
+
+    public long getTotalWaitMillis() {
+      return totalWaitMillis.sum();
+    }
+
+    public long getMaxWaitMillis() {
+      return maxWaitMillis.get();
+    }
+
+    private void bindTo(MeterRegistry registry, String host) {
+      FunctionCounter.builder("harvester.ratelimit.requests", this, WaitTimeStats::getRequests)
+          .description("Rate limited requests")
+          .tag("host", host)
+          .register(registry);
+      FunctionCounter.builder(
+              "harvester.ratelimit.delayed", this, WaitTimeStats::getDelayedRequests)
+          .description("Rate limited requests that were delayed")
+          .tag("host", host)
+          .register(registry);
+      FunctionCounter.builder("harvester.ratelimit.wait", this, WaitTimeStats::getTotalWaitMillis)
+          .description("Total time rate limited requests were delayed")
+          .baseUnit("milliseconds")
+          .tag("host", host)
+          .register(registry);
+      Gauge.builder("harvester.ratelimit.wait.max", this, WaitTimeStats::getMaxWaitMillis)
+          .description("Maximum time a rate limited request was delayed")
+          .baseUnit("milliseconds")
+          .tag("host", host)
+          .register(registry);
+    }
+  }
+}
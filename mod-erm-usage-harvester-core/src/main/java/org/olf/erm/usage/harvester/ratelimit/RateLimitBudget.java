@@ -0,0 +1,102 @@
+package org.olf.erm.usage.harvester.ratelimit;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Request budget of a token bucket. The bucket is refilled at {@code permitsPerSecond} and holds at
+ * most {@code burst} tokens. A rate {@code <= 0} disables rate limiting.
+ */
+public class RateLimitBudget {
+
+  public static final String PROP_PERMITS_PER_SECOND = "harvester.ratelimit.permitsPerSecond";
+  public static final String PROP_BURST = "harvester.ratelimit.burst";
+  public static final String PROP_HOSTS = "harvester.ratelimit.hosts";
+  public static final RateLimitBudget DEFAULT = new RateLimitBudget(2, 4);
+  public static final RateLimitBudget UNLIMITED = new RateLimitBudget(0, 0);
+
+  private final double permitsPerSecond;
+  private final int burst;
+
+  public RateLimitBudget(double permitsPerSecond, int burst) {
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = Math.max(1, burst);
+  }
+
+  public double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  public boolean isUnlimited() {
+    return permitsPerSecond <= 0;
+  }
+
+  /**
+   * Parses a budget in the format {@code <permitsPerSecond>[:<burst>]}.
+   *
+   * @param str the string to parse, e.g. {@code "0.5:2"}
+   * @param defaultBurst burst to use if {@code str} does not specify one
+   * @return the parsed budget
+   * @throws NumberFormatException if {@code str} cannot be parsed
+   */
+  public static RateLimitBudget parse(String str, int defaultBurst) {
+    String[] parts = str.trim().split(":", 2);
+    double permitsPerSecond = Double.parseDouble(parts[0].trim());
+    int burst = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : defaultBurst;
+    return new RateLimitBudget(permitsPerSecond, burst);
+  }
+
+  /**
+   * Parses per host budgets in the format {@code <host>=<permitsPerSecond>[:<burst>],...}.
+   *
+   * @param str the string to parse, e.g. {@code "sushi.example.com=0.5:2,counter.example.org=5"}
+   * @param defaultBurst burst to use if a budget does not specify one
+   * @return a map with lower case host names as keys
+   * @throws IllegalArgumentException if {@code str} cannot be parsed
+   */
+  public static Map<String, RateLimitBudget> parseHosts(String str, int defaultBurst) {
+    Map<String, RateLimitBudget> result = new HashMap<>();
+    if (str == null || str.isBlank()) {
+      return result;
+    }
+    for (String entry : str.split(",")) {
+      if (entry.isBlank()) {
+        continue;
+      }
+      String[] parts = entry.split("=", 2);
+      if (parts.length != 2 || parts[0].isBlank()) {
+        throw new IllegalArgumentException("Invalid rate limit for host: " + entry);
+      }
+      result.put(parts[0].trim().toLowerCase(Locale.ROOT), parse(parts[1], defaultBurst));
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RateLimitBudget that = (RateLimitBudget) o;
+    return Double.compare(permitsPerSecond, that.permitsPerSecond) == 0 && burst == that.burst;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(permitsPerSecond, burst);
+  }
+
+  @Override
+  public String toString() {
+    return "RateLimitBudget [permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + "]";
+  }
+}
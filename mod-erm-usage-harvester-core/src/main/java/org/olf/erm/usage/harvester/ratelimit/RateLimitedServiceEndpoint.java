@@ -0,0 +1,50 @@
+package org.olf.erm.usage.harvester.ratelimit;
+
+import io.vertx.core.Future;
+import java.util.List;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.olf.erm.usage.harvester.LimitedServiceEndpoint;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+/** {@link ServiceEndpoint} that acquires a permit from a {@link HostRateLimiter} per request. */
+public class RateLimitedServiceEndpoint implements LimitedServiceEndpoint {
+
+  private final ServiceEndpoint delegate;
+  private final HostRateLimiter rateLimiter;
+  private final String host;
+
+  public RateLimitedServiceEndpoint(
+      ServiceEndpoint delegate, HostRateLimiter rateLimiter, String host) {
+    this.delegate = delegate;
+    this.rateLimiter = rateLimiter;
+    this.host = host;
+  }
+
+  public ServiceEndpoint getDelegate() {
+    return delegate;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  @Override
+  public Future<List<CounterReport>> fetchReport(
+      String report, String beginDate, String endDate, Runnable onStart) {
+    return rateLimiter
+        .acquire(host)
+        .compose(
+            waited ->
+                LimitedServiceEndpoint.fetchReport(delegate, report, beginDate, endDate, onStart));
+  }
+
+  @Override
+  public Future<Void> close() {
+    return delegate.close();
+  }
+
+  @Override
+  public long getReceivedBytes() {
+    return delegate.getReceivedBytes();
+  }
+}
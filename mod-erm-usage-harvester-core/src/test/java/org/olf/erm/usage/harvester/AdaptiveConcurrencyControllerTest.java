@@ -0,0 +1,127 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.olf.erm.usage.harvester.AdaptiveConcurrencyController.BASE_BACKOFF;
+import static org.olf.erm.usage.harvester.AdaptiveConcurrencyController.MAX_BACKOFF;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyControllerTest {
+
+  private static final long LATENCY = Duration.ofMillis(100).toNanos();
+  private final AtomicLong clock = new AtomicLong();
+  private double random;
+  private AdaptiveConcurrencyController controller;
+
+  @Before
+  public void setUp() {
+    clock.set(0);
+    random = 0.5;
+    controller = new AdaptiveConcurrencyController(8, clock::get, () -> random);
+  }
+
+  private long request(long latency) {
+    long token = controller.start();
+    clock.addAndGet(latency);
+    return token;
+  }
+
+  private void succeed(int count) {
+    for (int i = 0; i < count; i++) {
+      clock.incrementAndGet();
+      controller.onSuccess(request(LATENCY));
+    }
+  }
+
+  @Test
+  public void testStartsWithMaxLimit() {
+    assertThat(controller.getLimit()).isEqualTo(8);
+    succeed(10);
+    assertThat(controller.getLimit()).isEqualTo(8);
+  }
+
+  @Test
+  public void testThrottledHalvesLimitAndRecovers() {
+    clock.incrementAndGet();
+    controller.onThrottled(request(LATENCY), null);
+    assertThat(controller.getLimit()).isEqualTo(4);
+
+    succeed(4);
+    assertThat(controller.getLimit()).isEqualTo(4);
+    succeed(1);
+    assertThat(controller.getLimit()).isEqualTo(5);
+    succeed(100);
+    assertThat(controller.getLimit()).isEqualTo(8);
+  }
+
+  @Test
+  public void testThrottledDecreasesOnlyOncePerBurst() {
+    clock.incrementAndGet();
+    long token1 = controller.start();
+    long token2 = controller.start();
+    clock.addAndGet(LATENCY);
+    controller.onThrottled(token1, null);
+    controller.onThrottled(token2, null);
+    assertThat(controller.getLimit()).isEqualTo(4);
+
+    clock.incrementAndGet();
+    controller.onThrottled(request(LATENCY), null);
+    assertThat(controller.getLimit()).isEqualTo(2);
+    clock.incrementAndGet();
+    controller.onThrottled(request(LATENCY), null);
+    clock.incrementAndGet();
+    controller.onThrottled(request(LATENCY), null);
+    assertThat(controller.getLimit()).isEqualTo(1);
+  }
+
+  @Test
+  public void testHighLatencyDecreasesLimit() {
+    succeed(10);
+    clock.incrementAndGet();
+    controller.onSuccess(request(LATENCY * 3));
+    assertThat(controller.getLimit()).isEqualTo(6);
+  }
+
+  @Test
+  public void testRetryAfterPausesRequests() {
+    assertThat(controller.getRemainingPause()).isZero();
+    clock.incrementAndGet();
+    controller.onThrottled(request(LATENCY), Duration.ofSeconds(10));
+    assertThat(controller.getRemainingPause()).isEqualTo(Duration.ofSeconds(10));
+    clock.addAndGet(Duration.ofSeconds(4).toNanos());
+    assertThat(controller.getRemainingPause()).isEqualTo(Duration.ofSeconds(6));
+    clock.addAndGet(Duration.ofSeconds(6).toNanos());
+    assertThat(controller.getRemainingPause()).isZero();
+
+    controller.onThrottled(controller.start(), Duration.ofDays(1));
+    assertThat(controller.getRemainingPause()).isEqualTo(MAX_BACKOFF);
+  }
+
+  @Test
+  public void testBackoffIsExponentialWithJitter() {
+    random = 0;
+    assertThat(controller.getBackoff(0, null)).isEqualTo(BASE_BACKOFF.dividedBy(2));
+    assertThat(controller.getBackoff(3, null)).isEqualTo(BASE_BACKOFF.multipliedBy(4));
+    random = 0.999;
+    assertThat(controller.getBackoff(0, null))
+        .isGreaterThan(BASE_BACKOFF.multipliedBy(9).dividedBy(10))
+        .isLessThan(BASE_BACKOFF);
+    assertThat(controller.getBackoff(3, null))
+        .isGreaterThan(BASE_BACKOFF.multipliedBy(7))
+        .isLessThan(BASE_BACKOFF.multipliedBy(8));
+    assertThat(controller.getBackoff(100, null)).isLessThanOrEqualTo(MAX_BACKOFF);
+  }
+
+  @Test
+  public void testBackoffUsesRetryAfter() {
+    random = 0;
+    assertThat(controller.getBackoff(0, Duration.ofSeconds(30))).isEqualTo(Duration.ofSeconds(30));
+    random = 0.5;
+    assertThat(controller.getBackoff(5, Duration.ofSeconds(30)))
+        .isEqualTo(Duration.ofSeconds(30).plus(BASE_BACKOFF.dividedBy(2)));
+    assertThat(controller.getBackoff(0, Duration.ofDays(1))).isEqualTo(MAX_BACKOFF);
+  }
+}
@@ -0,0 +1,340 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+@ExtendWith(VertxExtension.class)
+class HarvestExecutorTest {
+
+  private static final String TENANT = "tenant";
+
+  @Test
+  void limitsConcurrencyAndStartsQueuedTasksInOrder(Vertx vertx, VertxTestContext ctx) {
+    HarvestExecutor executor = new HarvestExecutor(vertx, 2);
+    List<Promise<Integer>> promises =
+        IntStream.range(0, 5).mapToObj(i -> Promise.<Integer>promise()).toList();
+    List<Integer> started = new ArrayList<>();
+
+    List<Future<Integer>> futures =
+        IntStream.range(0, 5)
+            .mapToObj(
+                i ->
+                    executor.submit(
+                        () -> {
+                          synchronized (started) {
+                            started.add(i);
+                          }
+                          return promises.get(i).future();
+                        }))
+            .toList();
+
+    vertx.setTimer(
+        100,
+        id -> {
+          ctx.verify(
+              () -> {
+                assertThat(started).containsExactly(0, 1);
+                assertThat(executor.getRunning()).isEqualTo(2);
+                assertThat(executor.getQueued()).isEqualTo(3);
+              });
+          promises.forEach(p -> p.complete(promises.indexOf(p)));
+        });
+
+    Future.all(futures)
+        .onComplete(
+            ctx.succeeding(
+                cf ->
+                    ctx.verify(
+                        () -> {
+                          assertThat(cf.<Integer>list()).containsExactly(0, 1, 2, 3, 4);
+                          assertThat(started).containsExactly(0, 1, 2, 3, 4);
+                          assertThat(executor.getRunning()).isZero();
+                          assertThat(executor.getQueued()).isZero();
+                          ctx.completeNow();
+                        })));
+  }
+
+  @Test
+  void failedTasksReleaseTheirSlot(Vertx vertx, VertxTestContext ctx) {
+    HarvestExecutor executor = new HarvestExecutor(vertx, 1);
+
+    Future<Void> failed = executor.submit(() -> Future.failedFuture("fail"));
+    Future<Void> thrown =
+        executor.submit(
+            () -> {
+              throw new IllegalStateException("thrown");
+            });
+    Future<Void> error =
+        executor.submit(
+            () -> {
+              throw new AssertionError("error");
+            });
+    Future<Void> nullFuture = executor.submit(() -> null);
+    Future<String> succeeded = executor.submit(() -> Future.succeededFuture("ok"));
+
+    Future.join(failed, thrown, error, nullFuture, succeeded)
+        .onComplete(
+            ar ->
+                ctx.verify(
+                    () -> {
+                      assertThat(failed.cause()).hasMessage("fail");
+                      assertThat(thrown.cause()).hasMessage("thrown");
+                      assertThat(error.cause()).hasMessage("error");
+                      assertThat(nullFuture.cause()).isInstanceOf(NullPointerException.class);
+                      assertThat(succeeded.result()).isEqualTo("ok");
+                      assertThat(executor.getRunning()).isZero();
+                      ctx.completeNow();
+                    }));
+  }
+
+  @Test
+  void alternatesBetweenTenants(Vertx vertx, VertxTestContext ctx) {
+    HarvestExecutor executor = new HarvestExecutor(vertx, 1);
+    List<String> started = new ArrayList<>();
+    Function<String, Supplier<Future<Void>>> task =
+        name ->
+            () -> {
+              synchronized (started) {
+                started.add(name);
+              }
+              return Future.succeededFuture();
+            };
+    Promise<Void> blocker = Promise.promise();
+    executor.submit("big", blocker::future);
+    List<Future<Void>> futures = new ArrayList<>();
+    IntStream.range(0, 4).forEach(i -> futures.add(executor.submit("big", task.apply("big" + i))));
+    IntStream.range(0, 2)
+        .forEach(i -> futures.add(executor.submit("small", task.apply("small" + i))));
+    assertThat(executor.getQueued("big")).isEqualTo(4);
+    assertThat(executor.getQueued("small")).isEqualTo(2);
+
+    blocker.complete();
+    Future.all(futures)
+        .onComplete(
+            ctx.succeeding(
+                cf ->
+                    ctx.verify(
+                        () -> {
+                          assertThat(started)
+                              .containsExactly("small0", "big0", "small1", "big1", "big2", "big3");
+                          ctx.completeNow();
+                        })));
+  }
+
+  @Test
+  void sharesSlotsByWeightAndRespectsCaps(Vertx vertx, VertxTestContext ctx) {
+    HarvestExecutor executor =
+        new HarvestExecutor(
+            vertx,
+            4,
+            TenantShare.DEFAULT,
+            Map.of("heavy", new TenantShare(2, 0, 0), "capped", new TenantShare(1, 1, 0)));
+    List<Promise<Void>> blockers =
+        IntStream.range(0, 4).mapToObj(i -> Promise.<Void>promise()).toList();
+    blockers.forEach(p -> executor.submit("other", p::future));
+    IntStream.range(0, 5)
+        .forEach(
+            i -> {
+              executor.submit("heavy", () -> Promise.<Void>promise().future());
+              executor.submit("light", () -> Promise.<Void>promise().future());
+              executor.submit("capped", () -> Promise.<Void>promise().future());
+            });
+
+    vertx.setTimer(
+        100,
+        id -> {
+          blockers.forEach(Promise::complete);
+          ctx.verify(
+              () -> {
+                assertThat(executor.getRunning("heavy")).isEqualTo(2);
+                assertThat(executor.getRunning("light")).isEqualTo(1);
+                assertThat(executor.getRunning("capped")).isEqualTo(1);
+                assertThat(executor.getQueued()).isEqualTo(11);
+              });
+          ctx.completeNow();
+        });
+  }
+
+  @Test
+  void limitsConcurrentRequestsPerTenant(Vertx vertx, VertxTestContext ctx) {
+    HarvestExecutor executor = new HarvestExecutor(vertx, 10, new TenantShare(1, 0, 1), Map.of());
+    List<Promise<List<CounterReport>>> requests = new ArrayList<>();
+    ServiceEndpoint endpoint =
+        (report, beginDate, endDate) -> {
+          Promise<List<CounterReport>> promise = Promise.promise();
+          synchronized (requests) {
+            requests.add(promise);
+          }
+          return promise.future();
+        };
+    ServiceEndpoint first = executor.limitRequests(TENANT, endpoint);
+    ServiceEndpoint second = executor.limitRequests(TENANT, endpoint);
+    ServiceEndpoint otherTenant = executor.limitRequests("other", endpoint);
+    assertThat(first).isNotSameAs(endpoint);
+
+    Future<List<CounterReport>> firstResult = first.fetchReport("JR1", "2020-01", "2020-01");
+    second.fetchReport("JR1", "2020-02", "2020-02");
+    otherTenant.fetchReport("JR1", "2020-03", "2020-03");
+
+    vertx.setTimer(
+        100,
+        id -> {
+          ctx.verify(() -> assertThat(requests).hasSize(2));
+          requests.getFirst().complete(List.of());
+          firstResult.onComplete(
+              ctx.succeeding(
+                  reports ->
+                      vertx.setTimer(
+                          100,
+                          id2 ->
+                              ctx.verify(
+                                  () -> {
+                                    assertThat(requests).hasSize(3);
+                                    ctx.completeNow();
+                                  }))));
+        });
+  }
+
+  @Test
+  void signalsStartOfLimitedRequest(Vertx vertx, VertxTestContext ctx) {
+    HarvestExecutor executor = new HarvestExecutor(vertx, 10, new TenantShare(1, 0, 1), Map.of());
+    Promise<List<CounterReport>> firstRequest = Promise.promise();
+    ServiceEndpoint endpoint =
+        executor.limitRequests(TENANT, (report, beginDate, endDate) -> firstRequest.future());
+    List<String> started = new ArrayList<>();
+
+    LimitedServiceEndpoint.fetchReport(
+        endpoint, "JR1", "2020-01", "2020-01", () -> started.add("first"));
+    Future<List<CounterReport>> second =
+        LimitedServiceEndpoint.fetchReport(
+            endpoint, "JR1", "2020-02", "2020-02", () -> started.add("second"));
+
+    vertx.setTimer(
+        100,
+        id -> {
+          ctx.verify(() -> assertThat(started).containsExactly("first"));
+          firstRequest.complete(List.of());
+          second.onComplete(
+              ctx.succeeding(
+                  reports ->
+                      ctx.verify(
+                          () -> {
+                            assertThat(started).containsExactly("first", "second");
+                            ctx.completeNow();
+                          })));
+        });
+  }
+
+  @Test
+  void removesIdleRequestExecutors(Vertx vertx, VertxTestContext ctx) {
+    HarvestExecutor executor = new HarvestExecutor(vertx, 10, new TenantShare(1, 0, 1), Map.of());
+    Promise<List<CounterReport>> request = Promise.promise();
+    ServiceEndpoint endpoint =
+        executor.limitRequests(TENANT, (report, beginDate, endDate) -> request.future());
+
+    Future<List<CounterReport>> result = endpoint.fetchReport("JR1", "2020-01", "2020-01");
+    assertThat(executor.getRequestExecutorCount()).isEqualTo(1);
+
+    request.complete(List.of());
+    result
+        .compose(reports -> endpoint.fetchReport("JR1", "2020-02", "2020-02"))
+        .onComplete(
+            ctx.succeeding(
+                reports ->
+                    ctx.verify(
+                        () -> {
+                          assertThat(executor.getRequestExecutorCount()).isZero();
+                          ctx.completeNow();
+                        })));
+  }
+
+  @Test
+  void appliesChangedRequestCap(Vertx vertx, VertxTestContext ctx) {
+    TenantShare[] share = {new TenantShare(1, 0, 1)};
+    HarvestExecutor executor =
+        new HarvestExecutor(vertx, 10) {
+          @Override
+          public TenantShare getShare(String tenantId) {
+            return share[0];
+          }
+        };
+    List<Promise<List<CounterReport>>> requests = new ArrayList<>();
+    ServiceEndpoint endpoint =
+        executor.limitRequests(
+            TENANT,
+            (report, beginDate, endDate) -> {
+              Promise<List<CounterReport>> promise = Promise.promise();
+              synchronized (requests) {
+                requests.add(promise);
+              }
+              return promise.future();
+            });
+
+    endpoint.fetchReport("JR1", "2020-01", "2020-01");
+    share[0] = new TenantShare(1, 0, 3);
+    endpoint.fetchReport("JR1", "2020-02", "2020-02");
+    endpoint.fetchReport("JR1", "2020-03", "2020-03");
+
+    vertx.setTimer(
+        100,
+        id ->
+            ctx.verify(
+                () -> {
+                  assertThat(requests).hasSize(3);
+                  assertThat(executor.getRequestExecutorCount()).isEqualTo(1);
+                  ctx.completeNow();
+                }));
+  }
+
+  @Test
+  void doesNotLimitRequestsWithoutCap(Vertx vertx) {
+    HarvestExecutor executor = new HarvestExecutor(vertx, 10);
+    ServiceEndpoint endpoint = (report, beginDate, endDate) -> Future.succeededFuture(List.of());
+    assertThat(executor.limitRequests(TENANT, endpoint)).isSameAs(endpoint);
+  }
+
+  @Test
+  void parsesTenantShares() {
+    TenantShare defaultShare = new TenantShare(1, 10, 20);
+    assertThat(TenantShare.parse("2", defaultShare)).isEqualTo(new TenantShare(2, 10, 20));
+    assertThat(TenantShare.parse(" 0.5 : 5 ", defaultShare)).isEqualTo(new TenantShare(0.5, 5, 20));
+    assertThat(TenantShare.parseTenants("diku=2:20:40, small=1:5", defaultShare))
+        .containsOnly(
+            entry("diku", new TenantShare(2, 20, 40)), entry("small", new TenantShare(1, 5, 20)));
+    assertThat(TenantShare.parseTenants(null, defaultShare)).isEmpty();
+    assertThatThrownBy(() -> TenantShare.parseTenants("diku", defaultShare))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> TenantShare.parseTenants("diku=0", defaultShare))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void returnsSameInstanceForSameVertx(Vertx vertx) {
+    assertThat(HarvestExecutor.get(vertx)).isSameAs(HarvestExecutor.get(vertx));
+    assertThat(HarvestExecutor.get(vertx).getMaxConcurrency())
+        .isEqualTo(HarvestExecutor.DEFAULT_MAX_CONCURRENT_PROVIDERS);
+  }
+
+  @Test
+  void throwsOnInvalidConcurrency(Vertx vertx) {
+    assertThatThrownBy(() -> new HarvestExecutor(vertx, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -809,6 +809,8 @@ public class HarvestingIT {
                           .withQueryParam("end", equalTo("2020-04-30")));
                   serviceProviderBRule.verify(0, getRequestedFor(urlPathEqualTo("/")));
                   baseRule.verify(28, postRequestedFor(urlEqualTo(reportsPath)));
+                  // one request for the fetch list, one lookup of existing reports per fetch result
+                  baseRule.verify(1 + 3, getRequestedFor(urlPathEqualTo(reportsPath)));
                   baseRule.verify(
                       1,
                       postRequestedFor(urlEqualTo(reportsPath))
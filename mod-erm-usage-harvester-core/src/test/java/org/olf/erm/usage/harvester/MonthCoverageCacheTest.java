@@ -0,0 +1,137 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.olf.erm.usage.harvester.MonthCoverageCache.getMissingMonths;
+import static org.olf.erm.usage.harvester.MonthCoverageCache.index;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MonthCoverageCacheTest {
+
+  private static final YearMonth START = YearMonth.of(2015, 1);
+  private static final YearMonth END = YearMonth.of(2024, 12);
+  private static final MonthCoverageCache.Key KEY =
+      new MonthCoverageCache.Key("tenant", "provider", "TR", "5");
+  private Instant now;
+  private MonthCoverageCache cache;
+
+  @Before
+  public void setUp() {
+    now = Instant.parse("2025-01-15T00:00:00Z");
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    cache = new MonthCoverageCache(clock, Duration.ofMinutes(60));
+  }
+
+  private BitSet covered(YearMonth start, YearMonth... months) {
+    BitSet bitSet = new BitSet();
+    for (YearMonth month : months) {
+      bitSet.set(index(start, month));
+    }
+    return bitSet;
+  }
+
+  @Test
+  public void testGetMissingMonths() {
+    BitSet covered = covered(START, START, START.plusMonths(2));
+    assertThat(getMissingMonths(covered, START, START.plusMonths(3)))
+        .containsExactly(START.plusMonths(1), START.plusMonths(3));
+    assertThat(getMissingMonths(new BitSet(), START, START)).containsExactly(START);
+    assertThat(getMissingMonths(new BitSet(), END, START)).isEmpty();
+  }
+
+  @Test
+  public void testGetReturnsSubRange() {
+    cache.put(KEY, 5, START, END, covered(START, YearMonth.of(2020, 2), YearMonth.of(2020, 4)));
+
+    YearMonth from = YearMonth.of(2020, 1);
+    assertThat(cache.get(KEY, 5, from, YearMonth.of(2020, 6)))
+        .hasValueSatisfying(
+            bitSet ->
+                assertThat(getMissingMonths(bitSet, from, YearMonth.of(2020, 6)))
+                    .containsExactly(
+                        YearMonth.of(2020, 1),
+                        YearMonth.of(2020, 3),
+                        YearMonth.of(2020, 5),
+                        YearMonth.of(2020, 6)));
+  }
+
+  @Test
+  public void testGetMisses() {
+    cache.put(KEY, 5, START, END, new BitSet());
+
+    assertThat(cache.get(KEY, 5, START, END)).isPresent();
+    assertThat(cache.get(KEY, 3, START, END)).isEmpty();
+    assertThat(cache.get(KEY, 5, START.minusMonths(1), END)).isEmpty();
+    assertThat(cache.get(KEY, 5, START, END.plusMonths(1))).isEmpty();
+    assertThat(
+            cache.get(new MonthCoverageCache.Key("tenant", "provider", "DR", "5"), 5, START, END))
+        .isEmpty();
+
+    now = now.plus(Duration.ofMinutes(60));
+    assertThat(cache.get(KEY, 5, START, END)).isEmpty();
+  }
+
+  @Test
+  public void testUpdate() {
+    cache.put(KEY, 3, START, END, covered(START, START));
+
+    cache.update(KEY, START.plusMonths(1), null);
+    cache.update(KEY, START.plusMonths(2), 3);
+    cache.update(KEY, START.plusMonths(3), 1);
+    cache.update(KEY, START, 1);
+    cache.update(KEY, END.plusMonths(1), null);
+
+    assertThat(cache.get(KEY, 3, START, START.plusMonths(4)))
+        .hasValueSatisfying(
+            bitSet ->
+                assertThat(getMissingMonths(bitSet, START, START.plusMonths(4)))
+                    .containsExactly(START, START.plusMonths(3), START.plusMonths(4)));
+  }
+
+  @Test
+  public void testEvictExpired() {
+    cache.put(KEY, 5, START, END, new BitSet());
+    now = now.plus(Duration.ofMinutes(30));
+    MonthCoverageCache.Key other = new MonthCoverageCache.Key("tenant", "provider", "DR", "5");
+    cache.put(other, 5, START, END, new BitSet());
+
+    now = now.plus(Duration.ofMinutes(30));
+    cache.evictExpired();
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.get(other, 5, START, END)).isPresent();
+  }
+
+  @Test
+  public void testDisabled() {
+    MonthCoverageCache disabled = new MonthCoverageCache(Duration.ZERO);
+    disabled.put(KEY, 5, START, END, new BitSet());
+
+    assertThat(disabled.isEnabled()).isFalse();
+    assertThat(disabled.get(KEY, 5, START, END)).isEmpty();
+  }
+}
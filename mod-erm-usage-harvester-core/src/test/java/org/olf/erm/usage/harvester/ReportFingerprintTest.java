@@ -0,0 +1,45 @@
+package org.olf.erm.usage.harvester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.json.Json;
+import org.folio.rest.jaxrs.model.Report;
+import org.junit.Test;
+
+public class ReportFingerprintTest {
+
+  private static String fingerprint(String json) {
+    return ReportFingerprint.of(Json.decodeValue(json, Report.class));
+  }
+
+  @Test
+  public void testIgnoresKeyOrder() {
+    assertThat(fingerprint("{\"a\":1,\"b\":{\"c\":\"x\",\"d\":[1,2]}}"))
+        .isEqualTo(fingerprint("{\"b\":{\"d\":[1,2],\"c\":\"x\"},\"a\":1}"))
+        .hasSize(64);
+  }
+
+  @Test
+  public void testIgnoresCreated() {
+    assertThat(
+            fingerprint(
+                "{\"Report_Header\":{\"Created\":\"2024-01-01T00:00:00Z\",\"Report_ID\":\"TR\"}}"))
+        .isEqualTo(
+            fingerprint(
+                "{\"Report_Header\":{\"Created\":\"2024-02-01T00:00:00Z\",\"Report_ID\":\"TR\"}}"));
+    assertThat(fingerprint("{\"created\":\"2024-01-01\",\"name\":\"JR1\"}"))
+        .isEqualTo(fingerprint("{\"created\":\"2024-02-01\",\"name\":\"JR1\"}"));
+  }
+
+  @Test
+  public void testDetectsChanges() {
+    assertThat(fingerprint("{\"a\":[1,2]}"))
+        .isNotEqualTo(fingerprint("{\"a\":[2,1]}"))
+        .isNotEqualTo(fingerprint("{\"a\":[1,2,3]}"))
+        .isNotEqualTo(fingerprint("{\"a\":\"[1,2]\"}"));
+    assertThat(fingerprint("{\"a\":\"b\",\"c\":\"\"}"))
+        .isNotEqualTo(fingerprint("{\"a\":\"\",\"c\":\"b\"}"));
+    assertThat(fingerprint("{\"a\":{\"Created\":\"2024-01-01\"}}"))
+        .isNotEqualTo(fingerprint("{\"a\":{\"Created\":\"2024-02-01\"}}"));
+  }
+}
@@ -0,0 +1,391 @@
+package org.olf.erm.usage.harvester;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.put;
+import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.olf.erm.usage.harvester.TestUtil.createSampleUsageDataProvider;
+import static org.olf.erm.usage.harvester.client.ExtCounterReportsClientImpl.PATH;
+import static org.olf.erm.usage.harvester.endpoints.ServiceEndpoint.createCounterReport;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.ThreadingModel;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.client.WebClient;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.folio.rest.jaxrs.model.CounterReports;
+import org.folio.rest.jaxrs.model.JobStatistics;
+import org.folio.rest.jaxrs.model.Metadata;
+import org.folio.rest.jaxrs.model.Report;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.folio.rest.jaxrs.model.UsageDataProviders;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.olf.erm.usage.harvester.client.ExtCounterReportsClientImpl;
+import org.olf.erm.usage.harvester.client.ExtUsageDataProvidersClient;
+import org.olf.erm.usage.harvester.endpoints.InvalidReportException;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+import org.olf.erm.usage.harvester.endpoints.TooManyRequestsException;
+
+@RunWith(VertxUnitRunner.class)
+public class WorkerVerticleTest {
+
+  // sample provider: 3 reports from 2017-12 to 2018-04
+  private static final int EXPECTED_REPORT_COUNT = 15;
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(new WireMockConfiguration().dynamicPort());
+
+  private final UsageDataProvider provider = createSampleUsageDataProvider();
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .willReturn(aResponse().withStatus(200).withBody("{\"counterReports\":[]}")));
+    stubFor(post(urlPathEqualTo(PATH)).willReturn(aResponse().withStatus(201).withFixedDelay(100)));
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  private static List<CounterReport> createReports(
+      UsageDataProvider provider, String report, String beginDate, String endDate) {
+    YearMonth end = YearMonth.parse(endDate.substring(0, 7));
+    return Stream.iterate(YearMonth.parse(beginDate.substring(0, 7)), m -> m.plusMonths(1))
+        .takeWhile(m -> !m.isAfter(end))
+        .map(m -> createCounterReport("{}", report, provider, m))
+        .toList();
+  }
+
+  private WorkerVerticle createVerticle(
+      ServiceEndpoint serviceEndpoint, ReportFingerprintStore fingerprintStore) {
+    return new WorkerVerticle(
+        (scope, key) -> Future.succeededFuture(Optional.empty()),
+        new ExtCounterReportsClientImpl(wireMockRule.baseUrl(), "diku", WebClient.create(vertx)),
+        new NoopUsageDataProvidersClient(),
+        "diku",
+        provider,
+        serviceEndpoint,
+        4,
+        fingerprintStore);
+  }
+
+  private void deployAndVerify(TestContext context, ServiceEndpoint serviceEndpoint) {
+    deployAndVerify(context, serviceEndpoint, verticle -> {});
+  }
+
+  private void deployAndVerify(
+      TestContext context,
+      ServiceEndpoint serviceEndpoint,
+      Consumer<WorkerVerticle> additionalAssertions) {
+    deployAndVerify(context, serviceEndpoint, null, EXPECTED_REPORT_COUNT, additionalAssertions);
+  }
+
+  private void deployAndVerify(
+      TestContext context,
+      ServiceEndpoint serviceEndpoint,
+      ReportFingerprintStore fingerprintStore,
+      int expectedPostCount,
+      Consumer<WorkerVerticle> additionalAssertions) {
+    WorkerVerticle verticle = createVerticle(serviceEndpoint, fingerprintStore);
+
+    Async async = context.async();
+    vertx
+        .deployVerticle(verticle, new DeploymentOptions().setThreadingModel(ThreadingModel.WORKER))
+        .compose(id -> verticle.getFinished())
+        .onComplete(
+            context.asyncAssertSuccess(
+                v -> {
+                  context.verify(
+                      v2 -> {
+                        // all uploads have completed when processing is signaled as finished
+                        assertThat(
+                                wireMockRule.findAll(postRequestedFor(urlPathEqualTo(PATH))).size())
+                            .isEqualTo(expectedPostCount);
+                        additionalAssertions.accept(verticle);
+                      });
+                  async.complete();
+                }));
+  }
+
+  @Test
+  public void testCompletesWhenLastTaskFinishes(TestContext context) {
+    deployAndVerify(
+        context,
+        (report, beginDate, endDate) ->
+            Future.succeededFuture(createReports(provider, report, beginDate, endDate)));
+  }
+
+  @Test
+  public void testCompletesAfterTooManyRequests(TestContext context) {
+    AtomicInteger calls = new AtomicInteger();
+    deployAndVerify(
+        context,
+        (report, beginDate, endDate) -> {
+          if (report.equals("JR1") && calls.getAndIncrement() == 0) {
+            return Future.failedFuture(new TooManyRequestsException());
+          }
+          return Future.succeededFuture(createReports(provider, report, beginDate, endDate));
+        },
+        verticle -> {
+          JobStatistics statistics = verticle.getStatistics().toJobStatistics();
+          assertThat(statistics.getTooManyRequests()).isEqualTo(1);
+          assertThat(statistics.getRequests()).isGreaterThan(calls.get());
+          assertThat(statistics.getReportsUploaded()).isEqualTo(EXPECTED_REPORT_COUNT);
+          assertThat(statistics.getFailedMonths()).isZero();
+        });
+  }
+
+  @Test
+  public void testRetryAfterTooManyRequestsIsDelayed(TestContext context) {
+    List<Long> callTimes = new CopyOnWriteArrayList<>();
+    deployAndVerify(
+        context,
+        (report, beginDate, endDate) -> {
+          if (report.equals("JR1")) {
+            callTimes.add(System.currentTimeMillis());
+            if (callTimes.size() == 1) {
+              return Future.failedFuture(
+                  new TooManyRequestsException("HTTP 429", Duration.ofMillis(500)));
+            }
+          }
+          return Future.succeededFuture(createReports(provider, report, beginDate, endDate));
+        },
+        verticle -> {
+          assertThat(callTimes).hasSize(2);
+          assertThat(callTimes.get(1) - callTimes.get(0)).isGreaterThanOrEqualTo(500);
+        });
+  }
+
+  @Test
+  public void testCompletesAfterInvalidReportExpansion(TestContext context) {
+    deployAndVerify(
+        context,
+        (report, beginDate, endDate) -> {
+          if (report.equals("JR2") && !beginDate.substring(0, 7).equals(endDate.substring(0, 7))) {
+            return Future.failedFuture(new InvalidReportException("invalid"));
+          }
+          return Future.succeededFuture(createReports(provider, report, beginDate, endDate));
+        });
+  }
+
+  @Test
+  public void testClosesServiceEndpointOnUndeploy(TestContext context) {
+    Async closed = context.async();
+    deployAndVerify(
+        context,
+        new ServiceEndpoint() {
+          @Override
+          public Future<List<CounterReport>> fetchReport(
+              String report, String beginDate, String endDate) {
+            return Future.succeededFuture(createReports(provider, report, beginDate, endDate));
+          }
+
+          @Override
+          public Future<Void> close() {
+            closed.complete();
+            return Future.succeededFuture();
+          }
+        });
+  }
+
+  @Test
+  public void testSkipsUploadOfUnchangedReports(TestContext context) {
+    Date updatedDate = new Date(1_700_000_000_000L);
+    List<CounterReport> existing =
+        Stream.of("2017-12", "2018-01", "2018-02", "2018-03", "2018-04")
+            .map(
+                month ->
+                    new CounterReport()
+                        .withId("JR1-" + month)
+                        .withProviderId(provider.getId())
+                        .withRelease("4")
+                        .withReportName("JR1")
+                        .withYearMonth(month)
+                        .withMetadata(new Metadata().withUpdatedDate(updatedDate)))
+            .toList();
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .withQueryParam("query", containing("reportName==JR1 "))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withBody(Json.encode(new CounterReports().withCounterReports(existing)))));
+    stubFor(put(urlPathMatching(PATH + "/.*")).willReturn(aResponse().withStatus(204)));
+
+    String unchanged = ReportFingerprint.of(new Report());
+    Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    Map<String, Long> updatedDates = new ConcurrentHashMap<>();
+    fingerprints.put("JR1-2017-12", unchanged);
+    fingerprints.put("JR1-2018-01", unchanged);
+    fingerprints.put("JR1-2018-02", unchanged);
+    fingerprints.put("JR1-2018-03", "changed");
+    fingerprints.keySet().forEach(id -> updatedDates.put(id, updatedDate.getTime()));
+    // updated since its fingerprint was stored
+    updatedDates.put("JR1-2018-02", updatedDate.getTime() - 1);
+    ReportFingerprintStore fingerprintStore =
+        new ReportFingerprintStore() {
+          @Override
+          public Future<Map<String, String>> getFingerprints(Collection<CounterReport> reports) {
+            return Future.succeededFuture(
+                reports.stream()
+                    .filter(cr -> fingerprints.containsKey(cr.getId()))
+                    .filter(
+                        cr ->
+                            updatedDates
+                                .get(cr.getId())
+                                .equals(cr.getMetadata().getUpdatedDate().getTime()))
+                    .collect(
+                        Collectors.toMap(
+                            CounterReport::getId, cr -> fingerprints.get(cr.getId()))));
+          }
+
+          @Override
+          public Future<Void> putFingerprints(
+              Collection<CounterReport> reports, Map<String, String> newFingerprints) {
+            reports.stream()
+                .filter(cr -> newFingerprints.containsKey(cr.getId()))
+                .forEach(
+                    cr -> {
+                      fingerprints.put(cr.getId(), newFingerprints.get(cr.getId()));
+                      updatedDates.put(cr.getId(), cr.getMetadata().getUpdatedDate().getTime());
+                    });
+            return Future.succeededFuture();
+          }
+        };
+
+    deployAndVerify(
+        context,
+        (report, beginDate, endDate) ->
+            Future.succeededFuture(createReports(provider, report, beginDate, endDate)),
+        fingerprintStore,
+        EXPECTED_REPORT_COUNT - 5,
+        verticle -> {
+          assertThat(wireMockRule.findAll(putRequestedFor(urlPathMatching(PATH + "/.*"))))
+              .hasSize(3);
+          // one lookup before the uploads, one for storing the fingerprints of both batches
+          assertThat(
+                  wireMockRule.findAll(
+                      getRequestedFor(urlPathEqualTo(PATH))
+                          .withQueryParam("query", containing("reportName==JR1 "))))
+              .hasSize(2);
+          // mod-erm-usage returns the stubbed reports when the uploaded reports are looked up
+          assertThat(fingerprints)
+              .hasSize(5)
+              .containsEntry("JR1-2018-02", unchanged)
+              .containsEntry("JR1-2018-03", unchanged)
+              .containsEntry("JR1-2018-04", unchanged);
+          assertThat(updatedDates).containsEntry("JR1-2018-02", updatedDate.getTime());
+          JobStatistics statistics = verticle.getStatistics().toJobStatistics();
+          assertThat(statistics.getReportsUnchanged()).isEqualTo(2);
+          assertThat(statistics.getReportsUploaded()).isEqualTo(EXPECTED_REPORT_COUNT - 2);
+          assertThat(statistics.getPeakConcurrency()).isBetween(1, 4);
+          assertThat(statistics.getBytesDownloaded()).isNull();
+        });
+  }
+
+  @Test
+  public void testSkipsPendingUploadsAfterFailedUploads(TestContext context) {
+    // uploads of JR1 fail, JR2 and JR3 are uploaded after their existing reports are looked up
+    stubFor(
+        post(urlPathEqualTo(PATH))
+            .withRequestBody(containing("\"JR1\""))
+            .willReturn(aResponse().withStatus(500)));
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .withQueryParam("query", matching(".*reportName==JR[23] .*"))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withBody("{\"counterReports\":[]}")
+                    .withFixedDelay(500)));
+    WorkerVerticle verticle =
+        createVerticle(
+            (report, beginDate, endDate) ->
+                Future.succeededFuture(createReports(provider, report, beginDate, endDate)),
+            null);
+
+    Async async = context.async();
+    vertx
+        .deployVerticle(verticle, new DeploymentOptions().setThreadingModel(ThreadingModel.WORKER))
+        .compose(id -> verticle.getFinished())
+        .onComplete(
+            context.asyncAssertFailure(
+                t -> {
+                  context.assertEquals("Stopping after 5 failed uploads in a row", t.getMessage());
+                  vertx.setTimer(
+                      1000,
+                      id -> {
+                        context.verify(
+                            v ->
+                                assertThat(
+                                        wireMockRule.findAll(
+                                            postRequestedFor(urlPathEqualTo(PATH))))
+                                    .hasSize(5));
+                        async.complete();
+                      });
+                }));
+  }
+
+  private static class NoopUsageDataProvidersClient implements ExtUsageDataProvidersClient {
+
+    @Override
+    public Future<Void> updateUDPLastHarvestingDate(UsageDataProvider udp, Date date) {
+      return Future.succeededFuture();
+    }
+
+    @Override
+    public Future<UsageDataProviders> getActiveProviders() {
+      return Future.succeededFuture(new UsageDataProviders());
+    }
+
+    @Override
+    public Future<Void> getActiveProviders(
+        int pageSize, Function<List<UsageDataProvider>, Future<Void>> pageHandler) {
+      return Future.succeededFuture();
+    }
+
+    @Override
+    public Future<UsageDataProvider> getActiveProviderById(String providerId) {
+      return Future.succeededFuture(createSampleUsageDataProvider());
+    }
+  }
+}
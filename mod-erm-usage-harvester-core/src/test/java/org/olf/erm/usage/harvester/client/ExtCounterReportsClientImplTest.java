@@ -1,9 +1,12 @@
 package org.olf.erm.usage.harvester.client;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.exactly;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.put;
@@ -21,12 +24,15 @@ import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.Json;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import io.vertx.ext.web.client.WebClient;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -44,6 +50,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.olf.erm.usage.harvester.FetchItem;
+import org.olf.erm.usage.harvester.MonthCoverageCache;
 
 @RunWith(VertxUnitRunner.class)
 public class ExtCounterReportsClientImplTest {
@@ -108,6 +115,135 @@ public class ExtCounterReportsClientImplTest {
         .onComplete(context.asyncAssertSuccess(v -> verify(putRequestedFor(urlEqualTo(urlId)))));
   }
 
+  @Test
+  public void upsertReportWithExistingSkipsLookup(TestContext context) {
+    final String urlId = PATH + "/43d7e87c-fb32-4ce2-81f9-11fe75c29bbb";
+    stubFor(put(urlEqualTo(urlId)).willReturn(aResponse().withStatus(204)));
+    CounterReport failedReport =
+        Json.decodeValue(Json.encode(cr), CounterReport.class)
+            .withReport(null)
+            .withFailedAttempts(1);
+    CounterReport existing =
+        new CounterReport().withId("43d7e87c-fb32-4ce2-81f9-11fe75c29bbb").withFailedAttempts(2);
+
+    counterReportsClient
+        .upsertReport(failedReport, existing)
+        .onComplete(
+            context.asyncAssertSuccess(
+                v -> {
+                  verify(exactly(0), getRequestedFor(urlPathEqualTo(PATH)));
+                  verify(
+                      putRequestedFor(urlEqualTo(urlId))
+                          .withRequestBody(matchingJsonPath("$.failedAttempts", equalTo("3"))));
+                }));
+  }
+
+  @Test
+  public void upsertReportWithoutExistingSkipsLookup(TestContext context) {
+    stubFor(post(urlEqualTo(PATH)).willReturn(aResponse().withStatus(201)));
+
+    counterReportsClient
+        .upsertReport(cr, null)
+        .onComplete(
+            context.asyncAssertSuccess(
+                v -> {
+                  verify(exactly(0), getRequestedFor(urlPathEqualTo(PATH)));
+                  verify(postRequestedFor(urlEqualTo(PATH)));
+                }));
+  }
+
+  @Test
+  public void testGetExistingReports(TestContext context) {
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .willReturn(aResponse().withStatus(200).withBodyFile("counter-reports-one.json")));
+    List<CounterReport> reports =
+        Stream.of("2018-01", "2018-02", "2018-03")
+            .map(
+                ym ->
+                    new CounterReport()
+                        .withProviderId("88398db3-892e-446b-b7b2-c2b2d8821f60")
+                        .withRelease("4")
+                        .withReportName("JR1")
+                        .withYearMonth(ym))
+            .toList();
+
+    counterReportsClient
+        .getExistingReports(reports)
+        .onComplete(
+            context.asyncAssertSuccess(
+                list -> {
+                  assertThat(list)
+                      .extracting(CounterReport::getId)
+                      .containsExactly("43d7e87c-fb32-4ce2-81f9-11fe75c29bbb");
+                  verify(
+                      exactly(1),
+                      getRequestedFor(urlPathEqualTo(PATH))
+                          .withQueryParam("limit", equalTo("3"))
+                          .withQueryParam(
+                              "query", containing("yearMonth>=2018-01 AND yearMonth<=2018-03")));
+                }));
+  }
+
+  @Test
+  public void testGetReportIds(TestContext context) {
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .willReturn(aResponse().withStatus(200).withBodyFile("counter-reports-one.json")));
+
+    counterReportsClient
+        .getReportIds(List.of("43d7e87c-fb32-4ce2-81f9-11fe75c29bbb", "deleted"))
+        .onComplete(
+            context.asyncAssertSuccess(
+                ids -> {
+                  assertThat(ids).containsExactly("43d7e87c-fb32-4ce2-81f9-11fe75c29bbb");
+                  verify(
+                      exactly(1),
+                      getRequestedFor(urlPathEqualTo(PATH))
+                          .withQueryParam("limit", equalTo("2"))
+                          .withQueryParam(
+                              "query",
+                              equalTo("id==(43d7e87c-fb32-4ce2-81f9-11fe75c29bbb or deleted)")));
+                }));
+  }
+
+  @Test
+  public void testGetExistingReportsMultipleReportTypes(TestContext context) {
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .willReturn(aResponse().withStatus(200).withBodyFile("counter-reports-empty.json")));
+    List<CounterReport> reports =
+        Stream.of("JR1", "JR1", "DB1")
+            .map(
+                name ->
+                    new CounterReport()
+                        .withProviderId("providerId")
+                        .withRelease("4")
+                        .withReportName(name)
+                        .withYearMonth("2018-01"))
+            .toList();
+
+    counterReportsClient
+        .getExistingReports(reports)
+        .onComplete(
+            context.asyncAssertSuccess(
+                list -> {
+                  assertThat(list).isEmpty();
+                  verify(exactly(2), getRequestedFor(urlPathEqualTo(PATH)));
+                }));
+  }
+
+  @Test
+  public void testGetExistingReportsFail(TestContext context) {
+    stubFor(get(urlPathEqualTo(PATH)).willReturn(aResponse().withStatus(500)));
+
+    counterReportsClient
+        .getExistingReports(List.of(cr))
+        .onComplete(
+            context.asyncAssertFailure(
+                t -> assertThat(t).hasMessageContaining("Received status code")));
+  }
+
   @Test
   public void testGetValidMonths(TestContext context) {
     String encode = Json.encodePrettily(createCounterSampleReports());
@@ -152,6 +288,17 @@ public class ExtCounterReportsClientImplTest {
             context.asyncAssertFailure(t -> assertThat(t).hasMessageContaining("not active")));
   }
 
+  private CounterReports createCounterSampleReports(String... reportNames) {
+    List<CounterReport> reports =
+        Stream.of(reportNames)
+            .flatMap(
+                reportName ->
+                    createCounterSampleReports().getCounterReports().stream()
+                        .map(cr -> cr.withReportName(reportName)))
+            .collect(Collectors.toList());
+    return new CounterReports().withCounterReports(reports);
+  }
+
   @Test
   public void testGetFetchList(TestContext context) {
     UsageDataProvider provider = createSampleUsageDataProvider();
@@ -162,7 +309,8 @@ public class ExtCounterReportsClientImplTest {
             .willReturn(
                 aResponse()
                     .withStatus(200)
-                    .withBody(Json.encodePrettily(createCounterSampleReports()))));
+                    .withBody(
+                        Json.encodePrettily(createCounterSampleReports("JR1", "JR2", "JR3")))));
 
     counterReportsClient
         .getFetchList(provider, 5)
@@ -177,7 +325,161 @@ public class ExtCounterReportsClientImplTest {
                           new FetchItem("JR1", begin, end),
                           new FetchItem("JR2", begin, end),
                           new FetchItem("JR3", begin, end));
+                  verify(
+                      exactly(1),
+                      getRequestedFor(urlPathEqualTo("/counter-reports"))
+                          .withQueryParam("tiny", equalTo("true"))
+                          .withQueryParam(
+                              "query", containing("reportName==(\"JR1\" or \"JR2\" or \"JR3\")")));
+                }));
+  }
+
+  @Test
+  public void testGetFetchListPaged(TestContext context) {
+    UsageDataProvider provider = createSampleUsageDataProvider();
+    provider.getHarvestingConfig().setHarvestingEnd("2018-03");
+
+    CounterReports firstPage = createCounterSampleReports("JR1", "JR2");
+    CounterReport filler = firstPage.getCounterReports().get(0);
+    while (firstPage.getCounterReports().size() < ExtCounterReportsClientImpl.PAGE_SIZE) {
+      firstPage.getCounterReports().add(filler);
+    }
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .withQueryParam("offset", equalTo("0"))
+            .willReturn(aResponse().withStatus(200).withBody(Json.encode(firstPage))));
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .withQueryParam(
+                "offset", equalTo(String.valueOf(ExtCounterReportsClientImpl.PAGE_SIZE)))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withBody(Json.encode(createCounterSampleReports("JR3")))));
+
+    counterReportsClient
+        .getFetchList(provider, 5)
+        .onComplete(
+            context.asyncAssertSuccess(
+                list -> {
+                  final String begin = "2018-03-01";
+                  final String end = "2018-03-31";
+                  assertThat(list)
+                      .containsExactlyInAnyOrder(
+                          new FetchItem("JR1", begin, end),
+                          new FetchItem("JR2", begin, end),
+                          new FetchItem("JR3", begin, end));
+                  verify(exactly(2), getRequestedFor(urlPathEqualTo("/counter-reports")));
+                }));
+  }
+
+  @Test
+  public void testGetFetchListWithCoverageCache(TestContext context) {
+    UsageDataProvider provider = createSampleUsageDataProvider();
+    provider.getHarvestingConfig().setHarvestingEnd("2018-03");
+    ExtCounterReportsClient client =
+        new ExtCounterReportsClientImpl(
+            wireMockRule.baseUrl(),
+            "someTenant",
+            WebClient.create(Vertx.vertx()),
+            new MonthCoverageCache(Duration.ofMinutes(1)));
+
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withBody(
+                        Json.encodePrettily(createCounterSampleReports("JR1", "JR2", "JR3")))));
+    stubCount(10);
+    stubFor(post(urlEqualTo(PATH)).willReturn(aResponse().withStatus(201)));
+
+    CounterReport report =
+        new CounterReport()
+            .withProviderId(provider.getId())
+            .withRelease(provider.getHarvestingConfig().getReportRelease())
+            .withReportName("JR1")
+            .withYearMonth("2018-03");
+    client
+        .getFetchList(provider, 5)
+        .compose(list -> client.upsertReport(report, null))
+        .compose(resp -> client.getFetchList(provider, 5))
+        .onComplete(
+            context.asyncAssertSuccess(
+                list -> {
+                  final String begin = "2018-03-01";
+                  final String end = "2018-03-31";
+                  assertThat(list)
+                      .containsExactlyInAnyOrder(
+                          new FetchItem("JR2", begin, end), new FetchItem("JR3", begin, end));
+                  verify(exactly(2), getRequestedFor(urlPathEqualTo("/counter-reports")));
+                  verify(
+                      exactly(1),
+                      getRequestedFor(urlPathEqualTo(PATH)).withQueryParam("limit", equalTo("0")));
+                }));
+  }
+
+  @Test
+  public void testGetFetchListReloadsChangedCoverage(TestContext context) {
+    UsageDataProvider provider = createSampleUsageDataProvider();
+    provider.getHarvestingConfig().setHarvestingEnd("2018-03");
+    ExtCounterReportsClient client =
+        new ExtCounterReportsClientImpl(
+            wireMockRule.baseUrl(),
+            "someTenant",
+            WebClient.create(Vertx.vertx()),
+            new MonthCoverageCache(Duration.ofMinutes(1)));
+
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withBody(
+                        Json.encodePrettily(createCounterSampleReports("JR1", "JR2", "JR3")))));
+    // a report has been deleted through another node
+    stubCount(8);
+
+    client
+        .getFetchList(provider, 5)
+        .compose(list -> client.getFetchList(provider, 5))
+        .onComplete(
+            context.asyncAssertSuccess(
+                list -> {
+                  assertThat(list).hasSize(3);
                   verify(exactly(3), getRequestedFor(urlPathEqualTo("/counter-reports")));
                 }));
   }
+
+  private void stubCount(int totalRecords) {
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .withQueryParam("limit", equalTo("0"))
+            .withQueryParam("totalRecords", equalTo("exact"))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withBody(
+                        Json.encodePrettily(new CounterReports().withTotalRecords(totalRecords)))));
+  }
+
+  @Test
+  public void testParseReportMonths() throws IOException {
+    String body =
+        """
+        {
+          "counterReports": [
+            {"id": "1", "reportName": "TR", "report": {"a": [1, {"b": 2}]}, "yearMonth": "2019-01"},
+            {"yearMonth": "2019-02", "reportName": "DR", "failedAttempts": 1}
+          ],
+          "totalRecords": 2
+        }
+        """;
+    List<String> result = new ArrayList<>();
+    int count =
+        ExtCounterReportsClientImpl.parseReportMonths(
+            Buffer.buffer(body), (reportName, month) -> result.add(reportName + ":" + month));
+    assertThat(count).isEqualTo(2);
+    assertThat(result).containsExactly("TR:2019-01", "DR:2019-02");
+  }
 }
@@ -1,13 +1,17 @@
 package org.olf.erm.usage.harvester.client;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.notContaining;
 import static com.github.tomakehurst.wiremock.client.WireMock.put;
 import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -16,13 +20,20 @@ import static org.olf.erm.usage.harvester.client.ExtUsageDataProvidersClientImpl
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.matching.StringValuePattern;
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import io.vertx.ext.web.client.WebClient;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.folio.rest.jaxrs.model.UsageDataProviders;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -128,6 +139,67 @@ public class ExtUsageDataProvidersClientImplTest {
         .onComplete(context.asyncAssertFailure(t -> assertThat(t).hasMessageContaining("404")));
   }
 
+  @Test
+  public void getActiveProvidersPaged(TestContext context) {
+    List<UsageDataProvider> providers =
+        IntStream.range(0, 5)
+            .mapToObj(i -> new UsageDataProvider().withId("id" + i).withLabel("udp" + i))
+            .toList();
+    stubPage(notContaining("id >"), providers.subList(0, 2));
+    stubPage(containing("id > \"id1\""), providers.subList(2, 4));
+    stubPage(containing("id > \"id3\""), providers.subList(4, 5));
+
+    List<List<String>> pages = new ArrayList<>();
+    udpClient
+        .getActiveProviders(
+            2,
+            page -> {
+              pages.add(page.stream().map(UsageDataProvider::getId).toList());
+              return Future.succeededFuture();
+            })
+        .onComplete(
+            context.asyncAssertSuccess(
+                v -> {
+                  assertThat(pages)
+                      .containsExactly(
+                          List.of("id0", "id1"), List.of("id2", "id3"), List.of("id4"));
+                  verify(
+                      3,
+                      getRequestedFor(urlPathEqualTo(PATH))
+                          .withQueryParam("limit", equalTo("2"))
+                          .withQueryParam("query", containing("sortBy id")));
+                }));
+  }
+
+  @Test
+  public void getActiveProvidersPagedStopsOnHandlerFailure(TestContext context) {
+    stubFor(
+        get(urlPathMatching(PATH))
+            .willReturn(aResponse().withBodyFile("usage-data-providers.json")));
+
+    udpClient
+        .getActiveProviders(1, page -> Future.failedFuture("handler failed"))
+        .onComplete(
+            context.asyncAssertFailure(
+                t -> {
+                  assertThat(t).hasMessage("handler failed");
+                  verify(1, getRequestedFor(urlPathEqualTo(PATH)));
+                }));
+  }
+
+  private void stubPage(StringValuePattern query, List<UsageDataProvider> page) {
+    stubFor(
+        get(urlPathEqualTo(PATH))
+            .withQueryParam("query", query)
+            .willReturn(
+                aResponse()
+                    .withBody(
+                        Json.encode(
+                            new UsageDataProviders()
+                                .withUsageDataProviders(page)
+                                .withTotalRecords(5)))));
+  }
+
   @Test
   public void getActiveProvidersNoService(TestContext context) {
     wireMockRule.stop();
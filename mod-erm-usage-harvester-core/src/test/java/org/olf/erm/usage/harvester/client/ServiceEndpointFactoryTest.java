@@ -4,23 +4,37 @@ import static io.vertx.core.Future.succeededFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.common.io.Resources;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
 import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestVia;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+import org.olf.erm.usage.harvester.ratelimit.HostRateLimiter;
+import org.olf.erm.usage.harvester.ratelimit.RateLimitBudget;
+import org.olf.erm.usage.harvester.ratelimit.RateLimitedServiceEndpoint;
 
 @RunWith(VertxUnitRunner.class)
 public class ServiceEndpointFactoryTest {
 
+  private static final Vertx vertx = Vertx.vertx();
   private UsageDataProvider usageDataProvider;
 
+  @AfterClass
+  public static void afterClass(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
   @Before
   public void setUp() throws IOException {
     usageDataProvider =
@@ -32,7 +46,7 @@ public class ServiceEndpointFactoryTest {
 
   @Test
   public void testCreateServiceEndpoint(TestContext context) {
-    new ServiceEndpointFactory(provider -> null)
+    new ServiceEndpointFactory(vertx, provider -> null)
         .createServiceEndpoint(usageDataProvider)
         .onComplete(context.asyncAssertSuccess(sep -> assertThat(sep).isNotNull()));
   }
@@ -40,7 +54,7 @@ public class ServiceEndpointFactoryTest {
   @Test
   public void testGetServiceEndpointNoImplementation(TestContext context) throws IOException {
     usageDataProvider.getHarvestingConfig().getSushiConfig().setServiceType("test3");
-    new ServiceEndpointFactory(provider -> null)
+    new ServiceEndpointFactory(vertx, provider -> null)
         .createServiceEndpoint(usageDataProvider)
         .onComplete(
             context.asyncAssertFailure(
@@ -55,17 +69,76 @@ public class ServiceEndpointFactoryTest {
             Resources.toString(
                 Resources.getResource("__files/aggregator-setting.json"), StandardCharsets.UTF_8),
             AggregatorSetting.class);
-    new ServiceEndpointFactory(provider -> succeededFuture(aggregatorSetting))
+    new ServiceEndpointFactory(vertx, provider -> succeededFuture(aggregatorSetting))
         .createServiceEndpoint(usageDataProvider)
         .onComplete(context.asyncAssertSuccess(sep -> assertThat(sep).isNotNull()));
   }
 
+  @Test
+  public void testCreateServiceEndpointWithRateLimiter(TestContext context) {
+    HostRateLimiter rateLimiter = new HostRateLimiter(vertx, RateLimitBudget.DEFAULT, Map.of());
+    new ServiceEndpointFactory(vertx, provider -> null, rateLimiter)
+        .createServiceEndpoint(usageDataProvider)
+        .onComplete(
+            context.asyncAssertSuccess(
+                sep ->
+                    assertThat(sep)
+                        .isInstanceOfSatisfying(
+                            RateLimitedServiceEndpoint.class,
+                            rlsep -> assertThat(rlsep.getHost()).isEqualTo("myvendor.com"))));
+  }
+
+  @Test
+  public void testCreateServiceEndpointLimitsRequestsInsideRateLimiter(TestContext context) {
+    HostRateLimiter rateLimiter = new HostRateLimiter(vertx, RateLimitBudget.DEFAULT, Map.of());
+    AtomicReference<ServiceEndpoint> requestLimited = new AtomicReference<>();
+    new ServiceEndpointFactory(
+            vertx,
+            provider -> null,
+            rateLimiter,
+            sep -> {
+              ServiceEndpoint limited = (report, beginDate, endDate) -> succeededFuture();
+              requestLimited.set(limited);
+              return limited;
+            })
+        .createServiceEndpoint(usageDataProvider)
+        .onComplete(
+            context.asyncAssertSuccess(
+                sep ->
+                    assertThat(sep)
+                        .isInstanceOfSatisfying(
+                            RateLimitedServiceEndpoint.class,
+                            rlsep ->
+                                assertThat(rlsep.getDelegate()).isSameAs(requestLimited.get()))));
+  }
+
+  @Test
+  public void testGetServiceEndpointAggregatorWithRateLimiter(TestContext context)
+      throws IOException {
+    usageDataProvider.getHarvestingConfig().setHarvestVia(HarvestVia.AGGREGATOR);
+    AggregatorSetting aggregatorSetting =
+        Json.decodeValue(
+            Resources.toString(
+                Resources.getResource("__files/aggregator-setting.json"), StandardCharsets.UTF_8),
+            AggregatorSetting.class);
+    HostRateLimiter rateLimiter = new HostRateLimiter(vertx, RateLimitBudget.DEFAULT, Map.of());
+    new ServiceEndpointFactory(vertx, provider -> succeededFuture(aggregatorSetting), rateLimiter)
+        .createServiceEndpoint(usageDataProvider)
+        .onComplete(
+            context.asyncAssertSuccess(
+                sep ->
+                    assertThat(sep)
+                        .isInstanceOfSatisfying(
+                            RateLimitedServiceEndpoint.class,
+                            rlsep -> assertThat(rlsep.getHost()).isEqualTo("stats.redi-bw.de"))));
+  }
+
   @Test
   public void testGetServiceEndpointAggregatorNull(TestContext context) {
     usageDataProvider.getHarvestingConfig().setHarvestVia(HarvestVia.AGGREGATOR);
     usageDataProvider.getHarvestingConfig().setAggregator(null);
 
-    new ServiceEndpointFactory(provider -> null)
+    new ServiceEndpointFactory(vertx, provider -> null)
         .createServiceEndpoint(usageDataProvider)
         .onComplete(context.asyncAssertSuccess(sep -> assertThat(sep).isNotNull()));
   }
@@ -75,7 +148,7 @@ public class ServiceEndpointFactoryTest {
     usageDataProvider.getHarvestingConfig().setHarvestVia(HarvestVia.AGGREGATOR);
     usageDataProvider.getHarvestingConfig().getAggregator().setId(null);
 
-    new ServiceEndpointFactory(provider -> null)
+    new ServiceEndpointFactory(vertx, provider -> null)
         .createServiceEndpoint(usageDataProvider)
         .onComplete(context.asyncAssertSuccess(sep -> assertThat(sep).isNotNull()));
   }
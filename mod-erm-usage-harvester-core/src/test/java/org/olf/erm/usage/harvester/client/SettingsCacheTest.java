@@ -0,0 +1,128 @@
+package org.olf.erm.usage.harvester.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SettingsCacheTest {
+
+  private static final String TENANT = "tenant";
+  private static final String SCOPE = "scope";
+  private static final String KEY = "key";
+  private static final Duration TTL = Duration.ofMinutes(5);
+
+  private final List<Promise<Optional<Object>>> requests = new ArrayList<>();
+  private final SettingsClient delegate =
+      (scope, key) -> {
+        Promise<Optional<Object>> promise = Promise.promise();
+        requests.add(promise);
+        return promise.future();
+      };
+  private Instant now;
+  private SettingsCache cache;
+
+  @BeforeEach
+  void setUp() {
+    now = Instant.parse("2024-01-01T00:00:00Z");
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    cache = new SettingsCache(clock, TTL);
+  }
+
+  @Test
+  void mergesConcurrentLookups() {
+    SettingsClient client = cache.wrap(TENANT, delegate);
+    Future<Optional<Object>> first = client.getValue(SCOPE, KEY);
+    Future<Optional<Object>> second = client.getValue(SCOPE, KEY);
+    assertThat(requests).hasSize(1);
+
+    requests.getFirst().complete(Optional.of(5));
+    assertThat(first.result()).contains(5);
+    assertThat(second.result()).contains(5);
+  }
+
+  @Test
+  void cachesValuesForTtl() {
+    SettingsClient client = cache.wrap(TENANT, delegate);
+    client.getValue(SCOPE, KEY);
+    requests.getFirst().complete(Optional.of(5));
+
+    now = now.plus(TTL).minusSeconds(1);
+    assertThat(client.getValue(SCOPE, KEY).result()).contains(5);
+    assertThat(requests).hasSize(1);
+
+    now = now.plusSeconds(1);
+    Future<Optional<Object>> expired = client.getValue(SCOPE, KEY);
+    assertThat(requests).hasSize(2);
+    requests.get(1).complete(Optional.of(6));
+    assertThat(expired.result()).contains(6);
+  }
+
+  @Test
+  void separatesTenantsAndKeys() {
+    cache.wrap(TENANT, delegate).getValue(SCOPE, KEY);
+    cache.wrap(TENANT, delegate).getValue(SCOPE, "other");
+    cache.wrap("other", delegate).getValue(SCOPE, KEY);
+    assertThat(requests).hasSize(3);
+  }
+
+  @Test
+  void doesNotCacheFailures() {
+    SettingsClient client = cache.wrap(TENANT, delegate);
+    Future<Optional<Object>> failed = client.getValue(SCOPE, KEY);
+    requests.getFirst().fail("error");
+    assertThat(failed.failed()).isTrue();
+    assertThat(cache.size()).isZero();
+
+    client.getValue(SCOPE, KEY);
+    assertThat(requests).hasSize(2);
+  }
+
+  @Test
+  void invalidatesValues() {
+    SettingsClient client = cache.wrap(TENANT, delegate);
+    client.getValue(SCOPE, KEY);
+    client.getValue(SCOPE, "other");
+    cache.wrap("other", delegate).getValue(SCOPE, KEY);
+    requests.forEach(p -> p.complete(Optional.empty()));
+
+    cache.invalidate(TENANT, SCOPE, KEY);
+    assertThat(cache.size()).isEqualTo(2);
+    cache.invalidate(TENANT);
+    assertThat(cache.size()).isEqualTo(1);
+
+    client.getValue(SCOPE, KEY);
+    assertThat(requests).hasSize(4);
+  }
+
+  @Test
+  void zeroTtlDisablesCache() {
+    assertThat(new SettingsCache(Duration.ZERO).wrap(TENANT, delegate)).isSameAs(delegate);
+  }
+}
@@ -1,6 +1,7 @@
 package org.olf.erm.usage.harvester.endpoints;
 
 import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
@@ -47,7 +48,8 @@ public class Test1Provider implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      Vertx vertx, UsageDataProvider provider, AggregatorSetting aggregator) {
     return (report, beginDate, endDate) -> {
       List<CounterReport> resultList =
           DateUtil.getYearMonths(beginDate, endDate).stream()
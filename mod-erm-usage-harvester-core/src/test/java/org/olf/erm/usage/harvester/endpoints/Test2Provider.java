@@ -1,6 +1,7 @@
 package org.olf.erm.usage.harvester.endpoints;
 
 import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import java.util.Collections;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
@@ -23,7 +24,8 @@ public class Test2Provider implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      Vertx vertx, UsageDataProvider provider, AggregatorSetting aggregator) {
     return (report, beginDate, endDate) -> Future.succeededFuture(Collections.emptyList());
   }
 }
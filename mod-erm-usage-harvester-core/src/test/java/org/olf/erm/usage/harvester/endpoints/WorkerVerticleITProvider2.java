@@ -35,7 +35,8 @@ public class WorkerVerticleITProvider2 implements ServiceEndpointProvider {
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      Vertx vertx, UsageDataProvider provider, AggregatorSetting aggregator) {
 
     return new ServiceEndpoint() {
       private final Logger log = LoggerFactory.getLogger(WorkerVerticleITProvider2.class);
@@ -28,7 +28,8 @@ public class WorkerVerticleITProviderFailsTooManyRequests implements ServiceEndp
   }
 
   @Override
-  public ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  public ServiceEndpoint create(
+      Vertx vertx, UsageDataProvider provider, AggregatorSetting aggregator) {
     return (report, beginDate, endDate) ->
         client
             .getAbs(provider.getHarvestingConfig().getSushiConfig().getServiceUrl().concat("/"))
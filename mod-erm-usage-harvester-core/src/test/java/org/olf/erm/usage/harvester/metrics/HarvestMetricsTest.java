@@ -0,0 +1,140 @@
+package org.olf.erm.usage.harvester.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.olf.erm.usage.harvester.TestUtil.createSampleUsageDataProvider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestVia;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olf.erm.usage.harvester.endpoints.InvalidReportException;
+import org.olf.erm.usage.harvester.endpoints.TooManyRequestsException;
+
+class HarvestMetricsTest {
+
+  private final UsageDataProvider provider = createSampleUsageDataProvider();
+  private MeterRegistry registry;
+  private HarvestMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    metrics = new HarvestMetrics(registry, "diku", provider);
+  }
+
+  @Test
+  void testServiceType() {
+    assertThat(HarvestMetrics.getServiceType(provider)).isEqualTo("test1");
+    provider.getHarvestingConfig().setHarvestVia(HarvestVia.AGGREGATOR);
+    assertThat(HarvestMetrics.getServiceType(provider)).isEqualTo("aggregator");
+    provider.setHarvestingConfig(null);
+    assertThat(HarvestMetrics.getServiceType(provider)).isEqualTo("unknown");
+  }
+
+  @Test
+  void testRecordFetch() {
+    metrics.recordFetch(metrics.start(), "JR1", null);
+    metrics.recordFetch(metrics.start(), "JR1", new TooManyRequestsException());
+    metrics.recordFetch(metrics.start(), "JR1", new InvalidReportException("invalid"));
+    metrics.recordFetch(metrics.start(), "JR1", new IllegalStateException());
+    metrics.recordFetch(metrics.start(), "JR1", new IllegalStateException());
+
+    for (String outcome : List.of("success", "too_many_requests", "invalid_report")) {
+      assertThat(fetchTimer(outcome).count()).isOne();
+    }
+    assertThat(fetchTimer("error").count()).isEqualTo(2);
+  }
+
+  private Timer fetchTimer(String outcome) {
+    return registry
+        .find(HarvestMetrics.FETCH)
+        .tags(
+            "tenant",
+            "diku",
+            "service_type",
+            "test1",
+            "provider",
+            provider.getId(),
+            "report",
+            "JR1",
+            "outcome",
+            outcome)
+        .timer();
+  }
+
+  @Test
+  void testRecordUploads() {
+    metrics.recordUpload(metrics.start(), "JR1", true);
+    metrics.recordUpload(metrics.start(), "JR1", false);
+    metrics.recordUploadSkipped("JR1");
+    metrics.recordUploadSkipped("JR1");
+
+    assertThat(registry.find(HarvestMetrics.UPLOAD).tags("outcome", "success").timer().count())
+        .isOne();
+    assertThat(registry.find(HarvestMetrics.UPLOAD).tags("outcome", "error").timer().count())
+        .isOne();
+    assertThat(registry.find(HarvestMetrics.UPLOAD_SKIPPED).tags("report", "JR1").counter().count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void testTimeRequest() {
+    metrics.timeRequest("getFetchList", () -> Future.succeededFuture());
+    metrics.timeRequest("getFetchList", () -> Future.failedFuture("failed"));
+
+    assertThat(
+            registry
+                .find(HarvestMetrics.CLIENT_REQUESTS)
+                .tags("tenant", "diku", "operation", "getFetchList", "outcome", "success")
+                .timer()
+                .count())
+        .isOne();
+    assertThat(
+            registry
+                .find(HarvestMetrics.CLIENT_REQUESTS)
+                .tags("operation", "getFetchList", "outcome", "error")
+                .timer()
+                .count())
+        .isOne();
+  }
+
+  @Test
+  void testBindWorker() {
+    Queue<String> queue = new ArrayDeque<>(List.of("a", "b"));
+    metrics.bindWorker(queue, new AtomicInteger(3), () -> 4);
+
+    assertThat(registry.find(HarvestMetrics.WORKER_QUEUED).gauge().value()).isEqualTo(2);
+    queue.poll();
+    assertThat(registry.find(HarvestMetrics.WORKER_QUEUED).gauge().value()).isEqualTo(1);
+    assertThat(registry.find(HarvestMetrics.WORKER_TASKS).gauge().value()).isEqualTo(3);
+    assertThat(registry.find(HarvestMetrics.WORKER_CONCURRENCY).gauge().value()).isEqualTo(4);
+
+    metrics.close();
+    assertThat(registry.find(HarvestMetrics.WORKER_QUEUED).gauge()).isNull();
+    assertThat(registry.find(HarvestMetrics.WORKER_TASKS).gauge()).isNull();
+    assertThat(registry.find(HarvestMetrics.WORKER_CONCURRENCY).gauge()).isNull();
+  }
+
+  @Test
+  void testRecordJob() {
+    HarvestMetrics.recordJob(registry, "diku", "provider", true, Duration.ofSeconds(2));
+
+    Timer timer =
+        registry
+            .find(HarvestMetrics.JOBS)
+            .tags("tenant", "diku", "type", "provider", "outcome", "success")
+            .timer();
+    assertThat(timer.count()).isOne();
+    assertThat(timer.totalTime(TimeUnit.SECONDS)).isEqualTo(2);
+  }
+}
@@ -0,0 +1,45 @@
+package org.olf.erm.usage.harvester.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+class MetricsServerTest {
+
+  @Test
+  void testScrape(Vertx vertx, VertxTestContext testContext) {
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    registry.counter("harvester.test").increment();
+    WebClient client = WebClient.create(vertx);
+
+    MetricsServer.start(vertx, registry, 0)
+        .compose(
+            server ->
+                client
+                    .get(server.actualPort(), "localhost", MetricsServer.PATH)
+                    .send()
+                    .compose(
+                        metrics ->
+                            client
+                                .get(server.actualPort(), "localhost", "/other")
+                                .send()
+                                .map(
+                                    other -> {
+                                      assertThat(metrics.statusCode()).isEqualTo(200);
+                                      assertThat(metrics.getHeader("Content-Type"))
+                                          .isEqualTo(MetricsServer.CONTENT_TYPE);
+                                      assertThat(metrics.bodyAsString()).contains("harvester_test");
+                                      assertThat(other.statusCode()).isEqualTo(404);
+                                      return null;
+                                    })))
+        .onComplete(testContext.succeedingThenComplete());
+  }
+}
@@ -0,0 +1,125 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.UUID;
+import org.folio.cql2pgjson.CQL2PgJSON;
+import org.folio.rest.jaxrs.model.JobInfo;
+import org.junit.Test;
+import org.olf.erm.usage.harvester.periodic.JobInfoQuery.Cursor;
+import org.olf.erm.usage.harvester.periodic.JobInfoQuery.TotalRecords;
+
+public class JobInfoQueryTest {
+
+  private static final String TABLE = "diku_mod_erm_usage_harvester.jobs";
+  private static final String ID = "6697f576-78d4-4712-ae18-2612ccdcd66d";
+
+  @Test
+  public void testOffsetPaging() {
+    JobInfoQuery query =
+        new JobInfoQuery(TABLE).withMaxTimestamp(1641020400000L).withProviderId("o'p");
+
+    assertThat(query.isKeyset()).isFalse();
+    assertThat(query.toSelectSql(20, 10))
+        .isEqualTo(
+            "SELECT jsonb FROM "
+                + TABLE
+                + " WHERE (jsonb->>'timestamp')::bigint <= $1"
+                + " AND jsonb->>'providerId' = $2 OFFSET 20 LIMIT 10");
+    assertThat(query.getSelectParameters()).containsExactly(1641020400000L, "o'p");
+    assertThat(query.toCountSql())
+        .isEqualTo(
+            "SELECT count(*) FROM "
+                + TABLE
+                + " WHERE (jsonb->>'timestamp')::bigint <= $1"
+                + " AND jsonb->>'providerId' = $2");
+    assertThat(query.getParameters()).containsExactly(1641020400000L, "o'p");
+  }
+
+  @Test
+  public void testKeysetPaging() {
+    JobInfoQuery firstPage = new JobInfoQuery(TABLE).withKeyset(Cursor.parse(""));
+    assertThat(firstPage.isKeyset()).isTrue();
+    assertThat(firstPage.toSelectSql(20, 10))
+        .isEqualTo(
+            "SELECT jsonb FROM "
+                + TABLE
+                + " WHERE jsonb->>'timestamp' IS NOT NULL"
+                + " ORDER BY (jsonb->>'timestamp')::bigint DESC, id DESC LIMIT 10");
+    assertThat(firstPage.getSelectParameters()).isEmpty();
+
+    JobInfoQuery nextPage =
+        new JobInfoQuery(TABLE).withProviderId("p").withKeyset(Cursor.parse("1641020400000:" + ID));
+    assertThat(nextPage.toSelectSql(0, 10))
+        .isEqualTo(
+            "SELECT jsonb FROM "
+                + TABLE
+                + " WHERE jsonb->>'providerId' = $1"
+                + " AND jsonb->>'timestamp' IS NOT NULL"
+                + " AND ((jsonb->>'timestamp')::bigint, id) < ($2, $3)"
+                + " ORDER BY (jsonb->>'timestamp')::bigint DESC, id DESC LIMIT 10");
+    assertThat(nextPage.getSelectParameters())
+        .containsExactly("p", 1641020400000L, UUID.fromString(ID));
+    assertThat(nextPage.toCountSql())
+        .isEqualTo(
+            "SELECT count(*) FROM "
+                + TABLE
+                + " WHERE jsonb->>'providerId' = $1 AND jsonb->>'timestamp' IS NOT NULL");
+    assertThat(nextPage.getParameters()).containsExactly("p");
+  }
+
+  @Test
+  public void testKeysetPagingWithSortBy() throws Exception {
+    JobInfoQuery query =
+        new JobInfoQuery(TABLE)
+            .withCql(new CQL2PgJSON("jobs.jsonb"), "cql.allRecords=1 sortBy timestamp");
+    assertThatThrownBy(() -> query.withKeyset(null)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testCountSql() {
+    JobInfoQuery query = new JobInfoQuery(TABLE);
+    assertThat(query.toCountSql()).isEqualTo("SELECT count(*) FROM " + TABLE);
+    assertThat(query.toLimitedCountSql())
+        .isEqualTo("SELECT count(*) FROM (SELECT 1 FROM " + TABLE + " LIMIT 1000) AS limited");
+    assertThat(query.toExplainSql()).isEqualTo("EXPLAIN (FORMAT JSON) SELECT jsonb FROM " + TABLE);
+  }
+
+  @Test
+  public void testParseEstimate() {
+    JsonArray plan =
+        new JsonArray().add(new JsonObject().put("Plan", new JsonObject().put("Plan Rows", 4711)));
+    assertThat(JobInfoQuery.parseEstimate(plan)).isEqualTo(4711);
+    assertThat(JobInfoQuery.parseEstimate(plan.encode())).isEqualTo(4711);
+  }
+
+  @Test
+  public void testCursor() {
+    assertThat(Cursor.parse("")).isNull();
+    assertThat(Cursor.parse("1641020400000:" + ID)).hasToString("1641020400000:" + ID);
+    assertThat(Cursor.of(new JobInfo().withId(ID).withTimestamp(1641020400000L)))
+        .hasToString("1641020400000:" + ID);
+    assertThat(Cursor.of(new JobInfo().withId(ID))).isNull();
+    assertThatThrownBy(() -> Cursor.parse("1641020400000"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Invalid cursor: 1641020400000");
+    assertThatThrownBy(() -> Cursor.parse("abc:" + ID))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Cursor.parse("1641020400000:abc"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testTotalRecords() {
+    assertThat(TotalRecords.of(null)).isEqualTo(TotalRecords.AUTO);
+    assertThat(TotalRecords.of("exact")).isEqualTo(TotalRecords.EXACT);
+    assertThat(TotalRecords.of("estimated")).isEqualTo(TotalRecords.ESTIMATED);
+    assertThat(TotalRecords.of("none")).isEqualTo(TotalRecords.NONE);
+    assertThatThrownBy(() -> TotalRecords.of("foo"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Invalid value for totalRecords: foo");
+  }
+}
@@ -0,0 +1,131 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.folio.rest.jaxrs.model.JobInfo;
+import org.folio.rest.jaxrs.model.JobInfo.Result;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+class JobInfoRecorderTest {
+
+  private static final String TENANT = "tenant";
+  private static final long ONE_HOUR = 3_600_000;
+
+  private final List<List<JobInfo>> writes = new ArrayList<>();
+
+  private Future<Void> write(String tenantId, List<JobInfo> jobInfos) {
+    synchronized (writes) {
+      writes.add(jobInfos);
+    }
+    return Future.succeededFuture();
+  }
+
+  @Test
+  void coalescesRecordsAndFlushesAfterInterval(Vertx vertx, VertxTestContext ctx) {
+    JobInfoRecorder recorder = new JobInfoRecorder(vertx, this::write, 50, 100);
+    recorder.record(TENANT, new JobInfo().withId("1"));
+    recorder.record(TENANT, new JobInfo().withId("2"));
+    recorder.record(TENANT, new JobInfo().withId("1").withResult(Result.SUCCESS));
+    assertThat(recorder.getPendingCount()).isEqualTo(2);
+    assertThat(writes).isEmpty();
+
+    vertx.setTimer(
+        200,
+        id ->
+            ctx.verify(
+                () -> {
+                  assertThat(writes).hasSize(1);
+                  assertThat(writes.get(0))
+                      .extracting(JobInfo::getId, JobInfo::getResult)
+                      .containsExactly(tuple("1", Result.SUCCESS), tuple("2", null));
+                  assertThat(recorder.getPendingCount()).isZero();
+                  ctx.completeNow();
+                }));
+  }
+
+  @Test
+  void flushesWhenBatchSizeIsReached(Vertx vertx, VertxTestContext ctx) {
+    JobInfoRecorder recorder = new JobInfoRecorder(vertx, this::write, ONE_HOUR, 2);
+    recorder.record(TENANT, new JobInfo().withId("1"));
+    recorder.record("other", new JobInfo().withId("2"));
+
+    vertx.setTimer(
+        100,
+        id ->
+            ctx.verify(
+                () -> {
+                  assertThat(writes).hasSize(2);
+                  assertThat(recorder.getPendingCount()).isZero();
+                  ctx.completeNow();
+                }));
+  }
+
+  @Test
+  void keepsFailedRecordsUnlessReplaced(Vertx vertx, VertxTestContext ctx) {
+    AtomicBoolean fail = new AtomicBoolean(true);
+    JobInfoRecorder recorder =
+        new JobInfoRecorder(
+            vertx,
+            (tenantId, jobInfos) ->
+                fail.getAndSet(false) ? Future.failedFuture("db down") : write(tenantId, jobInfos),
+            ONE_HOUR,
+            100);
+    recorder.record(TENANT, new JobInfo().withId("1"));
+    recorder.record(TENANT, new JobInfo().withId("2"));
+
+    recorder
+        .flush()
+        .onComplete(
+            ctx.failing(
+                t -> {
+                  ctx.verify(() -> assertThat(recorder.getPendingCount()).isEqualTo(2));
+                  recorder.record(TENANT, new JobInfo().withId("1").withResult(Result.FAILURE));
+                  recorder
+                      .flush()
+                      .onComplete(
+                          ctx.succeeding(
+                              v ->
+                                  ctx.verify(
+                                      () -> {
+                                        assertThat(writes).hasSize(1);
+                                        assertThat(writes.get(0))
+                                            .extracting(JobInfo::getResult)
+                                            .containsExactlyInAnyOrder(Result.FAILURE, null);
+                                        ctx.completeNow();
+                                      })));
+                }));
+  }
+
+  @Test
+  void closeWritesPendingRecords(Vertx vertx, VertxTestContext ctx) {
+    JobInfoRecorder recorder = new JobInfoRecorder(vertx, this::write, ONE_HOUR, 100);
+    recorder.record(TENANT, new JobInfo().withId("1"));
+
+    recorder
+        .close()
+        .onComplete(
+            ctx.succeeding(
+                v -> {
+                  ctx.verify(() -> assertThat(writes).hasSize(1));
+                  recorder.record(TENANT, new JobInfo().withId("2"));
+                  vertx.setTimer(
+                      100,
+                      id ->
+                          ctx.verify(
+                              () -> {
+                                assertThat(writes).hasSize(2);
+                                ctx.completeNow();
+                              }));
+                }));
+  }
+}
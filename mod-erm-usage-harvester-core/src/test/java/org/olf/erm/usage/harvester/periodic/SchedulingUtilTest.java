@@ -3,8 +3,11 @@ package org.olf.erm.usage.harvester.periodic;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.folio.rest.jaxrs.model.PeriodicConfig.PeriodicInterval.WEEKLY;
+import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_JOB_ID;
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_PROVIDER_ID;
+import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_SNAPSHOT_ID;
 import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_TENANT;
+import static org.olf.erm.usage.harvester.periodic.AbstractHarvestJob.DATAKEY_TIMESTAMP;
 import static org.olf.erm.usage.harvester.periodic.SchedulingUtil.PERIODIC_JOB_KEY;
 import static org.olf.erm.usage.harvester.periodic.SchedulingUtil.TENANT_JOB_KEY;
 import static org.olf.erm.usage.harvester.periodic.SchedulingUtil.createOrUpdateJob;
@@ -23,6 +26,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
@@ -226,10 +230,11 @@ public class SchedulingUtilTest {
     assertThatCode(
             () -> {
               scheduleProviderJob(defaultScheduler, TENANT, PROVIDER_ID);
-              JobDataMap jobDataMap =
-                  defaultScheduler.getJobDetail(new JobKey(PROVIDER_ID, TENANT)).getJobDataMap();
+              JobDetail jobDetail = defaultScheduler.getJobDetail(new JobKey(PROVIDER_ID, TENANT));
+              JobDataMap jobDataMap = jobDetail.getJobDataMap();
               assertThat(jobDataMap.getString(DATAKEY_TENANT)).isEqualTo(TENANT);
               assertThat(jobDataMap.getString(DATAKEY_PROVIDER_ID)).isEqualTo(PROVIDER_ID);
+              assertThat(jobDetail.isDurable()).isTrue();
             })
         .doesNotThrowAnyException();
     assertThat(defaultScheduler.checkExists(new JobKey(PROVIDER_ID, TENANT))).isTrue();
@@ -238,6 +243,43 @@ public class SchedulingUtilTest {
         .hasMessageContaining(PROVIDER_ID);
   }
 
+  @Test
+  public void testScheduleProviderJobWithSnapshot() throws SchedulerException {
+    scheduleProviderJob(defaultScheduler, TENANT, PROVIDER_ID, "snapshot");
+
+    JobDataMap jobDataMap =
+        defaultScheduler.getJobDetail(new JobKey(PROVIDER_ID, TENANT)).getJobDataMap();
+    assertThat(jobDataMap.getString(DATAKEY_SNAPSHOT_ID)).isEqualTo("snapshot");
+    // only ids are stored in the job store, no provider or credentials
+    assertThat(jobDataMap.getKeys())
+        .containsExactlyInAnyOrder(
+            DATAKEY_TENANT,
+            DATAKEY_PROVIDER_ID,
+            DATAKEY_TIMESTAMP,
+            DATAKEY_JOB_ID,
+            DATAKEY_SNAPSHOT_ID);
+    assertThatCode(() -> scheduleProviderJob(defaultScheduler, TENANT, PROVIDER_ID, null))
+        .hasMessageContaining("already scheduled/running");
+  }
+
+  @Test
+  public void testDeleteStaleProviderJobs() throws SchedulerException {
+    scheduleTenantJob(defaultScheduler, TENANT);
+    scheduleProviderJob(defaultScheduler, TENANT, PROVIDER_ID);
+    scheduleProviderJob(defaultScheduler, "othertenant", PROVIDER_ID);
+    long before = Instant.now().minus(1, ChronoUnit.MINUTES).toEpochMilli();
+    long after = Instant.now().toEpochMilli();
+
+    assertThat(SchedulingUtil.deleteStaleProviderJobs(defaultScheduler, TENANT, before)).isZero();
+    assertThat(SchedulingUtil.deleteStaleProviderJobs(defaultScheduler, TENANT, after)).isOne();
+    assertThat(defaultScheduler.checkExists(new JobKey(PROVIDER_ID, TENANT))).isFalse();
+    assertThat(defaultScheduler.checkExists(new JobKey(TENANT_JOB_KEY, TENANT))).isTrue();
+    assertThat(defaultScheduler.checkExists(new JobKey(PROVIDER_ID, "othertenant"))).isTrue();
+
+    assertThat(SchedulingUtil.deleteStaleProviderJobs(defaultScheduler, null, after)).isOne();
+    assertThat(defaultScheduler.checkExists(new JobKey(PROVIDER_ID, "othertenant"))).isFalse();
+  }
+
   @Test
   public void testScheduleTenantJob() throws SchedulerException {
     assertThatCode(
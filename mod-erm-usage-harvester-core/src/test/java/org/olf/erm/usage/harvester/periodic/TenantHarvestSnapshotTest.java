@@ -0,0 +1,112 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.folio.rest.jaxrs.model.Aggregator;
+import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.HarvestingConfig.HarvestVia;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.jupiter.api.Test;
+import org.olf.erm.usage.harvester.client.ExtAggregatorSettingsClient;
+
+class TenantHarvestSnapshotTest {
+
+  private static final String TENANT = "tenant";
+
+  private final List<String> requests = new ArrayList<>();
+  private final ExtAggregatorSettingsClient client =
+      udp -> {
+        String id = udp.getHarvestingConfig().getAggregator().getId();
+        requests.add(id);
+        return "failing".equals(id)
+            ? Future.failedFuture("not found")
+            : Future.succeededFuture(new AggregatorSetting().withId(id));
+      };
+  private final TenantHarvestSnapshot snapshot = new TenantHarvestSnapshot(TENANT, client);
+
+  private static UsageDataProvider provider(String id, HarvestVia harvestVia, String aggregatorId) {
+    return new UsageDataProvider()
+        .withId(id)
+        .withHarvestingConfig(
+            new HarvestingConfig()
+                .withHarvestVia(harvestVia)
+                .withAggregator(
+                    aggregatorId == null ? null : new Aggregator().withId(aggregatorId)));
+  }
+
+  @Test
+  void looksUpEachAggregatorSettingOnce() {
+    List<UsageDataProvider> providers =
+        new ArrayList<>(
+            IntStream.range(0, 200)
+                .mapToObj(i -> provider("nss" + i, HarvestVia.AGGREGATOR, "nss"))
+                .toList());
+    providers.add(provider("other", HarvestVia.AGGREGATOR, "other"));
+
+    List<AggregatorSetting> aggregatorSettings =
+        providers.stream().map(udp -> snapshot.getAggregatorSetting(udp).result()).toList();
+
+    assertThat(requests).containsExactly("nss", "other");
+    assertThat(aggregatorSettings.get(199).getId()).isEqualTo("nss");
+    assertThat(aggregatorSettings.get(200).getId()).isEqualTo("other");
+  }
+
+  @Test
+  void skipsProvidersNotHarvestingThroughAggregator() {
+    UsageDataProvider sushi = provider("sushi", HarvestVia.SUSHI, "nss");
+    UsageDataProvider noAggregator = provider("noAggregator", HarvestVia.AGGREGATOR, null);
+
+    assertThat(snapshot.getAggregatorSetting(sushi).result()).isNull();
+    assertThat(snapshot.getAggregatorSetting(noAggregator).result()).isNull();
+    assertThat(requests).isEmpty();
+  }
+
+  @Test
+  void leavesOutFailedLookups() {
+    Future<AggregatorSetting> failing =
+        snapshot.getAggregatorSetting(provider("a", HarvestVia.AGGREGATOR, "failing"));
+    Future<AggregatorSetting> nss =
+        snapshot.getAggregatorSetting(provider("b", HarvestVia.AGGREGATOR, "nss"));
+
+    assertThat(failing.succeeded()).isTrue();
+    assertThat(failing.result()).isNull();
+    assertThat(nss.result().getId()).isEqualTo("nss");
+  }
+
+  @Test
+  void handsOutEachProviderOnce() {
+    UsageDataProvider a = provider("a", HarvestVia.SUSHI, null);
+    snapshot.addProviders(List.of(a, provider("b", HarvestVia.SUSHI, null)));
+
+    assertThat(snapshot.takeProvider("a")).containsSame(a);
+    assertThat(snapshot.takeProvider("a")).isEmpty();
+    assertThat(snapshot.takeProvider("c")).isEmpty();
+    assertThat(snapshot.takeProvider("b")).isPresent();
+  }
+
+  @Test
+  void returnsOnlyCurrentSnapshotOfTenant() {
+    Vertx vertx = Vertx.vertx();
+    try {
+      assertThat(TenantHarvestSnapshot.get(vertx, TENANT, snapshot.getId())).isEmpty();
+
+      snapshot.register(vertx);
+      assertThat(TenantHarvestSnapshot.get(vertx, TENANT, snapshot.getId())).contains(snapshot);
+      assertThat(TenantHarvestSnapshot.get(vertx, "other", snapshot.getId())).isEmpty();
+      assertThat(TenantHarvestSnapshot.get(vertx, TENANT, null)).isEmpty();
+
+      TenantHarvestSnapshot next = new TenantHarvestSnapshot(TENANT, client);
+      next.register(vertx);
+      assertThat(TenantHarvestSnapshot.get(vertx, TENANT, snapshot.getId())).isEmpty();
+      assertThat(TenantHarvestSnapshot.get(vertx, TENANT, next.getId())).contains(next);
+    } finally {
+      vertx.close();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package org.olf.erm.usage.harvester.periodic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+class WorkerDeploymentTest {
+
+  /** Verticle that completes its start once {@code started} completes. */
+  private static class SlowVerticle extends AbstractVerticle {
+    private final Promise<Void> started = Promise.promise();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+      started.future().onComplete(startPromise);
+    }
+
+    @Override
+    public void stop() {
+      stopped.set(true);
+    }
+  }
+
+  @Test
+  void undeploysVerticleDeployedAfterCancel(Vertx vertx, VertxTestContext ctx) {
+    WorkerDeployment deployment = new WorkerDeployment(vertx);
+    SlowVerticle verticle = new SlowVerticle();
+
+    Future<Void> finished = deployment.deploy(verticle, Promise.<Void>promise()::future);
+    deployment
+        .cancel()
+        .onComplete(
+            ctx.succeeding(
+                v -> {
+                  verticle.started.complete();
+                  finished.onComplete(
+                      ctx.failing(
+                          t ->
+                              ctx.verify(
+                                  () -> {
+                                    assertThat(t).hasMessageContaining("cancelled");
+                                    assertThat(verticle.stopped).isTrue();
+                                    assertThat(vertx.deploymentIDs()).isEmpty();
+                                    ctx.completeNow();
+                                  })));
+                }));
+  }
+
+  @Test
+  void doesNotDeployAfterCancel(Vertx vertx, VertxTestContext ctx) {
+    WorkerDeployment deployment = new WorkerDeployment(vertx);
+    SlowVerticle verticle = new SlowVerticle();
+    verticle.started.complete();
+
+    deployment
+        .cancel()
+        .compose(v -> deployment.deploy(verticle, Future::succeededFuture))
+        .onComplete(
+            ctx.failing(
+                t ->
+                    ctx.verify(
+                        () -> {
+                          assertThat(t).hasMessageContaining("cancelled");
+                          assertThat(vertx.deploymentIDs()).isEmpty();
+                          ctx.completeNow();
+                        })));
+  }
+
+  @Test
+  void undeploysRunningVerticleOnCancel(Vertx vertx, VertxTestContext ctx) {
+    WorkerDeployment deployment = new WorkerDeployment(vertx);
+    SlowVerticle verticle = new SlowVerticle();
+    verticle.started.complete();
+    Promise<Void> work = Promise.promise();
+
+    deployment.deploy(verticle, work::future);
+    vertx.setTimer(
+        100,
+        id ->
+            deployment
+                .cancel()
+                .onComplete(
+                    ctx.succeeding(
+                        v ->
+                            ctx.verify(
+                                () -> {
+                                  assertThat(verticle.stopped).isTrue();
+                                  assertThat(vertx.deploymentIDs()).isEmpty();
+                                  ctx.completeNow();
+                                }))));
+  }
+}
@@ -0,0 +1,225 @@
+package org.olf.erm.usage.harvester.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.olf.erm.usage.harvester.endpoints.ServiceEndpoint;
+
+@ExtendWith(VertxExtension.class)
+class HostRateLimiterTest {
+
+  private static final String HOST = "sushi.example.com";
+  private static final Clock CLOCK = Clock.fixed(Instant.now(), ZoneOffset.UTC);
+
+  @Test
+  void testParseBudgets() {
+    assertThat(RateLimitBudget.parse("0.5", 3)).isEqualTo(new RateLimitBudget(0.5, 3));
+    assertThat(RateLimitBudget.parse(" 5 : 10 ", 3)).isEqualTo(new RateLimitBudget(5, 10));
+    assertThat(RateLimitBudget.parse("0", 3).isUnlimited()).isTrue();
+    assertThat(RateLimitBudget.parseHosts("Sushi.Example.com=0.5:2, counter.example.org=5", 4))
+        .containsOnly(
+            Map.entry(HOST, new RateLimitBudget(0.5, 2)),
+            Map.entry("counter.example.org", new RateLimitBudget(5, 4)));
+    assertThat(RateLimitBudget.parseHosts(null, 4)).isEmpty();
+    assertThatThrownBy(() -> RateLimitBudget.parseHosts("example.com", 4))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RateLimitBudget.parseHosts("example.com=fast", 4))
+        .isInstanceOf(NumberFormatException.class);
+  }
+
+  @Test
+  void testGetHost() {
+    assertThat(HostRateLimiter.getHost("https://SUSHI.example.com:8443/r51/")).isEqualTo(HOST);
+    assertThat(HostRateLimiter.getHost("not a url")).isNull();
+    assertThat(HostRateLimiter.getHost(null)).isNull();
+  }
+
+  @Test
+  void testGetBudget(Vertx vertx) {
+    HostRateLimiter rateLimiter =
+        new HostRateLimiter(
+            vertx, RateLimitBudget.DEFAULT, Map.of(HOST, new RateLimitBudget(0.5, 1)));
+    assertThat(rateLimiter.getBudget(HOST)).isEqualTo(new RateLimitBudget(0.5, 1));
+    assertThat(rateLimiter.getBudget("other.example.com")).isEqualTo(RateLimitBudget.DEFAULT);
+  }
+
+  @Test
+  void testAcquireDelaysRequestsExceedingBudget(Vertx vertx, VertxTestContext testContext) {
+    HostRateLimiter rateLimiter =
+        new HostRateLimiter(
+            vertx, CLOCK, RateLimitBudget.UNLIMITED, Map.of(HOST, new RateLimitBudget(10, 2)));
+
+    List<Future<Duration>> futures =
+        IntStream.range(0, 4).mapToObj(i -> rateLimiter.acquire(HOST)).toList();
+    Future.all(futures)
+        .onComplete(
+            testContext.succeeding(
+                cf ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(futures)
+                              .map(Future::result)
+                              .containsExactlyInAnyOrder(
+                                  Duration.ZERO,
+                                  Duration.ZERO,
+                                  Duration.ofMillis(100),
+                                  Duration.ofMillis(200));
+                          HostRateLimiter.WaitTimeStats stats = rateLimiter.getStats(HOST);
+                          assertThat(stats.getRequests()).isEqualTo(4);
+                          assertThat(stats.getDelayedRequests()).isEqualTo(2);
+                          assertThat(stats.getTotalWaitMillis()).isEqualTo(300);
+                          assertThat(stats.getMaxWaitMillis()).isEqualTo(200);
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testAcquireSharesBudgetBetweenInstances(Vertx vertx, VertxTestContext testContext) {
+    Map<String, RateLimitBudget> budgets = Map.of(HOST, new RateLimitBudget(10, 1));
+    HostRateLimiter rateLimiter1 =
+        new HostRateLimiter(vertx, CLOCK, RateLimitBudget.UNLIMITED, budgets);
+    HostRateLimiter rateLimiter2 =
+        new HostRateLimiter(vertx, CLOCK, RateLimitBudget.UNLIMITED, budgets);
+
+    rateLimiter1
+        .acquire(HOST)
+        .compose(d -> rateLimiter2.acquire(HOST))
+        .onComplete(
+            testContext.succeeding(
+                d ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(d).isEqualTo(Duration.ofMillis(100));
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testAcquireFallsBackToLocalBudget(Vertx vertx, VertxTestContext testContext) {
+    HostRateLimiter rateLimiter =
+        new HostRateLimiter(
+            vertx, CLOCK, RateLimitBudget.UNLIMITED, Map.of(HOST, new RateLimitBudget(10, 2)));
+
+    vertx
+        .sharedData()
+        .<String, String>getAsyncMap(HostRateLimiter.MAP_NAME)
+        .compose(map -> map.put(HOST, "invalid state"))
+        .compose(
+            v ->
+                Future.all(IntStream.range(0, 3).mapToObj(i -> rateLimiter.acquire(HOST)).toList()))
+        .onComplete(
+            testContext.succeeding(
+                cf ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(cf.<Duration>list())
+                              .containsExactlyInAnyOrder(
+                                  Duration.ZERO, Duration.ZERO, Duration.ofMillis(100));
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testAcquireUnlimited(Vertx vertx, VertxTestContext testContext) {
+    HostRateLimiter rateLimiter =
+        new HostRateLimiter(vertx, CLOCK, RateLimitBudget.UNLIMITED, Map.of());
+
+    Future.all(rateLimiter.acquire(HOST), rateLimiter.acquire(HOST), rateLimiter.acquire(null))
+        .onComplete(
+            testContext.succeeding(
+                cf ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(cf.<Duration>list()).containsOnly(Duration.ZERO);
+                          assertThat(rateLimiter.getStats(HOST).getRequests()).isZero();
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testRateLimitedServiceEndpointForwardsClose(Vertx vertx, VertxTestContext testContext) {
+    HostRateLimiter rateLimiter =
+        new HostRateLimiter(vertx, CLOCK, RateLimitBudget.UNLIMITED, Map.of());
+    ServiceEndpoint delegate =
+        new ServiceEndpoint() {
+          @Override
+          public Future<List<CounterReport>> fetchReport(
+              String report, String beginDate, String endDate) {
+            return Future.succeededFuture(List.of());
+          }
+
+          @Override
+          public Future<Void> close() {
+            return Future.failedFuture("closed");
+          }
+        };
+
+    new RateLimitedServiceEndpoint(delegate, rateLimiter, HOST)
+        .close()
+        .onComplete(
+            testContext.failing(
+                t -> testContext.verify(() -> assertThat(t).hasMessage("closed")).completeNow()));
+  }
+
+  @Test
+  void testBindToRegistersStatsOfAllHosts(Vertx vertx, VertxTestContext testContext) {
+    HostRateLimiter rateLimiter =
+        new HostRateLimiter(
+            vertx, CLOCK, RateLimitBudget.UNLIMITED, Map.of(HOST, new RateLimitBudget(10, 1)));
+    MeterRegistry registry = new SimpleMeterRegistry();
+
+    rateLimiter
+        .acquire(HOST)
+        .onSuccess(d -> rateLimiter.bindTo(registry))
+        .compose(d -> rateLimiter.acquire(HOST))
+        .onSuccess(d -> rateLimiter.getStats("other.example.com"))
+        .onComplete(
+            testContext.succeeding(
+                d ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(
+                                  registry
+                                      .find("harvester.ratelimit.requests")
+                                      .tag("host", HOST)
+                                      .functionCounter()
+                                      .count())
+                              .isEqualTo(2);
+                          assertThat(
+                                  registry
+                                      .find("harvester.ratelimit.delayed")
+                                      .tag("host", HOST)
+                                      .functionCounter()
+                                      .count())
+                              .isOne();
+                          assertThat(
+                                  registry
+                                      .find("harvester.ratelimit.requests")
+                                      .tag("host", "other.example.com")
+                                      .functionCounter())
+                              .isNotNull();
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testGetReturnsSameInstanceForSameVertx(Vertx vertx) {
+    assertThat(HostRateLimiter.get(vertx)).isSameAs(HostRateLimiter.get(vertx));
+  }
+}
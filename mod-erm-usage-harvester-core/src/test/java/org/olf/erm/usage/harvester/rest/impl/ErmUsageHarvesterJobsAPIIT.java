@@ -8,6 +8,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static io.restassured.RestAssured.given;
 import static java.time.ZoneOffset.UTC;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.folio.rest.impl.ErmUsageHarvesterAPI.STALE_JOB_ERROR_MSG;
 import static org.folio.rest.impl.ErmUsageHarvesterAPI.TABLE_NAME_JOBS;
 import static org.folio.rest.jaxrs.model.JobInfo.Result.FAILURE;
@@ -36,6 +37,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +48,9 @@ import java.util.stream.Collectors;
 import org.folio.okapi.common.XOkapiHeaders;
 import org.folio.rest.jaxrs.model.JobInfo;
 import org.folio.rest.jaxrs.model.JobInfos;
+import org.folio.rest.jaxrs.model.JobStatistics;
+import org.folio.rest.jaxrs.model.ProviderJobStatistics;
+import org.folio.rest.jaxrs.model.ProviderJobStatisticsCollection;
 import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
 import org.folio.rest.persist.PostgresClient;
@@ -59,6 +65,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.olf.erm.usage.harvester.ClockProvider;
 import org.olf.erm.usage.harvester.PostgresContainerRule;
+import org.olf.erm.usage.harvester.client.SettingsCache;
+import org.olf.erm.usage.harvester.periodic.HarvestProviderJob;
+import org.olf.erm.usage.harvester.periodic.JobCleanup;
 
 @RunWith(VertxUnitRunner.class)
 public class ErmUsageHarvesterJobsAPIIT {
@@ -69,6 +78,8 @@ public class ErmUsageHarvesterJobsAPIIT {
   private static final String PARAM_QUERY = "query";
   private static final String PARAM_PROVIDER_ID = "providerId";
   private static final String PARAM_TIMESTAMP = "timestamp";
+  private static final String PARAM_CURSOR = "cursor";
+  private static final String PARAM_TOTAL_RECORDS = "totalRecords";
   private static final Map<String, String> OKAPI_HEADERS = Map.of(XOkapiHeaders.TENANT, TENANT);
 
   private static final Vertx vertx = Vertx.vertx();
@@ -76,6 +87,7 @@ public class ErmUsageHarvesterJobsAPIIT {
   private static final String PURGE_FINISHED_PATH_SEGMENT = "/purgefinished";
   private static final String PURGE_STALE_PATH_SEGMENT = "/purgestale";
   private static final String CLEANUP_PATH_SEGMENT = "/cleanup";
+  private static final String STATISTICS_PATH_SEGMENT = "/statistics";
   private static final String SETTINGS_PATH = "/settings/entries";
 
   private static JobInfos expectedJobInfos;
@@ -200,6 +212,107 @@ public class ErmUsageHarvesterJobsAPIIT {
         .satisfies(hasResultSizes(1, 1), containsIds("fc3e5bb1-d13e-4f4c-9ea2-b31da39c58bb"));
   }
 
+  @Test
+  public void testKeysetPaging() {
+    List<JobInfo> jobInfos = new ArrayList<>();
+    String cursor = "";
+    while (cursor != null) {
+      JobInfos page =
+          new GetJobsRequest()
+              .withParams(PARAM_CURSOR, cursor, PARAM_LIMIT, 5, PARAM_TOTAL_RECORDS, "none")
+              .send();
+      assertThat(page.getTotalRecords()).isEqualTo(-1);
+      assertThat(page.getJobInfos()).hasSizeLessThanOrEqualTo(5);
+      jobInfos.addAll(page.getJobInfos());
+      cursor = page.getNextCursor();
+    }
+
+    assertThat(jobInfos)
+        .extracting(JobInfo::getId)
+        .containsExactlyElementsOf(
+            expectedJobInfos.getJobInfos().stream()
+                .sorted(
+                    Comparator.comparing(JobInfo::getTimestamp)
+                        .thenComparing(JobInfo::getId)
+                        .reversed())
+                .map(JobInfo::getId)
+                .toList());
+  }
+
+  @Test
+  public void testKeysetPagingWithProviderId() {
+    JobInfos result =
+        new GetJobsRequest()
+            .withParams(PARAM_CURSOR, "", PARAM_PROVIDER_ID, "35f68a61-b12c-4f14-a3b7-8518a0ef42fa")
+            .send();
+    assertThat(result)
+        .satisfies(hasResultSizes(1, 1), containsIds("fc3e5bb1-d13e-4f4c-9ea2-b31da39c58bb"));
+    assertThat(result.getNextCursor()).isNull();
+
+    assertThat(new GetJobsRequest().withParams(PARAM_CURSOR, "", PARAM_PROVIDER_ID, "o'p").send())
+        .satisfies(hasResultSizes(0, 0));
+  }
+
+  @Test
+  public void testKeysetPagingWithTimestamp() {
+    long timestamp = 1663150477573L;
+    List<JobInfo> expected =
+        expectedJobInfos.getJobInfos().stream()
+            .filter(jobInfo -> jobInfo.getTimestamp() != null)
+            .filter(jobInfo -> jobInfo.getTimestamp() <= timestamp)
+            .sorted(
+                Comparator.comparing(JobInfo::getTimestamp)
+                    .thenComparing(JobInfo::getId)
+                    .reversed())
+            .toList();
+    List<JobInfo> jobInfos = new ArrayList<>();
+    String cursor = "";
+    while (cursor != null) {
+      JobInfos page =
+          new GetJobsRequest()
+              .withParams(
+                  PARAM_CURSOR,
+                  cursor,
+                  PARAM_TIMESTAMP,
+                  timestamp,
+                  PARAM_LIMIT,
+                  2,
+                  PARAM_TOTAL_RECORDS,
+                  "exact")
+              .send();
+      assertThat(page.getTotalRecords()).isEqualTo(expected.size());
+      jobInfos.addAll(page.getJobInfos());
+      cursor = page.getNextCursor();
+    }
+
+    assertThat(jobInfos)
+        .extracting(JobInfo::getId)
+        .containsExactlyElementsOf(expected.stream().map(JobInfo::getId).toList());
+  }
+
+  @Test
+  public void testTotalRecordsParam() {
+    int total = expectedJobInfos.getTotalRecords();
+    assertThat(new GetJobsRequest().withParams(PARAM_TOTAL_RECORDS, "exact").send())
+        .satisfies(hasResultSizes(10, total));
+    assertThat(new GetJobsRequest().withParams(PARAM_TOTAL_RECORDS, "auto").send())
+        .satisfies(hasResultSizes(10, total));
+    assertThat(new GetJobsRequest().withParams(PARAM_TOTAL_RECORDS, "estimated").send())
+        .satisfies(jobInfos -> assertThat(jobInfos.getTotalRecords()).isNotNull());
+    assertThat(new GetJobsRequest().withParams(PARAM_TOTAL_RECORDS, "none").send())
+        .satisfies(jobInfos -> assertThat(jobInfos.getTotalRecords()).isEqualTo(-1));
+  }
+
+  @Test
+  public void testInvalidCursor() {
+    given().queryParam(PARAM_CURSOR, "foo").get().then().statusCode(400);
+    given()
+        .queryParams(PARAM_CURSOR, "", PARAM_QUERY, "cql.allRecords=1 sortBy timestamp")
+        .get()
+        .then()
+        .statusCode(400);
+  }
+
   @Test
   public void testPurgeStaleJobs() throws ExecutionException, InterruptedException {
     try {
@@ -221,8 +334,20 @@ public class ErmUsageHarvesterJobsAPIIT {
           .usingRecursiveComparison()
           .isEqualTo(expectedStaleJobInfos);
 
-      // stale jobs are older than 60 minutes
-      Instant testInstant = LocalDateTime.of(2023, 1, 2, 9, 5, 0).toInstant(UTC);
+      // jobs waiting for a harvest slot for more than 60 minutes are not stale yet
+      ClockProvider.setClock(
+          Clock.fixed(LocalDateTime.of(2023, 1, 2, 9, 5, 0).toInstant(UTC), UTC));
+      given().post(PURGE_STALE_PATH_SEGMENT).then().statusCode(204);
+      assertThat(new GetJobsRequest().send())
+          .usingRecursiveComparison()
+          .isEqualTo(expectedStaleJobInfos);
+
+      // stale jobs are older than the timeout of provider harvests
+      Instant testInstant =
+          LocalDateTime.of(2023, 1, 2, 8, 0, 0)
+              .toInstant(UTC)
+              .plus(HarvestProviderJob.getTimeout())
+              .plusSeconds(300);
       ClockProvider.setClock(Clock.fixed(testInstant, UTC));
       given().post(PURGE_STALE_PATH_SEGMENT).then().statusCode(204);
 
@@ -288,6 +413,120 @@ public class ErmUsageHarvesterJobsAPIIT {
     }
   }
 
+  @Test
+  public void testPurgeFinishedJobsInBatches() throws ExecutionException, InterruptedException {
+    System.setProperty(JobCleanup.PROP_PURGE_BATCH_SIZE, "2");
+    try {
+      given().post(PURGE_FINISHED_PATH_SEGMENT).then().statusCode(204);
+      assertThat(new GetJobsRequest().send())
+          .satisfies(hasResultSizes(1, 1), containsIds("42ddd915-a046-4613-8272-e25b0edf36a1"));
+    } finally {
+      System.clearProperty(JobCleanup.PROP_PURGE_BATCH_SIZE);
+      clearDb()
+          .compose(rs -> populateDb(expectedJobInfos))
+          .toCompletionStage()
+          .toCompletableFuture()
+          .get();
+    }
+  }
+
+  private ProviderJobStatisticsCollection getStatistics(Object... params) {
+    RequestSpecification reqSpec = given();
+    for (int i = 0; i < params.length; i += 2) {
+      reqSpec.queryParam(params[i].toString(), params[i + 1]);
+    }
+    return reqSpec
+        .get(STATISTICS_PATH_SEGMENT)
+        .then()
+        .statusCode(200)
+        .extract()
+        .as(ProviderJobStatisticsCollection.class);
+  }
+
+  @Test
+  public void testStatisticsOrderedByDuration() {
+    ClockProvider.setClock(Clock.fixed(LocalDateTime.of(2022, 9, 20, 0, 0).toInstant(UTC), UTC));
+
+    ProviderJobStatisticsCollection result = getStatistics("limit", 2);
+    assertThat(result.getTotalRecords()).isEqualTo(2);
+    assertThat(result.getProviderJobStatistics())
+        .extracting(
+            ProviderJobStatistics::getProviderId,
+            ProviderJobStatistics::getJobs,
+            ProviderJobStatistics::getMaxDurationMillis)
+        .containsExactly(
+            tuple("3e044247-a624-4c5f-8f39-aec2c558338c", 1, 26050L),
+            tuple("a828a156-fab6-4300-8d47-fe5eb9b9145f", 1, 24977L));
+  }
+
+  @Test
+  public void testStatisticsDays() {
+    ClockProvider.setClock(Clock.fixed(LocalDateTime.of(2022, 9, 20, 0, 0).toInstant(UTC), UTC));
+    assertThat(getStatistics("limit", 1000).getTotalRecords()).isEqualTo(16);
+    assertThat(getStatistics("days", 1).getProviderJobStatistics()).isEmpty();
+  }
+
+  @Test
+  public void testStatisticsOfJobInfos() throws ExecutionException, InterruptedException {
+    ClockProvider.setClock(Clock.fixed(LocalDateTime.of(2022, 9, 20, 0, 0).toInstant(UTC), UTC));
+    String providerId = "6d3ad5a1-6a9f-4f6e-9a7a-2b1c3f6e1f3e";
+    JobInfo jobInfo =
+        new JobInfo()
+            .withId("ad1c0a2e-3b0e-4d4c-8f0e-5a2c1d6f7b8a")
+            .withType(JobInfo.Type.PROVIDER)
+            .withProviderId(providerId)
+            .withTimestamp(1663150480000L)
+            .withStartedAt(Date.from(Instant.ofEpochMilli(1663150480000L)))
+            .withFinishedAt(Date.from(Instant.ofEpochMilli(1663150485000L)))
+            .withResult(FAILURE)
+            .withStatistics(
+                new JobStatistics()
+                    .withRequests(12)
+                    .withTooManyRequests(3)
+                    .withReportsUploaded(9)
+                    .withFailedMonths(2)
+                    .withBytesDownloaded(1024L)
+                    .withFetchTimeMillis(4000L)
+                    .withUploadTimeMillis(500L)
+                    .withPeakConcurrency(4));
+    try {
+      populateDb(new JobInfos().withJobInfos(List.of(jobInfo)))
+          .toCompletionStage()
+          .toCompletableFuture()
+          .get();
+
+      ProviderJobStatisticsCollection result = getStatistics("orderBy", "tooManyRequests");
+      assertThat(result.getProviderJobStatistics().getFirst())
+          .usingRecursiveComparison()
+          .isEqualTo(
+              new ProviderJobStatistics()
+                  .withProviderId(providerId)
+                  .withJobs(1)
+                  .withFailedJobs(1)
+                  .withAvgDurationMillis(5000L)
+                  .withMaxDurationMillis(5000L)
+                  .withRequests(12L)
+                  .withTooManyRequests(3L)
+                  .withReportsUploaded(9L)
+                  .withFailedMonths(2L)
+                  .withBytesDownloaded(1024L)
+                  .withFetchTimeMillis(4000L)
+                  .withUploadTimeMillis(500L)
+                  .withPeakConcurrency(4));
+    } finally {
+      clearDb()
+          .compose(rs -> populateDb(expectedJobInfos))
+          .toCompletionStage()
+          .toCompletableFuture()
+          .get();
+    }
+  }
+
+  @Test
+  public void testStatisticsInvalidOrderBy() {
+    given().queryParam("orderBy", "foo").get(STATISTICS_PATH_SEGMENT).then().statusCode(400);
+  }
+
   private Entries createSettingsResponse(Object value) {
     return new Entries()
         .withItems(
@@ -303,7 +542,8 @@ public class ErmUsageHarvesterJobsAPIIT {
   public void testCleanup() throws ExecutionException, InterruptedException {
     // Use combined dataset: sample-jobs (18 jobs) + sample-jobs-stale (7 jobs) = 25 jobs.
     // sample-jobs-stale includes 3 unfinished non-periodic jobs (stale candidates).
-    // Clock is set so stale jobs are older than 60 minutes and all timestamps fall within the
+    // Clock is set so stale jobs are older than the harvest timeout and all timestamps fall within
+    // the
     // purge window. Stale jobs started at 2023-01-02T08:00, finished jobs have timestamps up to
     // 2023-01-02.
     ClockProvider.setClock(Clock.fixed(LocalDateTime.of(2023, 6, 1, 0, 0).toInstant(UTC), UTC));
@@ -333,6 +573,7 @@ public class ErmUsageHarvesterJobsAPIIT {
       // purgeFinished is skipped due to settings error
       okapiMockRule.resetRequests();
       okapiMockRule.stubFor(WireMock.get(urlPathEqualTo(SETTINGS_PATH)).willReturn(serverError()));
+      SettingsCache.get(vertx).invalidate(TENANT);
       given().post(CLEANUP_PATH_SEGMENT).then().statusCode(204);
       verify(1, getRequestedFor(urlPathEqualTo(SETTINGS_PATH)));
       assertThat(new GetJobsRequest().withParams(PARAM_LIMIT, 1000).send())
@@ -360,7 +601,12 @@ public class ErmUsageHarvesterJobsAPIIT {
               hasResultSizes(2, 2),
               containsIds(
                   "42ddd915-a046-4613-8272-e25b0edf36a1", "96d680a7-10f2-4df5-95c9-b87937cd13b6"));
+
+      // cached settings value: no further settings request
+      given().post(CLEANUP_PATH_SEGMENT).then().statusCode(204);
+      verify(1, getRequestedFor(urlPathEqualTo(SETTINGS_PATH)));
     } finally {
+      SettingsCache.get(vertx).invalidate(TENANT);
       clearDb()
           .compose(rs -> populateDb(expectedJobInfos))
           .toCompletionStage()
@@ -0,0 +1,210 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs blocking COUNTER-SUSHI 4.1 requests outside of the Vert.x worker pool.
+ *
+ * <p>SOAP requests are run on virtual threads, limited to a maximum number of concurrent requests.
+ * If virtual threads are disabled, a named {@link WorkerExecutor} with a pool size of the maximum
+ * number of concurrent requests is used instead. Either way, slow SOAP exchanges cannot exhaust the
+ * worker pool used by other harvests.
+ *
+ * <p>The executor of a Vertx instance is configured through the system properties {@value
+ * #PROP_MAX_CONCURRENT_REQUESTS} and {@value #PROP_VIRTUAL_THREADS}. Its meters are registered with
+ * the global {@link Metrics} registry.
+ */
+public class CS41Executor implements MeterBinder {
+
+  public static final String PROP_MAX_CONCURRENT_REQUESTS = "harvester.cs41.maxConcurrentRequests";
+  public static final String PROP_VIRTUAL_THREADS = "harvester.cs41.virtualThreads";
+  public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 10;
+  static final String WORKER_POOL_NAME = "cs41-worker";
+  private static final Logger log = LoggerFactory.getLogger(CS41Executor.class);
+  private static final Map<Vertx, CS41Executor> EXECUTORS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Vertx vertx;
+  private final int maxConcurrency;
+  private final ExecutorService virtualThreadExecutor;
+  private final Semaphore permits;
+  private final WorkerExecutor workerExecutor;
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
+  public CS41Executor(Vertx vertx, int maxConcurrency, boolean virtualThreads) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be greater than 0");
+    }
+    this.vertx = Objects.requireNonNull(vertx, "vertx must not be null");
+    this.maxConcurrency = maxConcurrency;
+    if (virtualThreads) {
+      this.virtualThreadExecutor =
+          Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cs41-", 0).factory());
+      this.permits = new Semaphore(maxConcurrency, true);
+      this.workerExecutor = null;
+    } else {
+      this.virtualThreadExecutor = null;
+      this.permits = null;
+      this.workerExecutor = vertx.createSharedWorkerExecutor(WORKER_POOL_NAME, maxConcurrency);
+    }
+  }
+
+  /**
+   * Returns the shared executor for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the executor
+   * @return the shared executor for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static CS41Executor get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return EXECUTORS.computeIfAbsent(vertx, CS41Executor::createFromSystemProperties);
+  }
+
+  private static CS41Executor createFromSystemProperties(Vertx vertx) {
+    int maxConcurrency =
+        Integer.getInteger(PROP_MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    if (maxConcurrency < 1) {
+      log.error(
+          "Invalid value for {}: {}, using default", PROP_MAX_CONCURRENT_REQUESTS, maxConcurrency);
+      maxConcurrency = DEFAULT_MAX_CONCURRENT_REQUESTS;
+    }
+    boolean virtualThreads = Boolean.parseBoolean(System.getProperty(PROP_VIRTUAL_THREADS, "true"));
+    log.info(
+        "Running up to {} COUNTER-SUSHI 4.1 requests concurrently on {}",
+        maxConcurrency,
+        virtualThreads ? "virtual threads" : "worker pool " + WORKER_POOL_NAME);
+    CS41Executor executor = new CS41Executor(vertx, maxConcurrency, virtualThreads);
+    executor.bindTo(Metrics.globalRegistry);
+    return executor;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("harvester.cs41.requests.active", this, CS41Executor::getActive)
+        .description("COUNTER-SUSHI 4.1 requests that are currently running")
+        .register(registry);
+    Gauge.builder("harvester.cs41.requests.waiting", this, CS41Executor::getWaiting)
+        .description("COUNTER-SUSHI 4.1 requests that wait for a free slot")
+        .register(registry);
+    Gauge.builder("harvester.cs41.requests.max", this, CS41Executor::getMaxConcurrency)
+        .description("Maximum number of concurrent COUNTER-SUSHI 4.1 requests")
+        .register(registry);
+    FunctionCounter.builder("harvester.cs41.requests.completed", this, CS41Executor::getCompleted)
+        .description("COUNTER-SUSHI 4.1 requests that completed successfully")
+        .register(registry);
+    FunctionCounter.builder("harvester.cs41.requests.failed", this, CS41Executor::getFailed)
+        .description("COUNTER-SUSHI 4.1 requests that failed")
+        .register(registry);
+  }
+
+  /**
+   * Executes a blocking task.
+   *
+   * @param task the blocking task
+   * @return Future that completes with the result of the task on the caller's context
+   */
+  public <T> Future<T> execute(Callable<T> task) {
+    waiting.incrementAndGet();
+    if (workerExecutor != null) {
+      return workerExecutor.executeBlocking(() -> run(task), false);
+    }
+
+    Context context = vertx.getOrCreateContext();
+    Promise<T> promise = Promise.promise();
+    try {
+      virtualThreadExecutor.execute(
+          () -> {
+            try {
+              permits.acquire();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              waiting.decrementAndGet();
+              context.runOnContext(v -> promise.fail(e));
+              return;
+            }
+            try {
+              T result = run(task);
+              context.runOnContext(v -> promise.complete(result));
+            } catch (Throwable e) {
+              // errors, e.g. from JAXB or CXF, must not leave the harvest waiting forever
+              context.runOnContext(v -> promise.fail(e));
+            } finally {
+              permits.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      waiting.decrementAndGet();
+      return Future.failedFuture(e);
+    }
+    return promise.future();
+  }
+
+  private <T> T run(Callable<T> task) throws Exception {
+    waiting.decrementAndGet();
+    active.incrementAndGet();
+    try {
+      T result = task.call();
+      completed.incrementAndGet();
+      return result;
+    } catch (Throwable e) {
+      failed.incrementAndGet();
+      throw e;
+    } finally {
+      active.decrementAndGet();
+    }
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreadExecutor != null;
+  }
+
+  /** Returns the number of requests that are currently running. */
+  public int getActive() {
+    return active.get();
+  }
+
+  /** Returns the number of requests that wait for a free slot. */
+  public int getWaiting() {
+    return waiting.get();
+  }
+
+  /** Returns the number of requests that completed successfully. */
+  public long getCompleted() {
+    return completed.get();
+  }
+
+  /** Returns the number of requests that failed. */
+  public long getFailed() {
+    return failed.get();
+  }
+}
@@ -1,9 +1,10 @@
 package org.olf.erm.usage.harvester.endpoints;
 
-import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClientOptions;
 import jakarta.xml.ws.BindingProvider;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -11,7 +12,10 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import javax.xml.namespace.QName;
 import org.apache.commons.lang3.ObjectUtils;
@@ -45,8 +49,22 @@ import sushiservice.SushiServiceInterface;
 
 public class CS41Impl implements ServiceEndpoint {
 
+  public static final String PROP_TRANSPORT = "harvester.cs41.transport";
+
+  /** Transport used to send SOAP requests. */
+  public enum Transport {
+    /** Non-blocking requests using a shared {@link io.vertx.ext.web.client.WebClient}. */
+    WEBCLIENT,
+    /** Blocking requests using the JAX-WS port of Apache CXF. */
+    CXF
+  }
+
+  private final Vertx vertx;
+  private final CS41Executor executor;
+  private final AtomicLong receivedBytes = new AtomicLong();
   private UsageDataProvider provider;
   private SushiServiceInterface port;
+  private CS41SoapClient soapClient;
   private static final Logger LOG = LoggerFactory.getLogger(CS41Impl.class);
 
   private ReportRequest createReportRequest(String report, String beginDate, String endDate) {
@@ -82,15 +100,56 @@ public class CS41Impl implements ServiceEndpoint {
     return request;
   }
 
+  /**
+   * Creates an endpoint using the Vertx instance of the current context, or a new Vertx instance if
+   * called outside of a context.
+   */
   public CS41Impl(UsageDataProvider provider) {
+    this(Vertx.currentContext() == null ? Vertx.vertx() : Vertx.currentContext().owner(), provider);
+  }
+
+  /**
+   * Creates an endpoint using the transport configured by the system property {@value
+   * #PROP_TRANSPORT}.
+   */
+  public CS41Impl(Vertx vertx, UsageDataProvider provider) {
+    this(vertx, provider, getTransportFromSystemProperties());
+  }
+
+  public CS41Impl(Vertx vertx, UsageDataProvider provider, Transport transport) {
+    this.vertx = Objects.requireNonNull(vertx);
+    this.executor = CS41Executor.get(vertx);
     this.provider = provider;
 
+    String serviceUrl = provider.getHarvestingConfig().getSushiConfig().getServiceUrl();
+    if (transport == Transport.CXF) {
+      createPort(serviceUrl);
+    } else {
+      WebClientOptions options = new WebClientOptions();
+      getProxyOptions(serviceUrl).ifPresent(options::setProxyOptions);
+      this.soapClient =
+          new CS41SoapClient(
+              HttpClientRegistry.get(vertx).getWebClient(serviceUrl, options),
+              ResponseBodySpooler.get(vertx),
+              serviceUrl);
+    }
+  }
+
+  static Transport getTransportFromSystemProperties() {
+    String value = System.getProperty(PROP_TRANSPORT, Transport.CXF.name());
+    try {
+      return Transport.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      LOG.error("Invalid value for {}: {}, using default", PROP_TRANSPORT, value);
+      return Transport.CXF;
+    }
+  }
+
+  private void createPort(String serviceUrl) {
     SushiService service = new SushiService();
     QName next = service.getPorts().next();
     port = service.getPort(next, SushiServiceInterface.class);
 
-    String serviceUrl = provider.getHarvestingConfig().getSushiConfig().getServiceUrl();
-
     try {
       getProxy(new URI(serviceUrl))
           .ifPresent(
@@ -152,38 +211,85 @@ public class CS41Impl implements ServiceEndpoint {
   @Override
   public Future<List<CounterReport>> fetchReport(
       String reportType, String beginDate, String endDate) {
-    Context context = Vertx.currentContext();
-    if (context == null) context = Vertx.vertx().getOrCreateContext();
+    if (soapClient == null) {
+      return executor.execute(
+          () -> toCounterReports(getReportWithCxf(reportType, beginDate, endDate), reportType));
+    }
+    return soapClient
+        .send(createReportRequest(reportType, beginDate, endDate))
+        .recover(t -> Future.failedFuture(createGetReportException(t)))
+        .onSuccess(body -> receivedBytes.addAndGet(body.length()))
+        .compose(
+            body ->
+                executor
+                    .execute(() -> toCounterReports(parse(body), reportType))
+                    // the task may not have run, e.g. if the executor rejected it
+                    .onFailure(t -> body.close()));
+  }
+
+  /** Returns the number of received bytes, or -1 if the CXF transport is used. */
+  @Override
+  public long getReceivedBytes() {
+    return soapClient == null ? -1 : receivedBytes.get();
+  }
+
+  private CounterReportResponse getReportWithCxf(
+      String reportType, String beginDate, String endDate) {
+    try {
+      ReportRequest reportRequest = createReportRequest(reportType, beginDate, endDate);
+      return port.getReport(reportRequest);
+    } catch (java.lang.Exception e) {
+      throw createGetReportException(e);
+    }
+  }
 
-    return context.executeBlocking(
+  private static CounterReportResponse parse(SpooledBody body) {
+    try (body;
+        InputStream in = body.openStream()) {
+      return CS41SoapClient.parse(in);
+    } catch (java.lang.Exception e) {
+      throw createGetReportException(e);
+    }
+  }
+
+  private static CS41Exception createGetReportException(Throwable t) {
+    String messages =
+        ExceptionUtils.getThrowableList(t).stream()
+            .map(Throwable::getMessage)
+            .collect(Collectors.joining(", "));
+    return new CS41Exception("Error getting report: " + messages);
+  }
+
+  private List<CounterReport> toCounterReports(
+      CounterReportResponse counterReportResponse, String reportType) {
+    List<Exception> exceptions = Counter4Utils.getExceptions(counterReportResponse);
+    if (exceptions.isEmpty()
+        && counterReportResponse.getReport() != null
+        && !counterReportResponse.getReport().getReport().isEmpty()) {
+      Report reportResult = counterReportResponse.getReport().getReport().get(0);
+      try {
+        return createCounterReportList(reportResult, reportType, provider);
+      } catch (java.lang.Exception e) {
+        throw new InvalidReportException(e);
+      }
+    } else {
+      throw new InvalidReportException(Counter4Utils.getErrorMessages(exceptions));
+    }
+  }
+
+  @Override
+  public Future<Void> close() {
+    if (soapClient != null) {
+      soapClient.close();
+    }
+    if (port == null) {
+      return Future.succeededFuture();
+    }
+    return executor.execute(
         () -> {
-          CounterReportResponse counterReportResponse;
-          try {
-            ReportRequest reportRequest = createReportRequest(reportType, beginDate, endDate);
-            counterReportResponse = port.getReport(reportRequest);
-          } catch (java.lang.Exception e) {
-            String messages =
-                ExceptionUtils.getThrowableList(e).stream()
-                    .map(Throwable::getMessage)
-                    .collect(Collectors.joining(", "));
-            throw new CS41Exception("Error getting report: " + messages);
-          }
-
-          List<Exception> exceptions = Counter4Utils.getExceptions(counterReportResponse);
-          if (exceptions.isEmpty()
-              && counterReportResponse.getReport() != null
-              && !counterReportResponse.getReport().getReport().isEmpty()) {
-            Report reportResult = counterReportResponse.getReport().getReport().get(0);
-            try {
-              return createCounterReportList(reportResult, reportType, provider);
-            } catch (java.lang.Exception e) {
-              throw new InvalidReportException(e);
-            }
-          } else {
-            throw new InvalidReportException(Counter4Utils.getErrorMessages(exceptions));
-          }
-        },
-        false);
+          ClientProxy.getClient(port).destroy();
+          return null;
+        });
   }
 
   static class CS41Exception extends RuntimeException {
@@ -0,0 +1,191 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.codec.BodyCodec;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import org.niso.schemas.sushi.ReportRequest;
+import org.niso.schemas.sushi.counter.CounterReportResponse;
+import org.olf.erm.usage.harvester.endpoints.ResponseBodySpooler.SpoolingWriteStream;
+
+/**
+ * Sends SUSHI report requests as SOAP 1.1 messages using a {@link WebClient}.
+ *
+ * <p>Unlike the JAX-WS port, no WSDL is parsed and no thread is blocked while waiting for the
+ * response. Redirects are followed by resending the request to the new location. Requests fail if
+ * no data is received for {@value #RECEIVE_TIMEOUT_MILLIS} ms. Response bodies are received through
+ * a {@link ResponseBodySpooler}.
+ */
+class CS41SoapClient {
+
+  static final String SOAP_ENV_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+  static final String SUSHI_COUNTER_NS = "http://www.niso.org/schemas/sushi/counter";
+  static final String SOAP_ACTION = "\"SushiService:GetReportIn\"";
+  static final int MAX_REDIRECTS = 5;
+  // the receive timeout of the CXF transport
+  static final long RECEIVE_TIMEOUT_MILLIS = 60_000;
+  private static final QName REPORT_REQUEST = new QName(SUSHI_COUNTER_NS, "ReportRequest");
+  private static final JAXBContext JAXB_CONTEXT = createJaxbContext();
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+  private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+  private final WebClient client;
+  private final ResponseBodySpooler spooler;
+  private final String serviceUrl;
+
+  CS41SoapClient(WebClient client, ResponseBodySpooler spooler, String serviceUrl) {
+    this.client = client;
+    this.spooler = spooler;
+    this.serviceUrl = serviceUrl;
+  }
+
+  private static JAXBContext createJaxbContext() {
+    try {
+      return JAXBContext.newInstance(ReportRequest.class, CounterReportResponse.class);
+    } catch (JAXBException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /** Closes the client, releasing its reference to the shared connection pool. */
+  void close() {
+    client.close();
+  }
+
+  /**
+   * Posts a report request to the service.
+   *
+   * @param request the report request
+   * @return Future that completes with the body of the SOAP response, which must be closed by the
+   *     caller
+   */
+  Future<SpooledBody> send(ReportRequest request) {
+    Buffer envelope;
+    try {
+      envelope = createEnvelope(request);
+    } catch (JAXBException | XMLStreamException e) {
+      return Future.failedFuture(e);
+    }
+    return post(serviceUrl, envelope, 0);
+  }
+
+  private Future<SpooledBody> post(String url, Buffer envelope, int redirects) {
+    SpoolingWriteStream stream = spooler.createStream();
+    return client
+        .postAbs(url)
+        .putHeader("Content-Type", "text/xml; charset=UTF-8")
+        .putHeader("SOAPAction", SOAP_ACTION)
+        .idleTimeout(RECEIVE_TIMEOUT_MILLIS)
+        .as(BodyCodec.pipe(stream))
+        .sendBuffer(envelope)
+        .onFailure(t -> stream.discard())
+        .compose(
+            resp -> {
+              String location = resp.getHeader("Location");
+              if (resp.statusCode() / 100 == 3 && location != null && redirects < MAX_REDIRECTS) {
+                stream.discard();
+                return post(URI.create(url).resolve(location).toString(), envelope, redirects + 1);
+              }
+              if (resp.statusCode() / 100 != 2) {
+                stream.discard();
+                return Future.failedFuture(
+                    String.format(
+                        "Server responded with status code %s, headers: %s",
+                        resp.statusCode(), toMap(resp.headers())));
+              }
+              return stream.body();
+            });
+  }
+
+  private static Map<String, List<String>> toMap(MultiMap headers) {
+    Map<String, List<String>> map = new TreeMap<>();
+    headers.names().forEach(n -> map.put(n.toLowerCase(Locale.ROOT), headers.getAll(n)));
+    return map;
+  }
+
+  static Buffer createEnvelope(ReportRequest request) throws JAXBException, XMLStreamException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+    writer.writeStartDocument("UTF-8", "1.0");
+    writer.writeStartElement("soapenv", "Envelope", SOAP_ENV_NS);
+    writer.writeNamespace("soapenv", SOAP_ENV_NS);
+    writer.writeStartElement("soapenv", "Body", SOAP_ENV_NS);
+    Marshaller marshaller = JAXB_CONTEXT.createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+    marshaller.marshal(new JAXBElement<>(REPORT_REQUEST, ReportRequest.class, request), writer);
+    writer.writeEndElement();
+    writer.writeEndElement();
+    writer.writeEndDocument();
+    writer.close();
+    return Buffer.buffer(out.toByteArray());
+  }
+
+  /**
+   * Unmarshals the {@link CounterReportResponse} contained in a SOAP response.
+   *
+   * @param in the body of the SOAP response
+   * @return the unmarshalled response
+   * @throws XMLStreamException if the body is not well-formed or does not contain a SOAP body
+   * @throws JAXBException if the content of the SOAP body cannot be unmarshalled
+   * @throws IllegalStateException if the SOAP body contains a fault
+   */
+  static CounterReportResponse parse(InputStream in) throws XMLStreamException, JAXBException {
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+            && SOAP_ENV_NS.equals(reader.getNamespaceURI())
+            && "Body".equals(reader.getLocalName())) {
+          reader.nextTag();
+          if (SOAP_ENV_NS.equals(reader.getNamespaceURI())
+              && "Fault".equals(reader.getLocalName())) {
+            throw new IllegalStateException("SOAP fault: " + readFaultString(reader));
+          }
+          return JAXB_CONTEXT
+              .createUnmarshaller()
+              .unmarshal(reader, CounterReportResponse.class)
+              .getValue();
+        }
+      }
+      throw new XMLStreamException("Response does not contain a SOAP body");
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static String readFaultString(XMLStreamReader reader) throws XMLStreamException {
+    while (reader.hasNext()) {
+      if (reader.next() == XMLStreamConstants.START_ELEMENT
+          && "faultstring".equals(reader.getLocalName())) {
+        return reader.getElementText();
+      }
+    }
+    return "";
+  }
+}
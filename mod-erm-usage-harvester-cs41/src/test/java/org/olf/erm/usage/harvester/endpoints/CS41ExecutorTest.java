@@ -0,0 +1,144 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class CS41ExecutorTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
+  private void verifyLimitsConcurrency(TestContext context, CS41Executor executor) {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    List<Future<Integer>> futures =
+        IntStream.range(0, 5)
+            .mapToObj(
+                i ->
+                    executor.execute(
+                        () -> {
+                          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                          assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+                          running.decrementAndGet();
+                          return i;
+                        }))
+            .toList();
+
+    vertx.setTimer(
+        200,
+        id -> {
+          context.verify(
+              v -> {
+                assertThat(executor.getActive()).isEqualTo(2);
+                assertThat(executor.getWaiting()).isEqualTo(3);
+              });
+          release.countDown();
+        });
+
+    Future.all(futures)
+        .onComplete(
+            context.asyncAssertSuccess(
+                cf -> {
+                  assertThat(cf.<Integer>list()).containsExactly(0, 1, 2, 3, 4);
+                  assertThat(maxRunning.get()).isEqualTo(2);
+                  assertThat(executor.getActive()).isZero();
+                  assertThat(executor.getWaiting()).isZero();
+                  assertThat(executor.getCompleted()).isEqualTo(5);
+                }));
+  }
+
+  @Test
+  public void testLimitsConcurrencyOnVirtualThreads(TestContext context) {
+    CS41Executor executor = new CS41Executor(vertx, 2, true);
+    assertThat(executor.isVirtualThreads()).isTrue();
+    verifyLimitsConcurrency(context, executor);
+  }
+
+  @Test
+  public void testLimitsConcurrencyOnWorkerExecutor(TestContext context) {
+    CS41Executor executor = new CS41Executor(vertx, 2, false);
+    assertThat(executor.isVirtualThreads()).isFalse();
+    verifyLimitsConcurrency(context, executor);
+  }
+
+  @Test
+  public void testFailedTask(TestContext context) {
+    CS41Executor executor = new CS41Executor(vertx, 1, true);
+    executor
+        .execute(
+            () -> {
+              throw new IllegalStateException("failed");
+            })
+        .onComplete(
+            context.asyncAssertFailure(
+                t -> {
+                  assertThat(t).hasMessage("failed");
+                  assertThat(executor.getFailed()).isEqualTo(1);
+                  assertThat(executor.getActive()).isZero();
+                }));
+  }
+
+  @Test
+  public void testTaskThrowingError(TestContext context) {
+    CS41Executor executor = new CS41Executor(vertx, 1, true);
+    executor
+        .execute(
+            () -> {
+              throw new NoClassDefFoundError("missing");
+            })
+        .onComplete(
+            context.asyncAssertFailure(
+                t -> {
+                  assertThat(t).isInstanceOf(NoClassDefFoundError.class);
+                  assertThat(executor.getFailed()).isEqualTo(1);
+                }));
+    executor.execute(() -> "next").onComplete(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testCompletesOnCallerContext(TestContext context) {
+    CS41Executor executor = new CS41Executor(vertx, 1, true);
+    vertx.runOnContext(
+        v -> {
+          Context caller = Vertx.currentContext();
+          executor
+              .execute(() -> "result")
+              .onComplete(
+                  context.asyncAssertSuccess(
+                      result -> assertThat(Vertx.currentContext()).isSameAs(caller)));
+        });
+  }
+
+  @Test
+  public void testGetReturnsSameInstanceForSameVertx() {
+    assertThat(CS41Executor.get(vertx)).isSameAs(CS41Executor.get(vertx));
+    assertThat(CS41Executor.get(vertx).getMaxConcurrency())
+        .isEqualTo(CS41Executor.DEFAULT_MAX_CONCURRENT_REQUESTS);
+  }
+}
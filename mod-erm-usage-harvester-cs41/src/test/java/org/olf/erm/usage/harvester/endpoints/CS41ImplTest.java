@@ -3,20 +3,24 @@ package org.olf.erm.usage.harvester.endpoints;
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.any;
 import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.matchingXPath;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
 
 import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.io.Resources;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
-import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.unit.junit.VertxUnitRunnerWithParametersFactory;
 import jakarta.xml.bind.JAXB;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -33,14 +37,21 @@ import org.folio.rest.jaxrs.model.Report;
 import org.folio.rest.jaxrs.model.SushiConfig;
 import org.folio.rest.jaxrs.model.SushiCredentials;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.junit.runners.Parameterized.UseParametersRunnerFactory;
 import org.niso.schemas.sushi.counter.CounterReportResponse;
 import org.olf.erm.usage.counter41.Counter4Utils;
+import org.olf.erm.usage.harvester.endpoints.CS41Impl.Transport;
 
-@RunWith(VertxUnitRunner.class)
+@RunWith(Parameterized.class)
+@UseParametersRunnerFactory(VertxUnitRunnerWithParametersFactory.class)
 public class CS41ImplTest {
 
   private static final String SUSHI_SERVICE = "/sushiService";
@@ -50,6 +61,8 @@ public class CS41ImplTest {
   @Rule public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
   @Rule public WireMockRule wireMockProxyRule = new WireMockRule(wireMockConfig().dynamicPort());
   @Rule public WireMockRule wireMockRedirectRule = new WireMockRule(wireMockConfig().dynamicPort());
+  private static Vertx vertx;
+  private final Transport transport;
 
   private final UsageDataProvider provider =
       new UsageDataProvider()
@@ -59,6 +72,25 @@ public class CS41ImplTest {
           .withSushiCredentials(
               new SushiCredentials().withRequestorId("reqId1").withCustomerId("custId1"));
 
+  @Parameters(name = "{0}")
+  public static Iterable<Transport> transports() {
+    return Arrays.asList(Transport.values());
+  }
+
+  public CS41ImplTest(Transport transport) {
+    this.transport = transport;
+  }
+
+  @BeforeClass
+  public static void beforeClass() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    vertx.close();
+  }
+
   @Before
   public void setup() {
     this.provider
@@ -79,7 +111,7 @@ public class CS41ImplTest {
 
   @Test
   public void fetchReport(TestContext ctx) {
-    CS41Impl cs41 = new CS41Impl(provider);
+    CS41Impl cs41 = new CS41Impl(vertx, provider, transport);
 
     wireMockRule.stubFor(
         post(urlPathEqualTo(SUSHI_SERVICE))
@@ -97,7 +129,8 @@ public class CS41ImplTest {
                         postRequestedFor(urlPathEqualTo(SUSHI_SERVICE))
                             .withRequestBody(
                                 matchingXPath(
-                                        "//ns:Requestor[ns:ID='reqId1' and ns:Name='' and ns:Email='']")
+                                        "//ns:Requestor[ns:ID='reqId1' and ns:Name='' and"
+                                            + " ns:Email='']")
                                     .withXPathNamespace(
                                         "ns", "http://www.niso.org/schemas/sushi")));
 
@@ -121,9 +154,79 @@ public class CS41ImplTest {
             });
   }
 
+  @Test
+  public void testWebClientTransport(TestContext ctx) throws IOException {
+    assumeTrue(transport == Transport.WEBCLIENT);
+    CS41Impl cs41 = new CS41Impl(vertx, provider, transport);
+    long responseSize =
+        Resources.toByteArray(Resources.getResource("__files/response1.xml")).length;
+
+    wireMockRule.stubFor(
+        post(urlPathEqualTo(SUSHI_SERVICE))
+            .willReturn(aResponse().withStatus(200).withBodyFile("response1.xml")));
+
+    Async async = ctx.async();
+    cs41.fetchReport(REPORT_TYPE, BEGIN_DATE, END_DATE)
+        .onComplete(
+            ctx.asyncAssertSuccess(
+                list -> {
+                  ctx.verify(
+                      v -> {
+                        wireMockRule.verify(
+                            1,
+                            postRequestedFor(urlPathEqualTo(SUSHI_SERVICE))
+                                .withHeader("SOAPAction", equalTo(CS41SoapClient.SOAP_ACTION))
+                                .withHeader("Content-Type", containing("text/xml"))
+                                .withRequestBody(
+                                    matchingXPath(
+                                            "/soapenv:Envelope/soapenv:Body/counter:ReportRequest"
+                                                + "/sushi:ReportDefinition[@Name='JR1']"
+                                                + "/sushi:Filters/sushi:UsageDateRange"
+                                                + "[sushi:Begin='2018-01-01']")
+                                        .withXPathNamespace("soapenv", CS41SoapClient.SOAP_ENV_NS)
+                                        .withXPathNamespace(
+                                            "counter", CS41SoapClient.SUSHI_COUNTER_NS)
+                                        .withXPathNamespace(
+                                            "sushi", "http://www.niso.org/schemas/sushi")));
+                        assertThat(list).hasSize(1);
+                        assertThat(cs41.getReceivedBytes()).isEqualTo(responseSize);
+                      });
+                  cs41.close().onComplete(ctx.asyncAssertSuccess(v -> async.complete()));
+                }));
+  }
+
+  @Test
+  public void testWebClientTransportSoapFault(TestContext ctx) {
+    assumeTrue(transport == Transport.WEBCLIENT);
+    CS41Impl cs41 = new CS41Impl(vertx, provider, transport);
+
+    wireMockRule.stubFor(
+        post(urlPathEqualTo(SUSHI_SERVICE))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "text/xml")
+                    .withBodyFile("fault.xml")));
+
+    Async async = ctx.async();
+    cs41.fetchReport(REPORT_TYPE, BEGIN_DATE, END_DATE)
+        .onComplete(
+            ctx.asyncAssertFailure(
+                t -> {
+                  ctx.verify(
+                      v -> {
+                        assertThat(t)
+                            .isInstanceOf(CS41Impl.CS41Exception.class)
+                            .hasMessage("Error getting report: SOAP fault: Invalid requestor");
+                        assertThat(cs41.getReceivedBytes()).isPositive();
+                      });
+                  async.complete();
+                }));
+  }
+
   @Test
   public void testFetchReportNoConnection(TestContext ctx) {
-    CS41Impl cs41 = new CS41Impl(provider);
+    CS41Impl cs41 = new CS41Impl(vertx, provider, transport);
 
     wireMockRule.stubFor(
         post(urlPathEqualTo(SUSHI_SERVICE))
@@ -155,7 +258,7 @@ public class CS41ImplTest {
           public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {}
         });
 
-    final ServiceEndpoint sep = new CS41Impl(provider);
+    final ServiceEndpoint sep = new CS41Impl(vertx, provider, transport);
 
     wireMockRule.stubFor(any(anyUrl()).willReturn(aResponse().withStatus(404)));
     wireMockProxyRule.stubFor(any(anyUrl()).willReturn(aResponse().withStatus(404)));
@@ -175,7 +278,7 @@ public class CS41ImplTest {
 
   @Test
   public void testHttpErrorMessage(TestContext context) {
-    CS41Impl cs41 = new CS41Impl(provider);
+    CS41Impl cs41 = new CS41Impl(vertx, provider, transport);
 
     wireMockRule.stubFor(
         post(urlPathEqualTo(SUSHI_SERVICE))
@@ -200,9 +303,34 @@ public class CS41ImplTest {
                     }));
   }
 
+  @Test
+  public void testSoapFault(TestContext context) {
+    CS41Impl cs41 = new CS41Impl(vertx, provider, transport);
+
+    wireMockRule.stubFor(
+        post(urlPathEqualTo(SUSHI_SERVICE))
+            .willReturn(
+                aResponse()
+                    .withStatus(200)
+                    .withHeader("Content-Type", "text/xml")
+                    .withBodyFile("fault.xml")));
+
+    Async async = context.async();
+    cs41.fetchReport(REPORT_TYPE, BEGIN_DATE, END_DATE)
+        .onComplete(
+            ar ->
+                context.verify(
+                    v -> {
+                      assertThat(ar.failed()).isTrue();
+                      assertThat(ar.cause().getMessage())
+                          .contains("Error getting report", "Invalid requestor");
+                      async.complete();
+                    }));
+  }
+
   @Test
   public void testHttpRedirect(TestContext context) {
-    CS41Impl cs41 = new CS41Impl(provider);
+    CS41Impl cs41 = new CS41Impl(vertx, provider, transport);
 
     System.out.println(wireMockRedirectRule.url(""));
 
@@ -5,7 +5,6 @@ import static java.util.Objects.requireNonNull;
 import static org.olf.erm.usage.harvester.endpoints.TooManyRequestsException.TOO_MANY_REQUEST_ERROR_CODE;
 import static org.olf.erm.usage.harvester.endpoints.TooManyRequestsException.TOO_MANY_REQUEST_STR;
 
-import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
@@ -28,11 +27,21 @@ import org.openapitools.counter50.model.SUSHIReportHeader;
 public class CS50Impl implements ServiceEndpoint {
 
   private final UsageDataProvider provider;
+  private final HttpClientRegistry.ClientLease<ExtendedCounter50Client> clientLease;
   private final ExtendedCounter50Client client;
 
   private final Vertx vertx;
 
+  /**
+   * Creates an endpoint using the Vertx instance of the current context, or a new Vertx instance if
+   * called outside of a context.
+   */
   public CS50Impl(UsageDataProvider provider) {
+    this(Vertx.currentContext() == null ? Vertx.vertx() : Vertx.currentContext().owner(), provider);
+  }
+
+  public CS50Impl(Vertx vertx, UsageDataProvider provider) {
+    this.vertx = requireNonNull(vertx);
     requireNonNull(provider.getSushiCredentials());
     requireNonNull(provider.getHarvestingConfig());
     requireNonNull(provider.getHarvestingConfig().getSushiConfig());
@@ -49,11 +58,16 @@ public class CS50Impl implements ServiceEndpoint {
     WebClientOptions webClientOptions = new WebClientOptions();
     getProxyOptions(baseUrl).ifPresent(webClientOptions::setProxyOptions);
 
-    Context context = Vertx.currentContext();
-    vertx = context == null ? Vertx.vertx() : context.owner();
-
-    webClientOptions.setIdleTimeout(60);
-    client = new ExtendedCounter50Client(vertx, webClientOptions, baseUrl, auth);
+    // the client cannot be closed, so endpoints with the same configuration share one
+    clientLease =
+        HttpClientRegistry.get(vertx)
+            .leaseClient(
+                baseUrl,
+                webClientOptions,
+                ExtendedCounter50Client.class,
+                String.join("\n", baseUrl, String.valueOf(apiKey), String.valueOf(reqId)),
+                options -> new ExtendedCounter50Client(vertx, options, baseUrl, auth));
+    client = clientLease.get();
   }
 
   private Future<List<CounterReport>> createCounterReportList(
@@ -76,7 +90,7 @@ public class CS50Impl implements ServiceEndpoint {
                     }
 
                     return ServiceEndpoint.createCounterReport(
-                        Json.encode(r), reportType, provider, yearMonthsFromReport.get(0));
+                        r, reportType, provider, yearMonthsFromReport.get(0));
                   })
               .toList();
         });
@@ -149,6 +163,12 @@ public class CS50Impl implements ServiceEndpoint {
         .flatMap(r -> createCounterReportList(r, reportName, provider));
   }
 
+  @Override
+  public Future<Void> close() {
+    clientLease.release();
+    return Future.succeededFuture();
+  }
+
   static class CS50Exception extends RuntimeException {
 
     public CS50Exception(Throwable cause) {
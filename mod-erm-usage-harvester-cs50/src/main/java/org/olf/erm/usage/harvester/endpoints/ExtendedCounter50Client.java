@@ -2,6 +2,7 @@ package org.olf.erm.usage.harvester.endpoints;
 
 import static io.vertx.core.Future.failedFuture;
 import static org.olf.erm.usage.harvester.endpoints.JsonUtil.isJsonArray;
+import static org.olf.erm.usage.harvester.endpoints.RateLimitHeaders.getRetryAfter;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -19,10 +20,10 @@ import org.openapitools.counter50.model.SUSHIErrorModel;
  * proper 4xx/5xx codes. This client detects these cases and wraps them in {@link
  * ServiceEndpointException}.
  *
- * <p>Rate limit errors (429) are wrapped in {@link TooManyRequestsException}. Other HTTP errors are
- * wrapped in {@link ServiceEndpointException} with format: "HTTP {statusCode}: {statusMessage} -
- * {responseBody}". The full body is available via {@link
- * ServiceEndpointException#getResponseBody()}.
+ * <p>Rate limit errors (429) are wrapped in {@link TooManyRequestsException}, carrying the delay
+ * requested by the provider (see {@link RateLimitHeaders}). Other HTTP errors are wrapped in {@link
+ * ServiceEndpointException} with format: "HTTP {statusCode}: {statusMessage} - {responseBody}". The
+ * full body is available via {@link ServiceEndpointException#getResponseBody()}.
  *
  * <p>Parse errors (malformed responses) are wrapped in {@link InvalidReportException}.
  */
@@ -57,7 +58,8 @@ public class ExtendedCounter50Client extends Counter50Client {
   @Override
   protected <T> Future<T> handleErrorResponse(HttpResponse<Buffer> response) {
     if (response.statusCode() == 429) {
-      return failedFuture(new TooManyRequestsException());
+      return failedFuture(
+          new TooManyRequestsException(getRetryAfter(response.headers()).orElse(null)));
     }
 
     String body = response.body() != null ? response.body().toString() : "";
@@ -15,6 +15,7 @@ import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.google.common.io.Resources;
+import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClosedException;
 import io.vertx.core.json.Json;
 import io.vertx.ext.unit.TestContext;
@@ -29,6 +30,7 @@ import java.net.ProxySelector;
 import java.net.SocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -166,6 +168,17 @@ public class CS50ImplTest {
                 }));
   }
 
+  @Test
+  public void testEndpointsShareClient(TestContext context) {
+    Vertx vertx = Vertx.vertx();
+    HttpClientRegistry registry = HttpClientRegistry.get(vertx);
+    for (int i = 0; i < 10; i++) {
+      new CS50Impl(vertx, provider).close();
+    }
+    assertThat(registry.leasedClientCount()).isOne();
+    vertx.close().onComplete(context.asyncAssertSuccess());
+  }
+
   @Test
   public void testFetchReportNoHeader(TestContext context) throws IOException {
     createStubWithResource(200, "SampleReportMissingHeader.json");
@@ -238,6 +251,22 @@ public class CS50ImplTest {
                 }));
   }
 
+  @Test
+  public void testFetchReportTooManyRequestsWithRetryAfter(TestContext context) {
+    wmRule.stubFor(
+        get(urlPathEqualTo(REPORT_PATH))
+            .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "30")));
+    new CS50Impl(provider)
+        .fetchReport(REPORT, BEGIN_DATE, END_DATE)
+        .onComplete(
+            context.asyncAssertFailure(
+                t ->
+                    assertThat(t)
+                        .isInstanceOfSatisfying(
+                            TooManyRequestsException.class,
+                            e -> assertThat(e.getRetryAfter()).hasValue(Duration.ofSeconds(30)))));
+  }
+
   @Test
   public void testFetchReportNoReportItems(TestContext context) throws IOException {
     createStubWithResource(200, "SampleReportMissingItems.json");
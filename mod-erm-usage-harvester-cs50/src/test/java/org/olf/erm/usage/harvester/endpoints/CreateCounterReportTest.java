@@ -0,0 +1,125 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.io.Resources;
+import io.vertx.core.json.Json;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import org.folio.rest.jaxrs.model.CounterReport;
+import org.folio.rest.jaxrs.model.HarvestingConfig;
+import org.folio.rest.jaxrs.model.UsageDataProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.olf.erm.usage.counter50.Counter5Utils;
+import org.olf.erm.usage.counter50.Counter5Utils.Counter5UtilsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares creating {@link CounterReport}s from split reports directly with the former round trip
+ * through a JSON string.
+ *
+ * <p>The benchmark is skipped unless the system property {@code benchmark} is set to {@code true}.
+ */
+@RunWith(Parameterized.class)
+public class CreateCounterReportTest {
+
+  private static final Logger log = LoggerFactory.getLogger(CreateCounterReportTest.class);
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 50;
+  private static final UsageDataProvider PROVIDER =
+      new UsageDataProvider()
+          .withId("providerId")
+          .withHarvestingConfig(new HarvestingConfig().withReportRelease("5"));
+
+  private final String resourceName;
+  private List<Object> splitReports;
+
+  @Parameters(name = "{0}")
+  public static Iterable<String> reports() {
+    return List.of("TR.json", "IRWithParentDetails.json");
+  }
+
+  public CreateCounterReportTest(String resourceName) {
+    this.resourceName = "reports/" + resourceName;
+  }
+
+  @Before
+  public void setUp() throws IOException, Counter5UtilsException {
+    String str = Resources.toString(Resources.getResource(resourceName), StandardCharsets.UTF_8);
+    splitReports = Counter5Utils.split(Counter5Utils.fromJSON(str));
+  }
+
+  private static CounterReport viaString(Object report) {
+    return ServiceEndpoint.createCounterReport(
+        Json.encode(report), "TR", PROVIDER, Counter5Utils.getYearMonthFromReport(report).get(0));
+  }
+
+  private static CounterReport direct(Object report) {
+    return ServiceEndpoint.createCounterReport(
+        report, "TR", PROVIDER, Counter5Utils.getYearMonthFromReport(report).get(0));
+  }
+
+  @Test
+  public void testDirectConversionEqualsStringRoundTrip() {
+    assertThat(splitReports).isNotEmpty();
+    for (Object report : splitReports) {
+      CounterReport expected = viaString(report);
+      CounterReport actual = direct(report);
+      assertThat(actual.getYearMonth()).isEqualTo(expected.getYearMonth());
+      assertThat(Json.encode(actual.getReport())).isEqualTo(Json.encode(expected.getReport()));
+    }
+  }
+
+  @Test
+  public void benchmark() {
+    assumeTrue(Boolean.getBoolean("benchmark"));
+
+    measure(CreateCounterReportTest::viaString, WARMUP_ITERATIONS);
+    Result viaString = measure(CreateCounterReportTest::viaString, ITERATIONS);
+    measure(CreateCounterReportTest::direct, WARMUP_ITERATIONS);
+    Result direct = measure(CreateCounterReportTest::direct, ITERATIONS);
+
+    log.info(
+        "{} ({} months): string round trip {} µs / {} KiB, direct {} µs / {} KiB per iteration",
+        resourceName,
+        splitReports.size(),
+        viaString.micros,
+        viaString.kibibytes,
+        direct.micros,
+        direct.kibibytes);
+  }
+
+  private Result measure(Function<Object, CounterReport> fn, int iterations) {
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().threadId();
+    long bytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      splitReports.forEach(fn::apply);
+    }
+    long nanos = System.nanoTime() - start;
+    long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+    return new Result(nanos / 1000 / iterations, bytes / 1024 / iterations);
+  }
+
+  private static class Result {
+
+    private final long micros;
+    private final long kibibytes;
+
+    Result(long micros, long kibibytes) {
+      this.micros = micros;
+      this.kibibytes = kibibytes;
+    }
+  }
+}
@@ -8,7 +8,6 @@ import static org.olf.erm.usage.counter51.JsonProperties.REPORT_HEADER;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.client.WebClientOptions;
@@ -17,9 +16,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Instant;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import org.folio.rest.jaxrs.model.CounterReport;
 import org.folio.rest.jaxrs.model.HarvestingConfig;
 import org.folio.rest.jaxrs.model.Report;
@@ -42,10 +43,20 @@ public class CS51Impl implements ServiceEndpoint {
   private final String platform;
   private final String providerId;
   private final Vertx vertx;
+  private final HttpClientRegistry.ClientLease<ExtendedCounter51Client> clientLease;
   private final ExtendedCounter51Client client;
   private final ObjectMapper objectMapper = Counter51Utils.getDefaultObjectMapper();
 
+  /**
+   * Creates an endpoint using the Vertx instance of the current context, or a new Vertx instance if
+   * called outside of a context.
+   */
   public CS51Impl(UsageDataProvider provider) {
+    this(Vertx.currentContext() == null ? Vertx.vertx() : Vertx.currentContext().owner(), provider);
+  }
+
+  public CS51Impl(Vertx vertx, UsageDataProvider provider) {
+    this.vertx = requireNonNull(vertx);
     requireNonNull(provider);
     SushiCredentials sushiCredentials = requireNonNull(provider.getSushiCredentials());
     HarvestingConfig harvestingConfig = requireNonNull(provider.getHarvestingConfig());
@@ -65,16 +76,23 @@ public class CS51Impl implements ServiceEndpoint {
     this.reportRelease = requireNonNull(harvestingConfig.getReportRelease());
     this.providerId = requireNonNull(provider.getId());
 
-    Context context = Vertx.currentContext();
-    this.vertx = context == null ? Vertx.vertx() : context.owner();
-
     Counter51Auth auth = new Counter51Auth(apiKey, requestorId);
-    WebClientOptions webClientOptions = new WebClientOptions().setIdleTimeout(60);
+    WebClientOptions webClientOptions = new WebClientOptions();
     getProxyOptions(serviceUrlStr).ifPresent(webClientOptions::setProxyOptions);
-    this.client = new ExtendedCounter51Client(vertx, webClientOptions, serviceUrlStr, auth);
+    // the client cannot be closed, so endpoints with the same configuration share one
+    this.clientLease =
+        HttpClientRegistry.get(vertx)
+            .leaseClient(
+                serviceUrlStr,
+                webClientOptions,
+                ExtendedCounter51Client.class,
+                String.join(
+                    "\n", serviceUrlStr, String.valueOf(apiKey), String.valueOf(requestorId)),
+                options -> new ExtendedCounter51Client(vertx, options, serviceUrlStr, auth));
+    this.client = clientLease.get();
   }
 
-  private Future<ObjectNode> callClientMethod(String reportName, String beginDate, String endDate) {
+  private Future<Object> callClientMethod(String reportName, String beginDate, String endDate) {
     Future<?> reportFuture =
         switch (reportName) {
           case "TR" -> client.getReportsTR(customerId, beginDate, endDate, platform);
@@ -84,37 +102,58 @@ public class CS51Impl implements ServiceEndpoint {
           default -> Future.failedFuture(new UnsupportedReportTypeException(reportName));
         };
 
-    return reportFuture.map(report -> objectMapper.convertValue(report, ObjectNode.class));
+    return reportFuture.map(Object.class::cast);
   }
 
-  private Future<List<CounterReport>> splitReport(ObjectNode objectNode, String reportName) {
+  /**
+   * Converts a report into one {@link CounterReport} per month.
+   *
+   * <p>Each representation of the report is released as soon as the next one is created: the typed
+   * report after converting it to a tree, the tree after splitting it into months, and each month
+   * after converting it to a {@link CounterReport}. The report header is checked for exceptions
+   * before the report is split, so reports with exceptions are rejected without further processing.
+   */
+  private Future<List<CounterReport>> createCounterReports(Object report, String reportName) {
+    AtomicReference<Object> reportRef = new AtomicReference<>(report);
     return vertx.executeBlocking(
         () -> {
           Date downloadTime = Date.from(Instant.now());
-          return Counter51Utils.splitReport(objectNode).stream()
-              .map(
-                  r -> {
-                    List<YearMonth> months = getYearMonths(r);
-                    return createCounterReport(r, reportName, months.get(0), downloadTime);
-                  })
-              .toList();
-        });
+          List<ObjectNode> months = splitReport(reportRef.getAndSet(null));
+          List<CounterReport> counterReports = new ArrayList<>(months.size());
+          for (int i = 0; i < months.size(); i++) {
+            ObjectNode month = months.set(i, null);
+            counterReports.add(
+                createCounterReport(month, reportName, getYearMonths(month).get(0), downloadTime));
+          }
+          return counterReports;
+        },
+        false);
+  }
+
+  private List<ObjectNode> splitReport(Object report) {
+    ObjectNode objectNode = objectMapper.valueToTree(report);
+    throwIfReportContainsExceptions(objectNode);
+    return new ArrayList<>(Counter51Utils.splitReport(objectNode));
   }
 
   @Override
   public Future<List<CounterReport>> fetchReport(String report, String beginDate, String endDate) {
     String uppercaseReport = report.toUpperCase();
     return callClientMethod(uppercaseReport, beginDate, endDate)
-        .map(this::throwIfReportContainsExceptions)
-        .compose(on -> splitReport(on, uppercaseReport));
+        .compose(r -> createCounterReports(r, uppercaseReport));
+  }
+
+  @Override
+  public Future<Void> close() {
+    clientLease.release();
+    return Future.succeededFuture();
   }
 
-  private ObjectNode throwIfReportContainsExceptions(ObjectNode objectNode) {
+  private void throwIfReportContainsExceptions(ObjectNode objectNode) {
     JsonNode exceptionsNode = objectNode.path(REPORT_HEADER).path(EXCEPTIONS);
     if (exceptionsNode.isArray() && !exceptionsNode.isEmpty()) {
       throw new InvalidReportException(exceptionsNode.toString());
     }
-    return objectNode;
   }
 
   private CounterReport createCounterReport(
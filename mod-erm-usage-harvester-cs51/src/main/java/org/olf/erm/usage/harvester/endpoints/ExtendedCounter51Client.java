@@ -1,5 +1,7 @@
 package org.olf.erm.usage.harvester.endpoints;
 
+import static org.olf.erm.usage.harvester.endpoints.RateLimitHeaders.getRetryAfter;
+
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
@@ -11,10 +13,10 @@ import org.olf.erm.usage.counter51.client.Counter51Client;
 /**
  * Extended Counter 5.1 client with custom error handling.
  *
- * <p>Rate limit errors (429) are wrapped in {@link TooManyRequestsException}. Other HTTP errors are
- * wrapped in {@link ServiceEndpointException} with format: "HTTP {statusCode}: {statusMessage} -
- * {responseBody}". The full body is available via {@link
- * ServiceEndpointException#getResponseBody()}.
+ * <p>Rate limit errors (429) are wrapped in {@link TooManyRequestsException}, carrying the delay
+ * requested by the provider (see {@link RateLimitHeaders}). Other HTTP errors are wrapped in {@link
+ * ServiceEndpointException} with format: "HTTP {statusCode}: {statusMessage} - {responseBody}". The
+ * full body is available via {@link ServiceEndpointException#getResponseBody()}.
  *
  * <p>Parse errors (malformed responses) are wrapped in {@link InvalidReportException}.
  */
@@ -34,7 +36,8 @@ public class ExtendedCounter51Client extends Counter51Client {
   @Override
   protected <T> Future<T> handleErrorResponse(HttpResponse<Buffer> response) {
     if (response.statusCode() == 429) {
-      return Future.failedFuture(new TooManyRequestsException());
+      return Future.failedFuture(
+          new TooManyRequestsException(getRetryAfter(response.headers()).orElse(null)));
     }
 
     String body = response.body() != null ? response.body().toString() : "";
@@ -17,6 +17,7 @@ import static org.olf.erm.usage.harvester.endpoints.UnsupportedReportTypeExcepti
 
 import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
 import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
+import io.vertx.core.Vertx;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import java.io.IOException;
@@ -26,6 +27,7 @@ import java.net.Proxy.Type;
 import java.net.ProxySelector;
 import java.net.SocketAddress;
 import java.net.URI;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -145,6 +147,16 @@ class CS51ImplTest {
                     .completeNow());
   }
 
+  @Test
+  void testEndpointsShareClient(Vertx vertx) {
+    HttpClientRegistry registry = HttpClientRegistry.get(vertx);
+    int leasedClients = registry.leasedClientCount();
+    for (int i = 0; i < 10; i++) {
+      new CS51Impl(vertx, provider).close();
+    }
+    assertThat(registry.leasedClientCount()).isEqualTo(leasedClients + 1);
+  }
+
   @Test
   void testInvalidServiceUrl() {
     String serviceUrlStr = "localhost";
@@ -254,6 +266,28 @@ class CS51ImplTest {
                     .completeNow());
   }
 
+  @Test
+  void testTooManyRequestsExceptionWithRetryAfter(VertxTestContext testContext) {
+    serviceMock.stubFor(
+        get(urlPathEqualTo(PATH_TR))
+            .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "30")));
+
+    new CS51Impl(provider)
+        .fetchReport(REPORT_TR, BEGIN_DATE, END_DATE)
+        .onComplete(
+            ar ->
+                testContext
+                    .verify(
+                        () ->
+                            assertThat(ar.cause())
+                                .isInstanceOfSatisfying(
+                                    TooManyRequestsException.class,
+                                    e ->
+                                        assertThat(e.getRetryAfter())
+                                            .hasValue(Duration.ofSeconds(30))))
+                    .completeNow());
+  }
+
   @Test
   void test403Response(VertxTestContext testContext) {
     serviceMock.stubFor(
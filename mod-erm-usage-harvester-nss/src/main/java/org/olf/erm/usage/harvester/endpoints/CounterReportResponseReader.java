@@ -0,0 +1,91 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.niso.schemas.sushi.Exception;
+import org.niso.schemas.sushi.counter.CounterReportResponse;
+
+/** Unmarshals COUNTER 4 report responses using StAX and a shared {@link JAXBContext}. */
+final class CounterReportResponseReader {
+
+  static final String SUSHI_NS = "http://www.niso.org/schemas/sushi";
+  private static final JAXBContext JAXB_CONTEXT = createJaxbContext();
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+  private CounterReportResponseReader() {}
+
+  private static JAXBContext createJaxbContext() {
+    try {
+      return JAXBContext.newInstance(CounterReportResponse.class);
+    } catch (JAXBException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * Unmarshals the SUSHI exceptions of a response, without binding the report.
+   *
+   * <p>Exceptions precede all other elements of a response, so only the beginning of the body is
+   * read.
+   *
+   * @param in the response body
+   * @return a response that contains only the exceptions
+   * @throws XMLStreamException if the body is not well-formed
+   * @throws JAXBException if an exception cannot be unmarshalled
+   */
+  static CounterReportResponse readExceptions(InputStream in)
+      throws XMLStreamException, JAXBException {
+    CounterReportResponse response = new CounterReportResponse();
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+    try {
+      Unmarshaller unmarshaller = JAXB_CONTEXT.createUnmarshaller();
+      reader.nextTag();
+      int event = reader.nextTag();
+      while (event == XMLStreamConstants.START_ELEMENT
+          && SUSHI_NS.equals(reader.getNamespaceURI())
+          && "Exception".equals(reader.getLocalName())) {
+        response.getException().add(unmarshaller.unmarshal(reader, Exception.class).getValue());
+        event = reader.getEventType();
+        if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+          event = reader.nextTag();
+        }
+      }
+      return response;
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Unmarshals a response.
+   *
+   * @param in the response body
+   * @return the unmarshalled response
+   * @throws XMLStreamException if the body is not well-formed
+   * @throws JAXBException if the response cannot be unmarshalled
+   */
+  static CounterReportResponse read(InputStream in) throws XMLStreamException, JAXBException {
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+    try {
+      return JAXB_CONTEXT
+          .createUnmarshaller()
+          .unmarshal(reader, CounterReportResponse.class)
+          .getValue();
+    } finally {
+      reader.close();
+    }
+  }
+}
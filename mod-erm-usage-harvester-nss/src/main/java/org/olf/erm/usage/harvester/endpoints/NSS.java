@@ -5,14 +5,18 @@ import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
-import jakarta.xml.bind.JAXB;
-import java.io.StringReader;
+import io.vertx.ext.web.codec.BodyCodec;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import javax.xml.stream.XMLStreamException;
 import org.folio.rest.jaxrs.model.Aggregator;
 import org.folio.rest.jaxrs.model.AggregatorConfig;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
@@ -24,26 +28,38 @@ import org.niso.schemas.sushi.Exception;
 import org.niso.schemas.sushi.counter.CounterReportResponse;
 import org.olf.erm.usage.counter41.Counter4Utils;
 import org.olf.erm.usage.counter41.Counter4Utils.ReportSplitException;
+import org.olf.erm.usage.harvester.endpoints.ResponseBodySpooler.SpoolingWriteStream;
 
 public class NSS implements ServiceEndpoint {
 
+  private final Vertx vertx;
   private final WebClient client;
+  private final ResponseBodySpooler spooler;
   private final UsageDataProvider provider;
   private final AggregatorSetting aggregator;
+  private final AtomicLong receivedBytes = new AtomicLong();
 
+  /**
+   * Creates an endpoint using the Vertx instance of the current context, or a new Vertx instance if
+   * called outside of a context.
+   */
   public NSS(UsageDataProvider provider, AggregatorSetting aggregator) {
-    Vertx vertx;
-    if (Vertx.currentContext() == null) vertx = Vertx.vertx();
-    else {
-      vertx = Vertx.currentContext().owner();
-    }
+    this(
+        Vertx.currentContext() == null ? Vertx.vertx() : Vertx.currentContext().owner(),
+        provider,
+        aggregator);
+  }
+
+  public NSS(Vertx vertx, UsageDataProvider provider, AggregatorSetting aggregator) {
+    this.vertx = vertx;
     this.provider = provider;
     this.aggregator = aggregator;
 
+    String serviceUrl = aggregator != null ? aggregator.getServiceUrl() : null;
     WebClientOptions options = new WebClientOptions();
-    getProxyOptions(aggregator != null ? aggregator.getServiceUrl() : null)
-        .ifPresent(options::setProxyOptions);
-    this.client = WebClient.create(vertx, options);
+    getProxyOptions(serviceUrl).ifPresent(options::setProxyOptions);
+    this.client = HttpClientRegistry.get(vertx).getWebClient(serviceUrl, options);
+    this.spooler = ResponseBodySpooler.get(vertx);
   }
 
   public String buildURL(String report, String begin, String end) {
@@ -100,35 +116,75 @@ public class NSS implements ServiceEndpoint {
       return Future.failedFuture("Could not create request URL due to missing parameters.");
     }
 
+    SpoolingWriteStream stream = spooler.createStream();
     return client
         .getAbs(url)
+        .as(BodyCodec.pipe(stream))
         .send()
-        .map(
+        .onFailure(t -> stream.discard())
+        .compose(
             resp -> {
               if (resp.statusCode() == 200) {
-                String result = resp.bodyAsString();
-                CounterReportResponse reportResponse =
-                    JAXB.unmarshal(new StringReader(result), CounterReportResponse.class);
-                List<Exception> exceptions = Counter4Utils.getExceptions(reportResponse);
-                if (exceptions.isEmpty()
-                    && reportResponse.getReport() != null
-                    && !reportResponse.getReport().getReport().isEmpty()) {
-                  Report report = reportResponse.getReport().getReport().get(0);
-                  try {
-                    return createCounterReportList(report, reportType, provider);
-                  } catch (java.lang.Exception e) {
-                    throw new InvalidReportException(e);
-                  }
-                } else {
-                  throw new InvalidReportException(Counter4Utils.getErrorMessages(exceptions));
-                }
+                return stream
+                    .body()
+                    .onSuccess(body -> receivedBytes.addAndGet(body.length()))
+                    .compose(
+                        body ->
+                            vertx
+                                .executeBlocking(() -> toCounterReports(body, reportType), false)
+                                // the task may not have run, e.g. if the worker pool is closed
+                                .onFailure(t -> body.close()));
               } else {
-                throw new NSSException(
-                    url + " - " + resp.statusCode() + " : " + resp.statusMessage());
+                stream.discard();
+                return Future.failedFuture(
+                    new NSSException(
+                        url + " - " + resp.statusCode() + " : " + resp.statusMessage()));
               }
             });
   }
 
+  @Override
+  public long getReceivedBytes() {
+    return receivedBytes.get();
+  }
+
+  @Override
+  public Future<Void> close() {
+    client.close();
+    return Future.succeededFuture();
+  }
+
+  private List<CounterReport> toCounterReports(SpooledBody body, String reportType)
+      throws IOException, XMLStreamException, JAXBException {
+    try (body) {
+      List<Exception> exceptions;
+      try (InputStream in = body.openStream()) {
+        exceptions = Counter4Utils.getExceptions(CounterReportResponseReader.readExceptions(in));
+      }
+      if (!exceptions.isEmpty()) {
+        throw new InvalidReportException(Counter4Utils.getErrorMessages(exceptions));
+      }
+
+      CounterReportResponse reportResponse;
+      try (InputStream in = body.openStream()) {
+        reportResponse = CounterReportResponseReader.read(in);
+      }
+      exceptions = Counter4Utils.getExceptions(reportResponse);
+      if (exceptions.isEmpty()
+          && reportResponse.getReport() != null
+          && !reportResponse.getReport().getReport().isEmpty()) {
+        Report report = reportResponse.getReport().getReport().get(0);
+        try {
+          return createCounterReportList(report, reportType, provider);
+        } catch (java.lang.Exception e) {
+          throw new InvalidReportException(e);
+        }
+      } else {
+        throw new InvalidReportException(Counter4Utils.getErrorMessages(exceptions));
+      }
+    }
+  }
+
   static class NSSException extends RuntimeException {
 
     public NSSException(String message) {
@@ -0,0 +1,67 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.io.Resources;
+import jakarta.xml.bind.JAXB;
+import jakarta.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import org.junit.Test;
+import org.niso.schemas.sushi.Exception;
+import org.niso.schemas.sushi.counter.CounterReportResponse;
+import org.olf.erm.usage.counter41.Counter4Utils;
+
+public class CounterReportResponseReaderTest {
+
+  private static InputStream openResource(String name) throws IOException {
+    return Resources.getResource("__files/" + name).openStream();
+  }
+
+  @Test
+  public void testRead() throws IOException, XMLStreamException, JAXBException {
+    CounterReportResponse expected =
+        JAXB.unmarshal(
+            Resources.getResource("__files/nss-report-2016-03.xml"), CounterReportResponse.class);
+
+    try (InputStream in = openResource("nss-report-2016-03.xml")) {
+      assertThat(CounterReportResponseReader.read(in))
+          .usingRecursiveComparison()
+          .isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void testReadExceptions() throws IOException, XMLStreamException, JAXBException {
+    try (InputStream in = openResource("nss-report-2018-03-fail.xml")) {
+      List<Exception> exceptions = CounterReportResponseReader.readExceptions(in).getException();
+      assertThat(exceptions).hasSize(4);
+      assertThat(Counter4Utils.getErrorMessages(exceptions))
+          .contains("1030", "RequestorID", "CustomerID", "Release", "Report");
+    }
+    try (InputStream in = openResource("nss-report-2016-03.xml")) {
+      assertThat(CounterReportResponseReader.readExceptions(in).getException()).isEmpty();
+    }
+  }
+
+  @Test
+  public void testReadExceptionsDoesNotReadReport()
+      throws IOException, XMLStreamException, JAXBException {
+    String body =
+        Resources.toString(
+            Resources.getResource("__files/nss-report-2018-03-fail.xml"), StandardCharsets.UTF_8);
+    String requestor = "<s:Requestor>";
+    byte[] truncated =
+        body.substring(0, body.indexOf(requestor) + requestor.length())
+            .getBytes(StandardCharsets.UTF_8);
+
+    assertThat(
+            CounterReportResponseReader.readExceptions(new ByteArrayInputStream(truncated))
+                .getException())
+        .hasSize(4);
+  }
+}
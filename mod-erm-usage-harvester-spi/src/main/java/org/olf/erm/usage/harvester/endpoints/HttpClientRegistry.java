@@ -0,0 +1,387 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.net.ProxyOptions;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares HTTP connection pools between {@link ServiceEndpoint} instances.
+ *
+ * <p>Creating a client per {@link ServiceEndpoint} means a new connection pool, and thus new TLS
+ * handshakes, for every harvest. Clients configured by this registry share one connection pool per
+ * Vertx instance, scheme, host, port and proxy, so connections are reused across harvests and
+ * across providers on the same host. The clients themselves are created per {@link
+ * ServiceEndpoint}, so credentials are only sent with the requests of the provider they belong to.
+ * A {@link ServiceEndpoint} should close its clients when it is closed.
+ *
+ * <p>Clients that cannot be closed, e.g. generated COUNTER clients, are {@link #leaseClient leased}
+ * instead. A leased client is shared by all endpoints with the same configuration, and is kept
+ * until it has not been leased for the pool idle timeout. A {@link ServiceEndpoint} should release
+ * its leases when it is closed.
+ *
+ * <p>The registry keeps each pool open while it is used, and closes its own reference once the pool
+ * has neither been used by a request nor been leased for the time configured through the system
+ * property {@value #PROP_POOL_IDLE_MINUTES}. The pool is closed when all clients using it are
+ * closed.
+ *
+ * <p>Clients are configured through the system properties {@value #PROP_POOL_SIZE}, {@value
+ * #PROP_IDLE_TIMEOUT_SECONDS} and {@value #PROP_HTTP2}. HTTP/2 is offered via ALPN for HTTPS URLs
+ * and used if the server negotiates it. Idle connections are closed after the idle timeout.
+ * Connection attempts time out after {@value #CONNECT_TIMEOUT_MILLIS} ms.
+ */
+public class HttpClientRegistry {
+
+  public static final String PROP_POOL_SIZE = "harvester.http.poolSize";
+  public static final String PROP_IDLE_TIMEOUT_SECONDS = "harvester.http.idleTimeoutSeconds";
+  public static final String PROP_HTTP2 = "harvester.http.http2";
+  public static final String PROP_POOL_IDLE_MINUTES = "harvester.http.poolIdleMinutes";
+  public static final int DEFAULT_POOL_SIZE = 5;
+  public static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+  public static final int DEFAULT_POOL_IDLE_MINUTES = 10;
+  public static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+  static final long EVICTION_INTERVAL_MILLIS = 60_000;
+  private static final String POOL_NAME_PREFIX = "mod-erm-usage-harvester:";
+  private static final Logger log = LoggerFactory.getLogger(HttpClientRegistry.class);
+  private static final Map<Vertx, HttpClientRegistry> REGISTRIES =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Vertx vertx;
+  private final int poolSize;
+  private final int idleTimeoutSeconds;
+  private final boolean http2;
+  private final Duration poolIdleTimeout;
+  private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+  private final Map<String, LeasedClient> leasedClients = new ConcurrentHashMap<>();
+  private final AtomicBoolean evicting = new AtomicBoolean();
+
+  public HttpClientRegistry(
+      Vertx vertx, int poolSize, int idleTimeoutSeconds, boolean http2, Duration poolIdleTimeout) {
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("poolSize must be greater than 0");
+    }
+    this.vertx = Objects.requireNonNull(vertx, "vertx must not be null");
+    this.poolSize = poolSize;
+    this.idleTimeoutSeconds = idleTimeoutSeconds;
+    this.http2 = http2;
+    this.poolIdleTimeout = poolIdleTimeout;
+  }
+
+  public HttpClientRegistry(Vertx vertx, int poolSize, int idleTimeoutSeconds, boolean http2) {
+    this(vertx, poolSize, idleTimeoutSeconds, http2, Duration.ofMinutes(DEFAULT_POOL_IDLE_MINUTES));
+  }
+
+  /**
+   * Returns the shared registry for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the registry
+   * @return the shared registry for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static HttpClientRegistry get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return REGISTRIES.computeIfAbsent(
+        vertx,
+        v ->
+            new HttpClientRegistry(
+                v,
+                Integer.getInteger(PROP_POOL_SIZE, DEFAULT_POOL_SIZE),
+                Integer.getInteger(PROP_IDLE_TIMEOUT_SECONDS, DEFAULT_IDLE_TIMEOUT_SECONDS),
+                Boolean.parseBoolean(System.getProperty(PROP_HTTP2, "true")),
+                Duration.ofMinutes(
+                    Integer.getInteger(PROP_POOL_IDLE_MINUTES, DEFAULT_POOL_IDLE_MINUTES))));
+  }
+
+  /**
+   * Creates a {@link WebClient} that uses the connection pool of its scheme, host, port and proxy.
+   *
+   * @param url URL of the service
+   * @param options options of the client, e.g. proxy options; pooling, idle timeout and HTTP
+   *     version are set by the registry
+   * @return the client, which should be closed by the caller once it is no longer needed
+   */
+  public WebClient getWebClient(String url, WebClientOptions options) {
+    WebClientOptions configured = configure(url, options);
+    String name = configured.getName();
+    WebClient client = WebClient.create(vertx, configured, getPoolOptions());
+    client.addInterceptor(
+        ctx -> {
+          touch(name);
+          ctx.next();
+        });
+    return client;
+  }
+
+  /**
+   * Leases a client that uses the connection pool of its scheme, host, port and proxy.
+   *
+   * <p>Use this for clients that create their own {@link WebClient} from {@link WebClientOptions}
+   * and cannot be closed, e.g. generated COUNTER clients that are bound to a service URL and
+   * credentials. Leases of the same type, pool and key share one client, so the number of clients
+   * is bounded by the number of distinct configurations rather than by the number of harvests.
+   *
+   * @param url URL of the service
+   * @param options options of the client, e.g. proxy options; idle timeout and HTTP version are set
+   *     by the registry
+   * @param type the type of the client
+   * @param key identifies what the client is bound to besides its options, e.g. service URL and
+   *     credentials; only a hash of it is kept
+   * @param factory creates the client from the configured options
+   * @return the lease, which should be released by the caller once the client is no longer needed
+   */
+  public <T> ClientLease<T> leaseClient(
+      String url,
+      WebClientOptions options,
+      Class<T> type,
+      String key,
+      Function<WebClientOptions, T> factory) {
+    WebClientOptions configured = configure(url, options);
+    String clientKey = type.getName() + " " + configured.getName() + " " + hash(key);
+    LeasedClient leased =
+        leasedClients.compute(
+            clientKey,
+            (k, existing) -> {
+              LeasedClient result =
+                  existing != null
+                      ? existing
+                      : new LeasedClient(factory.apply(configured), configured.getName());
+              result.leases++;
+              result.lastUsed = System.currentTimeMillis();
+              return result;
+            });
+    return new ClientLease<>(this, clientKey, type.cast(leased.client));
+  }
+
+  private void release(String clientKey) {
+    LeasedClient leased =
+        leasedClients.computeIfPresent(
+            clientKey,
+            (k, existing) -> {
+              existing.leases--;
+              existing.lastUsed = System.currentTimeMillis();
+              return existing;
+            });
+    if (leased != null) {
+      touch(leased.poolName);
+    }
+  }
+
+  private void touch(String name) {
+    Pool pool = pools.get(name);
+    if (pool != null) {
+      pool.lastUsed = System.currentTimeMillis();
+    }
+  }
+
+  private WebClientOptions configure(String url, WebClientOptions options) {
+    String name = getPoolName(url, options.getProxyOptions());
+    WebClientOptions configured =
+        new WebClientOptions(options)
+            .setKeepAlive(true)
+            .setIdleTimeout(idleTimeoutSeconds)
+            .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+            .setShared(true)
+            .setName(name);
+    if (http2 && "https".equalsIgnoreCase(getScheme(url))) {
+      configured.setUseAlpn(true).setProtocolVersion(HttpVersion.HTTP_2);
+    }
+    // the registry holds a client of its own, so the pool outlives the clients of single harvests
+    pools.computeIfAbsent(
+                name,
+                k ->
+                    new Pool(
+                        WebClient.create(vertx, configured, getPoolOptions()),
+                        describe(url, options.getProxyOptions())))
+            .lastUsed =
+        System.currentTimeMillis();
+    if (evicting.compareAndSet(false, true)) {
+      vertx.setPeriodic(EVICTION_INTERVAL_MILLIS, id -> evictIdlePools());
+    }
+    return configured;
+  }
+
+  private PoolOptions getPoolOptions() {
+    return new PoolOptions().setHttp1MaxSize(poolSize);
+  }
+
+  /**
+   * Drops leased clients that have not been leased within the pool idle timeout, and closes the
+   * registry's references to pools that have neither been used nor been leased within the pool idle
+   * timeout.
+   *
+   * @return the number of released pools
+   */
+  int evictIdlePools() {
+    long idleSince = System.currentTimeMillis() - poolIdleTimeout.toMillis();
+    Set<String> leasedPools = new HashSet<>();
+    for (String clientKey : leasedClients.keySet()) {
+      LeasedClient leased =
+          leasedClients.computeIfPresent(
+              clientKey,
+              (k, existing) ->
+                  existing.leases <= 0 && existing.lastUsed <= idleSince ? null : existing);
+      if (leased != null && leased.leases > 0) {
+        leasedPools.add(leased.poolName);
+      }
+    }
+    int count = 0;
+    for (Map.Entry<String, Pool> entry : pools.entrySet()) {
+      Pool pool = entry.getValue();
+      if (pool.lastUsed <= idleSince
+          && !leasedPools.contains(entry.getKey())
+          && pools.remove(entry.getKey(), pool)) {
+        pool.client.close();
+        log.debug("Released idle HTTP connection pool {}", pool.description);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static URI parse(String url) {
+    try {
+      return url == null ? null : new URI(url);
+    } catch (URISyntaxException e) {
+      return null;
+    }
+  }
+
+  private static String getScheme(String url) {
+    URI uri = parse(url);
+    return uri == null ? null : uri.getScheme();
+  }
+
+  private static String getOrigin(String url) {
+    URI uri = parse(url);
+    if (uri == null || uri.getScheme() == null) {
+      return url;
+    }
+    String scheme = uri.getScheme().toLowerCase();
+    int port = uri.getPort();
+    if (port == -1) {
+      port = "https".equals(scheme) ? 443 : 80;
+    }
+    return scheme + "://" + uri.getHost() + ":" + port;
+  }
+
+  /**
+   * Returns the name of the pool of a URL and proxy. Clients with different proxy passwords get
+   * different pools, as the proxy credentials are set per connection.
+   */
+  static String getPoolName(String url, ProxyOptions proxyOptions) {
+    String description = describe(url, proxyOptions);
+    if (proxyOptions == null || proxyOptions.getPassword() == null) {
+      return description;
+    }
+    return description + " " + hash(proxyOptions.getPassword());
+  }
+
+  /** Describes the pool of a URL and proxy for logging, without the proxy password. */
+  static String describe(String url, ProxyOptions proxyOptions) {
+    String name = POOL_NAME_PREFIX + getOrigin(url);
+    if (proxyOptions == null) {
+      return name;
+    }
+    String user = proxyOptions.getUsername() == null ? "" : proxyOptions.getUsername() + "@";
+    return name
+        + " via "
+        + proxyOptions.getType().name().toLowerCase()
+        + "://"
+        + user
+        + proxyOptions.getHost()
+        + ":"
+        + proxyOptions.getPort();
+  }
+
+  private static String hash(String value) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest, 0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns the number of pools the registry holds a reference to. */
+  public int size() {
+    return pools.size();
+  }
+
+  /** Returns the number of leased clients the registry holds. */
+  public int leasedClientCount() {
+    return leasedClients.size();
+  }
+
+  /** A client leased from a {@link HttpClientRegistry}. */
+  public static final class ClientLease<T> {
+
+    private final HttpClientRegistry registry;
+    private final String clientKey;
+    private final T client;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private ClientLease(HttpClientRegistry registry, String clientKey, T client) {
+      this.registry = registry;
+      this.clientKey = clientKey;
+      this.client = client;
+    }
+
+    public T get() {
+      return client;
+    }
+
+    /** Releases the lease. Further calls have no effect. */
+    public void release() {
+      if (released.compareAndSet(false, true)) {
+        registry.release(clientKey);
+      }
+    }
+  }
+
+  private static final class Pool {
+
+    private final WebClient client;
+    private final String description;
+    private volatile long lastUsed;
+
+    Pool(WebClient client, String description) {
+      this.client = client;
+      this.description = description;
+    }
+  }
+
+  private static final class LeasedClient {
+
+    private final Object client;
+    private final String poolName;
+    private volatile int leases = 0;
+    private volatile long lastUsed;
+
+    LeasedClient(Object client, String poolName) {
+      this.client = client;
+      this.poolName = poolName;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.MultiMap;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Utility for reading rate limit information from HTTP response headers.
+ *
+ * <p>Supported headers are {@code Retry-After} (delay in seconds or HTTP date), {@code
+ * RateLimit-Reset} and {@code X-RateLimit-Reset} (delay in seconds or epoch seconds).
+ */
+public final class RateLimitHeaders {
+
+  public static final String RETRY_AFTER = "Retry-After";
+  public static final String RATELIMIT_RESET = "RateLimit-Reset";
+  public static final String X_RATELIMIT_RESET = "X-RateLimit-Reset";
+
+  /** Reset values greater than this are interpreted as epoch seconds instead of a delay. */
+  private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+
+  /**
+   * Returns the delay requested by the server before the next request should be made.
+   *
+   * @param headers the response headers
+   * @return Optional with the requested delay, or an empty Optional if none of the supported
+   *     headers is present or parseable
+   */
+  public static Optional<Duration> getRetryAfter(MultiMap headers) {
+    return getRetryAfter(headers, Clock.systemUTC());
+  }
+
+  static Optional<Duration> getRetryAfter(MultiMap headers, Clock clock) {
+    if (headers == null) {
+      return Optional.empty();
+    }
+    return parseRetryAfter(headers.get(RETRY_AFTER), clock)
+        .or(() -> parseReset(headers.get(RATELIMIT_RESET), clock))
+        .or(() -> parseReset(headers.get(X_RATELIMIT_RESET), clock));
+  }
+
+  private static Optional<Duration> parseRetryAfter(String value, Clock clock) {
+    if (value == null || value.isBlank()) {
+      return Optional.empty();
+    }
+    Optional<Long> seconds = parseLong(value);
+    if (seconds.isPresent()) {
+      return seconds.filter(s -> s >= 0).map(Duration::ofSeconds);
+    }
+    try {
+      Instant instant =
+          ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+      return Optional.of(durationUntil(instant, clock));
+    } catch (DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static Optional<Duration> parseReset(String value, Clock clock) {
+    if (value == null || value.isBlank()) {
+      return Optional.empty();
+    }
+    return parseLong(value)
+        .filter(s -> s >= 0)
+        .map(
+            s ->
+                s > EPOCH_SECONDS_THRESHOLD
+                    ? durationUntil(Instant.ofEpochSecond(s), clock)
+                    : Duration.ofSeconds(s));
+  }
+
+  private static Duration durationUntil(Instant instant, Clock clock) {
+    Duration duration = Duration.between(clock.instant(), instant);
+    return duration.isNegative() ? Duration.ZERO : duration;
+  }
+
+  private static Optional<Long> parseLong(String value) {
+    try {
+      return Optional.of(Long.parseLong(value.trim()));
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  private RateLimitHeaders() {
+    // Prevent instantiation
+  }
+}
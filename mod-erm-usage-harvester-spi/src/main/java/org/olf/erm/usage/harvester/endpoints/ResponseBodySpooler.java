@@ -0,0 +1,338 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.streams.WriteStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives HTTP response bodies in memory or, if they are large, in temporary files.
+ *
+ * <p>A body is kept in memory as long as it does not exceed a size threshold and fits into a memory
+ * budget shared by all bodies of a Vertx instance. Otherwise it is spooled to a temporary file, so
+ * that many concurrent fetches of large reports do not exhaust the heap.
+ *
+ * <p>Usage with a {@link io.vertx.ext.web.client.WebClient}:
+ *
+ * <pre>{@code
+ * SpoolingWriteStream stream = ResponseBodySpooler.get(vertx).createStream();
+ * client.getAbs(url).as(BodyCodec.pipe(stream)).send()
+ *     .compose(resp -> stream.body())
+ *     ...
+ * }</pre>
+ *
+ * <p>The spooler of a Vertx instance is configured through the system properties {@value
+ * #PROP_THRESHOLD_BYTES}, {@value #PROP_MEMORY_BUDGET_BYTES} and {@value #PROP_DIRECTORY}. Its
+ * meters are registered with the global {@link Metrics} registry.
+ */
+public class ResponseBodySpooler implements MeterBinder {
+
+  public static final String PROP_THRESHOLD_BYTES = "harvester.http.spoolThresholdBytes";
+  public static final String PROP_MEMORY_BUDGET_BYTES = "harvester.http.memoryBudgetBytes";
+  public static final String PROP_DIRECTORY = "harvester.http.spoolDirectory";
+  public static final long DEFAULT_THRESHOLD_BYTES = 16L * 1024 * 1024;
+  public static final long DEFAULT_MEMORY_BUDGET_BYTES = 256L * 1024 * 1024;
+  private static final Logger log = LoggerFactory.getLogger(ResponseBodySpooler.class);
+  private static final Map<Vertx, ResponseBodySpooler> SPOOLERS =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Vertx vertx;
+  private final long thresholdBytes;
+  private final long memoryBudgetBytes;
+  private final String directory;
+  private final AtomicLong reservedBytes = new AtomicLong();
+  private final AtomicLong spooledBodies = new AtomicLong();
+
+  /**
+   * Creates a spooler.
+   *
+   * @param vertx the Vertx instance
+   * @param thresholdBytes size above which bodies are spooled to a temporary file
+   * @param memoryBudgetBytes maximum number of bytes held in memory by all bodies of this spooler
+   * @param directory directory of temporary files, or null for the default temporary directory
+   */
+  public ResponseBodySpooler(
+      Vertx vertx, long thresholdBytes, long memoryBudgetBytes, String directory) {
+    if (thresholdBytes < 0 || memoryBudgetBytes < 0) {
+      throw new IllegalArgumentException("thresholdBytes and memoryBudgetBytes must not be < 0");
+    }
+    this.vertx = Objects.requireNonNull(vertx, "vertx must not be null");
+    this.thresholdBytes = thresholdBytes;
+    this.memoryBudgetBytes = memoryBudgetBytes;
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the shared spooler for the given Vertx instance, configured by system properties.
+   *
+   * @param vertx the Vertx instance to associate with the spooler
+   * @return the shared spooler for the given Vertx instance
+   * @throws NullPointerException if vertx is null
+   */
+  public static ResponseBodySpooler get(Vertx vertx) {
+    Objects.requireNonNull(vertx, "vertx must not be null");
+    return SPOOLERS.computeIfAbsent(vertx, ResponseBodySpooler::createFromSystemProperties);
+  }
+
+  private static ResponseBodySpooler createFromSystemProperties(Vertx vertx) {
+    ResponseBodySpooler spooler =
+        new ResponseBodySpooler(
+            vertx,
+            getLongProperty(PROP_THRESHOLD_BYTES, DEFAULT_THRESHOLD_BYTES),
+            getLongProperty(PROP_MEMORY_BUDGET_BYTES, DEFAULT_MEMORY_BUDGET_BYTES),
+            System.getProperty(PROP_DIRECTORY));
+    spooler.bindTo(Metrics.globalRegistry);
+    return spooler;
+  }
+
+  private static long getLongProperty(String name, long defaultValue) {
+    long value = Long.getLong(name, defaultValue);
+    if (value < 0) {
+      log.error("Invalid value for {}: {}, using default", name, value);
+      return defaultValue;
+    }
+    return value;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("harvester.http.spool.reserved", this, ResponseBodySpooler::getReservedBytes)
+        .description("Bytes held in memory by open response bodies")
+        .baseUnit("bytes")
+        .register(registry);
+    Gauge.builder("harvester.http.spool.budget", this, ResponseBodySpooler::getMemoryBudgetBytes)
+        .description("Maximum number of bytes held in memory by response bodies")
+        .baseUnit("bytes")
+        .register(registry);
+    FunctionCounter.builder(
+            "harvester.http.spool.spooled", this, ResponseBodySpooler::getSpooledBodies)
+        .description("Response bodies spooled to a temporary file")
+        .register(registry);
+  }
+
+  /** Creates a stream that receives a single response body. */
+  public SpoolingWriteStream createStream() {
+    return new SpoolingWriteStream();
+  }
+
+  private boolean tryReserve(long bytes) {
+    long current;
+    do {
+      current = reservedBytes.get();
+      if (current + bytes > memoryBudgetBytes) {
+        return false;
+      }
+    } while (!reservedBytes.compareAndSet(current, current + bytes));
+    return true;
+  }
+
+  private void release(long bytes) {
+    reservedBytes.addAndGet(-bytes);
+  }
+
+  private void delete(String path) {
+    vertx
+        .fileSystem()
+        .delete(path)
+        .onFailure(t -> log.warn("Error deleting temporary file {}: {}", path, t.getMessage()));
+  }
+
+  public long getThresholdBytes() {
+    return thresholdBytes;
+  }
+
+  public long getMemoryBudgetBytes() {
+    return memoryBudgetBytes;
+  }
+
+  /** Returns the number of bytes currently held in memory by open bodies. */
+  public long getReservedBytes() {
+    return reservedBytes.get();
+  }
+
+  /** Returns the number of bodies that were spooled to a temporary file. */
+  public long getSpooledBodies() {
+    return spooledBodies.get();
+  }
+
+  /**
+   * Receives a single response body, see {@link
+   * io.vertx.ext.web.codec.BodyCodec#pipe(WriteStream)}.
+   *
+   * <p>Must be used from a single Vert.x context.
+   */
+  public final class SpoolingWriteStream implements WriteStream<Buffer> {
+
+    private final Promise<SpooledBody> body = Promise.promise();
+    private Buffer memory = Buffer.buffer();
+    private long reserved;
+    private long length;
+    private String path;
+    private Future<AsyncFile> file;
+    private Handler<Throwable> exceptionHandler;
+    private Handler<Void> drainHandler;
+    private boolean discarded;
+
+    private SpoolingWriteStream() {}
+
+    /** Returns a Future that completes with the body once the stream has ended. */
+    public Future<SpooledBody> body() {
+      return body.future();
+    }
+
+    /**
+     * Releases all resources of this stream, including the body if it has already been received.
+     * Use this if the request fails.
+     */
+    public void discard() {
+      if (discarded) {
+        return;
+      }
+      discarded = true;
+      if (body.future().succeeded()) {
+        body.future().result().close();
+        return;
+      }
+      body.tryFail("Response body discarded");
+      releaseMemory();
+      if (file != null) {
+        file.onComplete(ar -> cleanup(ar.succeeded() ? ar.result() : null));
+      }
+    }
+
+    private void releaseMemory() {
+      release(reserved);
+      reserved = 0;
+      memory = null;
+    }
+
+    private void cleanup(AsyncFile asyncFile) {
+      if (asyncFile != null) {
+        asyncFile.close().onComplete(ar -> delete(path));
+      } else if (path != null) {
+        delete(path);
+      }
+    }
+
+    @Override
+    public Future<Void> write(Buffer data) {
+      if (discarded) {
+        return Future.failedFuture("Response body discarded");
+      }
+      length += data.length();
+      if (file == null) {
+        if (length <= thresholdBytes && tryReserve(data.length())) {
+          reserved += data.length();
+          memory.appendBuffer(data);
+          return Future.succeededFuture();
+        }
+        spool();
+      }
+      return file.compose(f -> f.write(data));
+    }
+
+    private void spool() {
+      spooledBodies.incrementAndGet();
+      Buffer buffered = memory;
+      file =
+          vertx
+              .fileSystem()
+              .createTempFile(directory, "harvester-", ".tmp", (String) null)
+              .compose(
+                  p -> {
+                    path = p;
+                    return vertx.fileSystem().open(p, new OpenOptions().setWrite(true));
+                  })
+              .compose(f -> f.write(buffered).map(f))
+              .onSuccess(
+                  f -> {
+                    releaseMemory();
+                    f.exceptionHandler(exceptionHandler);
+                    f.drainHandler(drainHandler);
+                    if (drainHandler != null && !f.writeQueueFull()) {
+                      drainHandler.handle(null);
+                    }
+                  })
+              .onFailure(
+                  t -> {
+                    releaseMemory();
+                    body.tryFail(t);
+                    if (exceptionHandler != null) {
+                      exceptionHandler.handle(t);
+                    }
+                  });
+    }
+
+    @Override
+    public Future<Void> end() {
+      if (discarded) {
+        return Future.failedFuture("Response body discarded");
+      }
+      if (file == null) {
+        long bytes = reserved;
+        reserved = 0;
+        body.tryComplete(SpooledBody.inMemory(memory, () -> release(bytes)));
+        return Future.succeededFuture();
+      }
+      return file.compose(AsyncFile::end)
+          .onSuccess(
+              v -> {
+                String p = path;
+                body.tryComplete(SpooledBody.inFile(Path.of(p), length, () -> delete(p)));
+              })
+          .onFailure(
+              t -> {
+                body.tryFail(t);
+                cleanup(null);
+              });
+    }
+
+    @Override
+    public SpoolingWriteStream exceptionHandler(Handler<Throwable> handler) {
+      this.exceptionHandler = handler;
+      if (file != null && file.succeeded()) {
+        file.result().exceptionHandler(handler);
+      }
+      return this;
+    }
+
+    @Override
+    public SpoolingWriteStream setWriteQueueMaxSize(int maxSize) {
+      return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+      if (file == null) {
+        return false;
+      }
+      return !file.isComplete() || (file.succeeded() && file.result().writeQueueFull());
+    }
+
+    @Override
+    public SpoolingWriteStream drainHandler(Handler<Void> handler) {
+      this.drainHandler = handler;
+      if (file != null && file.succeeded()) {
+        file.result().drainHandler(handler);
+      }
+      return this;
+    }
+  }
+}
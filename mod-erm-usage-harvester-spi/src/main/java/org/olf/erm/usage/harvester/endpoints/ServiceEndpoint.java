@@ -3,7 +3,9 @@ package org.olf.erm.usage.harvester.endpoints;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.net.ProxyOptions;
 import io.vertx.core.net.ProxyType;
 import java.net.InetSocketAddress;
@@ -48,8 +50,62 @@ public interface ServiceEndpoint {
    */
   Future<List<CounterReport>> fetchReport(String report, String beginDate, String endDate);
 
+  /**
+   * Releases resources held by this endpoint. Called once the endpoint is not used anymore.
+   *
+   * @return Future that completes once the resources are released
+   */
+  default Future<Void> close() {
+    return Future.succeededFuture();
+  }
+
+  /**
+   * Returns the number of response body bytes received by this endpoint so far.
+   *
+   * @return the number of bytes received, or -1 if this endpoint does not count received bytes
+   */
+  default long getReceivedBytes() {
+    return -1;
+  }
+
   static CounterReport createCounterReport(
       String reportData, String reportName, UsageDataProvider provider, YearMonth yearMonth) {
+    CounterReport cr = newCounterReport(reportName, provider, yearMonth);
+    if (reportData != null) {
+      cr.setReport(Json.decodeValue(reportData, Report.class));
+    } else {
+      cr.setFailedAttempts(1);
+    }
+    return cr;
+  }
+
+  /**
+   * Creates a {@link CounterReport} from report data given as object.
+   *
+   * <p>The report data is converted directly into a {@link Report}, avoiding the costly round trip
+   * through a JSON string of {@link #createCounterReport(String, String, UsageDataProvider,
+   * YearMonth)}.
+   *
+   * @param reportData the report as POJO or JSON tree (e.g. {@code JsonNode} or {@code
+   *     JsonObject}), a JSON string is decoded; null creates a failed report
+   * @param reportName report name
+   * @param provider the provider the report was fetched from
+   * @param yearMonth month of the report
+   * @return the created {@link CounterReport}
+   */
+  static CounterReport createCounterReport(
+      Object reportData, String reportName, UsageDataProvider provider, YearMonth yearMonth) {
+    if (reportData == null || reportData instanceof String) {
+      return createCounterReport((String) reportData, reportName, provider, yearMonth);
+    }
+    CounterReport cr = newCounterReport(reportName, provider, yearMonth);
+    Object value = reportData instanceof JsonObject jsonObject ? jsonObject.getMap() : reportData;
+    cr.setReport(Json.CODEC.fromValue(value, Report.class));
+    return cr;
+  }
+
+  private static CounterReport newCounterReport(
+      String reportName, UsageDataProvider provider, YearMonth yearMonth) {
     CounterReport cr = new CounterReport();
     cr.setId(UUID.randomUUID().toString());
     cr.setYearMonth(yearMonth.toString());
@@ -57,11 +113,6 @@ public interface ServiceEndpoint {
     cr.setRelease(provider.getHarvestingConfig().getReportRelease());
     cr.setProviderId(provider.getId());
     cr.setDownloadTime(Date.from(Instant.now()));
-    if (reportData != null) {
-      cr.setReport(Json.decodeValue(reportData, Report.class));
-    } else {
-      cr.setFailedAttempts(1);
-    }
     return cr;
   }
 
@@ -71,7 +122,19 @@ public interface ServiceEndpoint {
     return Lists.newArrayList(loader.iterator());
   }
 
-  static ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator) {
+  /**
+   * Creates a {@link ServiceEndpoint} for a provider using the {@link ServiceEndpointProvider} of
+   * the provider's or aggregator's service type.
+   *
+   * @param vertx the Vertx instance the endpoint runs on
+   * @param provider the provider to harvest
+   * @param aggregator aggregator setting if the provider is harvested via an aggregator, otherwise
+   *     null
+   * @return the created endpoint, or null if no implementation is found
+   */
+  static ServiceEndpoint create(
+      Vertx vertx, UsageDataProvider provider, AggregatorSetting aggregator) {
+    Objects.requireNonNull(vertx);
     Objects.requireNonNull(provider);
 
     String serviceType;
@@ -95,7 +158,7 @@ public interface ServiceEndpoint {
         ServiceLoader.load(ServiceEndpointProvider.class);
     for (ServiceEndpointProvider p : loader) {
       if (p.getServiceType().equals(serviceType)) {
-        return p.create(provider, aggregator);
+        return p.create(vertx, provider, aggregator);
       }
     }
 
@@ -1,5 +1,6 @@
 package org.olf.erm.usage.harvester.endpoints;
 
+import io.vertx.core.Vertx;
 import java.util.Collections;
 import java.util.List;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
@@ -34,7 +35,18 @@ public interface ServiceEndpointProvider {
     return false;
   }
 
-  ServiceEndpoint create(UsageDataProvider provider, AggregatorSetting aggregator);
+  /**
+   * Creates a {@link ServiceEndpoint} for a provider.
+   *
+   * <p>Implementations must use the given Vertx instance instead of creating their own.
+   *
+   * @param vertx the Vertx instance the endpoint runs on
+   * @param provider the provider to harvest
+   * @param aggregator aggregator setting if the provider is harvested via an aggregator, otherwise
+   *     null
+   * @return the created endpoint
+   */
+  ServiceEndpoint create(Vertx vertx, UsageDataProvider provider, AggregatorSetting aggregator);
 
   default List<String> getConfigurationParameters() {
     return Collections.emptyList();
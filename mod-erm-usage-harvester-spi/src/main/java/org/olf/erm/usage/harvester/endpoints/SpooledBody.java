@@ -0,0 +1,107 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import io.vertx.core.buffer.Buffer;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response body received by {@link ResponseBodySpooler}, held either in memory or in a temporary
+ * file.
+ *
+ * <p>Closing the body releases its memory or deletes its file.
+ */
+public final class SpooledBody implements AutoCloseable {
+
+  private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+  private final Buffer buffer;
+  private final Path file;
+  private final long length;
+  private final Runnable onClose;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  private SpooledBody(Buffer buffer, Path file, long length, Runnable onClose) {
+    this.buffer = buffer;
+    this.file = file;
+    this.length = length;
+    this.onClose = onClose;
+  }
+
+  static SpooledBody inMemory(Buffer buffer, Runnable onClose) {
+    return new SpooledBody(buffer, null, buffer.length(), onClose);
+  }
+
+  static SpooledBody inFile(Path file, long length, Runnable onClose) {
+    return new SpooledBody(null, file, length, onClose);
+  }
+
+  public long length() {
+    return length;
+  }
+
+  /** Returns {@code true} if the body was spooled to a temporary file. */
+  public boolean isSpooled() {
+    return file != null;
+  }
+
+  /**
+   * Opens a stream to read the body. Can be called multiple times while the body is open.
+   *
+   * @return a new stream positioned at the beginning of the body
+   * @throws IOException if the temporary file cannot be opened
+   */
+  public InputStream openStream() throws IOException {
+    if (closed.get()) {
+      throw new IllegalStateException("Body is closed");
+    }
+    return file == null
+        ? new BufferInputStream(buffer)
+        : new BufferedInputStream(Files.newInputStream(file), FILE_BUFFER_SIZE);
+  }
+
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      onClose.run();
+    }
+  }
+
+  /** Reads a {@link Buffer} without copying it into a byte array first. */
+  private static final class BufferInputStream extends InputStream {
+
+    private final Buffer buffer;
+    private int position;
+
+    BufferInputStream(Buffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return position < buffer.length() ? buffer.getByte(position++) & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      int count = Math.min(len, buffer.length() - position);
+      if (count <= 0) {
+        return -1;
+      }
+      buffer.getBytes(position, position + count, b, off);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.length() - position;
+    }
+  }
+}
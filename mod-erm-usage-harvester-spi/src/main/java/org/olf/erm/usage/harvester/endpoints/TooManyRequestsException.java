@@ -1,20 +1,60 @@
 package org.olf.erm.usage.harvester.endpoints;
 
+import java.time.Duration;
+import java.util.Optional;
+
 public class TooManyRequestsException extends RuntimeException {
 
   public static final String TOO_MANY_REQUEST_STR = "too many requests";
   public static final int TOO_MANY_REQUEST_ERROR_CODE = 1020;
 
+  private final Duration retryAfter;
+
   public TooManyRequestsException() {
     super();
+    this.retryAfter = null;
   }
 
   public TooManyRequestsException(String message) {
     super(message);
+    this.retryAfter = null;
   }
 
   public TooManyRequestsException(String message, Throwable cause) {
     super(message, cause);
+    this.retryAfter = null;
+  }
+
+  /**
+   * Constructs an exception without a message and with a delay that the provider requested before
+   * the next request should be made.
+   *
+   * @param retryAfter The requested delay, or null if not known
+   */
+  public TooManyRequestsException(Duration retryAfter) {
+    super();
+    this.retryAfter = retryAfter;
   }
 
+  /**
+   * Constructs an exception with a delay that the provider requested before the next request should
+   * be made.
+   *
+   * @param message The exception message
+   * @param retryAfter The requested delay, or null if not known
+   */
+  public TooManyRequestsException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * Returns the delay that the provider requested before the next request should be made, e.g. as
+   * signaled by a {@code Retry-After} header.
+   *
+   * @return Optional with the requested delay, or an empty Optional if not known
+   */
+  public Optional<Duration> getRetryAfter() {
+    return Optional.ofNullable(retryAfter);
+  }
 }
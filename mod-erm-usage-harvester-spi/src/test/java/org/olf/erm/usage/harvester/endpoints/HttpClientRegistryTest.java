@@ -0,0 +1,215 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static java.util.function.Function.identity;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.olf.erm.usage.harvester.endpoints.HttpClientRegistry.getPoolName;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.net.ProxyOptions;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.olf.erm.usage.harvester.endpoints.HttpClientRegistry.ClientLease;
+
+@ExtendWith(VertxExtension.class)
+class HttpClientRegistryTest {
+
+  private static final ProxyOptions PROXY =
+      new ProxyOptions().setHost("proxy").setPort(3128).setUsername("user").setPassword("secret");
+
+  @Test
+  void testPoolIsSharedPerOriginAndProxy(Vertx vertx) {
+    HttpClientRegistry registry = new HttpClientRegistry(vertx, 5, 60, true);
+
+    registry.getWebClient("https://example.com/sushi?Report=JR1", new WebClientOptions());
+    registry.getWebClient("https://example.com:443/other", new WebClientOptions());
+    registry.getWebClient("https://example.org/sushi", new WebClientOptions());
+    registry.getWebClient("http://example.com/sushi", new WebClientOptions());
+    registry.getWebClient(
+        "https://example.com/sushi", new WebClientOptions().setProxyOptions(PROXY));
+    assertThat(registry.size()).isEqualTo(4);
+  }
+
+  @Test
+  void testPoolName() {
+    String name = getPoolName("https://example.com/sushi?Report=JR1", null);
+    assertThat(name).isEqualTo("mod-erm-usage-harvester:https://example.com:443");
+    assertThat(getPoolName("https://example.com:443/other", null)).isEqualTo(name);
+    assertThat(getPoolName("http://example.com/sushi", null))
+        .isEqualTo("mod-erm-usage-harvester:http://example.com:80");
+    assertThat(HttpClientRegistry.describe("https://example.com/sushi", PROXY))
+        .isEqualTo(name + " via http://user@proxy:3128");
+    assertThat(getPoolName("https://example.com/sushi", PROXY))
+        .startsWith(name + " via http://user@proxy:3128 ")
+        .doesNotContain("secret");
+  }
+
+  @Test
+  void testPoolNameDependsOnProxyPassword() {
+    ProxyOptions otherPassword = new ProxyOptions(PROXY).setPassword("other");
+    assertThat(getPoolName("https://example.com", PROXY))
+        .isEqualTo(getPoolName("https://example.com", new ProxyOptions(PROXY)))
+        .isNotEqualTo(getPoolName("https://example.com", otherPassword));
+  }
+
+  @Test
+  void testClientsShareConnections(Vertx vertx, VertxTestContext testContext) {
+    AtomicInteger connections = new AtomicInteger();
+    HttpServer server =
+        vertx
+            .createHttpServer()
+            .connectionHandler(conn -> connections.incrementAndGet())
+            .requestHandler(req -> req.response().end("ok"));
+    HttpClientRegistry registry = new HttpClientRegistry(vertx, 5, 60, true);
+
+    server
+        .listen(0)
+        .compose(
+            s -> {
+              String url = "http://localhost:" + s.actualPort();
+              WebClient first = registry.getWebClient(url + "/a", new WebClientOptions());
+              WebClient second = registry.getWebClient(url + "/b", new WebClientOptions());
+              return first
+                  .getAbs(url + "/a")
+                  .send()
+                  // give the pool time to take the connection back
+                  .compose(resp -> vertx.timer(100))
+                  .compose(v -> second.getAbs(url + "/b").send())
+                  .onComplete(
+                      ar -> {
+                        first.close();
+                        second.close();
+                      });
+            })
+        .onComplete(
+            testContext.succeeding(
+                resp ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(resp.bodyAsString()).isEqualTo("ok");
+                          assertThat(connections.get()).isEqualTo(1);
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testEvictIdlePools(Vertx vertx) {
+    HttpClientRegistry registry = new HttpClientRegistry(vertx, 5, 60, true, Duration.ofMinutes(1));
+    registry.getWebClient("https://example.com", new WebClientOptions()).close();
+    assertThat(registry.evictIdlePools()).isZero();
+    assertThat(registry.size()).isEqualTo(1);
+
+    HttpClientRegistry idle = new HttpClientRegistry(vertx, 5, 60, true, Duration.ZERO);
+    idle.getWebClient("https://example.com", new WebClientOptions()).close();
+    idle.getWebClient("https://example.org", new WebClientOptions()).close();
+    assertThat(idle.evictIdlePools()).isEqualTo(2);
+    assertThat(idle.size()).isZero();
+  }
+
+  @Test
+  void testRequestsKeepPoolInUse(Vertx vertx, VertxTestContext testContext) {
+    HttpServer server = vertx.createHttpServer().requestHandler(req -> req.response().end("ok"));
+    HttpClientRegistry registry =
+        new HttpClientRegistry(vertx, 5, 60, true, Duration.ofMillis(500));
+
+    server
+        .listen(0)
+        .compose(
+            s -> {
+              String url = "http://localhost:" + s.actualPort();
+              WebClient client = registry.getWebClient(url, new WebClientOptions());
+              return vertx
+                  .timer(400)
+                  .compose(v -> client.getAbs(url).send())
+                  .compose(resp -> vertx.timer(200))
+                  .onComplete(ar -> client.close());
+            })
+        .onComplete(
+            testContext.succeeding(
+                v ->
+                    testContext.verify(
+                        () -> {
+                          // created 600 ms ago, but used 200 ms ago
+                          assertThat(registry.evictIdlePools()).isZero();
+                          assertThat(registry.size()).isOne();
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testLeasedClientsAreSharedAndEvicted(Vertx vertx) {
+    HttpClientRegistry registry = new HttpClientRegistry(vertx, 5, 60, true, Duration.ZERO);
+    List<ClientLease<Object>> leases = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      leases.add(
+          registry.leaseClient(
+              "https://example.com",
+              new WebClientOptions(),
+              Object.class,
+              "key",
+              o -> new Object()));
+    }
+    leases.add(
+        registry.leaseClient(
+            "https://example.com",
+            new WebClientOptions(),
+            Object.class,
+            "other",
+            o -> new Object()));
+    assertThat(leases.get(99).get()).isSameAs(leases.get(0).get());
+    assertThat(leases.get(100).get()).isNotSameAs(leases.get(0).get());
+    assertThat(registry.leasedClientCount()).isEqualTo(2);
+
+    // leased clients keep their pool
+    assertThat(registry.evictIdlePools()).isZero();
+    assertThat(registry.leasedClientCount()).isEqualTo(2);
+    assertThat(registry.size()).isOne();
+
+    leases.forEach(ClientLease::release);
+    leases.get(0).release();
+    assertThat(registry.evictIdlePools()).isOne();
+    assertThat(registry.leasedClientCount()).isZero();
+    assertThat(registry.size()).isZero();
+  }
+
+  @Test
+  void testOptions(Vertx vertx) {
+    HttpClientRegistry registry = new HttpClientRegistry(vertx, 5, 30, true);
+
+    WebClientOptions options = lease(registry, "https://example.com");
+    assertThat(options.getProtocolVersion()).isEqualTo(HttpVersion.HTTP_2);
+    assertThat(options.isUseAlpn()).isTrue();
+    assertThat(options.isKeepAlive()).isTrue();
+    assertThat(options.getIdleTimeout()).isEqualTo(30);
+    assertThat(options.getConnectTimeout()).isEqualTo(HttpClientRegistry.CONNECT_TIMEOUT_MILLIS);
+    assertThat(options.isShared()).isTrue();
+    assertThat(options.getName()).isEqualTo(getPoolName("https://example.com", null));
+
+    assertThat(lease(registry, "http://example.com").getProtocolVersion())
+        .isEqualTo(HttpVersion.HTTP_1_1);
+    assertThat(
+            lease(new HttpClientRegistry(vertx, 5, 30, false), "https://example.com")
+                .getProtocolVersion())
+        .isEqualTo(HttpVersion.HTTP_1_1);
+  }
+
+  private static WebClientOptions lease(HttpClientRegistry registry, String url) {
+    return registry
+        .leaseClient(url, new WebClientOptions(), WebClientOptions.class, url, identity())
+        .get();
+  }
+
+  @Test
+  void testGetReturnsSameInstanceForSameVertx(Vertx vertx) {
+    assertThat(HttpClientRegistry.get(vertx)).isSameAs(HttpClientRegistry.get(vertx));
+  }
+}
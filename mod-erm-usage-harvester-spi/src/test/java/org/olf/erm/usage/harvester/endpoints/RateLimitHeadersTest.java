@@ -0,0 +1,64 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.olf.erm.usage.harvester.endpoints.RateLimitHeaders.RATELIMIT_RESET;
+import static org.olf.erm.usage.harvester.endpoints.RateLimitHeaders.RETRY_AFTER;
+import static org.olf.erm.usage.harvester.endpoints.RateLimitHeaders.X_RATELIMIT_RESET;
+import static org.olf.erm.usage.harvester.endpoints.RateLimitHeaders.getRetryAfter;
+
+import io.vertx.core.MultiMap;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class RateLimitHeadersTest {
+
+  private static final Instant NOW = Instant.parse("2024-05-01T10:00:00Z");
+  private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+  private static MultiMap headers(String name, String value) {
+    return MultiMap.caseInsensitiveMultiMap().add(name, value);
+  }
+
+  @Test
+  void testRetryAfterSeconds() {
+    assertThat(getRetryAfter(headers(RETRY_AFTER, "120"), CLOCK)).hasValue(Duration.ofSeconds(120));
+    assertThat(getRetryAfter(headers("retry-after", " 5 "), CLOCK)).hasValue(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testRetryAfterHttpDate() {
+    assertThat(getRetryAfter(headers(RETRY_AFTER, "Wed, 1 May 2024 10:01:30 GMT"), CLOCK))
+        .hasValue(Duration.ofSeconds(90));
+    assertThat(getRetryAfter(headers(RETRY_AFTER, "Wed, 1 May 2024 09:00:00 GMT"), CLOCK))
+        .hasValue(Duration.ZERO);
+  }
+
+  @Test
+  void testRateLimitReset() {
+    assertThat(getRetryAfter(headers(RATELIMIT_RESET, "30"), CLOCK))
+        .hasValue(Duration.ofSeconds(30));
+    assertThat(
+            getRetryAfter(
+                headers(X_RATELIMIT_RESET, String.valueOf(NOW.plusSeconds(45).getEpochSecond())),
+                CLOCK))
+        .hasValue(Duration.ofSeconds(45));
+  }
+
+  @Test
+  void testRetryAfterTakesPrecedence() {
+    MultiMap headers = headers(RETRY_AFTER, "10").add(X_RATELIMIT_RESET, "60");
+    assertThat(getRetryAfter(headers, CLOCK)).hasValue(Duration.ofSeconds(10));
+  }
+
+  @Test
+  void testInvalidOrMissingHeaders() {
+    assertThat(getRetryAfter(null, CLOCK)).isEmpty();
+    assertThat(getRetryAfter(MultiMap.caseInsensitiveMultiMap(), CLOCK)).isEmpty();
+    assertThat(getRetryAfter(headers(RETRY_AFTER, "soon"), CLOCK)).isEmpty();
+    assertThat(getRetryAfter(headers(RETRY_AFTER, "-1"), CLOCK)).isEmpty();
+    assertThat(getRetryAfter(headers(X_RATELIMIT_RESET, ""), CLOCK)).isEmpty();
+  }
+}
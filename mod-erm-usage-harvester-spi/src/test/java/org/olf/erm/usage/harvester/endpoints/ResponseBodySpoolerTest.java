@@ -0,0 +1,182 @@
+package org.olf.erm.usage.harvester.endpoints;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.codec.BodyCodec;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(VertxExtension.class)
+class ResponseBodySpoolerTest {
+
+  @TempDir Path tempDir;
+
+  private static Buffer createData(int size) {
+    Buffer buffer = Buffer.buffer(size);
+    for (int i = 0; i < size; i++) {
+      buffer.appendByte((byte) i);
+    }
+    return buffer;
+  }
+
+  private static Future<SpooledBody> receive(ResponseBodySpooler spooler, Buffer... chunks) {
+    ResponseBodySpooler.SpoolingWriteStream stream = spooler.createStream();
+    Future<Void> writes = Future.succeededFuture();
+    for (Buffer chunk : chunks) {
+      writes = writes.compose(v -> stream.write(chunk));
+    }
+    return writes.compose(v -> stream.end()).compose(v -> stream.body());
+  }
+
+  private static Buffer readAll(SpooledBody body) throws IOException {
+    try (InputStream in = body.openStream()) {
+      return Buffer.buffer(in.readAllBytes());
+    }
+  }
+
+  private static long countFiles(Path dir) throws IOException {
+    try (var files = Files.list(dir)) {
+      return files.count();
+    }
+  }
+
+  @Test
+  void testSmallBodyIsKeptInMemory(Vertx vertx, VertxTestContext testContext) {
+    ResponseBodySpooler spooler = new ResponseBodySpooler(vertx, 100, 1000, tempDir.toString());
+    Buffer data = createData(60);
+
+    receive(spooler, data.slice(0, 30), data.slice(30, 60))
+        .onComplete(
+            testContext.succeeding(
+                body ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(body.isSpooled()).isFalse();
+                          assertThat(body.length()).isEqualTo(60);
+                          assertThat(readAll(body)).isEqualTo(data);
+                          assertThat(spooler.getReservedBytes()).isEqualTo(60);
+                          body.close();
+                          body.close();
+                          assertThat(spooler.getReservedBytes()).isZero();
+                          assertThat(spooler.getSpooledBodies()).isZero();
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testLargeBodyIsSpooled(Vertx vertx, VertxTestContext testContext) {
+    ResponseBodySpooler spooler = new ResponseBodySpooler(vertx, 100, 1000, tempDir.toString());
+    Buffer data = createData(250);
+
+    receive(spooler, data.slice(0, 80), data.slice(80, 160), data.slice(160, 250))
+        .onComplete(
+            testContext.succeeding(
+                body ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(body.isSpooled()).isTrue();
+                          assertThat(body.length()).isEqualTo(250);
+                          assertThat(readAll(body)).isEqualTo(data);
+                          assertThat(spooler.getReservedBytes()).isZero();
+                          assertThat(spooler.getSpooledBodies()).isEqualTo(1);
+                          assertThat(countFiles(tempDir)).isEqualTo(1);
+                          body.close();
+                          vertx.setTimer(
+                              100,
+                              id ->
+                                  testContext.verify(
+                                      () -> {
+                                        assertThat(countFiles(tempDir)).isZero();
+                                        testContext.completeNow();
+                                      }));
+                        })));
+  }
+
+  @Test
+  void testBodyIsSpooledIfMemoryBudgetIsExhausted(Vertx vertx, VertxTestContext testContext) {
+    ResponseBodySpooler spooler = new ResponseBodySpooler(vertx, 100, 100, tempDir.toString());
+    Buffer data = createData(80);
+
+    receive(spooler, data)
+        .compose(first -> receive(spooler, data).map(second -> new SpooledBody[] {first, second}))
+        .onComplete(
+            testContext.succeeding(
+                bodies ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(bodies[0].isSpooled()).isFalse();
+                          assertThat(bodies[1].isSpooled()).isTrue();
+                          assertThat(readAll(bodies[1])).isEqualTo(data);
+                          assertThat(spooler.getReservedBytes()).isEqualTo(80);
+                          bodies[0].close();
+                          bodies[1].close();
+                          assertThat(spooler.getReservedBytes()).isZero();
+                          testContext.completeNow();
+                        })));
+  }
+
+  @Test
+  void testDiscard(Vertx vertx, VertxTestContext testContext) {
+    ResponseBodySpooler spooler = new ResponseBodySpooler(vertx, 100, 1000, tempDir.toString());
+    ResponseBodySpooler.SpoolingWriteStream stream = spooler.createStream();
+
+    stream
+        .write(createData(50))
+        .compose(v -> stream.write(createData(100)))
+        .onComplete(
+            testContext.succeeding(
+                v -> {
+                  stream.discard();
+                  vertx.setTimer(
+                      100,
+                      id ->
+                          testContext.verify(
+                              () -> {
+                                assertThat(stream.body().failed()).isTrue();
+                                assertThat(spooler.getReservedBytes()).isZero();
+                                assertThat(countFiles(tempDir)).isZero();
+                                testContext.completeNow();
+                              }));
+                }));
+  }
+
+  @Test
+  void testWithWebClient(Vertx vertx, VertxTestContext testContext) throws Exception {
+    ResponseBodySpooler spooler =
+        new ResponseBodySpooler(vertx, 64 * 1024, 1024 * 1024, tempDir.toString());
+    Buffer data = createData(1024 * 1024);
+    HttpServer server = vertx.createHttpServer().requestHandler(req -> req.response().end(data));
+    int port = server.listen(0).await(5, TimeUnit.SECONDS).actualPort();
+    WebClient client = WebClient.create(vertx);
+
+    ResponseBodySpooler.SpoolingWriteStream stream = spooler.createStream();
+    client
+        .get(port, "localhost", "/")
+        .as(BodyCodec.pipe(stream))
+        .send()
+        .compose(resp -> stream.body())
+        .onComplete(
+            testContext.succeeding(
+                body ->
+                    testContext.verify(
+                        () -> {
+                          assertThat(body.isSpooled()).isTrue();
+                          assertThat(readAll(body)).isEqualTo(data);
+                          body.close();
+                          testContext.completeNow();
+                        })));
+  }
+}
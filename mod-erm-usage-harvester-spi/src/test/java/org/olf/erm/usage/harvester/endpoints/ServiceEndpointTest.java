@@ -2,24 +2,34 @@ package org.olf.erm.usage.harvester.endpoints;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.net.ProxyOptions;
 import io.vertx.core.net.ProxyType;
+import io.vertx.junit5.VertxExtension;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.ProxySelector;
 import java.net.SocketAddress;
 import java.net.URI;
+import java.time.YearMonth;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.folio.rest.jaxrs.model.AggregatorSetting;
+import org.folio.rest.jaxrs.model.CounterReport;
 import org.folio.rest.jaxrs.model.HarvestingConfig;
 import org.folio.rest.jaxrs.model.SushiConfig;
 import org.folio.rest.jaxrs.model.UsageDataProvider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 
+@ExtendWith(VertxExtension.class)
 class ServiceEndpointTest {
 
   private final ProxySelector originalProxySelector = ProxySelector.getDefault();
@@ -45,48 +55,85 @@ class ServiceEndpointTest {
   }
 
   @Test
-  void testCreateNoImplGiven() {
+  void testCreateNoImplGiven(Vertx vertx) {
     ServiceEndpoint sep =
-        ServiceEndpoint.create(provider, new AggregatorSetting().withServiceType(""));
+        ServiceEndpoint.create(vertx, provider, new AggregatorSetting().withServiceType(""));
     assertThat(sep).isNull();
   }
 
   @Test
-  void testCreateNoImplFound() {
+  void testCreateNoImplFound(Vertx vertx) {
     ServiceEndpoint sep =
         ServiceEndpoint.create(
-            provider, new AggregatorSetting().withServiceType("TestProviderType2"));
+            vertx, provider, new AggregatorSetting().withServiceType("TestProviderType2"));
     assertThat(sep).isNull();
   }
 
   @Test
-  void testCreateOk() {
+  void testCreateOk(Vertx vertx) {
     ServiceEndpoint sep =
         ServiceEndpoint.create(
-            provider, new AggregatorSetting().withServiceType("TestProviderType"));
+            vertx, provider, new AggregatorSetting().withServiceType("TestProviderType"));
     assertThat(sep).isInstanceOf(TestProviderImpl.class);
   }
 
   @Test
-  void testCreateOkNoAggregator() {
-    ServiceEndpoint sep = ServiceEndpoint.create(provider, null);
+  void testCreateOkNoAggregator(Vertx vertx) {
+    ServiceEndpoint sep = ServiceEndpoint.create(vertx, provider, null);
     assertThat(sep).isInstanceOf(TestProviderImpl.class);
   }
 
   @Test
-  void testCreateNoHarvesterConfig() {
-    ServiceEndpoint sep = ServiceEndpoint.create(new UsageDataProvider(), null);
+  void testCreateNoHarvesterConfig(Vertx vertx) {
+    ServiceEndpoint sep = ServiceEndpoint.create(vertx, new UsageDataProvider(), null);
     assertThat(sep).isNull();
   }
 
   @Test
-  void testCreateNoSushiConfig() {
+  void testCreateNoSushiConfig(Vertx vertx) {
     ServiceEndpoint sep =
         ServiceEndpoint.create(
-            new UsageDataProvider().withHarvestingConfig(new HarvestingConfig()), null);
+            vertx, new UsageDataProvider().withHarvestingConfig(new HarvestingConfig()), null);
     assertThat(sep).isNull();
   }
 
+  @Test
+  void testCreateCounterReportFromObject() {
+    UsageDataProvider udp =
+        new UsageDataProvider()
+            .withId("providerId")
+            .withHarvestingConfig(new HarvestingConfig().withReportRelease("5"));
+    JsonObject report =
+        new JsonObject()
+            .put("Report_Header", new JsonObject().put("Report_ID", "TR"))
+            .put("Report_Items", new JsonArray().add(new JsonObject().put("Title", "Title")));
+    YearMonth yearMonth = YearMonth.of(2024, 1);
+
+    CounterReport fromString =
+        ServiceEndpoint.createCounterReport(report.encode(), "TR", udp, yearMonth);
+    assertThat(
+            Stream.of(
+                ServiceEndpoint.createCounterReport((Object) report, "TR", udp, yearMonth),
+                ServiceEndpoint.createCounterReport(report.getMap(), "TR", udp, yearMonth),
+                ServiceEndpoint.createCounterReport(
+                    (Object) report.encode(), "TR", udp, yearMonth)))
+        .allSatisfy(
+            cr -> {
+              assertThat(cr.getReportName()).isEqualTo("TR");
+              assertThat(cr.getRelease()).isEqualTo("5");
+              assertThat(cr.getProviderId()).isEqualTo("providerId");
+              assertThat(cr.getYearMonth()).isEqualTo("2024-01");
+              assertThat(cr.getFailedAttempts()).isNull();
+              assertThat(Json.encode(cr.getReport()))
+                  .isEqualTo(Json.encode(fromString.getReport()))
+                  .isEqualTo(report.encode());
+            });
+
+    CounterReport failed = ServiceEndpoint.createCounterReport((Object) null, "TR", udp, yearMonth);
+    assertThat(failed.getReport()).isNull();
+    assertThat(failed.getFailedAttempts()).isEqualTo(1);
+  }
+
   @Test
   void testGetProxyOptionsReturnsEmptyWhenUrlIsNull() {
     Optional<ProxyOptions> result = serviceEndpoint.getProxyOptions(null);